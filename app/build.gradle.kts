@@ -32,6 +32,18 @@ android {
     buildFeatures {
         viewBinding = true
     }
+    testOptions {
+        unitTests {
+            // Robolectric infla los layouts reales en los tests de rendimiento de los adaptadores
+            isIncludeAndroidResources = true
+            // Los tests de JVM pura (ej. la cola de escrituras) pasan por android.util.Log
+            isReturnDefaultValues = true
+            // Los presupuestos de tiempo de PerformanceBudgetTest solo se exigen con -Pperf.enforceTime=true
+            all {
+                it.systemProperty("perf.enforceTime", project.findProperty("perf.enforceTime") ?: "false")
+            }
+        }
+    }
 }
 
 dependencies {
@@ -43,6 +55,7 @@ dependencies {
     implementation(libs.navigation.fragment)
     implementation(libs.navigation.ui)
     testImplementation(libs.junit)
+    testImplementation(libs.robolectric)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.example.misgastosam;
+
+/**
+ * Una cuenta (efectivo, banco, tarjeta...). Cada transacción pertenece a una sola; el saldo
+ * lo mantiene la DB con triggers, así leerlo no recorre las transacciones.
+ */
+public class Account {
+    // La cuenta de las transacciones cargadas antes de que hubiera cuentas y de las que llegan por sync sin cuenta
+    public static final int DEFAULT_ID = 1;
+    // Para las consultas: sin filtro de cuenta
+    public static final int ALL = -1;
+
+    private final int id;
+    private final String name;
+    private final double balance;
+
+    public Account(int id, String name, double balance) {
+        this.id = id;
+        this.name = name;
+        this.balance = balance;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getBalance() {
+        return balance;
+    }
+
+    @Override
+    public String toString() {
+        return name; // Lo que muestra el Spinner
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.misgastosam;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Saldo total y saldo del mes ya calculados, guardados en SharedPreferences para que el widget
+ * los lea sin abrir SQLite. Después de la primera lectura SharedPreferences queda en memoria,
+ * así leer la foto cuesta microsegundos. La escribe {@link BalanceWidgetUpdater} tras cada
+ * escritura confirmada.
+ */
+public class BalanceSnapshot {
+
+    private static final String PREFS_NAME = "BalanceSnapshot";
+    private static final String KEY_TOTAL_CENTS = "total_cents";
+    private static final String KEY_MONTH = "month"; // YYYY-MM al que corresponde month_cents
+    private static final String KEY_MONTH_CENTS = "month_cents";
+    private static final String KEY_WRITE_VERSION = "write_version";
+
+    private final long totalCents;
+    private final String monthYear;
+    private final long monthCents;
+    private final long writeVersion;
+
+    BalanceSnapshot(long totalCents, String monthYear, long monthCents, long writeVersion) {
+        this.totalCents = totalCents;
+        this.monthYear = monthYear;
+        this.monthCents = monthCents;
+        this.writeVersion = writeVersion;
+    }
+
+    /**
+     * @return La última foto guardada, o null si todavía no se calculó ninguna.
+     */
+    public static BalanceSnapshot read(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String monthYear = prefs.getString(KEY_MONTH, null);
+        if (monthYear == null) {
+            return null;
+        }
+        return new BalanceSnapshot(prefs.getLong(KEY_TOTAL_CENTS, 0), monthYear,
+                prefs.getLong(KEY_MONTH_CENTS, 0), prefs.getLong(KEY_WRITE_VERSION, -1));
+    }
+
+    void write(Context context) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putLong(KEY_TOTAL_CENTS, totalCents)
+                .putString(KEY_MONTH, monthYear)
+                .putLong(KEY_MONTH_CENTS, monthCents)
+                .putLong(KEY_WRITE_VERSION, writeVersion)
+                .apply();
+    }
+
+    public long getTotalCents() {
+        return totalCents;
+    }
+
+    /**
+     * @return El mes (YYYY-MM) de {@link #getMonthCents()}. Si ya no es el mes actual, la foto
+     * quedó vieja por el cambio de mes aunque no haya habido escrituras.
+     */
+    public String getMonthYear() {
+        return monthYear;
+    }
+
+    public long getMonthCents() {
+        return monthCents;
+    }
+
+    public long getWriteVersion() {
+        return writeVersion;
+    }
+}
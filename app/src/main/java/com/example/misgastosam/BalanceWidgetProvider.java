@@ -0,0 +1,62 @@
+package com.example.misgastosam;
+
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProvider;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.widget.RemoteViews;
+
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Widget de la pantalla de inicio con el saldo total y el del mes. Nunca consulta SQLite:
+ * muestra la {@link BalanceSnapshot} guardada y, si falta o es de otro mes, le pide a
+ * {@link BalanceWidgetUpdater} que la recalcule en segundo plano.
+ */
+public class BalanceWidgetProvider extends AppWidgetProvider {
+
+    @Override
+    public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        BalanceSnapshot snapshot = BalanceSnapshot.read(context);
+        String currentMonth = new SimpleDateFormat("yyyy-MM", Locale.getDefault()).format(new Date());
+        if (snapshot == null || !snapshot.getMonthYear().equals(currentMonth)) {
+            BalanceWidgetUpdater.getInstance(context).requestUpdate();
+        }
+        appWidgetManager.updateAppWidget(appWidgetIds, buildViews(context, snapshot, currentMonth));
+    }
+
+    /**
+     * Redibuja todos los widgets con la foto indicada. No hace nada si no hay widgets agregados.
+     */
+    static void updateAll(Context context, BalanceSnapshot snapshot) {
+        AppWidgetManager manager = AppWidgetManager.getInstance(context);
+        int[] ids = manager.getAppWidgetIds(new ComponentName(context, BalanceWidgetProvider.class));
+        if (ids == null || ids.length == 0) {
+            return;
+        }
+        manager.updateAppWidget(ids, buildViews(context, snapshot, snapshot.getMonthYear()));
+    }
+
+    private static RemoteViews buildViews(Context context, BalanceSnapshot snapshot, String currentMonth) {
+        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_balance);
+        DecimalFormat decimalFormat = new DecimalFormat("#,##0.00");
+        if (snapshot != null) {
+            views.setTextViewText(R.id.widget_total_balance, "$" + decimalFormat.format(snapshot.getTotalCents() / 100.0));
+            // Una foto del mes anterior mostraría el saldo de otro mes: mejor esperar la nueva
+            views.setTextViewText(R.id.widget_month_balance, snapshot.getMonthYear().equals(currentMonth)
+                    ? "Este mes: $" + decimalFormat.format(snapshot.getMonthCents() / 100.0)
+                    : "Este mes: ...");
+        }
+
+        Intent intent = new Intent(context, MainActivity.class);
+        PendingIntent pendingIntent = PendingIntent.getActivity(context, 0, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        views.setOnClickPendingIntent(R.id.widget_balance_root, pendingIntent);
+        return views;
+    }
+}
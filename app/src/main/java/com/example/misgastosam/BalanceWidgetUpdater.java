@@ -0,0 +1,73 @@
+package com.example.misgastosam;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recalcula la {@link BalanceSnapshot} y redibuja el widget después de las escrituras.
+ * Los pedidos se agrupan: mientras haya una actualización programada los nuevos no encolan
+ * otra, y entre dos actualizaciones pasa al menos {@link #MIN_INTERVAL_MS}, así una
+ * importación de miles de filas produce unas pocas actualizaciones y no una por fila.
+ */
+public class BalanceWidgetUpdater {
+
+    static final long MIN_INTERVAL_MS = 1_000;
+
+    private static BalanceWidgetUpdater instance;
+
+    private final Context appContext;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private ScheduledFuture<?> pending;
+    private long lastRunAt = Long.MIN_VALUE / 2;
+
+    public static synchronized BalanceWidgetUpdater getInstance(Context context) {
+        if (instance == null) {
+            instance = new BalanceWidgetUpdater(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private BalanceWidgetUpdater(Context appContext) {
+        this.appContext = appContext;
+    }
+
+    /**
+     * Pide recalcular la foto. Se puede llamar desde cualquier hilo; no bloquea.
+     */
+    public synchronized void requestUpdate() {
+        if (pending != null) {
+            return; // La actualización programada todavía no empezó: ya va a ver esta escritura
+        }
+        long delay = Math.max(0, lastRunAt + MIN_INTERVAL_MS - SystemClock.elapsedRealtime());
+        pending = executor.schedule(this::update, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void update() {
+        synchronized (this) {
+            // Desde acá, una escritura nueva programa otra actualización en vez de sumarse a esta
+            pending = null;
+            lastRunAt = SystemClock.elapsedRealtime();
+        }
+        try {
+            DatabaseHelper dbHelper = DatabaseHelper.getInstance(appContext);
+            long writeVersion = dbHelper.getWriteVersion();
+            DailyBalanceIndex index = dbHelper.getDailyBalanceIndex();
+            String monthYear = new SimpleDateFormat("yyyy-MM", Locale.getDefault()).format(new Date());
+            BalanceSnapshot snapshot = new BalanceSnapshot(index.getTotal(), monthYear,
+                    index.rangeBalance(EpochDay.firstDayOfMonth(monthYear), EpochDay.lastDayOfMonth(monthYear)), writeVersion);
+            snapshot.write(appContext);
+            BalanceWidgetProvider.updateAll(appContext, snapshot);
+        } catch (RuntimeException e) {
+            Log.e("BalanceWidgetUpdater", "Error al actualizar la foto del saldo: " + e.getMessage());
+        }
+    }
+}
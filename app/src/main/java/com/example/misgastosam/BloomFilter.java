@@ -0,0 +1,57 @@
+package com.example.misgastosam;
+
+/**
+ * Filtro de Bloom sobre huellas de 64 bits ({@link TransactionFingerprint}). Responde "seguro que
+ * no está" o "puede estar" sin consultar la DB; solo los "puede estar" (cerca del 1% de falsos
+ * positivos mientras no se supere la capacidad) necesitan confirmarse con el índice de huellas.
+ * Las huellas ya están bien mezcladas, así que las posiciones salen de sus dos mitades con
+ * doble hashing en vez de calcular k hashes distintos.
+ */
+public class BloomFilter {
+
+    private static final int BITS_PER_ENTRY = 10; // ~1% de falsos positivos con 7 funciones
+    private static final int HASH_COUNT = 7;
+
+    private final long[] words;
+    private final long bitCount;
+    private final int capacity;
+    private int added;
+
+    /**
+     * @param capacity Entradas que se esperan; pasada esa cantidad los falsos positivos crecen.
+     */
+    public BloomFilter(int capacity) {
+        this.capacity = Math.max(capacity, 64);
+        this.bitCount = (long) this.capacity * BITS_PER_ENTRY;
+        this.words = new long[(int) ((bitCount + 63) / 64)];
+    }
+
+    public synchronized void add(long fingerprint) {
+        int h1 = (int) fingerprint;
+        int h2 = (int) (fingerprint >>> 32);
+        for (int i = 0; i < HASH_COUNT; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        added++;
+    }
+
+    public synchronized boolean mightContain(long fingerprint) {
+        int h1 = (int) fingerprint;
+        int h2 = (int) (fingerprint >>> 32);
+        for (int i = 0; i < HASH_COUNT; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * true cuando ya se agregaron más entradas que la capacidad: conviene armarlo de nuevo, más grande.
+     */
+    public synchronized boolean isSaturated() {
+        return added > capacity;
+    }
+}
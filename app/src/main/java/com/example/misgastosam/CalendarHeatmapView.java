@@ -0,0 +1,205 @@
+package com.example.misgastosam;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Mapa de calor del gasto diario de un período (normalmente un año): una columna por semana
+ * y una fila por día de la semana, de lunes a domingo. Las celdas se dibujan directamente en
+ * el Canvas; los niveles de color se calculan una vez en {@link #setData(DailyTotals)}, así
+ * onDraw solo recorre arreglos y no crea objetos.
+ */
+public class CalendarHeatmapView extends View {
+
+    public interface OnDayClickListener {
+        void onDayClick(int epochDay, long expenseCents, long incomeCents, int transactionCount);
+    }
+
+    private static final int ROWS = 7;
+    private static final int MIN_COLUMNS = 53; // Un año completo, para que todos los años tengan la misma escala
+    // Sin gasto y cuatro niveles por cuartiles del gasto de los días con movimientos
+    private static final int[] LEVEL_COLORS = {0xFFEEEEEE, 0xFFFFCDD2, 0xFFEF9A9A, 0xFFE57373, 0xFFC62828};
+    private static final String[] MONTH_LABELS = {"Ene", "Feb", "Mar", "Abr", "May", "Jun", "Jul", "Ago", "Sep", "Oct", "Nov", "Dic"};
+    private static final String[] WEEKDAY_LABELS = {"L", "", "M", "", "V", "", ""};
+
+    private final Paint cellPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF cellRect = new RectF();
+    private final float density;
+
+    private DailyTotals totals;
+    private byte[] levels = new byte[0];
+    private int firstWeekday;
+    private int columns = MIN_COLUMNS;
+    // Columna donde empieza cada mes del período y su etiqueta (índice en MONTH_LABELS)
+    private int[] monthColumns = new int[0];
+    private int[] monthIndexes = new int[0];
+
+    private float cellSize;
+    private float cellGap;
+    private float gridLeft;
+    private float gridTop;
+
+    private OnDayClickListener onDayClickListener;
+
+    public CalendarHeatmapView(Context context) {
+        this(context, null);
+    }
+
+    public CalendarHeatmapView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        density = getResources().getDisplayMetrics().density;
+        labelPaint.setColor(0xFF757575);
+        labelPaint.setTextSize(10 * density);
+    }
+
+    public void setOnDayClickListener(OnDayClickListener listener) {
+        this.onDayClickListener = listener;
+    }
+
+    /**
+     * Muestra los totales indicados. Calcula el nivel de cada día y la posición de los meses.
+     */
+    public void setData(DailyTotals totals) {
+        this.totals = totals;
+        int days = totals.getDayCount();
+        firstWeekday = EpochDay.dayOfWeek(totals.getFirstDay());
+        columns = Math.max(MIN_COLUMNS, (firstWeekday + days + ROWS - 1) / ROWS);
+
+        // Umbrales por cuartiles: un gasto extraordinario no deja a todos los demás días en el nivel más claro
+        int nonZero = 0;
+        for (int i = 0; i < days; i++) {
+            if (totals.getExpenseCents(i) > 0) {
+                nonZero++;
+            }
+        }
+        long[] sorted = new long[nonZero];
+        for (int i = 0, j = 0; i < days; i++) {
+            if (totals.getExpenseCents(i) > 0) {
+                sorted[j++] = totals.getExpenseCents(i);
+            }
+        }
+        Arrays.sort(sorted);
+        levels = new byte[days];
+        for (int i = 0; i < days; i++) {
+            long expense = totals.getExpenseCents(i);
+            if (expense <= 0) {
+                continue;
+            }
+            if (expense > sorted[(nonZero * 3) / 4]) {
+                levels[i] = 4;
+            } else if (expense > sorted[nonZero / 2]) {
+                levels[i] = 3;
+            } else if (expense > sorted[nonZero / 4]) {
+                levels[i] = 2;
+            } else {
+                levels[i] = 1;
+            }
+        }
+
+        int months = 0;
+        int[] columnsByMonth = new int[days / 28 + 2];
+        int[] indexesByMonth = new int[columnsByMonth.length];
+        for (int i = 0; i < days; i++) {
+            int civil = EpochDay.toCivil(totals.getFirstDay() + i);
+            if (i == 0 || civil % 100 == 1) {
+                columnsByMonth[months] = (firstWeekday + i) / ROWS;
+                indexesByMonth[months] = (civil / 100) % 100 - 1;
+                months++;
+            }
+        }
+        monthColumns = Arrays.copyOf(columnsByMonth, months);
+        monthIndexes = Arrays.copyOf(indexesByMonth, months);
+
+        updateGeometry(getWidth());
+        requestLayout();
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        updateGeometry(width);
+        int height = (int) Math.ceil(gridTop + ROWS * cellSize) + getPaddingBottom();
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateGeometry(w);
+    }
+
+    private void updateGeometry(int width) {
+        gridLeft = getPaddingLeft() + labelPaint.measureText("M") + 4 * density;
+        gridTop = getPaddingTop() + labelPaint.getTextSize() + 4 * density;
+        float available = width - gridLeft - getPaddingRight();
+        cellSize = Math.max(0, available / columns);
+        cellGap = Math.max(1, cellSize / 8);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (totals == null) {
+            return;
+        }
+        float labelBaseline = getPaddingTop() + labelPaint.getTextSize();
+        for (int m = 0; m < monthColumns.length; m++) {
+            canvas.drawText(MONTH_LABELS[monthIndexes[m]], gridLeft + monthColumns[m] * cellSize, labelBaseline, labelPaint);
+        }
+        for (int row = 0; row < ROWS; row++) {
+            if (!WEEKDAY_LABELS[row].isEmpty()) {
+                canvas.drawText(WEEKDAY_LABELS[row], getPaddingLeft(), gridTop + (row + 1) * cellSize - cellGap, labelPaint);
+            }
+        }
+
+        int days = levels.length;
+        for (int i = 0; i < days; i++) {
+            int slot = firstWeekday + i;
+            float left = gridLeft + (slot / ROWS) * cellSize;
+            float top = gridTop + (slot % ROWS) * cellSize;
+            cellRect.set(left, top, left + cellSize - cellGap, top + cellSize - cellGap);
+            cellPaint.setColor(LEVEL_COLORS[levels[i]]);
+            canvas.drawRect(cellRect, cellPaint);
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (totals == null || cellSize <= 0) {
+            return super.onTouchEvent(event);
+        }
+        switch (event.getAction()) {
+            case MotionEvent.ACTION_DOWN:
+                return true;
+            case MotionEvent.ACTION_UP:
+                int column = (int) ((event.getX() - gridLeft) / cellSize);
+                int row = (int) ((event.getY() - gridTop) / cellSize);
+                int index = column * ROWS + row - firstWeekday;
+                if (event.getX() >= gridLeft && event.getY() >= gridTop && row < ROWS
+                        && index >= 0 && index < totals.getDayCount() && onDayClickListener != null) {
+                    onDayClickListener.onDayClick(totals.getFirstDay() + index, totals.getExpenseCents(index),
+                            totals.getIncomeCents(index), totals.getTransactionCount(index));
+                }
+                performClick();
+                return true;
+            default:
+                return super.onTouchEvent(event);
+        }
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+}
@@ -6,6 +6,7 @@ import android.text.TextUtils;
 import android.view.View;
 import android.widget.Button;
 import android.widget.LinearLayout;
+import android.widget.ProgressBar;
 import android.widget.RadioGroup;
 import android.widget.RadioButton;
 import android.widget.TextView;
@@ -24,15 +25,19 @@ import android.util.TypedValue;
 
 import com.google.android.material.textfield.TextInputEditText;
 
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 
 public class CategoriaActivity extends AppCompatActivity implements CategoryAdapter.OnItemClickListener {
 
     private RecyclerView categoriesRecyclerView;
     private CategoryAdapter categoryAdapter;
-    private List<String> currentCategoryList;
+    private List<Category> currentCategoryList;
     private DatabaseHelper dbHelper;
+    private CategoryBulkOperation categoryBulkOperation;
 
     private Button addCategoryButton;
     private Button editCategoryButton;
@@ -41,6 +46,8 @@ public class CategoriaActivity extends AppCompatActivity implements CategoryAdap
     // Constantes para los TEXTOS que se muestran al usuario en la UI
     private static final String DISPLAY_TEXT_EXPENSE = "Gasto";
     private static final String DISPLAY_TEXT_INCOME = "Ingreso";
+    private static final String TRANSFER_CATEGORY_LOCKED =
+            "Las categorías de transferencias no se pueden eliminar ni fusionar: borrá o editá la transferencia desde el historial.";
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -54,7 +61,8 @@ public class CategoriaActivity extends AppCompatActivity implements CategoryAdap
             return insets;
         });
 
-        dbHelper = new DatabaseHelper(this);
+        dbHelper = DatabaseHelper.getInstance(this);
+        categoryBulkOperation = new CategoryBulkOperation(dbHelper);
 
         categoriesRecyclerView = findViewById(R.id.recyclerView_categories);
         addCategoryButton = findViewById(R.id.button_add_category);
@@ -77,31 +85,18 @@ public class CategoriaActivity extends AppCompatActivity implements CategoryAdap
 
         addCategoryButton.setOnClickListener(v -> showAddCategoryDialog());
         editCategoryButton.setOnClickListener(v -> {
-            // selectedCategoryDisplayString será el string completo (ej. "Nombre (Gasto)")
-            String selectedCategoryDisplayString = categoryAdapter.getSelectedCategoryName();
-            if (selectedCategoryDisplayString != null) {
-                // Obtener el objeto Category completo usando el método de DBHelper
-                Category categoryToEdit = dbHelper.getCategoryByNameAndType(selectedCategoryDisplayString);
-                if (categoryToEdit != null) {
-                    showEditCategoryDialog(categoryToEdit);
-                } else {
-                    Toast.makeText(CategoriaActivity.this, "Error al cargar la categoría para editar. Formato no válido o categoría no encontrada.", Toast.LENGTH_SHORT).show();
-                }
+            // El adaptador guarda los objetos Category: la selección ya trae el _id, sin consultar la DB
+            Category categoryToEdit = categoryAdapter.getSelectedCategory();
+            if (categoryToEdit != null) {
+                showEditCategoryDialog(categoryToEdit);
             } else {
                 Toast.makeText(CategoriaActivity.this, "Selecciona una categoría para editar.", Toast.LENGTH_SHORT).show();
             }
         });
         deleteCategoryButton.setOnClickListener(v -> {
-            // selectedCategoryDisplayString será el string completo (ej. "Nombre (Gasto)")
-            String selectedCategoryDisplayString = categoryAdapter.getSelectedCategoryName();
-            if (selectedCategoryDisplayString != null) {
-                // Obtener el objeto Category completo usando el método de DBHelper
-                Category categoryToDelete = dbHelper.getCategoryByNameAndType(selectedCategoryDisplayString);
-                if (categoryToDelete != null) {
-                    showDeleteConfirmationDialog(categoryToDelete);
-                } else {
-                    Toast.makeText(CategoriaActivity.this, "Error al cargar la categoría para eliminar. Formato no válido o categoría no encontrada.", Toast.LENGTH_SHORT).show();
-                }
+            Category categoryToDelete = categoryAdapter.getSelectedCategory();
+            if (categoryToDelete != null) {
+                showDeleteConfirmationDialog(categoryToDelete);
             } else {
                 Toast.makeText(CategoriaActivity.this, "Selecciona una categoría para eliminar.", Toast.LENGTH_SHORT).show();
             }
@@ -115,15 +110,11 @@ public class CategoriaActivity extends AppCompatActivity implements CategoryAdap
         // 1. Obtiene la lista de objetos Category de la base de datos
         List<Category> categories = dbHelper.getAllCategories(null); // 'null' para obtener todos los tipos
 
-        // 2. Convierte los objetos Category a Strings en el formato "Nombre (Tipo)"
-        List<String> formattedCategoryNames = new ArrayList<>();
-        for (Category cat : categories) {
-            // El método toString() de tu clase Category.java ya hace el formateo "Nombre (Tipo)"
-            formattedCategoryNames.add(cat.toString());
-        }
-
-        // 3. Actualiza el adaptador con la lista de Strings formateados
-        categoryAdapter.updateData(formattedCategoryNames);
+        // 2. Actualiza el adaptador con los objetos (el formato "Nombre (Tipo)" lo arma el adaptador al mostrar)
+        categoryAdapter.updateData(categories);
+        // Total de cada categoría en el mes actual, desde los totales agregados (las divididas cuentan por línea)
+        String currentMonth = new SimpleDateFormat("yyyy-MM", Locale.getDefault()).format(new Date());
+        categoryAdapter.setMonthTotals(dbHelper.getCategoryTotals(currentMonth));
         categoryAdapter.clearSelection(); // Asegura que no haya nada seleccionado al recargar
         // Deshabilitar botones al recargar
         editCategoryButton.setEnabled(false);
@@ -132,23 +123,23 @@ public class CategoriaActivity extends AppCompatActivity implements CategoryAdap
 
     // Implementación de la interfaz OnItemClickListener (del CategoryAdapter)
     @Override
-    public void onItemClick(String categoryName) {
+    public void onItemClick(Category category) {
         // Este método se llama cuando se hace clic en un ítem
         // Puedes añadir lógica si necesitas alguna acción inmediata al clic,
         // pero la selección visual se maneja en onItemSelected/onItemDeselected
     }
 
     @Override
-    public void onItemSelected(String categoryName) {
-        Toast.makeText(CategoriaActivity.this, "Categoría seleccionada: " + categoryName, Toast.LENGTH_SHORT).show();
+    public void onItemSelected(Category category) {
+        Toast.makeText(CategoriaActivity.this, "Categoría seleccionada: " + category, Toast.LENGTH_SHORT).show();
         // Habilitar botones de editar/borrar cuando se selecciona una categoría
         editCategoryButton.setEnabled(true);
         deleteCategoryButton.setEnabled(true);
     }
 
     @Override
-    public void onItemDeselected(String categoryName) {
-        Toast.makeText(CategoriaActivity.this, "Categoría deseleccionada: " + categoryName, Toast.LENGTH_SHORT).show();
+    public void onItemDeselected(Category category) {
+        Toast.makeText(CategoriaActivity.this, "Categoría deseleccionada: " + category, Toast.LENGTH_SHORT).show();
         // Deshabilitar botones de editar/borrar cuando se deselecciona una categoría
         editCategoryButton.setEnabled(false);
         deleteCategoryButton.setEnabled(false);
@@ -277,11 +268,10 @@ public class CategoriaActivity extends AppCompatActivity implements CategoryAdap
                 }
             }
 
-            // Actualiza el objeto Category con los nuevos valores
-            categoryToEdit.setName(newCategoryName);
-            categoryToEdit.setType(newCategoryTypeForDb); // Asignar el tipo de DB
+            // Copia con los nuevos valores: el objeto de la lista no cambia si la actualización falla
+            Category updatedCategory = new Category(categoryToEdit.getId(), newCategoryName, newCategoryTypeForDb);
 
-            boolean success = dbHelper.updateCategory(categoryToEdit);
+            boolean success = dbHelper.updateCategory(updatedCategory);
             if (success) {
                 Toast.makeText(this, "Categoría actualizada a: " + newCategoryName + " (" + (newCategoryTypeForDb.equals(Category.TYPE_EXPENSE) ? DISPLAY_TEXT_EXPENSE : DISPLAY_TEXT_INCOME) + ")", Toast.LENGTH_SHORT).show();
                 loadCategories(); // Recarga la lista
@@ -295,26 +285,145 @@ public class CategoriaActivity extends AppCompatActivity implements CategoryAdap
 
     /**
      * Muestra un diálogo de confirmación antes de eliminar una categoría.
+     * También ofrece mover sus transacciones a otra categoría del mismo tipo en lugar de borrarlas.
      * @param categoryToDelete El objeto Category a eliminar.
      */
     private void showDeleteConfirmationDialog(Category categoryToDelete) {
+        if (categoryToDelete.isTransfer()) {
+            Toast.makeText(this, TRANSFER_CATEGORY_LOCKED, Toast.LENGTH_LONG).show();
+            return;
+        }
         new AlertDialog.Builder(this)
                 .setTitle("Eliminar Categoría")
                 // Mostrar el tipo de categoría en formato legible para el usuario en el mensaje
-                .setMessage("¿Seguro que quieres eliminar '" + categoryToDelete.getName() + "' (" + (categoryToDelete.getType().equals(Category.TYPE_EXPENSE) ? DISPLAY_TEXT_EXPENSE : DISPLAY_TEXT_INCOME) + ")? Esto eliminará todas las transacciones asociadas a esta categoría.")
+                .setMessage("¿Seguro que quieres eliminar '" + categoryToDelete.getName() + "' (" + (categoryToDelete.getType().equals(Category.TYPE_EXPENSE) ? DISPLAY_TEXT_EXPENSE : DISPLAY_TEXT_INCOME) + ")? Esto eliminará todas las transacciones asociadas a esta categoría; las divididas solo pierden la parte de esta categoría.")
                 .setPositiveButton("Eliminar", (dialog, which) -> {
-                    boolean success = dbHelper.deleteCategory(categoryToDelete.getId()); // Eliminar por ID
-                    if (success) {
-                        Toast.makeText(this, "Categoría eliminada: " + categoryToDelete.getName(), Toast.LENGTH_SHORT).show();
-                        loadCategories();
-                    } else {
-                        Toast.makeText(this, "Error al eliminar categoría.", Toast.LENGTH_SHORT).show();
-                    }
+                    // El borrado corre en segundo plano por tramos: la UI no se congela aunque haya miles de transacciones
+                    ProgressHandle progress = showProgressDialog("Eliminando '" + categoryToDelete.getName() + "'...");
+                    categoryBulkOperation.deleteCategory(categoryToDelete.getId(), progress.listener(success -> {
+                        if (success) {
+                            Toast.makeText(this, "Categoría eliminada: " + categoryToDelete.getName(), Toast.LENGTH_SHORT).show();
+                        } else {
+                            Toast.makeText(this, "Error al eliminar categoría.", Toast.LENGTH_SHORT).show();
+                        }
+                    }));
                 })
+                .setNeutralButton("Mover a...", (dialog, which) -> showMergeTargetDialog(categoryToDelete))
                 .setNegativeButton("Cancelar", (dialog, which) -> dialog.cancel())
                 .show();
     }
 
+    /**
+     * Permite elegir la categoría destino (del mismo tipo) a la que se moverán las transacciones
+     * antes de eliminar la categoría de origen.
+     * @param source La categoría que se va a fusionar y eliminar.
+     */
+    private void showMergeTargetDialog(Category source) {
+        if (source.isTransfer()) {
+            Toast.makeText(this, TRANSFER_CATEGORY_LOCKED, Toast.LENGTH_LONG).show();
+            return;
+        }
+        List<Category> candidates = new ArrayList<>();
+        for (Category category : dbHelper.getAllCategories(source.getType())) {
+            // Tampoco como destino: quedarían movimientos en "Transferencia" sin la otra mitad
+            if (category.getId() != source.getId() && !category.isTransfer()) {
+                candidates.add(category);
+            }
+        }
+        if (candidates.isEmpty()) {
+            Toast.makeText(this, "No hay otra categoría del mismo tipo a la que mover las transacciones.", Toast.LENGTH_LONG).show();
+            return;
+        }
+        String[] names = new String[candidates.size()];
+        for (int i = 0; i < candidates.size(); i++) {
+            names[i] = candidates.get(i).getName();
+        }
+
+        new AlertDialog.Builder(this)
+                .setTitle("Mover transacciones de '" + source.getName() + "' a:")
+                .setItems(names, (dialog, which) -> {
+                    Category target = candidates.get(which);
+                    ProgressHandle progress = showProgressDialog("Moviendo transacciones a '" + target.getName() + "'...");
+                    categoryBulkOperation.mergeCategory(source.getId(), target.getId(), progress.listener(success -> {
+                        if (success) {
+                            Toast.makeText(this, "'" + source.getName() + "' fusionada en '" + target.getName() + "'", Toast.LENGTH_SHORT).show();
+                        } else {
+                            Toast.makeText(this, "Error al fusionar la categoría.", Toast.LENGTH_SHORT).show();
+                        }
+                    }));
+                })
+                .setNegativeButton("Cancelar", (dialog, which) -> dialog.cancel())
+                .show();
+    }
+
+    /**
+     * Muestra un diálogo no cancelable con una barra de progreso para las operaciones por tramos.
+     */
+    private ProgressHandle showProgressDialog(String title) {
+        LinearLayout layout = new LinearLayout(this);
+        layout.setOrientation(LinearLayout.VERTICAL);
+        layout.setPadding(50, 20, 50, 20);
+
+        ProgressBar progressBar = new ProgressBar(this, null, android.R.attr.progressBarStyleHorizontal);
+        progressBar.setIndeterminate(true);
+        layout.addView(progressBar);
+
+        TextView progressText = new TextView(this);
+        layout.addView(progressText);
+
+        AlertDialog dialog = new AlertDialog.Builder(this)
+                .setTitle(title)
+                .setView(layout)
+                .setCancelable(false)
+                .show();
+        addCategoryButton.setEnabled(false);
+        editCategoryButton.setEnabled(false);
+        deleteCategoryButton.setEnabled(false);
+        return new ProgressHandle(dialog, progressBar, progressText);
+    }
+
+    private interface CompletionCallback {
+        void onComplete(boolean success);
+    }
+
+    /**
+     * Conecta un diálogo de progreso con los callbacks de {@link CategoryBulkOperation}.
+     */
+    private class ProgressHandle {
+        private final AlertDialog dialog;
+        private final ProgressBar progressBar;
+        private final TextView progressText;
+
+        ProgressHandle(AlertDialog dialog, ProgressBar progressBar, TextView progressText) {
+            this.dialog = dialog;
+            this.progressBar = progressBar;
+            this.progressText = progressText;
+        }
+
+        CategoryBulkOperation.Listener listener(CompletionCallback callback) {
+            return new CategoryBulkOperation.Listener() {
+                @Override
+                public void onProgress(int processed, int total) {
+                    progressBar.setIndeterminate(false);
+                    progressBar.setMax(total);
+                    progressBar.setProgress(processed);
+                    progressText.setText(processed + " / " + total + " transacciones");
+                }
+
+                @Override
+                public void onComplete(boolean success) {
+                    if (isFinishing() || isDestroyed()) {
+                        return;
+                    }
+                    dialog.dismiss();
+                    addCategoryButton.setEnabled(true);
+                    callback.onComplete(success);
+                    loadCategories();
+                }
+            };
+        }
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
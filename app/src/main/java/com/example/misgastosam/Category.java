@@ -4,14 +4,17 @@ public class Category {
     public static final String TYPE_EXPENSE = "EXPENSE"; // Constante para gasto
     public static final String TYPE_INCOME = "INCOME";   // Constante para ingreso
 
+    private static final byte CODE_EXPENSE = 0;
+    private static final byte CODE_INCOME = 1;
+
     private int id;
     private String name;
-    private String type; // "EXPENSE" o "INCOME"
+    private byte typeCode; // El tipo se guarda como byte; getType() devuelve siempre la constante compartida
 
     public Category(int id, String name, String type) {
         this.id = id;
         this.name = name;
-        this.type = type;
+        setType(type);
     }
 
     // Constructor para cuando la categoría no tiene ID (ej. nueva categoría antes de guardar en DB)
@@ -29,7 +32,19 @@ public class Category {
     }
 
     public String getType() {
-        return type;
+        return typeCode == CODE_INCOME ? TYPE_INCOME : TYPE_EXPENSE;
+    }
+
+    public boolean isExpense() {
+        return typeCode == CODE_EXPENSE;
+    }
+
+    /**
+     * Las dos categorías "Transferencia" (una por tipo) son de las mitades de las transferencias:
+     * no se eligen al cargar una transacción ni se borran o fusionan desde la pantalla de categorías.
+     */
+    public boolean isTransfer() {
+        return DatabaseHelper.TRANSFER_CATEGORY_NAME.equals(name);
     }
 
     // Setters
@@ -42,18 +57,13 @@ public class Category {
     }
 
     public void setType(String type) {
-        this.type = type;
+        this.typeCode = TYPE_INCOME.equals(type) ? CODE_INCOME : CODE_EXPENSE;
     }
 
     @Override
     public String toString() {
         // Esto convertirá el tipo "EXPENSE" a "Gasto" y "INCOME" a "Ingreso" para mostrar.
-        String displayType = "";
-        if (this.type.equals(Category.TYPE_EXPENSE)) {
-            displayType = "Gasto";
-        } else if (this.type.equals(Category.TYPE_INCOME)) {
-            displayType = "Ingreso";
-        }
+        String displayType = isExpense() ? "Gasto" : "Ingreso";
         return name + " (" + displayType + ")"; // <<-- CAMBIO AQUÍ
     }
 }
\ No newline at end of file
@@ -8,9 +8,13 @@ import android.view.ViewGroup;
 import android.widget.LinearLayout; // Importa LinearLayout
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat; // Importa ContextCompat (para getColor)
 import androidx.recyclerview.widget.RecyclerView;
+import java.text.DecimalFormat;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import android.util.TypedValue;
 import androidx.core.content.ContextCompat;
 import android.graphics.Color;
@@ -18,25 +22,35 @@ import android.graphics.Color;
 
 public class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.CategoryViewHolder> {
 
-    private List<String> categoryList;
+    private List<Category> categoryList;
     private OnItemClickListener listener;
     private int selectedPosition = RecyclerView.NO_POSITION; // Inicializa sin selección
+    private Map<Integer, Double> monthTotals = Collections.emptyMap(); // Total del mes por _id de categoría
+    private static final DecimalFormat DECIMAL_FORMAT = new DecimalFormat("#,##0.00");
 
     // Interfaz para el manejo de clics en los ítems
     public interface OnItemClickListener {
-        void onItemClick(String categoryName);
-        void onItemSelected(String categoryName); // Nuevo callback para cuando se selecciona un ítem
-        void onItemDeselected(String categoryName); // Nuevo callback para cuando se deselecciona un ítem
+        void onItemClick(Category category);
+        void onItemSelected(Category category); // Nuevo callback para cuando se selecciona un ítem
+        void onItemDeselected(Category category); // Nuevo callback para cuando se deselecciona un ítem
     }
 
     // El constructor ahora recibe el listener
-    public CategoryAdapter(List<String> categoryList, OnItemClickListener listener) {
+    public CategoryAdapter(List<Category> categoryList, OnItemClickListener listener) {
         this.categoryList = categoryList;
         this.listener = listener;
     }
 
+    /**
+     * Totales del mes por categoría (ver DatabaseHelper.getCategoryTotals); las divididas cuentan por línea.
+     */
+    public void setMonthTotals(Map<Integer, Double> monthTotals) {
+        this.monthTotals = monthTotals;
+        notifyDataSetChanged();
+    }
+
     // Actualiza los datos del adaptador
-    public void updateData(List<String> newCategoryList) {
+    public void updateData(List<Category> newCategoryList) {
         this.categoryList = newCategoryList;
         this.selectedPosition = RecyclerView.NO_POSITION; // Resetea la selección al actualizar los datos
         notifyDataSetChanged();
@@ -52,8 +66,10 @@ public class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.Catego
     @SuppressLint("ResourceType")
     @Override
     public void onBindViewHolder(@NonNull CategoryViewHolder holder, int position) {
-        String categoryName = categoryList.get(position);
-        holder.categoryNameTextView.setText(categoryName);
+        Category category = categoryList.get(position);
+        holder.categoryNameTextView.setText(category.toString()); // "Nombre (Tipo)", solo para mostrar
+        Double monthTotal = monthTotals.get(category.getId());
+        holder.categoryTotalTextView.setText("Este mes: $ " + DECIMAL_FORMAT.format(monthTotal != null ? monthTotal : 0.0));
 
         // Lógica para resaltar la selección
         if (selectedPosition == position) {
@@ -78,7 +94,7 @@ public class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.Catego
         holder.itemView.setOnClickListener(v -> {
             // Notifica al listener que un ítem fue clickeado (manteniendo tu funcionalidad existente)
             if (listener != null) {
-                listener.onItemClick(categoryName);
+                listener.onItemClick(category);
             }
 
             // Manejo de la selección visual:
@@ -96,7 +112,7 @@ public class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.Catego
                 // Notifica al RecyclerView para redibujar el ítem actual (seleccionarlo)
                 notifyItemChanged(selectedPosition);
                 // Notifica a la actividad que un nuevo ítem fue seleccionado
-                if (listener != null) listener.onItemSelected(categoryName);
+                if (listener != null) listener.onItemSelected(category);
             } else {
                 // Si el mismo ítem ya estaba seleccionado, lo deseleccionamos
                 clearSelection();
@@ -109,8 +125,9 @@ public class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.Catego
         return categoryList.size();
     }
 
-    // Método para obtener la categoría actualmente seleccionada (su nombre)
-    public String getSelectedCategoryName() {
+    // Método para obtener la categoría actualmente seleccionada (el mismo objeto de la lista, con su _id)
+    @Nullable
+    public Category getSelectedCategory() {
         if (selectedPosition != RecyclerView.NO_POSITION && selectedPosition < categoryList.size()) {
             return categoryList.get(selectedPosition);
         }
@@ -121,22 +138,24 @@ public class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.Catego
     public void clearSelection() {
         if (selectedPosition != RecyclerView.NO_POSITION) {
             int oldSelectedPosition = selectedPosition;
-            String oldCategoryName = categoryList.get(oldSelectedPosition);
+            Category oldCategory = categoryList.get(oldSelectedPosition);
             selectedPosition = RecyclerView.NO_POSITION; // Restablecer a sin selección
             notifyItemChanged(oldSelectedPosition); // Notificar para deseleccionarlo visualmente
             // Notifica a la actividad que el ítem fue deseleccionado
-            if (listener != null) listener.onItemDeselected(oldCategoryName);
+            if (listener != null) listener.onItemDeselected(oldCategory);
         }
     }
 
     // ViewHolder: Representa cada elemento de la lista (cada categoría)
     public static class CategoryViewHolder extends RecyclerView.ViewHolder {
         TextView categoryNameTextView;
+        TextView categoryTotalTextView;
         LinearLayout categoryItemLayout; // Referencia al LinearLayout raíz
 
         public CategoryViewHolder(@NonNull View itemView) {
             super(itemView);
             categoryNameTextView = itemView.findViewById(R.id.textView_category_name);
+            categoryTotalTextView = itemView.findViewById(R.id.textView_category_total);
             categoryItemLayout = itemView.findViewById(R.id.category_item_layout); // Asocia con el ID del LinearLayout
         }
     }
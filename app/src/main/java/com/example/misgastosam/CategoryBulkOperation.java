@@ -0,0 +1,91 @@
+package com.example.misgastosam;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Borrado y fusión de categorías en segundo plano y por tramos.
+ * Cada tramo es una transacción SQLite corta, así la UI nunca se bloquea y otras escrituras
+ * pueden intercalarse. Como cada tramo se confirma completo, los saldos calculados entre
+ * tramos siempre son consistentes (una transacción está borrada/movida o no lo está).
+ * Los callbacks del listener se ejecutan en el hilo principal.
+ */
+public class CategoryBulkOperation {
+
+    public static final int CHUNK_SIZE = 500;
+
+    // Un solo hilo: las operaciones sobre categorías se ejecutan en orden
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+    public interface Listener {
+        void onProgress(int processed, int total);
+        void onComplete(boolean success);
+    }
+
+    private final DatabaseHelper dbHelper;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public CategoryBulkOperation(DatabaseHelper dbHelper) {
+        this.dbHelper = dbHelper;
+    }
+
+    /**
+     * Elimina la categoría y todas sus transacciones.
+     */
+    public void deleteCategory(int categoryId, Listener listener) {
+        EXECUTOR.execute(() -> {
+            boolean success = false;
+            try {
+                int total = dbHelper.countTransactionsForCategory(categoryId);
+                int processed = 0;
+                int deleted;
+                while ((deleted = dbHelper.deleteTransactionsForCategoryChunk(categoryId, CHUNK_SIZE)) > 0) {
+                    processed += deleted;
+                    postProgress(listener, processed, total);
+                }
+                // Ya no quedan hijas: el CASCADE de esta sentencia no tiene nada que recorrer
+                success = dbHelper.deleteCategory(categoryId);
+            } catch (Exception e) {
+                Log.e("CategoryBulkOperation", "Error al eliminar la categoría " + categoryId + ": " + e.getMessage());
+            }
+            postComplete(listener, success);
+        });
+    }
+
+    /**
+     * Mueve todas las transacciones de {@code fromCategoryId} a {@code toCategoryId}
+     * y luego elimina la categoría de origen.
+     */
+    public void mergeCategory(int fromCategoryId, int toCategoryId, Listener listener) {
+        EXECUTOR.execute(() -> {
+            boolean success = false;
+            try {
+                int total = dbHelper.countTransactionsForCategory(fromCategoryId);
+                int processed = 0;
+                int moved;
+                while ((moved = dbHelper.reassignTransactionsChunk(fromCategoryId, toCategoryId, CHUNK_SIZE)) > 0) {
+                    processed += moved;
+                    postProgress(listener, processed, total);
+                }
+                success = dbHelper.deleteCategory(fromCategoryId);
+            } catch (Exception e) {
+                Log.e("CategoryBulkOperation", "Error al fusionar la categoría " + fromCategoryId + " en " + toCategoryId + ": " + e.getMessage());
+            }
+            postComplete(listener, success);
+        });
+    }
+
+    private void postProgress(Listener listener, int processed, int total) {
+        // Una transacción nueva puede sumarse durante el proceso: el total nunca queda por debajo
+        int safeTotal = Math.max(total, processed);
+        mainHandler.post(() -> listener.onProgress(processed, safeTotal));
+    }
+
+    private void postComplete(Listener listener, boolean success) {
+        mainHandler.post(() -> listener.onComplete(success));
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.misgastosam;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Lista de categorías compartida por todo el proceso. Son pocas y casi nunca cambian, así que
+ * se consultan una vez y se vuelven a leer solo cuando cambia
+ * {@link DatabaseHelper#getCategoryVersion()}. Las pantallas de carga rápida la usan para no
+ * tocar la base de datos al abrirse.
+ */
+public class CategoryCache {
+
+    private static CategoryCache instance;
+
+    private final DatabaseHelper dbHelper;
+    private List<Category> categories;
+    private long loadedVersion = -1;
+
+    public static synchronized CategoryCache getInstance(DatabaseHelper dbHelper) {
+        if (instance == null) {
+            instance = new CategoryCache(dbHelper);
+        }
+        return instance;
+    }
+
+    private CategoryCache(DatabaseHelper dbHelper) {
+        this.dbHelper = dbHelper;
+    }
+
+    /**
+     * @return Todas las categorías ordenadas por nombre. La lista es compartida y no se puede modificar.
+     */
+    public synchronized List<Category> getAll() {
+        // Misma regla que TransactionQueryCache: la versión se lee antes de consultar
+        long version = dbHelper.getCategoryVersion();
+        if (categories == null || version != loadedVersion) {
+            categories = Collections.unmodifiableList(dbHelper.getAllCategories(null));
+            loadedVersion = version;
+        }
+        return categories;
+    }
+
+    /**
+     * @return La categoría con ese _id, o null si ya no existe.
+     */
+    public synchronized Category findById(int categoryId) {
+        for (Category category : getAll()) {
+            if (category.getId() == categoryId) {
+                return category;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.misgastosam;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Naive Bayes multinomial que adivina la categoría a partir de las palabras de la descripción y
+ * de la magnitud del monto. Se entrena de a una transacción (sumar conteos, sin recalcular nada)
+ * y predecir cuesta un acceso a un HashMap por palabra y una suma por categoría candidata, así
+ * que alcanza para cada tecla o para cada fila de una importación. No conoce Android: lo guarda
+ * y lo carga {@link CategoryPredictor}.
+ */
+public class CategoryModel {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final String AMOUNT_PREFIX = "#"; // Las palabras nunca empiezan así: se separan por signos
+
+    // Cada categoría ocupa una posición en estos arreglos y en los de cada palabra
+    private final Map<Integer, Integer> slots = new HashMap<>();
+    private int[] categoryIds = new int[8];
+    private int[] docCounts = new int[8];
+    private int[] tokenTotals = new int[8];
+    private int categoryCount;
+    private int totalDocs;
+
+    // Palabra -> veces que apareció en cada categoría (indexado por posición, puede ser más corto)
+    private final Map<String, int[]> tokenCounts = new HashMap<>();
+
+    /**
+     * Suma una transacción ya guardada a los conteos.
+     */
+    public synchronized void train(String description, double amount, int categoryId) {
+        int slot = slotFor(categoryId);
+        docCounts[slot]++;
+        totalDocs++;
+        for (String token : features(description, amount)) {
+            int[] counts = tokenCounts.get(token);
+            if (counts == null || counts.length <= slot) {
+                counts = counts == null ? new int[slot + 1] : Arrays.copyOf(counts, slot + 1);
+                tokenCounts.put(token, counts);
+            }
+            counts[slot]++;
+            tokenTotals[slot]++;
+        }
+    }
+
+    /**
+     * Devuelve la categoría más probable entre {@code candidateIds}, o -1 si ninguna palabra de
+     * la descripción se vio antes (con solo el monto la predicción no es mejor que la última usada).
+     */
+    public synchronized int predict(String description, double amount, int[] candidateIds) {
+        // Las palabras nunca vistas no distinguen entre categorías: se ignoran
+        List<int[]> known = new ArrayList<>();
+        boolean anyWord = false;
+        for (String token : features(description, amount)) {
+            int[] counts = tokenCounts.get(token);
+            if (counts != null) {
+                known.add(counts);
+                anyWord |= !token.startsWith(AMOUNT_PREFIX);
+            }
+        }
+        if (!anyWord) {
+            return -1;
+        }
+
+        int vocabulary = tokenCounts.size() + 1;
+        int best = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int categoryId : candidateIds) {
+            Integer slot = slots.get(categoryId);
+            if (slot == null || docCounts[slot] == 0) {
+                continue; // Nunca se usó: sin datos no se puede sugerir
+            }
+            // log P(c) + Σ log P(palabra | c) con suavizado de Laplace
+            double score = Math.log(docCounts[slot] / (double) totalDocs);
+            double denominator = Math.log(tokenTotals[slot] + vocabulary);
+            for (int[] counts : known) {
+                int count = counts.length > slot ? counts[slot] : 0;
+                score += Math.log(count + 1) - denominator;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                best = categoryId;
+            }
+        }
+        return best;
+    }
+
+    public synchronized int getTrainedCount() {
+        return totalDocs;
+    }
+
+    /**
+     * Palabras normalizadas (como las de {@link DescriptionIndex}) más un rasgo para el orden de
+     * magnitud del monto: cada rango cubre un factor de √2, así 35 y 45 caen en rangos vecinos
+     * pero 800 no se confunde con 8.
+     */
+    static List<String> features(String description, double amount) {
+        List<String> features = new ArrayList<>();
+        if (description != null) {
+            for (String word : DescriptionIndex.normalize(description).split("[^\\p{L}\\p{N}]+")) {
+                if (word.length() >= MIN_TOKEN_LENGTH) {
+                    features.add(word);
+                }
+            }
+        }
+        if (amount != 0) {
+            features.add(AMOUNT_PREFIX + (int) Math.floor(2 * Math.log(Math.abs(amount) + 1) / Math.log(2)));
+        }
+        return features;
+    }
+
+    private int slotFor(int categoryId) {
+        Integer slot = slots.get(categoryId);
+        if (slot != null) {
+            return slot;
+        }
+        if (categoryCount == categoryIds.length) {
+            int capacity = categoryCount * 2;
+            categoryIds = Arrays.copyOf(categoryIds, capacity);
+            docCounts = Arrays.copyOf(docCounts, capacity);
+            tokenTotals = Arrays.copyOf(tokenTotals, capacity);
+        }
+        categoryIds[categoryCount] = categoryId;
+        slots.put(categoryId, categoryCount);
+        return categoryCount++;
+    }
+
+    // --- Persistencia ---
+
+    /**
+     * Guarda los conteos: por categoría id y totales, y por palabra solo las categorías en que
+     * apareció (la mayoría de las palabras aparece en una o dos).
+     */
+    public synchronized void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(categoryCount);
+        for (int slot = 0; slot < categoryCount; slot++) {
+            out.writeInt(categoryIds[slot]);
+            out.writeInt(docCounts[slot]);
+            out.writeInt(tokenTotals[slot]);
+        }
+        out.writeInt(tokenCounts.size());
+        for (Map.Entry<String, int[]> entry : tokenCounts.entrySet()) {
+            int[] counts = entry.getValue();
+            int nonZero = 0;
+            for (int count : counts) {
+                if (count != 0) {
+                    nonZero++;
+                }
+            }
+            out.writeUTF(entry.getKey());
+            out.writeShort(nonZero);
+            for (int slot = 0; slot < counts.length; slot++) {
+                if (counts[slot] != 0) {
+                    out.writeShort(slot);
+                    out.writeInt(counts[slot]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @throws IOException Si los datos están truncados o son de otra versión del formato.
+     */
+    public static CategoryModel readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != FORMAT_VERSION) {
+            throw new IOException("Versión de modelo desconocida");
+        }
+        CategoryModel model = new CategoryModel();
+        int categories = in.readInt();
+        for (int i = 0; i < categories; i++) {
+            int slot = model.slotFor(in.readInt());
+            model.docCounts[slot] = in.readInt();
+            model.tokenTotals[slot] = in.readInt();
+            model.totalDocs += model.docCounts[slot];
+        }
+        int tokens = in.readInt();
+        for (int i = 0; i < tokens; i++) {
+            String token = in.readUTF();
+            int nonZero = in.readShort();
+            int[] counts = new int[categories];
+            for (int j = 0; j < nonZero; j++) {
+                int slot = in.readShort();
+                if (slot < 0 || slot >= categories) {
+                    throw new IOException("Categoría fuera de rango");
+                }
+                counts[slot] = in.readInt();
+            }
+            model.tokenCounts.put(token, counts);
+        }
+        return model;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.misgastosam;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sugiere la categoría de una transacción nueva con un {@link CategoryModel} que se entrena
+ * con cada alta confirmada y se guarda en category_model.bin. La primera vez (o si el archivo
+ * no se puede leer) se arma en segundo plano con las últimas {@link #BOOTSTRAP_ROWS} filas.
+ * Las altas que llegan mientras carga se guardan y se aplican al terminar. El guardado se
+ * agrupa como en {@link BalanceWidgetUpdater}: una importación escribe el archivo unas pocas veces.
+ */
+public class CategoryPredictor {
+
+    static final String MODEL_FILE = "category_model.bin";
+    static final int BOOTSTRAP_ROWS = 20_000;
+    private static final long SAVE_DELAY_MS = 2_000;
+
+    private static CategoryPredictor instance;
+
+    private final Context appContext;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private volatile CategoryModel model; // null hasta que termina la carga
+    private final List<Transaction> pendingTraining = new ArrayList<>();
+    private boolean loadStarted;
+    private ScheduledFuture<?> pendingSave;
+
+    public static synchronized CategoryPredictor getInstance(Context context) {
+        if (instance == null) {
+            instance = new CategoryPredictor(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private CategoryPredictor(Context appContext) {
+        this.appContext = appContext;
+    }
+
+    /**
+     * Carga el modelo en segundo plano la primera vez que se llama. Hasta entonces
+     * {@link #predict} no sugiere nada.
+     */
+    public void ensureLoaded(DatabaseHelper dbHelper) {
+        synchronized (this) {
+            if (loadStarted) {
+                return;
+            }
+            loadStarted = true;
+        }
+        executor.execute(() -> {
+            CategoryModel loaded = readModel();
+            boolean bootstrapped = loaded == null;
+            if (bootstrapped) {
+                loaded = new CategoryModel();
+                dbHelper.trainCategoryModel(loaded, BOOTSTRAP_ROWS);
+            }
+            synchronized (this) {
+                // Si se armó desde la DB alguna de estas ya puede estar contada: solo pesa un poco más
+                for (Transaction transaction : pendingTraining) {
+                    loaded.train(transaction.getDescription(), transaction.getAmount(), transaction.getCategoryId());
+                }
+                pendingTraining.clear();
+                model = loaded;
+            }
+            if (bootstrapped) {
+                scheduleSave();
+            }
+        });
+    }
+
+    /**
+     * Entrena con una transacción ya guardada. Se puede llamar desde cualquier hilo; no bloquea.
+     */
+    public void train(Transaction transaction) {
+        CategoryModel current;
+        synchronized (this) {
+            current = model;
+            if (current == null) {
+                pendingTraining.add(transaction);
+                return;
+            }
+        }
+        current.train(transaction.getDescription(), transaction.getAmount(), transaction.getCategoryId());
+        scheduleSave();
+    }
+
+    /**
+     * @param candidateIds Categorías entre las que elegir (por ejemplo, las del tipo seleccionado).
+     * @return La categoría sugerida, o -1 si el modelo no cargó o no reconoce la descripción.
+     */
+    public int predict(String description, double amount, int[] candidateIds) {
+        CategoryModel current = model;
+        return current != null ? current.predict(description, amount, candidateIds) : -1;
+    }
+
+    private synchronized void scheduleSave() {
+        if (pendingSave == null) {
+            pendingSave = executor.schedule(this::save, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void save() {
+        synchronized (this) {
+            pendingSave = null;
+        }
+        // Se escribe a un temporal y se renombra: un corte a mitad de camino no deja un archivo roto
+        File file = new File(appContext.getFilesDir(), MODEL_FILE);
+        File temp = new File(appContext.getFilesDir(), MODEL_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            model.writeTo(out);
+        } catch (IOException e) {
+            Log.e("CategoryPredictor", "Error al guardar el modelo: " + e.getMessage());
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            Log.e("CategoryPredictor", "No se pudo reemplazar " + MODEL_FILE);
+        }
+    }
+
+    private CategoryModel readModel() {
+        File file = new File(appContext.getFilesDir(), MODEL_FILE);
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return CategoryModel.readFrom(in);
+        } catch (IOException e) {
+            Log.e("CategoryPredictor", "Modelo ilegible, se vuelve a armar: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.misgastosam;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Índice en memoria de sumas prefijas (árbol de Fenwick) sobre los totales diarios.
+ * La posición es el día (epoch day) relativo al primer día cubierto; los importes se guardan
+ * en centavos (long) para que las sumas sean exactas. Actualizar un día y consultar el saldo
+ * de cualquier rango de fechas cuesta O(log n), con n = días cubiertos.
+ * Es thread-safe: lo usan tanto la UI como los hilos de escritura.
+ */
+public class DailyBalanceIndex {
+
+    private int firstDay;     // Epoch day de la posición 0
+    private long[] tree;      // Árbol de Fenwick, 1-indexado (tree[0] no se usa)
+    private long[] daily;     // Total de cada día, para poder reconstruir al crecer
+    private long total;
+    private boolean empty = true;
+
+    public DailyBalanceIndex() {
+        this(0, 0);
+    }
+
+    /**
+     * @param firstDay Primer epoch day a cubrir.
+     * @param capacity Cantidad de días iniciales (crece sola si hace falta).
+     */
+    public DailyBalanceIndex(int firstDay, int capacity) {
+        this.firstDay = firstDay;
+        this.daily = new long[Math.max(capacity, 1)];
+        this.tree = new long[daily.length + 1];
+        this.empty = capacity <= 1; // Con capacidad explícita se respeta el firstDay recibido
+    }
+
+    public static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    /**
+     * Suma {@code cents} al día indicado (negativo para restar).
+     */
+    public synchronized void add(int epochDay, long cents) {
+        if (cents == 0) {
+            return;
+        }
+        ensureCovers(epochDay);
+        int position = epochDay - firstDay;
+        daily[position] += cents;
+        total += cents;
+        for (int i = position + 1; i < tree.length; i += i & -i) {
+            tree[i] += cents;
+        }
+    }
+
+    /**
+     * Saldo acumulado desde el principio hasta el día indicado (inclusive).
+     */
+    public synchronized long runningBalance(int epochDay) {
+        if (epochDay < firstDay) {
+            return 0;
+        }
+        int position = Math.min(epochDay - firstDay, daily.length - 1);
+        long sum = 0;
+        for (int i = position + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Saldo de los movimientos entre dos días (ambos inclusive).
+     */
+    public synchronized long rangeBalance(int fromDay, int toDay) {
+        if (toDay < fromDay) {
+            return 0;
+        }
+        return runningBalance(toDay) - runningBalance(fromDay - 1);
+    }
+
+    public synchronized long getTotal() {
+        return total;
+    }
+
+    /**
+     * Amplía el rango cubierto (al menos al doble) y reconstruye el árbol en O(n).
+     */
+    private void ensureCovers(int epochDay) {
+        int lastDay = firstDay + daily.length - 1;
+        if (empty) {
+            // Índice vacío: se centra en el primer día usado
+            firstDay = epochDay - daily.length / 2;
+            empty = false;
+            return;
+        }
+        if (epochDay >= firstDay && epochDay <= lastDay) {
+            return;
+        }
+        int newFirst = Math.min(firstDay, epochDay);
+        int newLast = Math.max(lastDay, epochDay);
+        int newCapacity = Math.max(newLast - newFirst + 1, daily.length * 2);
+        // Margen repartido hacia ambos lados para próximas fechas pasadas o futuras
+        int slack = newCapacity - (newLast - newFirst + 1);
+        newFirst -= epochDay < firstDay ? slack : slack / 4;
+
+        long[] newDaily = new long[newCapacity];
+        System.arraycopy(daily, 0, newDaily, firstDay - newFirst, daily.length);
+        firstDay = newFirst;
+        daily = newDaily;
+        rebuildTree();
+    }
+
+    /**
+     * Construcción lineal del árbol de Fenwick a partir de los totales diarios.
+     */
+    private void rebuildTree() {
+        tree = new long[daily.length + 1];
+        for (int i = 1; i <= daily.length; i++) {
+            tree[i] += daily[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= daily.length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    /**
+     * Cambios por día acumulados durante una transacción SQLite. Se aplican al índice
+     * solo si la transacción se confirma, así un rollback no lo desincroniza.
+     */
+    public static class Delta {
+        private final Map<Integer, Long> centsByDay = new HashMap<>();
+
+        public void add(String isoDate, double amount) {
+            add(EpochDay.fromIsoDate(isoDate), toCents(amount));
+        }
+
+        public void add(int epochDay, long cents) {
+            Long current = centsByDay.get(epochDay);
+            centsByDay.put(epochDay, current == null ? cents : current + cents);
+        }
+
+        public void applyTo(DailyBalanceIndex index) {
+            for (Map.Entry<Integer, Long> entry : centsByDay.entrySet()) {
+                index.add(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.misgastosam;
+
+/**
+ * Totales por día de un rango continuo de fechas, tal como salen de la tabla daily_totals.
+ * Los días sin transacciones quedan en cero. Se guardan en arreglos paralelos indexados
+ * por día desde {@link #getFirstDay()}, así recorrerlos al dibujar no crea objetos.
+ */
+public class DailyTotals {
+
+    private final int firstDay;
+    private final long[] incomeCents;
+    private final long[] expenseCents;
+    private final int[] counts;
+
+    /**
+     * @param firstDay Primer día (epoch day).
+     * @param lastDay Último día (epoch day, inclusive).
+     */
+    public DailyTotals(int firstDay, int lastDay) {
+        int days = Math.max(0, lastDay - firstDay + 1);
+        this.firstDay = firstDay;
+        this.incomeCents = new long[days];
+        this.expenseCents = new long[days];
+        this.counts = new int[days];
+    }
+
+    void set(int epochDay, long income, long expense, int count) {
+        int i = epochDay - firstDay;
+        if (i < 0 || i >= counts.length) {
+            return;
+        }
+        incomeCents[i] = income;
+        expenseCents[i] = expense;
+        counts[i] = count;
+    }
+
+    public int getFirstDay() {
+        return firstDay;
+    }
+
+    public int getDayCount() {
+        return counts.length;
+    }
+
+    public long getIncomeCents(int index) {
+        return incomeCents[index];
+    }
+
+    /**
+     * @return Lo gastado ese día en centavos, como número positivo.
+     */
+    public long getExpenseCents(int index) {
+        return expenseCents[index];
+    }
+
+    public int getTransactionCount(int index) {
+        return counts[index];
+    }
+}
@@ -5,16 +5,24 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
 import android.text.TextUtils;
 import android.util.Log;
+import android.util.SparseArray;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 import androidx.annotation.Nullable;
 
-public class DatabaseHelper extends SQLiteOpenHelper {
+public class DatabaseHelper extends SQLiteOpenHelper implements TransactionWriteQueue.Store {
 
     private static final String DATABASE_NAME = "misgastos.db";
-    private static final int DATABASE_VERSION = 5;
+    private static final int DATABASE_VERSION = 14;
 
     // Tabla de Categorías
     public static final String TABLE_CATEGORIES = "categories";
@@ -29,6 +37,76 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public static final String COLUMN_TRANSACTION_DESCRIPTION = "description";
     public static final String COLUMN_TRANSACTION_CATEGORY_ID = "category_id"; // FK a categories
     public static final String COLUMN_TRANSACTION_DATE = "date"; // Formato TEXT YYYY-MM-DD
+    public static final String COLUMN_TRANSACTION_FINGERPRINT = "fingerprint"; // TransactionFingerprint, para detectar duplicados
+    public static final String COLUMN_TRANSACTION_ACCOUNT_ID = "account_id"; // FK a accounts
+    public static final String COLUMN_TRANSACTION_TRANSFER_ID = "transfer_id"; // Igual en los dos movimientos de una transferencia
+    public static final String COLUMN_TRANSACTION_IS_SPLIT = "is_split"; // 1 = el monto se reparte en transaction_splits
+
+    // Columnas de sincronización (comunes a categorías y transacciones)
+    public static final String COLUMN_SYNC_ID = "sync_id";       // Identificador global entre dispositivos
+    public static final String COLUMN_UPDATED_AT = "updated_at"; // Epoch millis de la última escritura
+    public static final String COLUMN_UPDATED_BY = "updated_by"; // Device id del último escritor
+    public static final String COLUMN_DIRTY = "dirty";           // 1 = cambio local pendiente de enviar
+
+    // Tabla de borrados pendientes de sincronizar (los llena un trigger)
+    public static final String TABLE_SYNC_TOMBSTONES = "sync_tombstones";
+    public static final String COLUMN_TOMBSTONE_ENTITY = "entity"; // SyncChange.ENTITY_*
+    public static final String COLUMN_TOMBSTONE_DELETED_AT = "deleted_at";
+    public static final String COLUMN_TOMBSTONE_DELETED_BY = "deleted_by";
+
+    // Tabla clave/valor para el estado de sincronización (device id, cursor de pull...)
+    public static final String TABLE_SYNC_STATE = "sync_state";
+    public static final String COLUMN_SYNC_STATE_KEY = "key";
+    public static final String COLUMN_SYNC_STATE_VALUE = "value";
+    public static final String SYNC_STATE_DEVICE_ID = "device_id";
+    public static final String SYNC_STATE_PULL_CURSOR = "pull_cursor";
+    public static final String SYNC_STATE_APPLYING = "applying"; // Presente mientras se aplican cambios remotos
+
+    // Totales por día (los mantienen triggers sobre transactions): un año son como mucho 366 filas
+    public static final String TABLE_DAILY_TOTALS = "daily_totals";
+    public static final String COLUMN_DAILY_DAY = "day"; // YYYY-MM-DD, igual que transactions.date
+    public static final String COLUMN_DAILY_INCOME_CENTS = "income_cents";
+    public static final String COLUMN_DAILY_EXPENSE_CENTS = "expense_cents"; // Positivo
+    public static final String COLUMN_DAILY_COUNT = "tx_count"; // Sin las mitades de transferencias
+    // Neto de las mitades de transferencias del día: no es ingreso ni gasto, pero sí mueve el saldo
+    public static final String COLUMN_DAILY_TRANSFER_CENTS = "transfer_cents";
+
+    // Huellas que el usuario marcó como "no es duplicado" en la revisión de duplicados
+    public static final String TABLE_DUPLICATE_DISMISSALS = "duplicate_dismissals";
+
+    // Cuentas (efectivo, banco, tarjeta); saldo y cantidad los mantienen triggers sobre transactions
+    public static final String TABLE_ACCOUNTS = "accounts";
+    public static final String COLUMN_ACCOUNT_ID = "_id";
+    public static final String COLUMN_ACCOUNT_NAME = "name";
+    public static final String COLUMN_ACCOUNT_BALANCE_CENTS = "balance_cents";
+    public static final String COLUMN_ACCOUNT_COUNT = "tx_count";
+
+    // Líneas de las transacciones divididas (solo existen para esas). La fecha se copia de la
+    // transacción para que el índice por categoría cubra también los filtros por mes
+    public static final String TABLE_SPLITS = "transaction_splits";
+    public static final String COLUMN_SPLIT_ID = "_id";
+    public static final String COLUMN_SPLIT_TRANSACTION_ID = "transaction_id";
+    public static final String COLUMN_SPLIT_CATEGORY_ID = "category_id";
+    public static final String COLUMN_SPLIT_AMOUNT = "amount";
+    public static final String COLUMN_SPLIT_DATE = "date";
+
+    // Totales por categoría y mes, por línea: las divididas cuentan en cada categoría solo su parte
+    public static final String TABLE_CATEGORY_TOTALS = "category_totals";
+    public static final String COLUMN_CATEGORY_TOTALS_CATEGORY_ID = "category_id";
+    public static final String COLUMN_CATEGORY_TOTALS_MONTH = "month"; // YYYY-MM
+    public static final String COLUMN_CATEGORY_TOTALS_CENTS = "cents";
+    public static final String COLUMN_CATEGORY_TOTALS_COUNT = "tx_count";
+
+    // Etiquetas libres; una transacción puede tener varias (tabla intermedia transaction_tags)
+    public static final String TABLE_TAGS = "tags";
+    public static final String COLUMN_TAG_ID = "_id";
+    public static final String COLUMN_TAG_NAME = "name";
+    public static final String TABLE_TRANSACTION_TAGS = "transaction_tags";
+    public static final String COLUMN_TRANSACTION_TAGS_TAG_ID = "tag_id";
+    public static final String COLUMN_TRANSACTION_TAGS_TRANSACTION_ID = "transaction_id";
+
+    // Categorías que registran las transferencias entre cuentas
+    public static final String TRANSFER_CATEGORY_NAME = "Transferencia";
 
     // Sentencia SQL para crear la tabla de categorías
     private static final String CREATE_TABLE_CATEGORIES =
@@ -36,6 +114,10 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                     COLUMN_CATEGORY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
                     COLUMN_CATEGORY_NAME + " TEXT NOT NULL," + // Ya no UNIQUE solo el nombre
                     COLUMN_CATEGORY_TYPE + " TEXT NOT NULL," +
+                    COLUMN_SYNC_ID + " TEXT," +
+                    COLUMN_UPDATED_AT + " INTEGER NOT NULL DEFAULT 0," +
+                    COLUMN_UPDATED_BY + " TEXT," +
+                    COLUMN_DIRTY + " INTEGER NOT NULL DEFAULT 1," +
                     "UNIQUE(" + COLUMN_CATEGORY_NAME + ", " + COLUMN_CATEGORY_TYPE + "));"; // <<-- CAMBIO AQUÍ: UNIQUE de la combinación de nombre y tipo
 
 
@@ -47,24 +129,151 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                     COLUMN_TRANSACTION_DESCRIPTION + " TEXT," +
                     COLUMN_TRANSACTION_CATEGORY_ID + " INTEGER," +
                     COLUMN_TRANSACTION_DATE + " TEXT NOT NULL," +
+                    COLUMN_TRANSACTION_FINGERPRINT + " INTEGER," +
+                    COLUMN_TRANSACTION_ACCOUNT_ID + " INTEGER NOT NULL DEFAULT " + Account.DEFAULT_ID +
+                    " REFERENCES " + TABLE_ACCOUNTS + "(" + COLUMN_ACCOUNT_ID + ")," +
+                    COLUMN_TRANSACTION_TRANSFER_ID + " TEXT," +
+                    COLUMN_TRANSACTION_IS_SPLIT + " INTEGER NOT NULL DEFAULT 0," +
+                    COLUMN_SYNC_ID + " TEXT," +
+                    COLUMN_UPDATED_AT + " INTEGER NOT NULL DEFAULT 0," +
+                    COLUMN_UPDATED_BY + " TEXT," +
+                    COLUMN_DIRTY + " INTEGER NOT NULL DEFAULT 1," +
                     "FOREIGN KEY(" + COLUMN_TRANSACTION_CATEGORY_ID + ") REFERENCES " +
                     TABLE_CATEGORIES + "(" + COLUMN_CATEGORY_ID + ") ON DELETE CASCADE);"; // ON DELETE CASCADE para eliminar transacciones si se elimina la categoría
 
+    private static final String CREATE_TABLE_SYNC_TOMBSTONES =
+            "CREATE TABLE " + TABLE_SYNC_TOMBSTONES + " (" +
+                    COLUMN_SYNC_ID + " TEXT PRIMARY KEY," +
+                    COLUMN_TOMBSTONE_ENTITY + " INTEGER NOT NULL," +
+                    COLUMN_TOMBSTONE_DELETED_AT + " INTEGER NOT NULL," +
+                    COLUMN_TOMBSTONE_DELETED_BY + " TEXT);";
+
+    private static final String CREATE_TABLE_SYNC_STATE =
+            "CREATE TABLE " + TABLE_SYNC_STATE + " (" +
+                    COLUMN_SYNC_STATE_KEY + " TEXT PRIMARY KEY," +
+                    COLUMN_SYNC_STATE_VALUE + " TEXT);";
+
+    private static DatabaseHelper instance;
+
+    private final Context appContext;
+    private String cachedDeviceId;
+
+    // Sumas prefijas de los totales diarios; se construye la primera vez que se pide un saldo
+    private volatile DailyBalanceIndex dailyBalanceIndex;
+    // Serializa las escrituras de transacciones con la construcción del índice, así una escritura
+    // nunca queda contada dos veces (en la consulta inicial y en su delta) ni se pierde
+    private final Object indexLock = new Object();
+    // Se incrementa después de cada escritura confirmada de transacciones o categorías (ver TransactionQueryCache y BalanceWidgetUpdater)
+    private final AtomicLong writeVersion = new AtomicLong();
+    // Solo cambia con escrituras de categorías (ver CategoryCache)
+    private final AtomicLong categoryVersion = new AtomicLong();
+    // Huellas de todas las transacciones (y de algunas ya borradas); se arma la primera vez que se pide
+    private volatile BloomFilter duplicateFilter;
+    // Transacciones de cada etiqueta; se arma la primera vez que se filtra por etiquetas
+    private volatile TagIndex tagIndex;
+
+    /**
+     * Devuelve la instancia compartida del helper. Todas las pantallas y los hilos de fondo
+     * usan la misma conexión, así SQLite serializa las escrituras en vez de fallar con SQLITE_BUSY.
+     */
+    public static synchronized DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            // En compilaciones depurables las consultas se miden para JankMonitor
+            Context appContext = context.getApplicationContext();
+            instance = new DatabaseHelper(appContext, JankMonitor.cursorFactory(appContext));
+        }
+        return instance;
+    }
+
     public DatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this(context, null);
+    }
+
+    /**
+     * @param cursorFactory Fábrica de cursores para todas las consultas; los tests de rendimiento
+     *                      pasan una que cuenta las consultas ejecutadas.
+     */
+    DatabaseHelper(Context context, @Nullable SQLiteDatabase.CursorFactory cursorFactory) {
+        this(context, DATABASE_NAME, cursorFactory);
+    }
+
+    /**
+     * @param name Archivo de la base; los tests de sincronización abren dos, uno por dispositivo.
+     */
+    DatabaseHelper(Context context, String name, @Nullable SQLiteDatabase.CursorFactory cursorFactory) {
+        super(context, name, cursorFactory, DATABASE_VERSION);
+        this.appContext = context.getApplicationContext();
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
         db.execSQL(CREATE_TABLE_CATEGORIES);
         db.execSQL(CREATE_TABLE_TRANSACTIONS);
+        createSyncSchema(db);
+        createCategoryIndex(db);
+        createDateIndex(db);
+        createDailyTotals(db);
+        createFingerprintSchema(db);
+        createAccountSchema(db);
+        createSplitSchema(db);
+        createTagSchema(db);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_TRANSACTIONS);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_CATEGORIES);
-        onCreate(db);
+        if (oldVersion < 5) {
+            // Esquemas muy viejos: se recrean desde cero
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_TRANSACTIONS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_CATEGORIES);
+            onCreate(db);
+            return;
+        }
+        if (oldVersion < 6) {
+            upgradeToV6(db);
+        }
+        if (oldVersion < 7) {
+            createCategoryIndex(db);
+        }
+        if (oldVersion < 8) {
+            createDateIndex(db);
+        }
+        if (oldVersion < 9) {
+            // La columna transfer_id llega en la versión 11: los triggers y el agregado se arman en la 14
+            createDailyTotalsTable(db);
+        }
+        if (oldVersion < 10) {
+            db.execSQL("ALTER TABLE " + TABLE_TRANSACTIONS + " ADD COLUMN " + COLUMN_TRANSACTION_FINGERPRINT + " INTEGER");
+            refreshFingerprints(db, "1", null);
+            createFingerprintSchema(db);
+        }
+        if (oldVersion < 11) {
+            // Las claves foráneas recién se activan en onOpen: el ALTER con REFERENCES y DEFAULT no nulo es válido acá
+            db.execSQL("ALTER TABLE " + TABLE_TRANSACTIONS + " ADD COLUMN " + COLUMN_TRANSACTION_ACCOUNT_ID +
+                    " INTEGER NOT NULL DEFAULT " + Account.DEFAULT_ID + " REFERENCES " + TABLE_ACCOUNTS + "(" + COLUMN_ACCOUNT_ID + ")");
+            db.execSQL("ALTER TABLE " + TABLE_TRANSACTIONS + " ADD COLUMN " + COLUMN_TRANSACTION_TRANSFER_ID + " TEXT");
+            createAccountSchema(db);
+        }
+        if (oldVersion < 12) {
+            db.execSQL("ALTER TABLE " + TABLE_TRANSACTIONS + " ADD COLUMN " + COLUMN_TRANSACTION_IS_SPLIT + " INTEGER NOT NULL DEFAULT 0");
+            createSplitSchema(db);
+        }
+        if (oldVersion < 13) {
+            createTagSchema(db);
+        }
+        if (oldVersion < 14) {
+            // Las transferencias dejan de contarse como ingreso y gasto: se vuelven a agregar los totales
+            if (oldVersion >= 9) {
+                db.execSQL("ALTER TABLE " + TABLE_DAILY_TOTALS + " ADD COLUMN " + COLUMN_DAILY_TRANSFER_CENTS + " INTEGER NOT NULL DEFAULT 0");
+            }
+            dropDailyTotalsTriggers(db);
+            db.execSQL("DELETE FROM " + TABLE_DAILY_TOTALS);
+            aggregateDailyTotals(db);
+            createDailyTotalsTriggers(db);
+            dropCategoryTotalsTriggers(db);
+            db.execSQL("DELETE FROM " + TABLE_CATEGORY_TOTALS);
+            aggregateCategoryTotals(db);
+            createCategoryTotalsTriggers(db);
+        }
     }
 
     @Override
@@ -73,6 +282,402 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.execSQL("PRAGMA foreign_keys=ON;"); // Habilitar claves foráneas
     }
 
+    /**
+     * Crea las tablas, índices y triggers usados por la sincronización entre dispositivos.
+     * Se asume que las columnas de sync ya existen en categories y transactions.
+     */
+    private void createSyncSchema(SQLiteDatabase db) {
+        db.execSQL(CREATE_TABLE_SYNC_TOMBSTONES);
+        db.execSQL(CREATE_TABLE_SYNC_STATE);
+        db.execSQL("CREATE UNIQUE INDEX idx_categories_sync_id ON " + TABLE_CATEGORIES + "(" + COLUMN_SYNC_ID + ")");
+        db.execSQL("CREATE UNIQUE INDEX idx_transactions_sync_id ON " + TABLE_TRANSACTIONS + "(" + COLUMN_SYNC_ID + ")");
+        // Índices parciales: solo contienen las filas pendientes, así buscar cambios locales no escanea la tabla
+        db.execSQL("CREATE INDEX idx_categories_dirty ON " + TABLE_CATEGORIES + "(" + COLUMN_CATEGORY_ID + ") WHERE " + COLUMN_DIRTY + " = 1");
+        db.execSQL("CREATE INDEX idx_transactions_dirty ON " + TABLE_TRANSACTIONS + "(" + COLUMN_TRANSACTION_ID + ") WHERE " + COLUMN_DIRTY + " = 1");
+        // Los borrados (incluidos los de ON DELETE CASCADE) dejan una lápida, salvo mientras se aplican cambios remotos
+        db.execSQL(tombstoneTrigger("trg_categories_tombstone", TABLE_CATEGORIES, SyncChange.ENTITY_CATEGORY));
+        db.execSQL(tombstoneTrigger("trg_transactions_tombstone", TABLE_TRANSACTIONS, SyncChange.ENTITY_TRANSACTION));
+    }
+
+    /**
+     * Índice por categoría: permite borrar o reasignar las transacciones de una categoría
+     * por tramos sin recorrer toda la tabla en cada tramo (y acelera el ON DELETE CASCADE).
+     */
+    private void createCategoryIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX idx_transactions_category ON " + TABLE_TRANSACTIONS + "(" + COLUMN_TRANSACTION_CATEGORY_ID + ")");
+    }
+
+    /**
+     * Índice por fecha: el saldo acumulado del historial recorre en orden solo el rango de fechas
+     * cargado, sin ordenar toda la tabla.
+     */
+    private void createDateIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX idx_transactions_date ON " + TABLE_TRANSACTIONS + "(" + COLUMN_TRANSACTION_DATE + ")");
+    }
+
+    /**
+     * Tabla de totales diarios y los triggers que la mantienen al día. Al ser triggers cubren
+     * cualquier escritura sobre transactions: altas, ediciones, SQL masivo, ON DELETE CASCADE
+     * y cambios remotos. Las filas existentes se agregan una sola vez al crearla. Las mitades de
+     * una transferencia no son ingreso ni gasto: van aparte, en transfer_cents, para el saldo.
+     */
+    private void createDailyTotals(SQLiteDatabase db) {
+        createDailyTotalsTable(db);
+        createDailyTotalsTriggers(db);
+        aggregateDailyTotals(db);
+    }
+
+    private static void createDailyTotalsTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_DAILY_TOTALS + " (" +
+                COLUMN_DAILY_DAY + " TEXT PRIMARY KEY," +
+                COLUMN_DAILY_INCOME_CENTS + " INTEGER NOT NULL DEFAULT 0," +
+                COLUMN_DAILY_EXPENSE_CENTS + " INTEGER NOT NULL DEFAULT 0," +
+                COLUMN_DAILY_COUNT + " INTEGER NOT NULL DEFAULT 0," +
+                COLUMN_DAILY_TRANSFER_CENTS + " INTEGER NOT NULL DEFAULT 0) WITHOUT ROWID;");
+    }
+
+    /**
+     * Índice de huellas (confirma en O(log n) lo que el filtro de Bloom marca como posible duplicado,
+     * y agrupa las huellas repetidas sin ordenar la tabla) y la tabla de duplicados descartados.
+     */
+    private void createFingerprintSchema(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX idx_transactions_fingerprint ON " + TABLE_TRANSACTIONS + "(" + COLUMN_TRANSACTION_FINGERPRINT + ")");
+        db.execSQL("CREATE TABLE " + TABLE_DUPLICATE_DISMISSALS + " (" + COLUMN_TRANSACTION_FINGERPRINT + " INTEGER PRIMARY KEY)");
+    }
+
+    /**
+     * Tabla de cuentas con las tres de siempre (las transacciones existentes quedan en Efectivo),
+     * índices que empiezan por la cuenta, así una consulta de una cuenta recorre solo su tramo,
+     * y los triggers que mantienen el saldo de cada cuenta. Las filas existentes se agregan una sola vez.
+     */
+    private void createAccountSchema(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_ACCOUNTS + " (" +
+                COLUMN_ACCOUNT_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
+                COLUMN_ACCOUNT_NAME + " TEXT NOT NULL UNIQUE," +
+                COLUMN_ACCOUNT_BALANCE_CENTS + " INTEGER NOT NULL DEFAULT 0," +
+                COLUMN_ACCOUNT_COUNT + " INTEGER NOT NULL DEFAULT 0);");
+        db.execSQL("INSERT INTO " + TABLE_ACCOUNTS + " (" + COLUMN_ACCOUNT_ID + ", " + COLUMN_ACCOUNT_NAME + ") VALUES (" +
+                Account.DEFAULT_ID + ", 'Efectivo'), (2, 'Banco'), (3, 'Tarjeta')");
+        db.execSQL("CREATE INDEX idx_transactions_account_date ON " + TABLE_TRANSACTIONS + "(" +
+                COLUMN_TRANSACTION_ACCOUNT_ID + ", " + COLUMN_TRANSACTION_DATE + ")");
+        db.execSQL("CREATE INDEX idx_transactions_account_category ON " + TABLE_TRANSACTIONS + "(" +
+                COLUMN_TRANSACTION_ACCOUNT_ID + ", " + COLUMN_TRANSACTION_CATEGORY_ID + ")");
+        // Casi ninguna fila es una transferencia: el índice parcial solo guarda esas
+        db.execSQL("CREATE INDEX idx_transactions_transfer ON " + TABLE_TRANSACTIONS + "(" + COLUMN_TRANSACTION_TRANSFER_ID + ")" +
+                " WHERE " + COLUMN_TRANSACTION_TRANSFER_ID + " IS NOT NULL");
+        createAccountTotalsTriggers(db);
+        aggregateAccountTotals(db);
+    }
+
+    private static void createAccountTotalsTriggers(SQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER trg_account_totals_insert AFTER INSERT ON " + TABLE_TRANSACTIONS +
+                " BEGIN " + accountTotalsAdd("NEW", 1) + " END");
+        db.execSQL("CREATE TRIGGER trg_account_totals_delete AFTER DELETE ON " + TABLE_TRANSACTIONS +
+                " BEGIN " + accountTotalsAdd("OLD", -1) + " END");
+        db.execSQL("CREATE TRIGGER trg_account_totals_update AFTER UPDATE OF " + COLUMN_TRANSACTION_AMOUNT + ", " +
+                COLUMN_TRANSACTION_ACCOUNT_ID + " ON " + TABLE_TRANSACTIONS +
+                " BEGIN " + accountTotalsAdd("OLD", -1) + accountTotalsAdd("NEW", 1) + " END");
+    }
+
+    private static void dropAccountTotalsTriggers(SQLiteDatabase db) {
+        db.execSQL("DROP TRIGGER IF EXISTS trg_account_totals_insert");
+        db.execSQL("DROP TRIGGER IF EXISTS trg_account_totals_delete");
+        db.execSQL("DROP TRIGGER IF EXISTS trg_account_totals_update");
+    }
+
+    // Recalcula saldo y cantidad de todas las cuentas desde transactions
+    private static void aggregateAccountTotals(SQLiteDatabase db) {
+        String ofAccount = " FROM " + TABLE_TRANSACTIONS + " WHERE " + COLUMN_TRANSACTION_ACCOUNT_ID + " = " +
+                TABLE_ACCOUNTS + "." + COLUMN_ACCOUNT_ID + ")";
+        db.execSQL("UPDATE " + TABLE_ACCOUNTS + " SET " +
+                COLUMN_ACCOUNT_BALANCE_CENTS + " = (SELECT IFNULL(SUM(" + centsOf("") + "), 0)" + ofAccount + ", " +
+                COLUMN_ACCOUNT_COUNT + " = (SELECT COUNT(*)" + ofAccount);
+    }
+
+    // Suma (sign = 1) o resta (sign = -1) la fila NEW/OLD en el saldo de su cuenta
+    private static String accountTotalsAdd(String row, int sign) {
+        String op = sign > 0 ? " + " : " - ";
+        return "UPDATE " + TABLE_ACCOUNTS + " SET " +
+                COLUMN_ACCOUNT_BALANCE_CENTS + " = " + COLUMN_ACCOUNT_BALANCE_CENTS + op + centsOf(row) + ", " +
+                COLUMN_ACCOUNT_COUNT + " = " + COLUMN_ACCOUNT_COUNT + op + "1" +
+                " WHERE " + COLUMN_ACCOUNT_ID + " = " + row + "." + COLUMN_TRANSACTION_ACCOUNT_ID + "; ";
+    }
+
+    /**
+     * Tabla de líneas de las transacciones divididas y tabla de totales por categoría y mes.
+     * El índice (category_id, date, transaction_id, amount) cubre los filtros y las sumas por
+     * categoría sin leer la tabla. Los totales los mantienen triggers sobre las dos tablas: una
+     * transacción suma en su categoría mientras no esté dividida, y cada línea suma en la suya.
+     */
+    private void createSplitSchema(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_SPLITS + " (" +
+                COLUMN_SPLIT_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
+                COLUMN_SPLIT_TRANSACTION_ID + " INTEGER NOT NULL REFERENCES " + TABLE_TRANSACTIONS + "(" + COLUMN_TRANSACTION_ID + ") ON DELETE CASCADE," +
+                COLUMN_SPLIT_CATEGORY_ID + " INTEGER NOT NULL REFERENCES " + TABLE_CATEGORIES + "(" + COLUMN_CATEGORY_ID + ") ON DELETE CASCADE," +
+                COLUMN_SPLIT_AMOUNT + " REAL NOT NULL," +
+                COLUMN_SPLIT_DATE + " TEXT NOT NULL);");
+        db.execSQL("CREATE INDEX idx_splits_transaction ON " + TABLE_SPLITS + "(" + COLUMN_SPLIT_TRANSACTION_ID + ")");
+        db.execSQL("CREATE INDEX idx_splits_category ON " + TABLE_SPLITS + "(" + COLUMN_SPLIT_CATEGORY_ID + ", " +
+                COLUMN_SPLIT_DATE + ", " + COLUMN_SPLIT_TRANSACTION_ID + ", " + COLUMN_SPLIT_AMOUNT + ")");
+        db.execSQL("CREATE TABLE " + TABLE_CATEGORY_TOTALS + " (" +
+                COLUMN_CATEGORY_TOTALS_CATEGORY_ID + " INTEGER NOT NULL," +
+                COLUMN_CATEGORY_TOTALS_MONTH + " TEXT NOT NULL," +
+                COLUMN_CATEGORY_TOTALS_CENTS + " INTEGER NOT NULL DEFAULT 0," +
+                COLUMN_CATEGORY_TOTALS_COUNT + " INTEGER NOT NULL DEFAULT 0," +
+                "PRIMARY KEY (" + COLUMN_CATEGORY_TOTALS_CATEGORY_ID + ", " + COLUMN_CATEGORY_TOTALS_MONTH + ")) WITHOUT ROWID;");
+        // Las líneas siguen a la fecha de su transacción (y sus triggers mueven los totales de mes)
+        db.execSQL("CREATE TRIGGER trg_splits_follow_date AFTER UPDATE OF " + COLUMN_TRANSACTION_DATE + " ON " + TABLE_TRANSACTIONS +
+                " WHEN NEW." + COLUMN_TRANSACTION_IS_SPLIT + " = 1 BEGIN UPDATE " + TABLE_SPLITS + " SET " + COLUMN_SPLIT_DATE +
+                " = NEW." + COLUMN_TRANSACTION_DATE + " WHERE " + COLUMN_SPLIT_TRANSACTION_ID + " = NEW." + COLUMN_TRANSACTION_ID + "; END");
+        createCategoryTotalsTriggers(db);
+        aggregateCategoryTotals(db);
+    }
+
+    /**
+     * Etiquetas y su tabla intermedia. La clave (tag_id, transaction_id) sin rowid deja las
+     * transacciones de cada etiqueta juntas y ordenadas, que es como se lee para armar el
+     * {@link TagIndex}; el índice por transacción sirve para editar las de una sola.
+     */
+    private void createTagSchema(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_TAGS + " (" +
+                COLUMN_TAG_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
+                COLUMN_TAG_NAME + " TEXT NOT NULL UNIQUE COLLATE NOCASE);");
+        db.execSQL("CREATE TABLE " + TABLE_TRANSACTION_TAGS + " (" +
+                COLUMN_TRANSACTION_TAGS_TAG_ID + " INTEGER NOT NULL REFERENCES " + TABLE_TAGS + "(" + COLUMN_TAG_ID + ") ON DELETE CASCADE," +
+                COLUMN_TRANSACTION_TAGS_TRANSACTION_ID + " INTEGER NOT NULL REFERENCES " + TABLE_TRANSACTIONS + "(" + COLUMN_TRANSACTION_ID + ") ON DELETE CASCADE," +
+                "PRIMARY KEY (" + COLUMN_TRANSACTION_TAGS_TAG_ID + ", " + COLUMN_TRANSACTION_TAGS_TRANSACTION_ID + ")) WITHOUT ROWID;");
+        db.execSQL("CREATE INDEX idx_transaction_tags_transaction ON " + TABLE_TRANSACTION_TAGS + "(" + COLUMN_TRANSACTION_TAGS_TRANSACTION_ID + ")");
+    }
+
+    private static void createCategoryTotalsTriggers(SQLiteDatabase db) {
+        // Las divididas cuentan por sus líneas y las transferencias no son ingreso ni gasto de ninguna categoría
+        db.execSQL("CREATE TRIGGER trg_category_totals_insert AFTER INSERT ON " + TABLE_TRANSACTIONS +
+                " BEGIN " + categoryTotalsAdd("NEW", countsForCategory("NEW"), 1) + " END");
+        db.execSQL("CREATE TRIGGER trg_category_totals_delete AFTER DELETE ON " + TABLE_TRANSACTIONS +
+                " BEGIN " + categoryTotalsAdd("OLD", countsForCategory("OLD"), -1) + " END");
+        db.execSQL("CREATE TRIGGER trg_category_totals_update AFTER UPDATE OF " + COLUMN_TRANSACTION_AMOUNT + ", " +
+                COLUMN_TRANSACTION_DATE + ", " + COLUMN_TRANSACTION_CATEGORY_ID + ", " + COLUMN_TRANSACTION_IS_SPLIT + ", " +
+                COLUMN_TRANSACTION_TRANSFER_ID + " ON " + TABLE_TRANSACTIONS +
+                " BEGIN " + categoryTotalsAdd("OLD", countsForCategory("OLD"), -1) + categoryTotalsAdd("NEW", countsForCategory("NEW"), 1) + " END");
+        db.execSQL("CREATE TRIGGER trg_category_totals_split_insert AFTER INSERT ON " + TABLE_SPLITS +
+                " BEGIN " + categoryTotalsAdd("NEW", "1", 1) + " END");
+        db.execSQL("CREATE TRIGGER trg_category_totals_split_delete AFTER DELETE ON " + TABLE_SPLITS +
+                " BEGIN " + categoryTotalsAdd("OLD", "1", -1) + " END");
+        db.execSQL("CREATE TRIGGER trg_category_totals_split_update AFTER UPDATE OF " + COLUMN_SPLIT_AMOUNT + ", " +
+                COLUMN_SPLIT_DATE + ", " + COLUMN_SPLIT_CATEGORY_ID + " ON " + TABLE_SPLITS +
+                " BEGIN " + categoryTotalsAdd("OLD", "1", -1) + categoryTotalsAdd("NEW", "1", 1) + " END");
+    }
+
+    private static String countsForCategory(String row) {
+        String prefix = row.isEmpty() ? "" : row + ".";
+        return prefix + COLUMN_TRANSACTION_IS_SPLIT + " = 0 AND " + prefix + COLUMN_TRANSACTION_TRANSFER_ID + " IS NULL";
+    }
+
+    private static void dropCategoryTotalsTriggers(SQLiteDatabase db) {
+        for (String suffix : new String[]{"insert", "delete", "update", "split_insert", "split_delete", "split_update"}) {
+            db.execSQL("DROP TRIGGER IF EXISTS trg_category_totals_" + suffix);
+        }
+    }
+
+    // Agrega en category_totals las transacciones no divididas (sin transferencias) y las líneas; la tabla debe estar vacía
+    private static void aggregateCategoryTotals(SQLiteDatabase db) {
+        String columns = COLUMN_TRANSACTION_CATEGORY_ID + ", " + COLUMN_TRANSACTION_DATE + ", " + COLUMN_TRANSACTION_AMOUNT;
+        db.execSQL("INSERT INTO " + TABLE_CATEGORY_TOTALS + " SELECT " + COLUMN_TRANSACTION_CATEGORY_ID + ", substr(" +
+                COLUMN_TRANSACTION_DATE + ", 1, 7), SUM(" + centsOf("") + "), COUNT(*) FROM (" +
+                "SELECT " + columns + " FROM " + TABLE_TRANSACTIONS + " WHERE " + countsForCategory("") +
+                " UNION ALL SELECT " + columns + " FROM " + TABLE_SPLITS + ") GROUP BY 1, 2");
+    }
+
+    /**
+     * Suma (sign = 1) o resta (sign = -1) la fila NEW/OLD en el total de su categoría y mes, solo si
+     * se cumple {@code condition}. Sirve para transactions y para transaction_splits: las dos tablas
+     * llaman igual a las columnas de categoría, fecha y monto.
+     */
+    private static String categoryTotalsAdd(String row, String condition, int sign) {
+        String category = row + "." + COLUMN_TRANSACTION_CATEGORY_ID;
+        String month = "substr(" + row + "." + COLUMN_TRANSACTION_DATE + ", 1, 7)";
+        String key = COLUMN_CATEGORY_TOTALS_CATEGORY_ID + " = " + category + " AND " + COLUMN_CATEGORY_TOTALS_MONTH + " = " + month;
+        String op = sign > 0 ? " + " : " - ";
+        String sql = "UPDATE " + TABLE_CATEGORY_TOTALS + " SET " +
+                COLUMN_CATEGORY_TOTALS_CENTS + " = " + COLUMN_CATEGORY_TOTALS_CENTS + op + centsOf(row) + ", " +
+                COLUMN_CATEGORY_TOTALS_COUNT + " = " + COLUMN_CATEGORY_TOTALS_COUNT + op + "1" +
+                " WHERE " + key + " AND " + condition + "; ";
+        if (sign > 0) {
+            return "INSERT OR IGNORE INTO " + TABLE_CATEGORY_TOTALS + " (" + COLUMN_CATEGORY_TOTALS_CATEGORY_ID + ", " +
+                    COLUMN_CATEGORY_TOTALS_MONTH + ") SELECT " + category + ", " + month + " WHERE " + condition + "; " + sql;
+        }
+        // Un mes que se quedó sin movimientos en la categoría deja de ocupar una fila
+        return sql + "DELETE FROM " + TABLE_CATEGORY_TOTALS + " WHERE " + key + " AND " + COLUMN_CATEGORY_TOTALS_COUNT + " = 0; ";
+    }
+
+    private static void createDailyTotalsTriggers(SQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER trg_daily_totals_insert AFTER INSERT ON " + TABLE_TRANSACTIONS +
+                " BEGIN " + dailyTotalsAdd("NEW", 1) + " END");
+        db.execSQL("CREATE TRIGGER trg_daily_totals_delete AFTER DELETE ON " + TABLE_TRANSACTIONS +
+                " BEGIN " + dailyTotalsAdd("OLD", -1) + dailyTotalsPrune("OLD") + " END");
+        db.execSQL("CREATE TRIGGER trg_daily_totals_update AFTER UPDATE OF " + COLUMN_TRANSACTION_AMOUNT + ", " +
+                COLUMN_TRANSACTION_DATE + ", " + COLUMN_TRANSACTION_TRANSFER_ID + " ON " + TABLE_TRANSACTIONS +
+                " BEGIN " + dailyTotalsAdd("OLD", -1) + dailyTotalsAdd("NEW", 1) + dailyTotalsPrune("OLD") + " END");
+    }
+
+    private static void dropDailyTotalsTriggers(SQLiteDatabase db) {
+        db.execSQL("DROP TRIGGER IF EXISTS trg_daily_totals_insert");
+        db.execSQL("DROP TRIGGER IF EXISTS trg_daily_totals_delete");
+        db.execSQL("DROP TRIGGER IF EXISTS trg_daily_totals_update");
+    }
+
+    // Agrega todas las transactions en daily_totals; la tabla debe estar vacía
+    private static void aggregateDailyTotals(SQLiteDatabase db) {
+        String plain = COLUMN_TRANSACTION_TRANSFER_ID + " IS NULL";
+        db.execSQL("INSERT INTO " + TABLE_DAILY_TOTALS + " (" + COLUMN_DAILY_DAY + ", " + COLUMN_DAILY_INCOME_CENTS + ", " +
+                COLUMN_DAILY_EXPENSE_CENTS + ", " + COLUMN_DAILY_COUNT + ", " + COLUMN_DAILY_TRANSFER_CENTS + ")" +
+                " SELECT " + COLUMN_TRANSACTION_DATE + ", " +
+                "SUM(CASE WHEN " + plain + " AND " + COLUMN_TRANSACTION_AMOUNT + " > 0 THEN " + centsOf("") + " ELSE 0 END), " +
+                "SUM(CASE WHEN " + plain + " AND " + COLUMN_TRANSACTION_AMOUNT + " < 0 THEN -" + centsOf("") + " ELSE 0 END), " +
+                "SUM(CASE WHEN " + plain + " THEN 1 ELSE 0 END), " +
+                "SUM(CASE WHEN " + plain + " THEN 0 ELSE " + centsOf("") + " END)" +
+                " FROM " + TABLE_TRANSACTIONS + " GROUP BY " + COLUMN_TRANSACTION_DATE);
+    }
+
+    // Montos en centavos, redondeados por fila igual que en getRunningBalances()
+    private static String centsOf(String row) {
+        String amount = row.isEmpty() ? COLUMN_TRANSACTION_AMOUNT : row + "." + COLUMN_TRANSACTION_AMOUNT;
+        return "CAST(ROUND(" + amount + " * 100) AS INTEGER)";
+    }
+
+    /**
+     * Suma (sign = 1) o resta (sign = -1) la fila NEW/OLD en el total de su día. Se usa
+     * INSERT OR IGNORE + UPDATE porque el UPSERT de SQLite no existe en las versiones de API 24.
+     * Una mitad de transferencia solo suma en transfer_cents.
+     */
+    private static String dailyTotalsAdd(String row, int sign) {
+        String day = row + "." + COLUMN_TRANSACTION_DATE;
+        String amount = row + "." + COLUMN_TRANSACTION_AMOUNT;
+        String plain = row + "." + COLUMN_TRANSACTION_TRANSFER_ID + " IS NULL";
+        String op = sign > 0 ? " + " : " - ";
+        return "INSERT OR IGNORE INTO " + TABLE_DAILY_TOTALS + " (" + COLUMN_DAILY_DAY + ") VALUES (" + day + "); " +
+                "UPDATE " + TABLE_DAILY_TOTALS + " SET " +
+                COLUMN_DAILY_INCOME_CENTS + " = " + COLUMN_DAILY_INCOME_CENTS + op + "(CASE WHEN " + plain + " AND " + amount + " > 0 THEN " + centsOf(row) + " ELSE 0 END), " +
+                COLUMN_DAILY_EXPENSE_CENTS + " = " + COLUMN_DAILY_EXPENSE_CENTS + op + "(CASE WHEN " + plain + " AND " + amount + " < 0 THEN -" + centsOf(row) + " ELSE 0 END), " +
+                COLUMN_DAILY_COUNT + " = " + COLUMN_DAILY_COUNT + op + "(CASE WHEN " + plain + " THEN 1 ELSE 0 END), " +
+                COLUMN_DAILY_TRANSFER_CENTS + " = " + COLUMN_DAILY_TRANSFER_CENTS + op + "(CASE WHEN " + plain + " THEN 0 ELSE " + centsOf(row) + " END)" +
+                " WHERE " + COLUMN_DAILY_DAY + " = " + day + "; ";
+    }
+
+    // Un día que se quedó sin transacciones (y sin transferencias a medio mover) deja de ocupar una fila
+    private static String dailyTotalsPrune(String row) {
+        return "DELETE FROM " + TABLE_DAILY_TOTALS + " WHERE " + COLUMN_DAILY_DAY + " = " + row + "." + COLUMN_TRANSACTION_DATE +
+                " AND " + COLUMN_DAILY_COUNT + " = 0 AND " + COLUMN_DAILY_TRANSFER_CENTS + " = 0; ";
+    }
+
+    private static String tombstoneTrigger(String name, String table, int entity) {
+        return "CREATE TRIGGER " + name + " AFTER DELETE ON " + table +
+                " WHEN OLD." + COLUMN_SYNC_ID + " IS NOT NULL" +
+                " AND NOT EXISTS (SELECT 1 FROM " + TABLE_SYNC_STATE + " WHERE " + COLUMN_SYNC_STATE_KEY + " = '" + SYNC_STATE_APPLYING + "')" +
+                " BEGIN INSERT OR REPLACE INTO " + TABLE_SYNC_TOMBSTONES + " VALUES (OLD." + COLUMN_SYNC_ID + ", " + entity + ", " +
+                "CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER), " +
+                "(SELECT " + COLUMN_SYNC_STATE_VALUE + " FROM " + TABLE_SYNC_STATE + " WHERE " + COLUMN_SYNC_STATE_KEY + " = '" + SYNC_STATE_DEVICE_ID + "')); END";
+    }
+
+    /**
+     * Migración 5 -> 6: agrega las columnas de sincronización sin perder datos y
+     * asigna un sync_id a las filas existentes.
+     */
+    private void upgradeToV6(SQLiteDatabase db) {
+        for (String table : new String[]{TABLE_CATEGORIES, TABLE_TRANSACTIONS}) {
+            db.execSQL("ALTER TABLE " + table + " ADD COLUMN " + COLUMN_SYNC_ID + " TEXT");
+            db.execSQL("ALTER TABLE " + table + " ADD COLUMN " + COLUMN_UPDATED_AT + " INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE " + table + " ADD COLUMN " + COLUMN_UPDATED_BY + " TEXT");
+            db.execSQL("ALTER TABLE " + table + " ADD COLUMN " + COLUMN_DIRTY + " INTEGER NOT NULL DEFAULT 1");
+        }
+        db.execSQL("UPDATE " + TABLE_TRANSACTIONS + " SET " + COLUMN_SYNC_ID + " = lower(hex(randomblob(16)))");
+
+        // Las categorías reciben un id derivado de nombre y tipo, igual que las nuevas
+        Cursor cursor = db.rawQuery("SELECT " + COLUMN_CATEGORY_ID + ", " + COLUMN_CATEGORY_NAME + ", " +
+                COLUMN_CATEGORY_TYPE + " FROM " + TABLE_CATEGORIES, null);
+        try {
+            while (cursor.moveToNext()) {
+                ContentValues values = new ContentValues();
+                values.put(COLUMN_SYNC_ID, categorySyncId(cursor.getString(1), cursor.getString(2)));
+                db.update(TABLE_CATEGORIES, values, COLUMN_CATEGORY_ID + " = ?", new String[]{String.valueOf(cursor.getInt(0))});
+            }
+        } finally {
+            cursor.close();
+        }
+        createSyncSchema(db);
+    }
+
+    /**
+     * Id de sincronización determinista para una categoría: dos dispositivos que crean
+     * "Otros (Gasto)" por separado terminan con la misma fila lógica en vez de un duplicado.
+     */
+    public static String categorySyncId(String name, String type) {
+        return UUID.nameUUIDFromBytes((type + "/" + name).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * Elige el sync_id para una categoría nueva: el derivado de nombre y tipo si está libre,
+     * o uno aleatorio si ya lo tiene una categoría renombrada.
+     */
+    private String newCategorySyncId(SQLiteDatabase db, String name, String type) {
+        String syncId = categorySyncId(name, type);
+        Cursor cursor = db.query(TABLE_CATEGORIES, new String[]{COLUMN_CATEGORY_ID},
+                COLUMN_SYNC_ID + " = ?", new String[]{syncId}, null, null, null);
+        try {
+            return cursor.moveToFirst() ? UUID.randomUUID().toString() : syncId;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Devuelve el identificador de este dispositivo, creándolo la primera vez.
+     */
+    public synchronized String getDeviceId() {
+        if (cachedDeviceId != null) {
+            return cachedDeviceId;
+        }
+        SQLiteDatabase db = this.getWritableDatabase();
+        String deviceId = getSyncState(db, SYNC_STATE_DEVICE_ID);
+        if (deviceId == null) {
+            deviceId = UUID.randomUUID().toString();
+            putSyncState(db, SYNC_STATE_DEVICE_ID, deviceId);
+        }
+        cachedDeviceId = deviceId;
+        return deviceId;
+    }
+
+    @Nullable
+    static String getSyncState(SQLiteDatabase db, String key) {
+        Cursor cursor = db.query(TABLE_SYNC_STATE, new String[]{COLUMN_SYNC_STATE_VALUE},
+                COLUMN_SYNC_STATE_KEY + " = ?", new String[]{key}, null, null, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    static void putSyncState(SQLiteDatabase db, String key, @Nullable String value) {
+        if (value == null) {
+            db.delete(TABLE_SYNC_STATE, COLUMN_SYNC_STATE_KEY + " = ?", new String[]{key});
+            return;
+        }
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_SYNC_STATE_KEY, key);
+        values.put(COLUMN_SYNC_STATE_VALUE, value);
+        db.insertWithOnConflict(TABLE_SYNC_STATE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /**
+     * Marca una escritura local: la fila queda pendiente de enviar en la próxima sincronización.
+     */
+    private void putLocalSyncColumns(ContentValues values) {
+        values.put(COLUMN_UPDATED_AT, System.currentTimeMillis());
+        values.put(COLUMN_UPDATED_BY, getDeviceId());
+        values.put(COLUMN_DIRTY, 1);
+    }
+
     // --- Métodos para Categorías ---
 
     /**
@@ -117,39 +722,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     }
 
 
-    /**
-     * Obtiene una categoría por su nombre y el tipo de display (ej. "Alimentos (Gasto)").
-     * Convierte el tipo de display a su tipo de DB antes de la consulta.
-     * Este método sigue siendo útil si tu `Category` clase usa el formato de display en `toString()`.
-     * @param categoryNameAndType El string de la categoría con formato "Nombre (Tipo)".
-     * @return Objeto Category si se encuentra, null en caso contrario.
-     */
-    public Category getCategoryByNameAndType(String categoryNameAndType) {
-        // Validación básica del formato
-        if (categoryNameAndType == null || !categoryNameAndType.contains(" (") || !categoryNameAndType.endsWith(")")) {
-            Log.e("DatabaseHelper", "Formato de categoría inesperado o nulo: " + categoryNameAndType);
-            return null;
-        }
-
-        String name = categoryNameAndType.substring(0, categoryNameAndType.lastIndexOf(" ("));
-        String typeDisplay = categoryNameAndType.substring(categoryNameAndType.lastIndexOf(" (") + 2, categoryNameAndType.length() - 1);
-
-        String typeForDb = null;
-        if (typeDisplay.equals("Gasto")) {
-            typeForDb = Category.TYPE_EXPENSE;
-        } else if (typeDisplay.equals("Ingreso")) {
-            typeForDb = Category.TYPE_INCOME;
-        }
-
-        if (typeForDb == null) {
-            Log.e("DatabaseHelper", "Tipo de categoría de display no reconocido: " + typeDisplay);
-            return null;
-        }
-
-        // Reutilizamos el nuevo método getCategoryByName
-        return getCategoryByName(name, typeForDb);
-    }
-
     /**
      * Verifica si una categoría con un nombre y tipo específico ya existe en la DB.
      * @param name El nombre de la categoría.
@@ -171,15 +743,16 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         ContentValues values = new ContentValues();
         values.put(COLUMN_CATEGORY_NAME, category.getName());
         values.put(COLUMN_CATEGORY_TYPE, category.getType());
+        values.put(COLUMN_SYNC_ID, newCategorySyncId(db, category.getName(), category.getType()));
+        putLocalSyncColumns(values);
 
         long result = -1;
         try {
             result = db.insert(TABLE_CATEGORIES, null, values);
         } catch (Exception e) {
             Log.e("DatabaseHelper", "Error al agregar categoría: " + e.getMessage());
-        } finally {
-            db.close();
         }
+        bumpCategoryVersion();
         return result;
     }
 
@@ -196,6 +769,8 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 ContentValues values = new ContentValues();
                 values.put(COLUMN_CATEGORY_NAME, "Otros");
                 values.put(COLUMN_CATEGORY_TYPE, Category.TYPE_EXPENSE);
+                values.put(COLUMN_SYNC_ID, newCategorySyncId(db, "Otros", Category.TYPE_EXPENSE));
+                putLocalSyncColumns(values);
                 db.insert(TABLE_CATEGORIES, null, values);
                 Log.d("DatabaseHelper", "Categoría 'Otros' (Gasto) creada.");
             } else {
@@ -207,6 +782,8 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 ContentValues values = new ContentValues();
                 values.put(COLUMN_CATEGORY_NAME, "Otros");
                 values.put(COLUMN_CATEGORY_TYPE, Category.TYPE_INCOME);
+                values.put(COLUMN_SYNC_ID, newCategorySyncId(db, "Otros", Category.TYPE_INCOME));
+                putLocalSyncColumns(values);
                 db.insert(TABLE_CATEGORIES, null, values);
                 Log.d("DatabaseHelper", "Categoría 'Otros' (Ingreso) creada.");
             } else {
@@ -214,9 +791,8 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             }
         } catch (Exception e) {
             Log.e("DatabaseHelper", "Error al crear categorías por defecto: " + e.getMessage());
-        } finally {
-            db.close(); // Cierra la base de datos después de la operación
         }
+        bumpCategoryVersion();
     }
 
 
@@ -276,6 +852,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         ContentValues values = new ContentValues();
         values.put(COLUMN_CATEGORY_NAME, category.getName());
         values.put(COLUMN_CATEGORY_TYPE, category.getType());
+        putLocalSyncColumns(values);
 
         String whereClause = COLUMN_CATEGORY_ID + " = ?";
         String[] whereArgs = {String.valueOf(category.getId())};
@@ -286,31 +863,220 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         } catch (Exception e) {
             Log.e("DatabaseHelper", "Error al actualizar categoría: " + e.getMessage());
             e.printStackTrace();
-        } finally {
-            db.close();
         }
+        bumpCategoryVersion();
         return rowsAffected > 0;
     }
 
 
     /**
      * Elimina una categoría de la base de datos por su ID.
-     * Las transacciones asociadas también serán eliminadas debido a ON DELETE CASCADE.
+     * Las transacciones asociadas también serán eliminadas debido a ON DELETE CASCADE (las divididas
+     * enteras: antes hay que pasar por {@link #deleteTransactionsForCategoryChunk} para achicarlas).
+     * Si quedan mitades de transferencias, se borran antes junto con la otra mitad, que está en la
+     * categoría "Transferencia" del otro tipo: el CASCADE solo se llevaría una.
      * @param categoryId El ID de la categoría a eliminar.
      * @return true si la eliminación fue exitosa, false en caso contrario.
      */
     public boolean deleteCategory(int categoryId) {
         SQLiteDatabase db = this.getWritableDatabase();
         int rowsAffected = 0;
+        synchronized (indexLock) {
+            // Normalmente ya se borraron por tramos; si el CASCADE arrastra filas, el índice se reconstruye
+            boolean hasTransactions = countTransactionsForCategory(categoryId) > 0;
+            db.beginTransaction();
+            try {
+                if (hasTransactions) {
+                    createSelectedIds(db);
+                    db.execSQL("INSERT INTO selected_ids (id) SELECT " + COLUMN_TRANSACTION_ID + " FROM " + TABLE_TRANSACTIONS +
+                            " WHERE " + COLUMN_TRANSACTION_CATEGORY_ID + " = ? AND " + COLUMN_TRANSACTION_TRANSFER_ID + " IS NOT NULL",
+                            new Object[]{categoryId});
+                    addTransferCounterparts(db);
+                    db.delete(TABLE_TRANSACTIONS, WHERE_SELECTED_IDS, null);
+                }
+                rowsAffected = db.delete(TABLE_CATEGORIES, COLUMN_CATEGORY_ID + " = ?", new String[]{String.valueOf(categoryId)});
+                db.setTransactionSuccessful();
+            } catch (Exception e) {
+                Log.e("DatabaseHelper", "Error al eliminar categoría: " + e.getMessage());
+                e.printStackTrace();
+                rowsAffected = 0;
+            } finally {
+                db.endTransaction();
+            }
+            if (rowsAffected > 0 && hasTransactions) {
+                dailyBalanceIndex = null;
+            }
+        }
+        bumpCategoryVersion();
+        return rowsAffected > 0;
+    }
+
+    // Transacciones de una categoría, incluidas las divididas con alguna línea en ella (argumentos: el _id dos veces)
+    private static final String IN_CATEGORY = COLUMN_TRANSACTION_CATEGORY_ID + " = ? OR " + COLUMN_TRANSACTION_ID +
+            " IN (SELECT " + COLUMN_SPLIT_TRANSACTION_ID + " FROM " + TABLE_SPLITS + " WHERE " + COLUMN_SPLIT_CATEGORY_ID + " = ?)";
+
+    /**
+     * Cuenta las transacciones asociadas a una categoría (también las divididas con una línea en ella).
+     * @param categoryId El ID de la categoría.
+     * @return Cantidad de transacciones.
+     */
+    public int countTransactionsForCategory(int categoryId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        int count = 0;
         try {
-            rowsAffected = db.delete(TABLE_CATEGORIES, COLUMN_CATEGORY_ID + " = ?", new String[]{String.valueOf(categoryId)});
+            cursor = db.rawQuery("SELECT COUNT(*) FROM " + TABLE_TRANSACTIONS + " WHERE " + IN_CATEGORY,
+                    new String[]{String.valueOf(categoryId), String.valueOf(categoryId)});
+            if (cursor.moveToFirst()) {
+                count = cursor.getInt(0);
+            }
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "Error al eliminar categoría: " + e.getMessage());
-            e.printStackTrace();
+            Log.e("DatabaseHelper", "Error al contar transacciones de la categoría " + categoryId + ": " + e.getMessage());
         } finally {
-            db.close();
+            if (cursor != null) {
+                cursor.close();
+            }
         }
-        return rowsAffected > 0;
+        return count;
+    }
+
+    /**
+     * Elimina como mucho {@code chunkSize} transacciones de una categoría en una transacción corta,
+     * para no retener el lock de escritura durante todo el borrado. De una transacción dividida
+     * solo se quitan las líneas de la categoría: el monto baja en lo que sumaban, y si queda una
+     * sola línea deja de estar dividida y vuelve a ser de esa categoría. Se elimina entera solo
+     * si todas sus líneas eran de la categoría. Las transferencias se eliminan enteras: con cada
+     * mitad de la categoría se va también la otra.
+     * @return Filas eliminadas o achicadas en este tramo (0 cuando ya no quedan).
+     */
+    public int deleteTransactionsForCategoryChunk(int categoryId, int chunkSize) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        String category = String.valueOf(categoryId);
+        int rowsAffected = 0;
+        synchronized (indexLock) {
+            DailyBalanceIndex.Delta delta;
+            db.beginTransaction();
+            try {
+                // El tramo pasa por selected_ids para poder descontar del índice exactamente esas filas
+                createSelectedIds(db);
+                delta = new DailyBalanceIndex.Delta();
+                // Primero las divididas (son pocas): cada una se achica o, sin otras líneas, se borra entera
+                List<Integer> splitIds = new ArrayList<>();
+                Cursor cursor = db.rawQuery("SELECT DISTINCT " + COLUMN_SPLIT_TRANSACTION_ID + " FROM " + TABLE_SPLITS +
+                        " WHERE " + COLUMN_SPLIT_CATEGORY_ID + " = ? LIMIT " + chunkSize, new String[]{category});
+                try {
+                    while (cursor.moveToNext()) {
+                        splitIds.add(cursor.getInt(0));
+                    }
+                } finally {
+                    cursor.close();
+                }
+                for (int id : splitIds) {
+                    if (removeSplitLines(db, id, categoryId, delta)) {
+                        rowsAffected++;
+                    } else {
+                        db.execSQL("INSERT INTO selected_ids (id) VALUES (?)", new Object[]{id});
+                    }
+                }
+                db.execSQL("INSERT OR IGNORE INTO selected_ids (id) SELECT " + COLUMN_TRANSACTION_ID + " FROM " + TABLE_TRANSACTIONS +
+                        " WHERE " + COLUMN_TRANSACTION_CATEGORY_ID + " = ? LIMIT " + Math.max(0, chunkSize - splitIds.size()),
+                        new Object[]{categoryId});
+                addTransferCounterparts(db);
+                addDailyTotals(db, WHERE_SELECTED_IDS, null, -1, delta);
+                rowsAffected += db.delete(TABLE_TRANSACTIONS, WHERE_SELECTED_IDS, null);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            applyToIndex(delta);
+        }
+        bumpWriteVersion();
+        return rowsAffected;
+    }
+
+    /**
+     * Quita de una transacción dividida las líneas de {@code categoryId} y le resta su monto. La
+     * categoría pasa a ser la de la línea más grande que queda; con una sola línea deja de estar
+     * dividida. Llamar dentro de una transacción de la DB con {@code indexLock} tomado.
+     * @return false si no le quedan otras líneas (hay que borrarla entera); no toca nada en ese caso.
+     */
+    private boolean removeSplitLines(SQLiteDatabase db, int transactionId, int categoryId, DailyBalanceIndex.Delta delta) {
+        String[] whereArgs = {String.valueOf(transactionId)};
+        String ofTransaction = COLUMN_SPLIT_TRANSACTION_ID + " = ?";
+        int remaining = 0;
+        int largestCategoryId = -1;
+        double amount = 0;
+        Cursor cursor = db.rawQuery("SELECT " + COLUMN_SPLIT_CATEGORY_ID + ", " + COLUMN_SPLIT_AMOUNT + " FROM " + TABLE_SPLITS +
+                " WHERE " + ofTransaction + " AND " + COLUMN_SPLIT_CATEGORY_ID + " <> ? ORDER BY ABS(" + COLUMN_SPLIT_AMOUNT + ") DESC",
+                new String[]{whereArgs[0], String.valueOf(categoryId)});
+        try {
+            while (cursor.moveToNext()) {
+                if (remaining++ == 0) {
+                    largestCategoryId = cursor.getInt(0);
+                }
+                amount += cursor.getDouble(1);
+            }
+        } finally {
+            cursor.close();
+        }
+        if (remaining == 0) {
+            return false;
+        }
+        addDailyTotals(db, COLUMN_TRANSACTION_ID + " = ?", whereArgs, -1, delta);
+        // Las líneas se borran antes que la transacción vuelva (o no) a sumar entera en category_totals
+        if (remaining == 1) {
+            db.delete(TABLE_SPLITS, ofTransaction, whereArgs);
+        } else {
+            db.delete(TABLE_SPLITS, ofTransaction + " AND " + COLUMN_SPLIT_CATEGORY_ID + " = ?",
+                    new String[]{whereArgs[0], String.valueOf(categoryId)});
+        }
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_TRANSACTION_AMOUNT, DailyBalanceIndex.toCents(amount) / 100.0);
+        values.put(COLUMN_TRANSACTION_CATEGORY_ID, largestCategoryId);
+        values.put(COLUMN_TRANSACTION_IS_SPLIT, remaining > 1 ? 1 : 0);
+        putLocalSyncColumns(values);
+        db.update(TABLE_TRANSACTIONS, values, COLUMN_TRANSACTION_ID + " = ?", whereArgs);
+        addDailyTotals(db, COLUMN_TRANSACTION_ID + " = ?", whereArgs, 1, delta);
+        refreshFingerprints(db, COLUMN_TRANSACTION_ID + " = ?", whereArgs); // Cambiaron el monto y quizás la categoría
+        return true;
+    }
+
+    /**
+     * Mueve como mucho {@code chunkSize} transacciones de una categoría a otra en una transacción corta.
+     * Las filas movidas quedan marcadas para sincronizar. Las líneas de las divididas (pocas) se
+     * mueven todas en el primer tramo. Las mitades de transferencias no se mueven, igual que en
+     * {@link #recategorizeTransactions}: {@link #deleteCategory} las borra después enteras.
+     * @return Filas reasignadas en este tramo (0 cuando ya no quedan).
+     */
+    public int reassignTransactionsChunk(int fromCategoryId, int toCategoryId, int chunkSize) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_TRANSACTION_CATEGORY_ID, toCategoryId);
+        putLocalSyncColumns(values);
+
+        // La huella cambia solo en su parte de categoría: XOR en SQL, (a | b) & ~(a & b), sin releer descripciones
+        long change = TransactionFingerprint.categoryChange(fromCategoryId, toCategoryId);
+        String fingerprint = COLUMN_TRANSACTION_FINGERPRINT;
+
+        int rowsAffected = 0;
+        db.beginTransaction();
+        try {
+            String where = COLUMN_TRANSACTION_ID + " IN (SELECT " + COLUMN_TRANSACTION_ID +
+                    " FROM " + TABLE_TRANSACTIONS + " WHERE " + COLUMN_TRANSACTION_CATEGORY_ID + " = ? AND " +
+                    COLUMN_TRANSACTION_TRANSFER_ID + " IS NULL LIMIT " + chunkSize + ")";
+            String[] whereArgs = {String.valueOf(fromCategoryId)};
+            db.execSQL("UPDATE " + TABLE_TRANSACTIONS + " SET " + fingerprint + " = (" + fingerprint + " | " + change + ") & ~(" +
+                    fingerprint + " & " + change + ") WHERE " + where, whereArgs);
+            db.execSQL("UPDATE " + TABLE_SPLITS + " SET " + COLUMN_SPLIT_CATEGORY_ID + " = ? WHERE " + COLUMN_SPLIT_CATEGORY_ID + " = ?",
+                    new Object[]{toCategoryId, fromCategoryId});
+            rowsAffected = db.update(TABLE_TRANSACTIONS, values, where, whereArgs);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        duplicateFilter = null; // Las huellas nuevas no se conocen en Java: se rearma cuando se necesite
+        bumpWriteVersion();
+        return rowsAffected;
     }
 
     // --- Métodos para Transacciones ---
@@ -322,42 +1088,147 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      */
     public long addTransaction(Transaction transaction) {
         SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_TRANSACTION_AMOUNT, transaction.getAmount());
-        values.put(COLUMN_TRANSACTION_DESCRIPTION, transaction.getDescription());
-        values.put(COLUMN_TRANSACTION_CATEGORY_ID, transaction.getCategoryId());
-        values.put(COLUMN_TRANSACTION_DATE, transaction.getDate());
+        ContentValues values = transactionValues(transaction);
+        values.put(COLUMN_TRANSACTION_ACCOUNT_ID, transaction.getAccountId());
+        values.put(COLUMN_SYNC_ID, UUID.randomUUID().toString());
+        putLocalSyncColumns(values);
 
         long result = -1;
-        try {
-            result = db.insert(TABLE_TRANSACTIONS, null, values);
-        } catch (Exception e) {
-            Log.e("DatabaseHelper", "Error al agregar transacción: " + e.getMessage());
-            e.printStackTrace();
-        } finally {
-            db.close();
+        synchronized (indexLock) {
+            try {
+                result = db.insert(TABLE_TRANSACTIONS, null, values);
+            } catch (Exception e) {
+                Log.e("DatabaseHelper", "Error al agregar transacción: " + e.getMessage());
+                e.printStackTrace();
+            }
+            if (result != -1) {
+                DailyBalanceIndex.Delta delta = new DailyBalanceIndex.Delta();
+                delta.add(transaction.getDate(), transaction.getAmount());
+                applyToIndex(delta);
+                addToDuplicateFilter(values);
+            }
         }
+        if (result != -1) {
+            onTransactionInserted(transaction);
+        }
+        bumpWriteVersion();
         return result;
     }
 
+    /**
+     * Carga un historial generado (pruebas de carga y menú de depuración) en una sola transacción.
+     * Una sentencia compilada se reutiliza para todas las filas, y los triggers de daily_totals, de
+     * las cuentas y de category_totals se quitan mientras dura la carga: los totales se recalculan al final de una vez,
+     * así un millón de filas tarda segundos y no minutos. Si algo falla no queda nada a medias.
+     * Las filas quedan marcadas como ya sincronizadas: los datos de prueba no se envían al backend.
+     * @return Cantidad de transacciones insertadas, o 0 si hubo un error.
+     */
+    public int insertSyntheticLedger(SyntheticLedgerGenerator generator) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        String deviceId = getDeviceId();
+        int count = 0;
+        synchronized (indexLock) {
+            db.beginTransaction();
+            try {
+                dropDailyTotalsTriggers(db);
+                dropAccountTotalsTriggers(db);
+                dropCategoryTotalsTriggers(db);
+                SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE_TRANSACTIONS + " (" +
+                        COLUMN_TRANSACTION_AMOUNT + ", " + COLUMN_TRANSACTION_DESCRIPTION + ", " +
+                        COLUMN_TRANSACTION_CATEGORY_ID + ", " + COLUMN_TRANSACTION_DATE + ", " + COLUMN_SYNC_ID + ", " +
+                        COLUMN_UPDATED_AT + ", " + COLUMN_UPDATED_BY + ", " + COLUMN_TRANSACTION_FINGERPRINT + ", " +
+                        COLUMN_DIRTY + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0)");
+                long now = System.currentTimeMillis();
+                // Las descripciones generadas se repiten mucho: se normalizan una vez cada una
+                Map<String, Long> descriptionHashes = new HashMap<>();
+                count = generator.generate(new SyntheticLedgerGenerator.Sink() {
+                    @Override
+                    public long addCategory(String name, String type) {
+                        Category existing = getCategoryByName(name, type);
+                        if (existing != null) {
+                            return existing.getId();
+                        }
+                        ContentValues values = new ContentValues();
+                        values.put(COLUMN_CATEGORY_NAME, name);
+                        values.put(COLUMN_CATEGORY_TYPE, type);
+                        values.put(COLUMN_SYNC_ID, newCategorySyncId(db, name, type));
+                        putLocalSyncColumns(values);
+                        return db.insertOrThrow(TABLE_CATEGORIES, null, values);
+                    }
+
+                    @Override
+                    public void addTransaction(double amount, String description, long categoryId, String date) {
+                        insert.bindDouble(1, amount);
+                        insert.bindString(2, description);
+                        insert.bindLong(3, categoryId);
+                        insert.bindString(4, date);
+                        insert.bindString(5, UUID.randomUUID().toString());
+                        insert.bindLong(6, now);
+                        insert.bindString(7, deviceId);
+                        Long descriptionHash = descriptionHashes.get(description);
+                        if (descriptionHash == null) {
+                            descriptionHash = TransactionFingerprint.descriptionHash(description);
+                            descriptionHashes.put(description, descriptionHash);
+                        }
+                        insert.bindLong(8, TransactionFingerprint.combine(EpochDay.fromIsoDate(date), amount, descriptionHash, (int) categoryId));
+                        insert.executeInsert();
+                    }
+                });
+                db.execSQL("DELETE FROM " + TABLE_DAILY_TOTALS);
+                aggregateDailyTotals(db);
+                createDailyTotalsTriggers(db);
+                aggregateAccountTotals(db);
+                createAccountTotalsTriggers(db);
+                db.execSQL("DELETE FROM " + TABLE_CATEGORY_TOTALS);
+                aggregateCategoryTotals(db);
+                createCategoryTotalsTriggers(db);
+                db.setTransactionSuccessful();
+            } catch (Exception e) {
+                Log.e("DatabaseHelper", "Error al cargar el historial sintético: " + e.getMessage());
+                count = 0;
+            } finally {
+                db.endTransaction();
+            }
+            dailyBalanceIndex = null; // Se reconstruye desde daily_totals en la próxima consulta
+            duplicateFilter = null;
+        }
+        bumpCategoryVersion();
+        return count;
+    }
+
     /**
      * Obtiene transacciones filtradas por categoría, mes y tipo.
-     * @param categoryName El nombre de la categoría para filtrar (ej. "Comida"), o null para todas.
+     * @param categoryId El _id de la categoría para filtrar, o -1 para todas.
      * @param monthYear La cadena "YYYY-MM" para filtrar por mes, o null para todos los meses.
      * @param type El tipo de transacción (Category.TYPE_EXPENSE, Category.TYPE_INCOME) o null para todos los tipos.
      * @return Una lista de objetos Transaction.
      */
-    public List<Transaction> getTransactions(String categoryName, String monthYear, String type) {
+    public List<Transaction> getTransactions(int categoryId, String monthYear, String type) {
+        return getTransactions(categoryId, monthYear, type, Account.ALL);
+    }
+
+    /**
+     * Como {@link #getTransactions(int, String, String)}, pero solo de una cuenta: se resuelve con
+     * los índices que empiezan por la cuenta, y el saldo acumulado de cada fila es el de esa cuenta.
+     * @param accountId El _id de la cuenta, o {@link Account#ALL} para todas.
+     */
+    public List<Transaction> getTransactions(int categoryId, String monthYear, String type, int accountId) {
         List<Transaction> transactionList = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
         Cursor cursor = null;
+        SparseArray<Category> categoriesById = new SparseArray<>();
+        List<Transaction> splitTransactions = new ArrayList<>();
 
         try {
             StringBuilder queryBuilder = new StringBuilder();
             queryBuilder.append("SELECT T.").append(COLUMN_TRANSACTION_ID).append(", ");
             queryBuilder.append("T.").append(COLUMN_TRANSACTION_AMOUNT).append(", ");
             queryBuilder.append("T.").append(COLUMN_TRANSACTION_DESCRIPTION).append(", ");
-            queryBuilder.append("T.").append(COLUMN_TRANSACTION_DATE).append(", ");
+            // La fecha llega ya empaquetada como epoch day: no se crea un String por fila
+            queryBuilder.append("CAST(julianday(T.").append(COLUMN_TRANSACTION_DATE).append(") - 2440587.5 AS INTEGER) AS epoch_day, ");
+            queryBuilder.append("T.").append(COLUMN_TRANSACTION_ACCOUNT_ID).append(", ");
+            queryBuilder.append("T.").append(COLUMN_TRANSACTION_TRANSFER_ID).append(", ");
+            queryBuilder.append("T.").append(COLUMN_TRANSACTION_IS_SPLIT).append(", ");
             queryBuilder.append("C.").append(COLUMN_CATEGORY_ID).append(" AS cat_id, ");
             queryBuilder.append("C.").append(COLUMN_CATEGORY_NAME).append(", ");
             queryBuilder.append("C.").append(COLUMN_CATEGORY_TYPE);
@@ -367,13 +1238,31 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             List<String> selectionArgs = new ArrayList<>();
             List<String> conditions = new ArrayList<>();
 
-            if (categoryName != null && !categoryName.isEmpty()) {
-                conditions.add("C." + COLUMN_CATEGORY_NAME + " = ?");
-                selectionArgs.add(categoryName);
+            if (accountId != Account.ALL) {
+                conditions.add("T." + COLUMN_TRANSACTION_ACCOUNT_ID + " = ?");
+                selectionArgs.add(String.valueOf(accountId));
             }
-            if (monthYear != null && !monthYear.isEmpty()) {
-                conditions.add("strftime('%Y-%m', T." + COLUMN_TRANSACTION_DATE + ") = ?");
-                selectionArgs.add(monthYear);
+            boolean hasMonth = monthYear != null && !monthYear.isEmpty();
+            String firstDay = hasMonth ? EpochDay.toIsoDate(EpochDay.firstDayOfMonth(monthYear)) : null;
+            String lastDay = hasMonth ? EpochDay.toIsoDate(EpochDay.lastDayOfMonth(monthYear)) : null;
+            if (categoryId != -1) {
+                // Por _id: sin ambigüedad entre tipos y resuelto con idx_transactions_category. Las divididas
+                // con una línea en la categoría salen de idx_splits_category, que ya cubre también el mes
+                String splitsInCategory = "SELECT " + COLUMN_SPLIT_TRANSACTION_ID + " FROM " + TABLE_SPLITS +
+                        " WHERE " + COLUMN_SPLIT_CATEGORY_ID + " = ?" + (hasMonth ? " AND " + COLUMN_SPLIT_DATE + " BETWEEN ? AND ?" : "");
+                conditions.add("(T." + COLUMN_TRANSACTION_CATEGORY_ID + " = ? OR T." + COLUMN_TRANSACTION_ID + " IN (" + splitsInCategory + "))");
+                selectionArgs.add(String.valueOf(categoryId));
+                selectionArgs.add(String.valueOf(categoryId));
+                if (hasMonth) {
+                    selectionArgs.add(firstDay);
+                    selectionArgs.add(lastDay);
+                }
+            }
+            if (hasMonth) {
+                // Como rango de fechas y no strftime(): así lo resuelven idx_transactions_date o idx_transactions_account_date
+                conditions.add("T." + COLUMN_TRANSACTION_DATE + " BETWEEN ? AND ?");
+                selectionArgs.add(firstDay);
+                selectionArgs.add(lastDay);
             }
             if (type != null && !type.isEmpty()) {
                 // El tipo aquí ya debe ser EXPENSE o INCOME desde HistoryActivity
@@ -385,7 +1274,8 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 queryBuilder.append(" WHERE ").append(TextUtils.join(" AND ", conditions));
             }
 
-            queryBuilder.append(" ORDER BY T.").append(COLUMN_TRANSACTION_DATE).append(" DESC;");
+            // A igual fecha, la más reciente primero: el mismo orden que usa el saldo acumulado
+            queryBuilder.append(" ORDER BY T.").append(COLUMN_TRANSACTION_DATE).append(" DESC, T.").append(COLUMN_TRANSACTION_ID).append(" DESC;");
 
             cursor = db.rawQuery(queryBuilder.toString(), selectionArgs.toArray(new String[0]));
 
@@ -393,26 +1283,55 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 int idIndex = cursor.getColumnIndexOrThrow(COLUMN_TRANSACTION_ID);
                 int amountIndex = cursor.getColumnIndexOrThrow(COLUMN_TRANSACTION_AMOUNT);
                 int descIndex = cursor.getColumnIndexOrThrow(COLUMN_TRANSACTION_DESCRIPTION);
-                int dateIndex = cursor.getColumnIndexOrThrow(COLUMN_TRANSACTION_DATE);
-                int categoryIdIndex = cursor.getColumnIndexOrThrow(COLUMN_CATEGORY_ID);
+                int epochDayIndex = cursor.getColumnIndexOrThrow("epoch_day");
+                int accountIdIndex = cursor.getColumnIndexOrThrow(COLUMN_TRANSACTION_ACCOUNT_ID);
+                int transferIdIndex = cursor.getColumnIndexOrThrow(COLUMN_TRANSACTION_TRANSFER_ID);
+                int isSplitIndex = cursor.getColumnIndexOrThrow(COLUMN_TRANSACTION_IS_SPLIT);
+                // "_id" a secas resolvería a T._id: el id de la categoría viene en el alias
+                int categoryIdIndex = cursor.getColumnIndexOrThrow("cat_id");
                 int categoryNameIndex = cursor.getColumnIndexOrThrow(COLUMN_CATEGORY_NAME);
                 int categoryTypeIndex = cursor.getColumnIndexOrThrow(COLUMN_CATEGORY_TYPE);
 
+                // Una sola instancia de Category por _id y una sola de cada descripción repetida
+                Map<String, String> descriptions = new HashMap<>();
+
                 do {
                     int id = cursor.getInt(idIndex);
                     double amount = cursor.getDouble(amountIndex);
                     String description = cursor.getString(descIndex);
-                    String date = cursor.getString(dateIndex);
+                    if (description != null) {
+                        String shared = descriptions.get(description);
+                        if (shared == null) {
+                            descriptions.put(description, description);
+                        } else {
+                            description = shared;
+                        }
+                    }
+                    int epochDay = cursor.getInt(epochDayIndex);
                     int catId = cursor.getInt(categoryIdIndex);
-                    String catName = cursor.getString(categoryNameIndex);
-                    String catType = cursor.getString(categoryTypeIndex);
-
-                    Category category = new Category(catId, catName, catType);
+                    Category category = categoriesById.get(catId);
+                    if (category == null) {
+                        category = new Category(catId, cursor.getString(categoryNameIndex), cursor.getString(categoryTypeIndex));
+                        categoriesById.put(catId, category);
+                    }
                     // Usar el constructor de Transaction que acepta el objeto Category
-                    Transaction transaction = new Transaction(id, amount, description, category, date);
+                    Transaction transaction = new Transaction(id, amount, description, category, epochDay);
+                    transaction.setAccountId(cursor.getInt(accountIdIndex));
+                    transaction.setTransferId(cursor.getString(transferIdIndex));
+                    if (cursor.getInt(isSplitIndex) != 0) {
+                        splitTransactions.add(transaction);
+                    }
                     transactionList.add(transaction);
                 } while (cursor.moveToNext());
             }
+            cursor.close();
+            cursor = null;
+
+            attachSplits(db, splitTransactions, categoriesById);
+            double[] runningBalances = getRunningBalances(transactionList, accountId);
+            for (int i = 0; i < runningBalances.length; i++) {
+                transactionList.get(i).setRunningBalance(runningBalances[i]);
+            }
         } catch (Exception e) {
             Log.e("DatabaseHelper", "Error al obtener transacciones filtradas: " + e.getMessage());
             e.printStackTrace();
@@ -420,124 +1339,1363 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             if (cursor != null) {
                 cursor.close();
             }
-            db.close();
         }
         return transactionList;
     }
 
     /**
-     * Actualiza una transacción existente en la base de datos.
-     * @param transaction El objeto Transaction con los datos actualizados.
-     * @return true si la actualización fue exitosa, false en caso contrario.
+     * Carga las líneas de las transacciones divididas, por tramos de IDs (son pocas: casi
+     * ninguna transacción está dividida). Las categorías se comparten con {@code categoriesById}.
      */
-    public boolean updateTransaction(Transaction transaction) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_TRANSACTION_AMOUNT, transaction.getAmount());
-        values.put(COLUMN_TRANSACTION_DESCRIPTION, transaction.getDescription());
-        values.put(COLUMN_TRANSACTION_CATEGORY_ID, transaction.getCategoryId());
-        values.put(COLUMN_TRANSACTION_DATE, transaction.getDate());
-
-        int rowsAffected = 0;
-        try {
-            rowsAffected = db.update(TABLE_TRANSACTIONS, values, COLUMN_TRANSACTION_ID + " = ?",
-                    new String[]{String.valueOf(transaction.getId())});
-        } catch (Exception e) {
-            Log.e("DatabaseHelper", "Error al actualizar transacción: " + e.getMessage());
-            e.printStackTrace();
-        } finally {
-            db.close();
+    private static void attachSplits(SQLiteDatabase db, List<Transaction> splitTransactions, SparseArray<Category> categoriesById) {
+        SparseArray<Transaction> byId = new SparseArray<>();
+        for (int start = 0; start < splitTransactions.size(); start += 500) {
+            StringBuilder ids = new StringBuilder();
+            for (int i = start; i < Math.min(start + 500, splitTransactions.size()); i++) {
+                Transaction transaction = splitTransactions.get(i);
+                byId.put(transaction.getId(), transaction);
+                transaction.setSplits(new ArrayList<>());
+                ids.append(ids.length() > 0 ? "," : "").append(transaction.getId());
+            }
+            Cursor cursor = db.rawQuery("SELECT S." + COLUMN_SPLIT_TRANSACTION_ID + ", S." + COLUMN_SPLIT_AMOUNT + ", C." + COLUMN_CATEGORY_ID +
+                    ", C." + COLUMN_CATEGORY_NAME + ", C." + COLUMN_CATEGORY_TYPE + " FROM " + TABLE_SPLITS + " S INNER JOIN " + TABLE_CATEGORIES +
+                    " C ON S." + COLUMN_SPLIT_CATEGORY_ID + " = C." + COLUMN_CATEGORY_ID + " WHERE S." + COLUMN_SPLIT_TRANSACTION_ID +
+                    " IN (" + ids + ") ORDER BY S." + COLUMN_SPLIT_ID, null);
+            try {
+                while (cursor.moveToNext()) {
+                    int catId = cursor.getInt(2);
+                    Category category = categoriesById.get(catId);
+                    if (category == null) {
+                        category = new Category(catId, cursor.getString(3), cursor.getString(4));
+                        categoriesById.put(catId, category);
+                    }
+                    byId.get(cursor.getInt(0)).getSplits().add(new TransactionSplit(category, cursor.getDouble(1)));
+                }
+            } finally {
+                cursor.close();
+            }
         }
-        return rowsAffected > 0;
     }
 
     /**
-     * Elimina una transacción de la base de datos por su ID.
-     * @param transactionId El ID de la transacción a eliminar.
-     * @return true si la eliminación fue exitosa, false en caso contrario.
+     * Reparte una transacción entre varias categorías. Las líneas reemplazan a las anteriores y
+     * deben sumar exactamente el monto de la transacción, con su mismo signo (todas del mismo tipo).
+     * La categoría de la transacción pasa a ser la de la línea más grande; con una sola línea
+     * deja de estar dividida y queda en esa categoría. El saldo no cambia: solo los totales por categoría.
+     * @return true si se guardaron las líneas.
      */
-    public boolean deleteTransaction(int transactionId) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        int rowsAffected = 0;
+    public boolean setTransactionSplits(Transaction transaction, List<TransactionSplit> splits) {
+        if (splits.isEmpty() || transaction.isTransfer()) { // Una transferencia queda en su categoría
+            return false;
+        }
+        long totalCents = 0;
+        TransactionSplit largest = splits.get(0);
+        for (TransactionSplit split : splits) {
+            if (split.getCategory() == null || !split.getCategory().getType().equals(transaction.getType())
+                    || Math.signum(split.getAmount()) != Math.signum(transaction.getAmount())) {
+                return false;
+            }
+            totalCents += DailyBalanceIndex.toCents(split.getAmount());
+            if (Math.abs(split.getAmount()) > Math.abs(largest.getAmount())) {
+                largest = split;
+            }
+        }
+        if (totalCents != DailyBalanceIndex.toCents(transaction.getAmount())) {
+            return false;
+        }
+        boolean split = splits.size() > 1;
+
+        SQLiteDatabase db = this.getWritableDatabase();
+        String[] whereArgs = {String.valueOf(transaction.getId())};
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_TRANSACTION_CATEGORY_ID, largest.getCategoryId());
+        values.put(COLUMN_TRANSACTION_IS_SPLIT, split ? 1 : 0);
+        putLocalSyncColumns(values);
+        boolean committed = false;
+        db.beginTransaction();
         try {
-            // *** AÑADE ESTAS LÍNEAS DE LOG ***
-            Log.d("DatabaseHelper", "Intentando eliminar transacción con ID: " + transactionId);
-            rowsAffected = db.delete(TABLE_TRANSACTIONS, COLUMN_TRANSACTION_ID + " = ?",
-                    new String[]{String.valueOf(transactionId)});
+            // Primero se quitan las líneas viejas, después la transacción deja (o no) de sumar por sí misma
+            db.delete(TABLE_SPLITS, COLUMN_SPLIT_TRANSACTION_ID + " = ?", whereArgs);
+            if (db.update(TABLE_TRANSACTIONS, values, COLUMN_TRANSACTION_ID + " = ?", whereArgs) > 0) {
+                if (split) {
+                    SQLiteStatement insert = compileSplitLineInsert(db, COLUMN_TRANSACTION_ID);
+                    for (TransactionSplit line : splits) {
+                        insertSplitLine(insert, whereArgs[0], line.getCategoryId(), line.getAmount());
+                    }
+                }
+                refreshFingerprints(db, COLUMN_TRANSACTION_ID + " = ?", whereArgs); // La categoría pudo cambiar
+                db.setTransactionSuccessful();
+                committed = true;
+            }
+        } catch (Exception e) {
+            Log.e("DatabaseHelper", "Error al dividir la transacción " + transaction.getId() + ": " + e.getMessage());
+        } finally {
+            db.endTransaction();
+        }
+        bumpWriteVersion();
+        return committed;
+    }
+
+    /**
+     * Alta de una línea de la transacción cuya columna {@code keyColumn} (_id o sync_id) es la
+     * que se pasa a {@link #insertSplitLine}. La fecha se copia de la fila guardada, no del objeto
+     * en memoria. Las líneas viejas ya tienen que estar borradas y la fila con is_split = 1.
+     */
+    static SQLiteStatement compileSplitLineInsert(SQLiteDatabase db, String keyColumn) {
+        return db.compileStatement("INSERT INTO " + TABLE_SPLITS + " (" + COLUMN_SPLIT_TRANSACTION_ID + ", " +
+                COLUMN_SPLIT_CATEGORY_ID + ", " + COLUMN_SPLIT_AMOUNT + ", " + COLUMN_SPLIT_DATE + ") SELECT " +
+                COLUMN_TRANSACTION_ID + ", ?, ?, " + COLUMN_TRANSACTION_DATE + " FROM " + TABLE_TRANSACTIONS +
+                " WHERE " + keyColumn + " = ?");
+    }
+
+    static void insertSplitLine(SQLiteStatement insert, String key, int categoryId, double amount) {
+        insert.bindLong(1, categoryId);
+        insert.bindDouble(2, amount);
+        insert.bindString(3, key);
+        insert.executeInsert();
+    }
+
+    /**
+     * Si la transacción está dividida y el monto o la categoría ya no son los de las líneas (una
+     * edición simple o un cambio remoto), deja de estar dividida: se borran las líneas y vuelve a
+     * sumar entera en su categoría. Llamar antes de escribir los valores nuevos.
+     */
+    static void collapseChangedSplit(SQLiteDatabase db, String where, String[] whereArgs, int categoryId, double amount) {
+        db.execSQL("DELETE FROM " + TABLE_SPLITS + " WHERE " + COLUMN_SPLIT_TRANSACTION_ID + " IN (SELECT " + COLUMN_TRANSACTION_ID +
+                " FROM " + TABLE_TRANSACTIONS + " WHERE (" + where + ") AND " + COLUMN_TRANSACTION_IS_SPLIT + " = 1 AND (" +
+                COLUMN_TRANSACTION_CATEGORY_ID + " <> " + categoryId + " OR " + centsOf("") + " <> " + DailyBalanceIndex.toCents(amount) + "))",
+                whereArgs);
+        db.execSQL("UPDATE " + TABLE_TRANSACTIONS + " SET " + COLUMN_TRANSACTION_IS_SPLIT + " = 0 WHERE (" + where + ") AND " +
+                COLUMN_TRANSACTION_IS_SPLIT + " = 1 AND NOT EXISTS (SELECT 1 FROM " + TABLE_SPLITS + " WHERE " +
+                COLUMN_SPLIT_TRANSACTION_ID + " = " + TABLE_TRANSACTIONS + "." + COLUMN_TRANSACTION_ID + ")", whereArgs);
+    }
+
+    /**
+     * Totales por categoría de un mes, o de todos los meses, repartiendo las transacciones
+     * divididas por línea. Sale de category_totals: una fila por categoría y mes, sin recorrer
+     * las transacciones.
+     * @param monthYear "YYYY-MM", o null para todos los meses.
+     * @return Total (con signo) por _id de categoría; las categorías sin movimientos no aparecen.
+     */
+    public Map<Integer, Double> getCategoryTotals(@Nullable String monthYear) {
+        Map<Integer, Double> totals = new HashMap<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            String query = "SELECT " + COLUMN_CATEGORY_TOTALS_CATEGORY_ID + ", SUM(" + COLUMN_CATEGORY_TOTALS_CENTS + ") FROM " + TABLE_CATEGORY_TOTALS;
+            if (monthYear != null) {
+                cursor = db.rawQuery(query + " WHERE " + COLUMN_CATEGORY_TOTALS_MONTH + " = ? GROUP BY " + COLUMN_CATEGORY_TOTALS_CATEGORY_ID,
+                        new String[]{monthYear});
+            } else {
+                cursor = db.rawQuery(query + " GROUP BY " + COLUMN_CATEGORY_TOTALS_CATEGORY_ID, null);
+            }
+            while (cursor.moveToNext()) {
+                totals.put(cursor.getInt(0), cursor.getLong(1) / 100.0);
+            }
+        } catch (Exception e) {
+            Log.e("DatabaseHelper", "Error al obtener totales por categoría: " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Actualiza una transacción existente en la base de datos.
+     * @param transaction El objeto Transaction con los datos actualizados.
+     * @return true si la actualización fue exitosa, false en caso contrario.
+     */
+    public boolean updateTransaction(Transaction transaction) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = transactionValues(transaction);
+        putLocalSyncColumns(values);
+
+        int rowsAffected = 0;
+        String[] whereArgs = {String.valueOf(transaction.getId())};
+        synchronized (indexLock) {
+            DailyBalanceIndex.Delta delta = null;
+            if (transaction.isTransfer()) {
+                // Las dos mitades se editan juntas; updateTransferLegs ya suma su delta
+                delta = new DailyBalanceIndex.Delta();
+                db.beginTransaction();
+                try {
+                    rowsAffected = updateTransferLegs(db, transaction, delta);
+                    db.setTransactionSuccessful();
+                } catch (Exception e) {
+                    Log.e("DatabaseHelper", "Error al actualizar transferencia: " + e.getMessage());
+                    rowsAffected = 0;
+                } finally {
+                    db.endTransaction();
+                }
+                if (rowsAffected > 0) {
+                    applyToIndex(delta);
+                }
+            } else {
+                try {
+                    // Se descuenta el monto/fecha anterior y se suma el nuevo
+                    delta = dailyDelta(db, COLUMN_TRANSACTION_ID + " = ?", whereArgs, -1);
+                    collapseChangedSplit(db, COLUMN_TRANSACTION_ID + " = ?", whereArgs, transaction.getCategoryId(), transaction.getAmount());
+                    rowsAffected = db.update(TABLE_TRANSACTIONS, values, COLUMN_TRANSACTION_ID + " = ?", whereArgs);
+                } catch (Exception e) {
+                    Log.e("DatabaseHelper", "Error al actualizar transacción: " + e.getMessage());
+                    e.printStackTrace();
+                }
+                if (rowsAffected > 0) {
+                    delta.add(transaction.getDate(), transaction.getAmount());
+                    applyToIndex(delta);
+                    addToDuplicateFilter(values);
+                }
+            }
+        }
+        bumpWriteVersion();
+        return rowsAffected > 0;
+    }
+
+    // Las dos mitades de la transferencia de una fila; ninguna si no es transferencia (argumento: el _id)
+    private static final String WHERE_TRANSFER_OF_ID = COLUMN_TRANSACTION_TRANSFER_ID + " IN (SELECT " +
+            COLUMN_TRANSACTION_TRANSFER_ID + " FROM " + TABLE_TRANSACTIONS + " WHERE " + COLUMN_TRANSACTION_ID + " = ?)";
+
+    /**
+     * Edita las dos mitades de una transferencia: el monto (cada una con su signo), la descripción
+     * y la fecha. La categoría y la cuenta de cada mitad no cambian, así las dos siguen sumando
+     * cero. Llamar dentro de una transacción abierta.
+     * @return Filas actualizadas (2, o 0 si la transferencia ya no existe).
+     */
+    private int updateTransferLegs(SQLiteDatabase db, Transaction transaction, DailyBalanceIndex.Delta delta) {
+        String[] whereArgs = {String.valueOf(transaction.getId())};
+        addDailyTotals(db, WHERE_TRANSFER_OF_ID, whereArgs, -1, delta);
+        SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_TRANSACTIONS + " SET " +
+                COLUMN_TRANSACTION_AMOUNT + " = CASE WHEN " + COLUMN_TRANSACTION_AMOUNT + " < 0 THEN -? ELSE ? END, " +
+                COLUMN_TRANSACTION_DESCRIPTION + " = ?, " + COLUMN_TRANSACTION_DATE + " = ?, " +
+                COLUMN_UPDATED_AT + " = ?, " + COLUMN_UPDATED_BY + " = ?, " + COLUMN_DIRTY + " = 1" +
+                " WHERE " + WHERE_TRANSFER_OF_ID);
+        double amount = Math.abs(transaction.getAmount());
+        update.bindDouble(1, amount);
+        update.bindDouble(2, amount);
+        if (transaction.getDescription() != null) {
+            update.bindString(3, transaction.getDescription());
+        } else {
+            update.bindNull(3);
+        }
+        update.bindString(4, transaction.getDate());
+        update.bindLong(5, System.currentTimeMillis());
+        update.bindString(6, getDeviceId());
+        update.bindLong(7, transaction.getId());
+        int rowsAffected = update.executeUpdateDelete();
+        addDailyTotals(db, WHERE_TRANSFER_OF_ID, whereArgs, 1, delta);
+        refreshFingerprints(db, WHERE_TRANSFER_OF_ID, whereArgs);
+        return rowsAffected;
+    }
+
+    // Una fila y, si es parte de una transferencia, también la otra mitad (argumentos: el _id dos veces)
+    private static final String WHERE_ID_WITH_TRANSFER = COLUMN_TRANSACTION_ID + " = ? OR " + COLUMN_TRANSACTION_TRANSFER_ID +
+            " IN (SELECT " + COLUMN_TRANSACTION_TRANSFER_ID + " FROM " + TABLE_TRANSACTIONS + " WHERE " + COLUMN_TRANSACTION_ID + " = ?)";
+
+    /**
+     * Elimina una transacción de la base de datos por su ID. Si es parte de una transferencia se
+     * elimina también la otra mitad, así el saldo entre cuentas nunca queda descuadrado.
+     * @param transactionId El ID de la transacción a eliminar.
+     * @return true si la eliminación fue exitosa, false en caso contrario.
+     */
+    public boolean deleteTransaction(int transactionId) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        int rowsAffected = 0;
+        String[] whereArgs = {String.valueOf(transactionId), String.valueOf(transactionId)};
+        synchronized (indexLock) {
+            DailyBalanceIndex.Delta delta = null;
+            try {
+                // *** AÑADE ESTAS LÍNEAS DE LOG ***
+                Log.d("DatabaseHelper", "Intentando eliminar transacción con ID: " + transactionId);
+                delta = dailyDelta(db, WHERE_ID_WITH_TRANSFER, whereArgs, -1);
+                rowsAffected = db.delete(TABLE_TRANSACTIONS, WHERE_ID_WITH_TRANSFER, whereArgs);
+
+                if (rowsAffected > 0) {
+                    Log.d("DatabaseHelper", "Transacción con ID " + transactionId + " eliminada exitosamente. Filas afectadas: " + rowsAffected);
+                } else {
+                    Log.w("DatabaseHelper", "No se encontró la transacción con ID " + transactionId + " para eliminar.");
+                }
+                // *** FIN DE LAS LÍNEAS DE LOG AÑADIDAS ***
+
+            } catch (Exception e) {
+                // *** MODIFICA ESTA LÍNEA TAMBIÉN PARA MÁS DETALLE ***
+                Log.e("DatabaseHelper", "Error CRÍTICO al eliminar transacción con ID " + transactionId + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+            if (rowsAffected > 0) {
+                applyToIndex(delta);
+            }
+        }
+        bumpWriteVersion();
+        return rowsAffected > 0;
+    }
+
+    /**
+     * Calcula el saldo de la cuenta inmediatamente después de cada transacción indicada
+     * (orden cronológico: fecha y luego _id). Sirve para cualquier subconjunto, filtrado o
+     * paginado: se recorre una sola vez, en orden, el rango de fechas que abarcan las
+     * transacciones, y lo anterior a ese rango sale del índice de saldos diarios en O(log n).
+     * @param transactions Las transacciones (en cualquier orden).
+     * @return Los saldos, en el mismo orden que la lista recibida.
+     */
+    public double[] getRunningBalances(List<Transaction> transactions) {
+        return getRunningBalances(transactions, Account.ALL);
+    }
+
+    /**
+     * Como {@link #getRunningBalances(List)}, pero con el saldo de una sola cuenta. Lo anterior al
+     * rango sale del saldo mantenido de la cuenta menos lo que hay desde el rango en adelante:
+     * el historial se mira casi siempre cerca del presente, así ese tramo es corto.
+     * @param accountId El _id de la cuenta, o {@link Account#ALL} para el saldo de todas.
+     */
+    public double[] getRunningBalances(List<Transaction> transactions, int accountId) {
+        double[] balances = new double[transactions.size()];
+        if (transactions.isEmpty()) {
+            return balances;
+        }
+        Map<Integer, Integer> positions = new HashMap<>(transactions.size() * 2);
+        int minDay = Integer.MAX_VALUE;
+        int maxDay = Integer.MIN_VALUE;
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            positions.put(transaction.getId(), i);
+            int day = transaction.getEpochDay();
+            minDay = Math.min(minDay, day);
+            maxDay = Math.max(maxDay, day);
+        }
+        String[] range = {EpochDay.toIsoDate(minDay), EpochDay.toIsoDate(maxDay + 1)};
+        String where = " FROM " + TABLE_TRANSACTIONS + " WHERE " + COLUMN_TRANSACTION_DATE + " >= ? AND " + COLUMN_TRANSACTION_DATE + " < ?";
+        if (accountId != Account.ALL) {
+            where += " AND " + COLUMN_TRANSACTION_ACCOUNT_ID + " = " + accountId;
+        }
+
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            long offset;
+            if (accountId == Account.ALL) {
+                offset = getDailyBalanceIndex().runningBalance(minDay - 1);
+            } else {
+                cursor = db.rawQuery("SELECT " + COLUMN_ACCOUNT_BALANCE_CENTS + " - (SELECT IFNULL(SUM(" + centsOf("") + "), 0) FROM " +
+                        TABLE_TRANSACTIONS + " WHERE " + COLUMN_TRANSACTION_ACCOUNT_ID + " = " + accountId + " AND " + COLUMN_TRANSACTION_DATE + " >= ?)" +
+                        " FROM " + TABLE_ACCOUNTS + " WHERE " + COLUMN_ACCOUNT_ID + " = " + accountId, new String[]{range[0]});
+                offset = cursor.moveToFirst() ? cursor.getLong(0) : 0;
+                cursor.close();
+            }
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+                // API 30+ trae SQLite 3.28: la suma acumulada (en centavos, exacta) la hace el motor
+                cursor = db.rawQuery("SELECT " + COLUMN_TRANSACTION_ID + ", SUM(CAST(ROUND(" + COLUMN_TRANSACTION_AMOUNT + " * 100) AS INTEGER))" +
+                        " OVER (ORDER BY " + COLUMN_TRANSACTION_DATE + ", " + COLUMN_TRANSACTION_ID + ")" + where, range);
+                while (cursor.moveToNext()) {
+                    Integer position = positions.get(cursor.getInt(0));
+                    if (position != null) {
+                        balances[position] = (offset + cursor.getLong(1)) / 100.0;
+                    }
+                }
+            } else {
+                // SQLite sin funciones de ventana: la misma pasada ordenada, acumulando en Java
+                cursor = db.rawQuery("SELECT " + COLUMN_TRANSACTION_ID + ", " + COLUMN_TRANSACTION_AMOUNT + where +
+                        " ORDER BY " + COLUMN_TRANSACTION_DATE + ", " + COLUMN_TRANSACTION_ID, range);
+                long running = offset;
+                while (cursor.moveToNext()) {
+                    running += DailyBalanceIndex.toCents(cursor.getDouble(1));
+                    Integer position = positions.get(cursor.getInt(0));
+                    if (position != null) {
+                        balances[position] = running / 100.0;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Log.e("DatabaseHelper", "Error al calcular saldos acumulados: " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return balances;
+    }
+
+    // --- Operaciones masivas sobre transacciones seleccionadas ---
+
+    /**
+     * Carga los IDs seleccionados en una tabla temporal. Así cada operación masiva es una única
+     * sentencia "... WHERE _id IN (SELECT id FROM selected_ids)" sin importar cuántas filas haya
+     * (una lista IN (?, ?, ...) chocaría con el límite de 999 parámetros de SQLite).
+     * Debe llamarse dentro de una transacción abierta.
+     */
+    private void fillSelectedIds(SQLiteDatabase db, int[] transactionIds) {
+        createSelectedIds(db);
+        SQLiteStatement insert = db.compileStatement("INSERT OR IGNORE INTO selected_ids (id) VALUES (?)");
+        for (int id : transactionIds) {
+            insert.bindLong(1, id);
+            insert.executeInsert();
+        }
+    }
+
+    private void createSelectedIds(SQLiteDatabase db) {
+        db.execSQL("CREATE TEMP TABLE IF NOT EXISTS selected_ids (id INTEGER PRIMARY KEY)");
+        db.execSQL("DELETE FROM selected_ids");
+    }
+
+    private static final String WHERE_SELECTED_IDS =
+            COLUMN_TRANSACTION_ID + " IN (SELECT id FROM selected_ids)";
+
+    // Suma a la selección la otra mitad de cada transferencia seleccionada
+    private static void addTransferCounterparts(SQLiteDatabase db) {
+        db.execSQL("INSERT OR IGNORE INTO selected_ids SELECT " + COLUMN_TRANSACTION_ID + " FROM " + TABLE_TRANSACTIONS +
+                " WHERE " + COLUMN_TRANSACTION_TRANSFER_ID + " IN (SELECT " + COLUMN_TRANSACTION_TRANSFER_ID + " FROM " +
+                TABLE_TRANSACTIONS + " WHERE " + WHERE_SELECTED_IDS + ")");
+    }
+
+    /**
+     * Elimina varias transacciones con una sola sentencia en una sola transacción. Las
+     * transferencias se eliminan enteras, aunque solo se haya seleccionado una mitad.
+     * @param transactionIds Los IDs de las transacciones a eliminar.
+     * @return Cantidad de filas eliminadas (puede superar a las pedidas por las transferencias).
+     */
+    public int deleteTransactions(int[] transactionIds) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        int rowsAffected = 0;
+        synchronized (indexLock) {
+            DailyBalanceIndex.Delta delta = null;
+            db.beginTransaction();
+            try {
+                fillSelectedIds(db, transactionIds);
+                addTransferCounterparts(db);
+                delta = dailyDelta(db, WHERE_SELECTED_IDS, null, -1);
+                rowsAffected = db.delete(TABLE_TRANSACTIONS, WHERE_SELECTED_IDS, null);
+                db.setTransactionSuccessful();
+            } catch (Exception e) {
+                Log.e("DatabaseHelper", "Error al eliminar transacciones en lote: " + e.getMessage());
+                rowsAffected = 0;
+            } finally {
+                db.endTransaction();
+            }
+            if (rowsAffected > 0) {
+                applyToIndex(delta);
+            }
+        }
+        bumpWriteVersion();
+        return rowsAffected;
+    }
 
+    /**
+     * Cambia la categoría de varias transacciones. El signo del monto se ajusta al tipo de
+     * la nueva categoría (negativo para gastos, positivo para ingresos), igual que al editar una.
+     * Las mitades de transferencias se saltean: pasadas a otra categoría dejarían de sumar cero.
+     * @param transactionIds Los IDs de las transacciones a modificar.
+     * @param newCategory La categoría destino.
+     * @return Cantidad de filas actualizadas.
+     */
+    public int recategorizeTransactions(int[] transactionIds, Category newCategory) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        String signedAmount = newCategory.getType().equals(Category.TYPE_EXPENSE)
+                ? "-ABS(" + COLUMN_TRANSACTION_AMOUNT + ")" : "ABS(" + COLUMN_TRANSACTION_AMOUNT + ")";
+        int rowsAffected = 0;
+        synchronized (indexLock) {
+            DailyBalanceIndex.Delta delta = new DailyBalanceIndex.Delta();
+            db.beginTransaction();
+            try {
+                fillSelectedIds(db, transactionIds);
+                db.execSQL("DELETE FROM selected_ids WHERE id IN (SELECT " + COLUMN_TRANSACTION_ID + " FROM " + TABLE_TRANSACTIONS +
+                        " WHERE " + COLUMN_TRANSACTION_TRANSFER_ID + " IS NOT NULL)");
+                // El signo del monto puede cambiar: se descuentan los montos viejos y se suman los nuevos
+                addDailyTotals(db, WHERE_SELECTED_IDS, null, -1, delta);
+                // Todo pasa a una sola categoría: las divididas dejan de estarlo
+                db.execSQL("DELETE FROM " + TABLE_SPLITS + " WHERE " + COLUMN_SPLIT_TRANSACTION_ID + " IN (SELECT id FROM selected_ids)");
+                SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_TRANSACTIONS + " SET " +
+                        COLUMN_TRANSACTION_CATEGORY_ID + " = ?, " + COLUMN_TRANSACTION_IS_SPLIT + " = 0, " +
+                        COLUMN_TRANSACTION_AMOUNT + " = " + signedAmount + ", " +
+                        COLUMN_UPDATED_AT + " = ?, " + COLUMN_UPDATED_BY + " = ?, " + COLUMN_DIRTY + " = 1" +
+                        " WHERE " + WHERE_SELECTED_IDS);
+                update.bindLong(1, newCategory.getId());
+                update.bindLong(2, System.currentTimeMillis());
+                update.bindString(3, getDeviceId());
+                rowsAffected = update.executeUpdateDelete();
+                addDailyTotals(db, WHERE_SELECTED_IDS, null, 1, delta);
+                refreshFingerprints(db, WHERE_SELECTED_IDS, null);
+                db.setTransactionSuccessful();
+            } catch (Exception e) {
+                Log.e("DatabaseHelper", "Error al recategorizar transacciones en lote: " + e.getMessage());
+                rowsAffected = 0;
+            } finally {
+                db.endTransaction();
+            }
             if (rowsAffected > 0) {
-                Log.d("DatabaseHelper", "Transacción con ID " + transactionId + " eliminada exitosamente. Filas afectadas: " + rowsAffected);
+                applyToIndex(delta);
+            }
+        }
+        bumpWriteVersion();
+        return rowsAffected;
+    }
+
+    /**
+     * Mueve la fecha de varias transacciones una cantidad de días (positiva o negativa). Las
+     * transferencias se mueven enteras, aunque solo se haya seleccionado una mitad.
+     * @param transactionIds Los IDs de las transacciones a modificar.
+     * @param days Días a sumar a la fecha de cada transacción.
+     * @return Cantidad de filas actualizadas (puede superar a las pedidas por las transferencias).
+     */
+    public int shiftTransactionDates(int[] transactionIds, int days) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        int rowsAffected = 0;
+        synchronized (indexLock) {
+            DailyBalanceIndex.Delta delta = new DailyBalanceIndex.Delta();
+            db.beginTransaction();
+            try {
+                fillSelectedIds(db, transactionIds);
+                addTransferCounterparts(db);
+                addDailyTotals(db, WHERE_SELECTED_IDS, null, -1, delta);
+                SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_TRANSACTIONS + " SET " +
+                        COLUMN_TRANSACTION_DATE + " = date(" + COLUMN_TRANSACTION_DATE + ", ?), " +
+                        COLUMN_UPDATED_AT + " = ?, " + COLUMN_UPDATED_BY + " = ?, " + COLUMN_DIRTY + " = 1" +
+                        " WHERE " + WHERE_SELECTED_IDS);
+                update.bindString(1, (days >= 0 ? "+" : "") + days + " days");
+                update.bindLong(2, System.currentTimeMillis());
+                update.bindString(3, getDeviceId());
+                rowsAffected = update.executeUpdateDelete();
+                addDailyTotals(db, WHERE_SELECTED_IDS, null, 1, delta);
+                refreshFingerprints(db, WHERE_SELECTED_IDS, null);
+                db.setTransactionSuccessful();
+            } catch (Exception e) {
+                Log.e("DatabaseHelper", "Error al mover fechas en lote: " + e.getMessage());
+                rowsAffected = 0;
+            } finally {
+                db.endTransaction();
+            }
+            if (rowsAffected > 0) {
+                applyToIndex(delta);
+            }
+        }
+        bumpWriteVersion();
+        return rowsAffected;
+    }
+
+    /**
+     * Aplica un grupo de escrituras encoladas en una sola transacción SQLite, así comparten un
+     * único commit (y un único fsync) en vez de uno por fila. Cada escritura guarda su propio
+     * resultado; si alguna lanza una excepción se deshace el grupo entero y todas quedan fallidas.
+     * @return true si el grupo se confirmó.
+     */
+    @Override
+    public boolean applyTransactionWrites(List<TransactionWriteQueue.PendingWrite> writes) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        boolean committed = false;
+        synchronized (indexLock) {
+            DailyBalanceIndex.Delta delta = new DailyBalanceIndex.Delta();
+            SparseArray<List<Integer>> insertedTags = new SparseArray<>();
+            db.beginTransaction();
+            try {
+                for (TransactionWriteQueue.PendingWrite write : writes) {
+                    applyTransactionWrite(db, write, delta, insertedTags);
+                }
+                db.setTransactionSuccessful();
+                committed = true;
+            } catch (Exception e) {
+                Log.e("DatabaseHelper", "Error al aplicar un grupo de " + writes.size() + " escrituras: " + e.getMessage());
+            } finally {
+                db.endTransaction();
+            }
+            if (committed) {
+                applyToIndex(delta);
+                TagIndex index = tagIndex;
+                for (int i = 0; index != null && i < insertedTags.size(); i++) {
+                    index.setTags(insertedTags.keyAt(i), insertedTags.valueAt(i));
+                }
+                for (TransactionWriteQueue.PendingWrite write : writes) {
+                    if (write.getKind() == TransactionWriteQueue.Kind.INSERT && write.isSuccess()) {
+                        onTransactionInserted(write.getTransaction());
+                    }
+                }
             } else {
-                Log.w("DatabaseHelper", "No se encontró la transacción con ID " + transactionId + " para eliminar.");
+                for (TransactionWriteQueue.PendingWrite write : writes) {
+                    write.setResult(false, -1);
+                }
             }
-            // *** FIN DE LAS LÍNEAS DE LOG AÑADIDAS ***
+        }
+        bumpWriteVersion();
+        return committed;
+    }
 
+    private void applyTransactionWrite(SQLiteDatabase db, TransactionWriteQueue.PendingWrite write, DailyBalanceIndex.Delta delta,
+                                       SparseArray<List<Integer>> insertedTags) {
+        Transaction transaction = write.getTransaction();
+        switch (write.getKind()) {
+            case INSERT: {
+                if (write.checksDuplicate()) {
+                    // Antes de insertar (después se encontraría a sí misma); ve las altas anteriores del grupo
+                    write.setLikelyDuplicate(isLikelyDuplicate(transaction));
+                }
+                ContentValues values = transactionValues(transaction);
+                values.put(COLUMN_TRANSACTION_ACCOUNT_ID, transaction.getAccountId());
+                values.put(COLUMN_SYNC_ID, UUID.randomUUID().toString());
+                putLocalSyncColumns(values);
+                // insert() no lanza por una restricción: solo falla esta escritura, no el grupo
+                long id = db.insert(TABLE_TRANSACTIONS, null, values);
+                if (id != -1) {
+                    delta.add(transaction.getDate(), transaction.getAmount());
+                    addToDuplicateFilter(values);
+                    if (!write.getTags().isEmpty()) {
+                        insertedTags.put((int) id, linkTags(db, (int) id, write.getTags()));
+                    }
+                }
+                write.setResult(id != -1, id);
+                break;
+            }
+            case UPDATE: {
+                if (transaction.isTransfer()) {
+                    write.setResult(updateTransferLegs(db, transaction, delta) > 0, transaction.getId());
+                    break;
+                }
+                ContentValues values = transactionValues(transaction);
+                putLocalSyncColumns(values);
+                String[] whereArgs = {String.valueOf(transaction.getId())};
+                addDailyTotals(db, COLUMN_TRANSACTION_ID + " = ?", whereArgs, -1, delta);
+                collapseChangedSplit(db, COLUMN_TRANSACTION_ID + " = ?", whereArgs, transaction.getCategoryId(), transaction.getAmount());
+                int rowsAffected = db.update(TABLE_TRANSACTIONS, values, COLUMN_TRANSACTION_ID + " = ?", whereArgs);
+                if (rowsAffected > 0) {
+                    delta.add(transaction.getDate(), transaction.getAmount());
+                    addToDuplicateFilter(values);
+                }
+                write.setResult(rowsAffected > 0, transaction.getId());
+                break;
+            }
+            case DELETE: {
+                String[] whereArgs = {String.valueOf(write.getTransactionId()), String.valueOf(write.getTransactionId())};
+                addDailyTotals(db, WHERE_ID_WITH_TRANSFER, whereArgs, -1, delta);
+                int rowsAffected = db.delete(TABLE_TRANSACTIONS, WHERE_ID_WITH_TRANSFER, whereArgs);
+                write.setResult(rowsAffected > 0, write.getTransactionId());
+                break;
+            }
+        }
+    }
+
+    private static ContentValues transactionValues(Transaction transaction) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_TRANSACTION_AMOUNT, transaction.getAmount());
+        values.put(COLUMN_TRANSACTION_DESCRIPTION, transaction.getDescription());
+        values.put(COLUMN_TRANSACTION_CATEGORY_ID, transaction.getCategoryId());
+        values.put(COLUMN_TRANSACTION_DATE, transaction.getDate());
+        values.put(COLUMN_TRANSACTION_FINGERPRINT, TransactionFingerprint.of(transaction));
+        return values;
+    }
+
+    // --- Duplicados ---
+
+    /**
+     * Indica si ya hay una transacción con la misma huella (misma fecha, monto, descripción y
+     * categoría) que no se haya descartado en la revisión. El filtro de Bloom descarta casi
+     * todos los casos sin consultar la DB; solo sus "puede estar" se confirman con el índice.
+     */
+    public boolean isLikelyDuplicate(Transaction transaction) {
+        long fingerprint = TransactionFingerprint.of(transaction);
+        if (!getDuplicateFilter().mightContain(fingerprint)) {
+            return false;
+        }
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT 1 FROM " + TABLE_TRANSACTIONS + " WHERE " + COLUMN_TRANSACTION_FINGERPRINT + " = ?" +
+                " AND NOT EXISTS (SELECT 1 FROM " + TABLE_DUPLICATE_DISMISSALS + " WHERE " + COLUMN_TRANSACTION_FINGERPRINT + " = ?) LIMIT 1",
+                new String[]{String.valueOf(fingerprint), String.valueOf(fingerprint)});
+        try {
+            return cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Transacciones que comparten huella con otra y no se descartaron, agrupadas por huella:
+     * los grupos van del día más reciente al más viejo y dentro de cada uno la primera cargada va primero.
+     */
+    public List<List<Transaction>> getSuspectedDuplicates() {
+        List<List<Transaction>> groups = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("SELECT T." + COLUMN_TRANSACTION_ID + ", T." + COLUMN_TRANSACTION_AMOUNT + ", T." + COLUMN_TRANSACTION_DESCRIPTION + ", " +
+                    "CAST(julianday(T." + COLUMN_TRANSACTION_DATE + ") - 2440587.5 AS INTEGER), " +
+                    "C." + COLUMN_CATEGORY_ID + ", C." + COLUMN_CATEGORY_NAME + ", C." + COLUMN_CATEGORY_TYPE + ", T." + COLUMN_TRANSACTION_FINGERPRINT +
+                    " FROM " + TABLE_TRANSACTIONS + " T INNER JOIN " + TABLE_CATEGORIES + " C ON T." + COLUMN_TRANSACTION_CATEGORY_ID + " = C." + COLUMN_CATEGORY_ID +
+                    // El GROUP BY recorre el índice de huellas, que ya está ordenado
+                    " WHERE T." + COLUMN_TRANSACTION_FINGERPRINT + " IN (SELECT " + COLUMN_TRANSACTION_FINGERPRINT + " FROM " + TABLE_TRANSACTIONS +
+                    " GROUP BY " + COLUMN_TRANSACTION_FINGERPRINT + " HAVING COUNT(*) > 1)" +
+                    " AND T." + COLUMN_TRANSACTION_FINGERPRINT + " NOT IN (SELECT " + COLUMN_TRANSACTION_FINGERPRINT + " FROM " + TABLE_DUPLICATE_DISMISSALS + ")" +
+                    " ORDER BY T." + COLUMN_TRANSACTION_DATE + " DESC, T." + COLUMN_TRANSACTION_FINGERPRINT + ", T." + COLUMN_TRANSACTION_ID, null);
+            SparseArray<Category> categoriesById = new SparseArray<>();
+            List<Transaction> group = null;
+            long groupFingerprint = 0;
+            while (cursor.moveToNext()) {
+                int categoryId = cursor.getInt(4);
+                Category category = categoriesById.get(categoryId);
+                if (category == null) {
+                    category = new Category(categoryId, cursor.getString(5), cursor.getString(6));
+                    categoriesById.put(categoryId, category);
+                }
+                long fingerprint = cursor.getLong(7);
+                if (group == null || fingerprint != groupFingerprint) {
+                    group = new ArrayList<>();
+                    groups.add(group);
+                    groupFingerprint = fingerprint;
+                }
+                group.add(new Transaction(cursor.getInt(0), cursor.getDouble(1), cursor.getString(2), category, cursor.getInt(3)));
+            }
         } catch (Exception e) {
-            // *** MODIFICA ESTA LÍNEA TAMBIÉN PARA MÁS DETALLE ***
-            Log.e("DatabaseHelper", "Error CRÍTICO al eliminar transacción con ID " + transactionId + ": " + e.getMessage());
-            e.printStackTrace();
+            Log.e("DatabaseHelper", "Error al buscar duplicados: " + e.getMessage());
         } finally {
-            db.close();
+            if (cursor != null) {
+                cursor.close();
+            }
         }
-        return rowsAffected > 0;
+        return groups;
     }
 
     /**
-     * Obtiene el balance total de todas las transacciones.
-     * @return El balance total.
+     * Cantidad de grupos de posibles duplicados sin revisar. Recorre el índice de huellas.
      */
-    public double getTotalBalance() {
+    public int countSuspectedDuplicateGroups() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM (SELECT " + COLUMN_TRANSACTION_FINGERPRINT + " FROM " + TABLE_TRANSACTIONS +
+                " WHERE " + COLUMN_TRANSACTION_FINGERPRINT + " NOT IN (SELECT " + COLUMN_TRANSACTION_FINGERPRINT + " FROM " + TABLE_DUPLICATE_DISMISSALS + ")" +
+                " GROUP BY " + COLUMN_TRANSACTION_FINGERPRINT + " HAVING COUNT(*) > 1)", null);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Marca como legítimas todas las transacciones con la huella de {@code transaction}: dejan de
+     * aparecer en la revisión y de avisar al cargar otra igual.
+     */
+    public void dismissDuplicate(Transaction transaction) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_TRANSACTION_FINGERPRINT, TransactionFingerprint.of(transaction));
+        this.getWritableDatabase().insertWithOnConflict(TABLE_DUPLICATE_DISMISSALS, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+    }
+
+    /**
+     * Arma el filtro de duplicados si todavía no está. Lee todo el índice de huellas: llamar
+     * fuera del hilo principal (ver {@link TransactionWriteQueue#warmDuplicateFilter()}).
+     */
+    @Override
+    public void warmDuplicateFilter() {
+        getDuplicateFilter();
+    }
+
+    private BloomFilter getDuplicateFilter() {
+        BloomFilter filter = duplicateFilter;
+        if (filter != null && !filter.isSaturated()) {
+            return filter;
+        }
+        synchronized (indexLock) {
+            if (duplicateFilter == null || duplicateFilter.isSaturated()) {
+                duplicateFilter = buildDuplicateFilter();
+            }
+            return duplicateFilter;
+        }
+    }
+
+    // Una lectura del índice de huellas (sin tocar la tabla); con lugar para el doble de filas
+    private BloomFilter buildDuplicateFilter() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT " + COLUMN_TRANSACTION_FINGERPRINT + " FROM " + TABLE_TRANSACTIONS +
+                " INDEXED BY idx_transactions_fingerprint WHERE " + COLUMN_TRANSACTION_FINGERPRINT + " IS NOT NULL", null);
+        try {
+            BloomFilter filter = new BloomFilter(Math.max(cursor.getCount() * 2, 1024));
+            while (cursor.moveToNext()) {
+                filter.add(cursor.getLong(0));
+            }
+            return filter;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // Llamar con indexLock tomado, después de escribir una fila con estos valores
+    private void addToDuplicateFilter(ContentValues values) {
+        BloomFilter filter = duplicateFilter;
+        if (filter != null) {
+            filter.add(values.getAsLong(COLUMN_TRANSACTION_FINGERPRINT));
+        }
+    }
+
+    /**
+     * Para cambios remotos o masivos que no pasan por los métodos de este helper.
+     */
+    public void invalidateDuplicateFilter() {
+        duplicateFilter = null;
+    }
+
+    /**
+     * Recalcula la huella de las filas que cumplen {@code where} (migración y ediciones masivas
+     * hechas en SQL, que no pueden normalizar descripciones).
+     */
+    private void refreshFingerprints(SQLiteDatabase db, String where, @Nullable String[] whereArgs) {
+        SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_TRANSACTIONS + " SET " + COLUMN_TRANSACTION_FINGERPRINT +
+                " = ? WHERE " + COLUMN_TRANSACTION_ID + " = ?");
+        BloomFilter filter = duplicateFilter;
+        Cursor cursor = db.rawQuery("SELECT " + COLUMN_TRANSACTION_ID + ", " + COLUMN_TRANSACTION_DATE + ", " + COLUMN_TRANSACTION_AMOUNT + ", " +
+                COLUMN_TRANSACTION_DESCRIPTION + ", " + COLUMN_TRANSACTION_CATEGORY_ID + " FROM " + TABLE_TRANSACTIONS + " WHERE " + where, whereArgs);
+        try {
+            while (cursor.moveToNext()) {
+                long fingerprint = TransactionFingerprint.of(EpochDay.fromIsoDate(cursor.getString(1)), cursor.getDouble(2),
+                        cursor.getString(3), cursor.getInt(4));
+                update.bindLong(1, fingerprint);
+                update.bindLong(2, cursor.getLong(0));
+                update.executeUpdateDelete();
+                if (filter != null) {
+                    filter.add(fingerprint);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // --- Sugerencias al cargar transacciones ---
+
+    /**
+     * Carga en {@code index} cada descripción usada con su cantidad de usos y su último día,
+     * agrupadas en SQLite para no recorrer las transacciones en Java.
+     * @return Cantidad de descripciones distintas cargadas.
+     */
+    public int loadDescriptionUsage(DescriptionIndex index) {
         SQLiteDatabase db = this.getReadableDatabase();
-        double totalBalance = 0.0;
+        int loaded = 0;
         Cursor cursor = null;
         try {
-            String query = "SELECT SUM(" + COLUMN_TRANSACTION_AMOUNT + ") FROM " + TABLE_TRANSACTIONS;
-            cursor = db.rawQuery(query, null);
-            if (cursor != null && cursor.moveToFirst()) {
-                totalBalance = cursor.getDouble(0);
+            cursor = db.rawQuery("SELECT " + COLUMN_TRANSACTION_DESCRIPTION + ", COUNT(*), MAX(" + COLUMN_TRANSACTION_DATE + ") FROM " +
+                    TABLE_TRANSACTIONS + " WHERE " + COLUMN_TRANSACTION_DESCRIPTION + " <> ''" +
+                    " GROUP BY " + COLUMN_TRANSACTION_DESCRIPTION, null);
+            while (cursor.moveToNext()) {
+                index.record(cursor.getString(0), cursor.getInt(1), EpochDay.fromIsoDate(cursor.getString(2)));
+                loaded++;
             }
         } catch (Exception e) {
-            Log.e("DatabaseHelper", "Error al obtener balance total: " + e.getMessage());
-            e.printStackTrace();
+            Log.e("DatabaseHelper", "Error al cargar descripciones: " + e.getMessage());
         } finally {
             if (cursor != null) {
                 cursor.close();
             }
-            db.close();
         }
-        return totalBalance;
+        return loaded;
     }
 
     /**
-     * Obtiene el balance para un mes y año específico (formato YYYY-MM).
-     * @param monthYear La cadena "YYYY-MM" del mes y año.
-     * @return El balance para ese mes.
+     * Entrena {@code model} con las últimas {@code limit} transacciones.
+     * @return Cantidad de transacciones leídas.
      */
-    public double getBalanceForMonth(String monthYear) {
+    public int trainCategoryModel(CategoryModel model, int limit) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        int trained = 0;
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("SELECT " + COLUMN_TRANSACTION_DESCRIPTION + ", " + COLUMN_TRANSACTION_AMOUNT + ", " +
+                    COLUMN_TRANSACTION_CATEGORY_ID + " FROM " + TABLE_TRANSACTIONS +
+                    " ORDER BY " + COLUMN_TRANSACTION_ID + " DESC LIMIT " + limit, null);
+            while (cursor.moveToNext()) {
+                model.train(cursor.getString(0), cursor.getDouble(1), cursor.getInt(2));
+                trained++;
+            }
+        } catch (Exception e) {
+            Log.e("DatabaseHelper", "Error al entrenar el modelo de categorías: " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return trained;
+    }
+
+    // Como el widget, las sugerencias siguen solo a la instancia compartida
+    private void onTransactionInserted(Transaction transaction) {
+        if (this == instance) {
+            DescriptionIndex.getInstance().record(transaction.getDescription(), 1, transaction.getEpochDay());
+            CategoryPredictor.getInstance(appContext).train(transaction);
+        }
+    }
+
+    // --- Versión de escritura ---
+
+    /**
+     * Número que cambia con cada escritura de transacciones o categorías, locales o remotas.
+     * Un resultado leído con una versión sigue vigente mientras la versión no cambie.
+     * Se incrementa recién después del commit: quien lea la versión y luego consulte nunca
+     * guarda datos viejos con la versión nueva.
+     */
+    public long getWriteVersion() {
+        return writeVersion.get();
+    }
+
+    void bumpWriteVersion() {
+        writeVersion.incrementAndGet();
+        // El widget sigue a la instancia compartida; las instancias propias de los tests no lo tocan
+        if (this == instance) {
+            BalanceWidgetUpdater.getInstance(appContext).requestUpdate();
+        }
+    }
+
+    /**
+     * Como {@link #getWriteVersion()}, pero solo para la tabla de categorías: las transacciones
+     * nuevas no invalidan las categorías cacheadas.
+     */
+    public long getCategoryVersion() {
+        return categoryVersion.get();
+    }
+
+    // Cambiar una categoría también cambia las transacciones cargadas (nombre y tipo salen de ella)
+    void bumpCategoryVersion() {
+        categoryVersion.incrementAndGet();
+        bumpWriteVersion();
+    }
+
+    // --- Etiquetas ---
+
+    /**
+     * Todas las etiquetas, por nombre.
+     */
+    public List<Tag> getAllTags() {
+        List<Tag> tags = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
-        double balance = 0.0;
         Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("SELECT " + COLUMN_TAG_ID + ", " + COLUMN_TAG_NAME + " FROM " + TABLE_TAGS +
+                    " ORDER BY " + COLUMN_TAG_NAME, null);
+            while (cursor.moveToNext()) {
+                tags.add(new Tag(cursor.getInt(0), cursor.getString(1)));
+            }
+        } catch (Exception e) {
+            Log.e("DatabaseHelper", "Error al obtener etiquetas: " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return tags;
+    }
 
+    /**
+     * Nombres de las etiquetas de una transacción, por nombre.
+     */
+    public List<String> getTagNames(int transactionId) {
+        List<String> names = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
         try {
-            String query = "SELECT SUM(" + COLUMN_TRANSACTION_AMOUNT + ") FROM " + TABLE_TRANSACTIONS +
-                    " WHERE strftime('%Y-%m', " + COLUMN_TRANSACTION_DATE + ") = ?";
-            String[] selectionArgs = {monthYear};
+            cursor = db.rawQuery("SELECT G." + COLUMN_TAG_NAME + " FROM " + TABLE_TRANSACTION_TAGS + " TT INNER JOIN " + TABLE_TAGS +
+                    " G ON G." + COLUMN_TAG_ID + " = TT." + COLUMN_TRANSACTION_TAGS_TAG_ID +
+                    " WHERE TT." + COLUMN_TRANSACTION_TAGS_TRANSACTION_ID + " = ? ORDER BY G." + COLUMN_TAG_NAME,
+                    new String[]{String.valueOf(transactionId)});
+            while (cursor.moveToNext()) {
+                names.add(cursor.getString(0));
+            }
+        } catch (Exception e) {
+            Log.e("DatabaseHelper", "Error al obtener etiquetas de la transacción: " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return names;
+    }
 
-            cursor = db.rawQuery(query, selectionArgs);
+    /**
+     * Reemplaza las etiquetas de una transacción; las que no existen se crean (sin distinguir
+     * mayúsculas: "Viaje" y "viaje" son la misma). Las etiquetas son locales: no se sincronizan.
+     * @param names Nombres ya separados (ver {@link Tag#parse}); una lista vacía quita todas.
+     * @return true si se guardaron.
+     */
+    public boolean setTransactionTags(int transactionId, List<String> names) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        List<Integer> tagIds;
+        // Con indexLock tomado el índice de etiquetas no se puede armar en el medio y perder este cambio
+        synchronized (indexLock) {
+            db.beginTransaction();
+            try {
+                db.delete(TABLE_TRANSACTION_TAGS, COLUMN_TRANSACTION_TAGS_TRANSACTION_ID + " = ?",
+                        new String[]{String.valueOf(transactionId)});
+                tagIds = linkTags(db, transactionId, names);
+                db.setTransactionSuccessful();
+            } catch (Exception e) {
+                Log.e("DatabaseHelper", "Error al guardar etiquetas: " + e.getMessage());
+                return false;
+            } finally {
+                db.endTransaction();
+            }
+            TagIndex index = tagIndex;
+            if (index != null) {
+                index.setTags(transactionId, tagIds);
+            }
+        }
+        return true;
+    }
 
-            if (cursor != null && cursor.moveToFirst()) {
-                balance = cursor.getDouble(0); // El resultado de SUM está en la columna 0
+    // Une la transacción con cada etiqueta, creando las que falten; lanza si la transacción ya no existe
+    private static List<Integer> linkTags(SQLiteDatabase db, int transactionId, List<String> names) {
+        List<Integer> tagIds = new ArrayList<>(names.size());
+        SQLiteStatement link = db.compileStatement("INSERT INTO " + TABLE_TRANSACTION_TAGS + " (" +
+                COLUMN_TRANSACTION_TAGS_TAG_ID + ", " + COLUMN_TRANSACTION_TAGS_TRANSACTION_ID + ") VALUES (?, ?)");
+        for (String name : names) {
+            int tagId = getOrCreateTagId(db, name);
+            link.bindLong(1, tagId);
+            link.bindLong(2, transactionId);
+            link.executeInsert(); // Falla (clave foránea) si la transacción ya no existe
+            tagIds.add(tagId);
+        }
+        return tagIds;
+    }
+
+    private static int getOrCreateTagId(SQLiteDatabase db, String name) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_TAG_NAME, name);
+        long id = db.insertWithOnConflict(TABLE_TAGS, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+        if (id != -1) {
+            return (int) id;
+        }
+        // Ya existía (la columna compara sin mayúsculas)
+        Cursor cursor = db.rawQuery("SELECT " + COLUMN_TAG_ID + " FROM " + TABLE_TAGS + " WHERE " + COLUMN_TAG_NAME + " = ?",
+                new String[]{name});
+        try {
+            if (!cursor.moveToFirst()) {
+                throw new IllegalStateException("No se pudo crear la etiqueta " + name);
+            }
+            return cursor.getInt(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Devuelve el índice de etiquetas, armándolo si hace falta con una lectura de la clave
+     * primaria de transaction_tags (ya viene agrupada por etiqueta y ordenada por transacción).
+     */
+    public TagIndex getTagIndex() {
+        TagIndex index = tagIndex;
+        if (index != null) {
+            return index;
+        }
+        synchronized (indexLock) {
+            if (tagIndex == null) {
+                tagIndex = buildTagIndex();
+            }
+            return tagIndex;
+        }
+    }
+
+    private TagIndex buildTagIndex() {
+        TagIndex index = new TagIndex();
+        Cursor cursor = this.getReadableDatabase().rawQuery("SELECT " + COLUMN_TRANSACTION_TAGS_TAG_ID + ", " +
+                COLUMN_TRANSACTION_TAGS_TRANSACTION_ID + " FROM " + TABLE_TRANSACTION_TAGS, null);
+        try {
+            while (cursor.moveToNext()) {
+                index.add(cursor.getInt(0), cursor.getInt(1));
+            }
+        } finally {
+            cursor.close();
+        }
+        return index;
+    }
+
+    // --- Índice de saldos diarios ---
+
+    /**
+     * Devuelve el índice de saldos diarios, construyéndolo si hace falta con una sola consulta
+     * a los totales diarios. Después de eso cada escritura lo actualiza en O(log n).
+     */
+    public DailyBalanceIndex getDailyBalanceIndex() {
+        DailyBalanceIndex index = dailyBalanceIndex;
+        if (index != null) {
+            return index;
+        }
+        synchronized (indexLock) {
+            if (dailyBalanceIndex == null) {
+                dailyBalanceIndex = buildDailyBalanceIndex();
+            }
+            return dailyBalanceIndex;
+        }
+    }
+
+    /**
+     * Descarta el índice para que se reconstruya en la próxima consulta. Se usa tras escrituras
+     * que no calculan su delta (por ejemplo al aplicar cambios remotos de la sincronización).
+     */
+    public void invalidateDailyBalanceIndex() {
+        synchronized (indexLock) {
+            dailyBalanceIndex = null;
+        }
+    }
+
+    private DailyBalanceIndex buildDailyBalanceIndex() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            // Los totales diarios ya están agregados: una fila por día, sin recorrer las transacciones.
+            // Las transferencias no son ingreso ni gasto, pero su neto mueve el saldo del día
+            cursor = db.rawQuery("SELECT " + COLUMN_DAILY_DAY + ", " + COLUMN_DAILY_INCOME_CENTS + " - " + COLUMN_DAILY_EXPENSE_CENTS +
+                    " + " + COLUMN_DAILY_TRANSFER_CENTS +
+                    " FROM " + TABLE_DAILY_TOTALS + " ORDER BY " + COLUMN_DAILY_DAY, null);
+            int count = cursor.getCount();
+            int[] days = new int[count];
+            long[] cents = new long[count];
+            int i = 0;
+            while (cursor.moveToNext()) {
+                days[i] = EpochDay.fromIsoDate(cursor.getString(0));
+                cents[i] = cursor.getLong(1);
+                i++;
+            }
+            if (count == 0) {
+                return new DailyBalanceIndex();
+            }
+            // Las fechas vienen ordenadas: el rango cubierto se conoce de antemano y no hay que crecer
+            DailyBalanceIndex index = new DailyBalanceIndex(days[0], days[count - 1] - days[0] + 1);
+            for (int j = 0; j < count; j++) {
+                index.add(days[j], cents[j]);
+            }
+            return index;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * Suma al delta los totales por día de las filas que cumplen {@code where}, con el signo indicado.
+     */
+    private static void addDailyTotals(SQLiteDatabase db, String where, @Nullable String[] whereArgs, int sign, DailyBalanceIndex.Delta delta) {
+        Cursor cursor = db.rawQuery("SELECT " + COLUMN_TRANSACTION_DATE + ", SUM(" + COLUMN_TRANSACTION_AMOUNT + ") FROM " + TABLE_TRANSACTIONS +
+                " WHERE " + where + " GROUP BY " + COLUMN_TRANSACTION_DATE, whereArgs);
+        try {
+            while (cursor.moveToNext()) {
+                delta.add(EpochDay.fromIsoDate(cursor.getString(0)), sign * DailyBalanceIndex.toCents(cursor.getDouble(1)));
             }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static DailyBalanceIndex.Delta dailyDelta(SQLiteDatabase db, String where, @Nullable String[] whereArgs, int sign) {
+        DailyBalanceIndex.Delta delta = new DailyBalanceIndex.Delta();
+        addDailyTotals(db, where, whereArgs, sign, delta);
+        return delta;
+    }
+
+    /**
+     * Aplica un delta ya confirmado en la DB. Si el índice todavía no se construyó no hay nada
+     * que actualizar: cuando se construya ya leerá estas filas. Llamar con {@code indexLock} tomado.
+     */
+    private void applyToIndex(DailyBalanceIndex.Delta delta) {
+        DailyBalanceIndex index = dailyBalanceIndex;
+        if (index != null) {
+            delta.applyTo(index);
+        }
+    }
+
+    /**
+     * Obtiene el balance total de todas las transacciones.
+     * @return El balance total.
+     */
+    public double getTotalBalance() {
+        try {
+            return getDailyBalanceIndex().getTotal() / 100.0;
+        } catch (Exception e) {
+            Log.e("DatabaseHelper", "Error al obtener balance total: " + e.getMessage());
+            e.printStackTrace();
+            return 0.0;
+        }
+    }
+
+    /**
+     * Obtiene el balance para un mes y año específico (formato YYYY-MM).
+     * @param monthYear La cadena "YYYY-MM" del mes y año.
+     * @return El balance para ese mes.
+     */
+    public double getBalanceForMonth(String monthYear) {
+        try {
+            return getDailyBalanceIndex().rangeBalance(EpochDay.firstDayOfMonth(monthYear), EpochDay.lastDayOfMonth(monthYear)) / 100.0;
         } catch (Exception e) {
             Log.e("DatabaseHelper", "Error al obtener balance para el mes " + monthYear + ": " + e.getMessage());
             e.printStackTrace();
+            return 0.0;
+        }
+    }
+
+    /**
+     * Obtiene el balance de las transacciones entre dos fechas, ambas inclusive, en O(log n).
+     * @param fromDate Fecha inicial "YYYY-MM-DD".
+     * @param toDate Fecha final "YYYY-MM-DD".
+     * @return El balance del rango.
+     */
+    public double getBalanceForRange(String fromDate, String toDate) {
+        try {
+            return getDailyBalanceIndex().rangeBalance(EpochDay.fromIsoDate(fromDate), EpochDay.fromIsoDate(toDate)) / 100.0;
+        } catch (Exception e) {
+            Log.e("DatabaseHelper", "Error al obtener balance entre " + fromDate + " y " + toDate + ": " + e.getMessage());
+            e.printStackTrace();
+            return 0.0;
+        }
+    }
+
+    /**
+     * Obtiene el saldo acumulado de todas las transacciones hasta una fecha (inclusive).
+     * @param date Fecha "YYYY-MM-DD".
+     * @return El saldo a esa fecha.
+     */
+    public double getRunningBalance(String date) {
+        try {
+            return getDailyBalanceIndex().runningBalance(EpochDay.fromIsoDate(date)) / 100.0;
+        } catch (Exception e) {
+            Log.e("DatabaseHelper", "Error al obtener saldo acumulado al " + date + ": " + e.getMessage());
+            e.printStackTrace();
+            return 0.0;
+        }
+    }
+
+    // --- Cuentas ---
+
+    /**
+     * Devuelve todas las cuentas con su saldo. El saldo es el agregado que mantienen los
+     * triggers: una fila por cuenta, sin recorrer las transacciones.
+     */
+    public List<Account> getAccounts() {
+        List<Account> accounts = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("SELECT " + COLUMN_ACCOUNT_ID + ", " + COLUMN_ACCOUNT_NAME + ", " + COLUMN_ACCOUNT_BALANCE_CENTS +
+                    " FROM " + TABLE_ACCOUNTS + " ORDER BY " + COLUMN_ACCOUNT_ID, null);
+            while (cursor.moveToNext()) {
+                accounts.add(new Account(cursor.getInt(0), cursor.getString(1), cursor.getLong(2) / 100.0));
+            }
+        } catch (Exception e) {
+            Log.e("DatabaseHelper", "Error al obtener cuentas: " + e.getMessage());
         } finally {
             if (cursor != null) {
                 cursor.close();
             }
-            db.close();
         }
-        return balance;
+        return accounts;
+    }
+
+    /**
+     * Obtiene el saldo de una cuenta en O(1).
+     * @param accountId El _id de la cuenta.
+     * @return El saldo, o 0 si la cuenta no existe.
+     */
+    public double getAccountBalance(int accountId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("SELECT " + COLUMN_ACCOUNT_BALANCE_CENTS + " FROM " + TABLE_ACCOUNTS +
+                    " WHERE " + COLUMN_ACCOUNT_ID + " = ?", new String[]{String.valueOf(accountId)});
+            return cursor.moveToFirst() ? cursor.getLong(0) / 100.0 : 0.0;
+        } catch (Exception e) {
+            Log.e("DatabaseHelper", "Error al obtener saldo de la cuenta " + accountId + ": " + e.getMessage());
+            return 0.0;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * Obtiene el balance de un mes (formato YYYY-MM) en una sola cuenta. Recorre solo el tramo
+     * del mes dentro de la cuenta en idx_transactions_account_date.
+     * @param accountId El _id de la cuenta, o {@link Account#ALL} para todas (índice de saldos diarios).
+     */
+    public double getBalanceForMonth(String monthYear, int accountId) {
+        if (accountId == Account.ALL) {
+            return getBalanceForMonth(monthYear);
+        }
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("SELECT IFNULL(SUM(" + centsOf("") + "), 0) FROM " + TABLE_TRANSACTIONS +
+                    " WHERE " + COLUMN_TRANSACTION_ACCOUNT_ID + " = ? AND " + COLUMN_TRANSACTION_DATE + " BETWEEN ? AND ?",
+                    new String[]{String.valueOf(accountId), EpochDay.toIsoDate(EpochDay.firstDayOfMonth(monthYear)),
+                            EpochDay.toIsoDate(EpochDay.lastDayOfMonth(monthYear))});
+            return cursor.moveToFirst() ? cursor.getLong(0) / 100.0 : 0.0;
+        } catch (Exception e) {
+            Log.e("DatabaseHelper", "Error al obtener balance para el mes " + monthYear + " de la cuenta " + accountId + ": " + e.getMessage());
+            return 0.0;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * Registra una transferencia entre dos cuentas como un par de transacciones con el mismo
+     * transfer_id: un gasto en la cuenta de origen y un ingreso en la de destino, ambos en la
+     * categoría "Transferencia". Se guardan juntas o ninguna; el saldo total no cambia.
+     * @param amount Monto a transferir (se toma el valor absoluto).
+     * @param date Fecha "YYYY-MM-DD".
+     * @return true si se guardó la transferencia.
+     */
+    public boolean addTransfer(int fromAccountId, int toAccountId, double amount, String description, String date) {
+        if (fromAccountId == toAccountId || amount == 0) {
+            return false;
+        }
+        Category expense = getOrCreateTransferCategory(Category.TYPE_EXPENSE);
+        Category income = getOrCreateTransferCategory(Category.TYPE_INCOME);
+        if (expense == null || income == null) {
+            return false;
+        }
+        Transaction out = new Transaction(-Math.abs(amount), description, expense, date);
+        out.setAccountId(fromAccountId);
+        Transaction in = new Transaction(Math.abs(amount), description, income, date);
+        in.setAccountId(toAccountId);
+        String transferId = UUID.randomUUID().toString();
+
+        SQLiteDatabase db = this.getWritableDatabase();
+        boolean committed = false;
+        synchronized (indexLock) {
+            List<ContentValues> inserted = new ArrayList<>();
+            db.beginTransaction();
+            try {
+                for (Transaction leg : new Transaction[]{out, in}) {
+                    ContentValues values = transactionValues(leg);
+                    values.put(COLUMN_TRANSACTION_ACCOUNT_ID, leg.getAccountId());
+                    values.put(COLUMN_TRANSACTION_TRANSFER_ID, transferId);
+                    values.put(COLUMN_SYNC_ID, UUID.randomUUID().toString());
+                    putLocalSyncColumns(values);
+                    db.insertOrThrow(TABLE_TRANSACTIONS, null, values); // Una cuenta inexistente viola la FK
+                    inserted.add(values);
+                }
+                db.setTransactionSuccessful();
+                committed = true;
+            } catch (Exception e) {
+                Log.e("DatabaseHelper", "Error al registrar transferencia: " + e.getMessage());
+            } finally {
+                db.endTransaction();
+            }
+            if (committed) {
+                // Las dos mitades se compensan en el saldo total, pero el índice guarda cada movimiento
+                DailyBalanceIndex.Delta delta = new DailyBalanceIndex.Delta();
+                delta.add(out.getDate(), out.getAmount());
+                delta.add(in.getDate(), in.getAmount());
+                applyToIndex(delta);
+                for (ContentValues values : inserted) {
+                    addToDuplicateFilter(values);
+                }
+            }
+        }
+        bumpWriteVersion();
+        return committed;
+    }
+
+    @Nullable
+    private Category getOrCreateTransferCategory(String type) {
+        Category category = getCategoryByName(TRANSFER_CATEGORY_NAME, type);
+        if (category == null) {
+            long id = addCategory(new Category(TRANSFER_CATEGORY_NAME, type));
+            category = id != -1 ? new Category((int) id, TRANSFER_CATEGORY_NAME, type) : null;
+        }
+        return category;
     }
 
     /**
@@ -567,8 +2725,68 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             if (cursor != null) {
                 cursor.close();
             }
-            db.close();
         }
         return months;
     }
+
+    /**
+     * Lee los totales diarios de un rango de fechas desde la tabla agregada: como mucho una fila
+     * por día, sin importar cuántas transacciones haya.
+     * @param fromDate Primer día, "YYYY-MM-DD".
+     * @param toDate Último día, "YYYY-MM-DD" (inclusive).
+     */
+    public DailyTotals getDailyTotals(String fromDate, String toDate) {
+        DailyTotals totals = new DailyTotals(EpochDay.fromIsoDate(fromDate), EpochDay.fromIsoDate(toDate));
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("SELECT " + COLUMN_DAILY_DAY + ", " + COLUMN_DAILY_INCOME_CENTS + ", " +
+                    COLUMN_DAILY_EXPENSE_CENTS + ", " + COLUMN_DAILY_COUNT + " FROM " + TABLE_DAILY_TOTALS +
+                    " WHERE " + COLUMN_DAILY_DAY + " BETWEEN ? AND ?", new String[]{fromDate, toDate});
+            while (cursor.moveToNext()) {
+                totals.set(EpochDay.fromIsoDate(cursor.getString(0)), cursor.getLong(1), cursor.getLong(2), cursor.getInt(3));
+            }
+        } catch (Exception e) {
+            Log.e("DatabaseHelper", "Error al leer los totales diarios: " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Ingresos, gastos y saldo por día, semana o mes en un rango de fechas. El agrupamiento lo
+     * hace SQLite sobre daily_totals (una fila por día, nunca las transacciones sueltas) y el
+     * saldo inicial sale del índice de saldos diarios.
+     * @param fromDate Primer día, "YYYY-MM-DD".
+     * @param toDate Último día, "YYYY-MM-DD" (inclusive).
+     * @param granularity TrendSeries.GRANULARITY_DAY, GRANULARITY_WEEK o GRANULARITY_MONTH.
+     */
+    public TrendSeries getTrendSeries(String fromDate, String toDate, int granularity) {
+        int fromDay = EpochDay.fromIsoDate(fromDate);
+        int toDay = EpochDay.fromIsoDate(toDate);
+        TrendSeries series = new TrendSeries(granularity, TrendSeries.bucketOf(fromDay, granularity),
+                TrendSeries.bucketOf(toDay, granularity));
+        String bucket = TrendSeries.bucketSql(granularity, COLUMN_DAILY_DAY);
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("SELECT " + bucket + ", SUM(" + COLUMN_DAILY_INCOME_CENTS + "), SUM(" + COLUMN_DAILY_EXPENSE_CENTS + ")" +
+                    " FROM " + TABLE_DAILY_TOTALS + " WHERE " + COLUMN_DAILY_DAY + " BETWEEN ? AND ?" +
+                    " GROUP BY 1", new String[]{fromDate, toDate});
+            while (cursor.moveToNext()) {
+                series.add(cursor.getInt(0), cursor.getLong(1), cursor.getLong(2));
+            }
+        } catch (Exception e) {
+            Log.e("DatabaseHelper", "Error al agrupar la serie de tendencias: " + e.getMessage());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        series.accumulateBalance(getDailyBalanceIndex().runningBalance(fromDay - 1));
+        return series;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,99 @@
+package com.example.misgastosam;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.View;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AlertDialog;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Menú de herramientas de depuración, abierto con una pulsación larga sobre una vista de la
+ * pantalla principal. Solo existe en compilaciones depurables: en release la vista no cambia.
+ */
+public final class DebugMenu {
+
+    private static final long SEED = 20240101L;
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private DebugMenu() {
+    }
+
+    /**
+     * @param onDataChanged Se ejecuta en el hilo principal cuando una herramienta modificó la DB.
+     */
+    public static void attach(Activity activity, View anchor, Runnable onDataChanged) {
+        if (!isDebuggable(activity)) {
+            return;
+        }
+        anchor.setOnLongClickListener(v -> {
+            show(activity, onDataChanged);
+            return true;
+        });
+    }
+
+    static boolean isDebuggable(Context context) {
+        return (context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+    }
+
+    private static void show(Activity activity, Runnable onDataChanged) {
+        boolean jankEnabled = JankMonitor.isEnabled(activity);
+        String[] items = {
+                "Generar 10 años de datos (~30 mil filas)",
+                "Generar 1 millón de transacciones",
+                jankEnabled ? "Desactivar medición de jank" : "Activar medición de jank"
+        };
+        new AlertDialog.Builder(activity)
+                .setTitle("Depuración")
+                .setItems(items, (dialog, which) -> {
+                    switch (which) {
+                        case 0:
+                        case 1:
+                            // 8 movimientos diarios dan unas 30 mil filas en 10 años; 270 por día llegan al millón
+                            generateLedger(activity, 10, which == 0 ? 8 : 270, onDataChanged);
+                            break;
+                        case 2:
+                            JankMonitor.setEnabled(activity, !jankEnabled);
+                            Toast.makeText(activity, jankEnabled ? "Medición de jank desactivada"
+                                    : "Se mide desde la próxima pantalla abierta. Resultados en "
+                                    + JankMonitor.getResultsFile(activity).getAbsolutePath(), Toast.LENGTH_LONG).show();
+                            break;
+                    }
+                })
+                .show();
+    }
+
+    private static void generateLedger(Activity activity, int years, double transactionsPerDay, Runnable onDataChanged) {
+        Calendar start = Calendar.getInstance();
+        start.add(Calendar.YEAR, -years);
+        String startDate = new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(start.getTime());
+        SyntheticLedgerGenerator generator = new SyntheticLedgerGenerator(SEED, startDate, years, transactionsPerDay);
+        DatabaseHelper dbHelper = DatabaseHelper.getInstance(activity);
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        Toast.makeText(activity, "Generando datos...", Toast.LENGTH_SHORT).show();
+
+        executor.execute(() -> {
+            long startNanos = System.nanoTime();
+            int count = dbHelper.insertSyntheticLedger(generator);
+            long elapsedMs = (System.nanoTime() - startNanos) / 1_000_000;
+            Log.d("DebugMenu", "Historial sintético: " + count + " transacciones en " + elapsedMs + " ms");
+            mainHandler.post(() -> {
+                Toast.makeText(activity.getApplicationContext(), count + " transacciones generadas en " + elapsedMs + " ms", Toast.LENGTH_LONG).show();
+                if (!activity.isFinishing()) {
+                    onDataChanged.run();
+                }
+            });
+        });
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.misgastosam;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Descripciones ya usadas, para autocompletar sin consultar la DB en cada tecla. Se guardan en
+ * arreglos paralelos ordenados por la descripción normalizada (minúsculas, sin acentos ni
+ * espacios repetidos), así "Supermercado Día" y "supermercado dia" cuentan como una sola y las
+ * que empiezan con un prefijo forman un tramo contiguo que se encuentra con búsqueda binaria.
+ * Se arma una vez en segundo plano con un GROUP BY y después cada alta la suma en memoria
+ * (las ediciones y los borrados no la descuentan: solo afectan el orden de las sugerencias).
+ */
+public class DescriptionIndex {
+
+    public static final int DEFAULT_LIMIT = 5;
+    // Una descripción usada hace RECENCY_DAYS días vale la mitad que una usada hoy
+    private static final double RECENCY_DAYS = 90;
+
+    private static DescriptionIndex instance;
+    private static final ExecutorService loader = Executors.newSingleThreadExecutor();
+
+    private String[] keys = new String[16];     // Normalizadas y ordenadas
+    private String[] displays = new String[16]; // Texto de la última vez que se usó
+    private int[] counts = new int[16];
+    private int[] lastDays = new int[16];       // Epoch day del último uso
+    private int size;
+
+    private boolean loadStarted;
+
+    public static synchronized DescriptionIndex getInstance() {
+        if (instance == null) {
+            instance = new DescriptionIndex();
+        }
+        return instance;
+    }
+
+    DescriptionIndex() {
+    }
+
+    /**
+     * Carga las descripciones de la DB en segundo plano la primera vez que se llama.
+     * Mientras tanto {@link #suggest} devuelve lo que se haya registrado hasta ese momento.
+     */
+    public void ensureLoaded(DatabaseHelper dbHelper) {
+        synchronized (this) {
+            if (loadStarted) {
+                return;
+            }
+            loadStarted = true;
+        }
+        // Un alta que llegue durante la carga puede quedar contada dos veces: solo mueve el orden
+        loader.execute(() -> dbHelper.loadDescriptionUsage(this));
+    }
+
+    /**
+     * Suma {@code count} usos de una descripción, el último en {@code epochDay}.
+     */
+    public synchronized void record(String description, int count, int epochDay) {
+        if (description == null) {
+            return;
+        }
+        String display = description.trim();
+        String key = normalize(display);
+        if (key.isEmpty()) {
+            return;
+        }
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index >= 0) {
+            counts[index] += count;
+            if (epochDay >= lastDays[index]) {
+                lastDays[index] = epochDay;
+                displays[index] = display;
+            }
+            return;
+        }
+        int insertAt = -index - 1;
+        if (size == keys.length) {
+            int capacity = size * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            displays = Arrays.copyOf(displays, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            lastDays = Arrays.copyOf(lastDays, capacity);
+        }
+        int tail = size - insertAt;
+        System.arraycopy(keys, insertAt, keys, insertAt + 1, tail);
+        System.arraycopy(displays, insertAt, displays, insertAt + 1, tail);
+        System.arraycopy(counts, insertAt, counts, insertAt + 1, tail);
+        System.arraycopy(lastDays, insertAt, lastDays, insertAt + 1, tail);
+        keys[insertAt] = key;
+        displays[insertAt] = display;
+        counts[insertAt] = count;
+        lastDays[insertAt] = epochDay;
+        size++;
+    }
+
+    /**
+     * Descripciones que empiezan con {@code prefix}, las más usadas y recientes primero.
+     * No consulta la DB: es una búsqueda binaria y un recorrido del tramo que coincide.
+     * @param today Epoch day de hoy, para ponderar la antigüedad.
+     */
+    public synchronized List<String> suggest(CharSequence prefix, int today, int limit) {
+        String key = normalize(prefix.toString());
+        List<String> result = new ArrayList<>(limit);
+        if (key.isEmpty() || limit <= 0) {
+            return result;
+        }
+        int from = Arrays.binarySearch(keys, 0, size, key);
+        if (from < 0) {
+            from = -from - 1;
+        }
+        // Los mejores `limit` del tramo, ordenados por puntaje (inserción: limit es chico)
+        int[] best = new int[limit];
+        double[] bestScores = new double[limit];
+        int found = 0;
+        for (int i = from; i < size && keys[i].startsWith(key); i++) {
+            double score = counts[i] / (1 + Math.max(0, today - lastDays[i]) / RECENCY_DAYS);
+            if (found == limit && score <= bestScores[limit - 1]) {
+                continue;
+            }
+            int slot = found < limit ? found++ : limit - 1;
+            while (slot > 0 && bestScores[slot - 1] < score) {
+                best[slot] = best[slot - 1];
+                bestScores[slot] = bestScores[slot - 1];
+                slot--;
+            }
+            best[slot] = i;
+            bestScores[slot] = score;
+        }
+        for (int i = 0; i < found; i++) {
+            result.add(displays[best[i]]);
+        }
+        return result;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    static String normalize(String text) {
+        String stripped = Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+        return stripped.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+    }
+}
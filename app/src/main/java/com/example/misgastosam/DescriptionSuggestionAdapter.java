@@ -0,0 +1,58 @@
+package com.example.misgastosam;
+
+import android.content.Context;
+import android.widget.ArrayAdapter;
+import android.widget.Filter;
+
+import androidx.annotation.NonNull;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Sugerencias para el campo de descripción. El filtro de ArrayAdapter recorre toda la lista en
+ * cada tecla; este le pregunta a {@link DescriptionIndex}, que solo mira las descripciones con
+ * ese prefijo y ya las devuelve ordenadas. Corre en el hilo de filtrado y no toca la DB.
+ */
+public class DescriptionSuggestionAdapter extends ArrayAdapter<String> {
+
+    private final DescriptionIndex index;
+    private final Filter filter = new Filter() {
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            FilterResults results = new FilterResults();
+            if (constraint != null) {
+                int today = EpochDay.fromIsoDate(new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date()));
+                List<String> suggestions = index.suggest(constraint, today, DescriptionIndex.DEFAULT_LIMIT);
+                results.values = suggestions;
+                results.count = suggestions.size();
+            }
+            return results;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            clear();
+            if (results.count > 0) {
+                addAll((List<String>) results.values);
+                notifyDataSetChanged();
+            } else {
+                notifyDataSetInvalidated();
+            }
+        }
+    };
+
+    public DescriptionSuggestionAdapter(Context context, DescriptionIndex index) {
+        super(context, android.R.layout.simple_dropdown_item_1line);
+        this.index = index;
+    }
+
+    @NonNull
+    @Override
+    public Filter getFilter() {
+        return filter;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.misgastosam;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.text.DecimalFormat;
+import java.util.List;
+
+/**
+ * Una tarjeta por grupo de posibles duplicados (transacciones con la misma huella), con las
+ * acciones para quedarse con una sola o marcar el grupo como legítimo.
+ */
+public class DuplicateGroupAdapter extends RecyclerView.Adapter<DuplicateGroupAdapter.DuplicateGroupViewHolder> {
+
+    public interface OnGroupActionListener {
+        void onKeepOne(List<Transaction> group);
+        void onDismiss(List<Transaction> group);
+    }
+
+    private final List<List<Transaction>> groups;
+    private final OnGroupActionListener actionListener;
+    private static final DecimalFormat DECIMAL_FORMAT = new DecimalFormat("#,##0.00");
+
+    public DuplicateGroupAdapter(List<List<Transaction>> groups, OnGroupActionListener actionListener) {
+        this.groups = groups;
+        this.actionListener = actionListener;
+    }
+
+    @NonNull
+    @Override
+    public DuplicateGroupViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_duplicate_group, parent, false);
+        return new DuplicateGroupViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull DuplicateGroupViewHolder holder, int position) {
+        List<Transaction> group = groups.get(position);
+        Transaction first = group.get(0);
+        String description = first.getDescription();
+        holder.descriptionTextView.setText(description == null || description.isEmpty() ? "(sin descripción)" : description);
+        holder.detailTextView.setText(first.getDate() + " · " + first.getCategory().getName() + " · $ " +
+                DECIMAL_FORMAT.format(first.getAmount()));
+        holder.countTextView.setText("Cargada " + group.size() + " veces");
+        holder.keepOneButton.setOnClickListener(v -> actionListener.onKeepOne(group));
+        holder.dismissButton.setOnClickListener(v -> actionListener.onDismiss(group));
+    }
+
+    @Override
+    public int getItemCount() {
+        return groups.size();
+    }
+
+    static class DuplicateGroupViewHolder extends RecyclerView.ViewHolder {
+        TextView descriptionTextView;
+        TextView detailTextView;
+        TextView countTextView;
+        Button keepOneButton;
+        Button dismissButton;
+
+        DuplicateGroupViewHolder(@NonNull View itemView) {
+            super(itemView);
+            descriptionTextView = itemView.findViewById(R.id.textView_duplicate_description);
+            detailTextView = itemView.findViewById(R.id.textView_duplicate_detail);
+            countTextView = itemView.findViewById(R.id.textView_duplicate_count);
+            keepOneButton = itemView.findViewById(R.id.button_duplicate_keep_one);
+            dismissButton = itemView.findViewById(R.id.button_duplicate_dismiss);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.misgastosam;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.activity.EdgeToEdge;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.graphics.Insets;
+import androidx.core.view.ViewCompat;
+import androidx.core.view.WindowInsetsCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Revisión de posibles duplicados: transacciones con la misma fecha, monto, descripción y
+ * categoría (ver {@link TransactionFingerprint}). Cada grupo se resuelve dejando una sola
+ * (la primera que se cargó) o marcándolo como legítimo, y en ese caso no se vuelve a mostrar.
+ */
+public class DuplicatesActivity extends AppCompatActivity implements DuplicateGroupAdapter.OnGroupActionListener {
+
+    private TextView summaryTextView;
+    private DuplicateGroupAdapter adapter;
+    private final List<List<Transaction>> groups = new ArrayList<>();
+
+    private DatabaseHelper dbHelper;
+    private final ExecutorService dbExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        EdgeToEdge.enable(this);
+        setContentView(R.layout.activity_duplicates);
+
+        ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
+            Insets systemBars = insets.getInsets(WindowInsetsCompat.Type.systemBars());
+            v.setPadding(systemBars.left, systemBars.top, systemBars.right, systemBars.bottom);
+            return insets;
+        });
+
+        dbHelper = DatabaseHelper.getInstance(this);
+        summaryTextView = findViewById(R.id.textView_duplicates_summary);
+        RecyclerView recyclerView = findViewById(R.id.recyclerView_duplicates);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        adapter = new DuplicateGroupAdapter(groups, this);
+        recyclerView.setAdapter(adapter);
+
+        loadGroups();
+    }
+
+    private void loadGroups() {
+        dbExecutor.execute(() -> {
+            List<List<Transaction>> loaded = dbHelper.getSuspectedDuplicates();
+            mainHandler.post(() -> {
+                if (isFinishing()) {
+                    return;
+                }
+                groups.clear();
+                groups.addAll(loaded);
+                adapter.notifyDataSetChanged();
+                updateSummary();
+            });
+        });
+    }
+
+    private void updateSummary() {
+        summaryTextView.setText(groups.isEmpty() ? "No hay transacciones repetidas."
+                : groups.size() + " grupos de transacciones con la misma fecha, monto, descripción y categoría.");
+    }
+
+    @Override
+    public void onKeepOne(List<Transaction> group) {
+        // La primera del grupo es la que se cargó antes: se borran las demás
+        int[] ids = new int[group.size() - 1];
+        for (int i = 1; i < group.size(); i++) {
+            ids[i - 1] = group.get(i).getId();
+        }
+        dbExecutor.execute(() -> {
+            int deleted = dbHelper.deleteTransactions(ids);
+            mainHandler.post(() -> {
+                Toast.makeText(this, deleted + " transacciones eliminadas", Toast.LENGTH_SHORT).show();
+                removeGroup(group);
+            });
+        });
+    }
+
+    @Override
+    public void onDismiss(List<Transaction> group) {
+        dbExecutor.execute(() -> {
+            dbHelper.dismissDuplicate(group.get(0));
+            mainHandler.post(() -> removeGroup(group));
+        });
+    }
+
+    private void removeGroup(List<Transaction> group) {
+        if (isFinishing()) {
+            return;
+        }
+        int position = groups.indexOf(group);
+        if (position >= 0) {
+            groups.remove(position);
+            adapter.notifyItemRemoved(position);
+        }
+        updateSummary();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        dbExecutor.shutdown();
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.misgastosam;
+
+/**
+ * Conversión entre fechas "yyyy-MM-dd" (el formato guardado en la DB) y días desde 1970-01-01.
+ * java.time.LocalDate necesita API 26 y minSdk es 24, así que se usa el algoritmo civil
+ * de H. Hinnant: sin objetos, sin Calendar y sin zonas horarias.
+ */
+public final class EpochDay {
+
+    private EpochDay() {
+    }
+
+    /**
+     * @param isoDate Fecha "yyyy-MM-dd" (se ignora cualquier sufijo, ej. una hora).
+     * @return Días desde 1970-01-01.
+     */
+    public static int fromIsoDate(String isoDate) {
+        int year = digits(isoDate, 0, 4);
+        int month = digits(isoDate, 5, 7);
+        int day = digits(isoDate, 8, 10);
+        return fromCivil(year, month, day);
+    }
+
+    public static int fromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * @return La fecha "yyyy-MM-dd" correspondiente al día indicado.
+     */
+    public static String toIsoDate(int epochDay) {
+        int civil = toCivil(epochDay);
+        int year = civil / 10000;
+        int month = (civil / 100) % 100;
+        int day = civil % 100;
+        char[] out = new char[10];
+        out[0] = (char) ('0' + year / 1000 % 10);
+        out[1] = (char) ('0' + year / 100 % 10);
+        out[2] = (char) ('0' + year / 10 % 10);
+        out[3] = (char) ('0' + year % 10);
+        out[4] = '-';
+        out[5] = (char) ('0' + month / 10);
+        out[6] = (char) ('0' + month % 10);
+        out[7] = '-';
+        out[8] = (char) ('0' + day / 10);
+        out[9] = (char) ('0' + day % 10);
+        return new String(out);
+    }
+
+    /**
+     * @return Día de la semana, 0 = lunes ... 6 = domingo (1970-01-01 fue jueves).
+     */
+    public static int dayOfWeek(int epochDay) {
+        return Math.floorMod(epochDay + 3, 7);
+    }
+
+    /**
+     * @return La fecha empaquetada como yyyyMMdd (ej. 20250614).
+     */
+    public static int toCivil(int epochDay) {
+        int z = epochDay + 719468;
+        int era = (z >= 0 ? z : z - 146096) / 146097;
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 10000 + month * 100 + day;
+    }
+
+    /**
+     * Primer día del mes "yyyy-MM".
+     */
+    public static int firstDayOfMonth(String monthYear) {
+        return fromCivil(digits(monthYear, 0, 4), digits(monthYear, 5, 7), 1);
+    }
+
+    /**
+     * Último día del mes "yyyy-MM".
+     */
+    public static int lastDayOfMonth(String monthYear) {
+        int year = digits(monthYear, 0, 4);
+        int month = digits(monthYear, 5, 7);
+        return month == 12 ? fromCivil(year + 1, 1, 1) - 1 : fromCivil(year, month + 1, 1) - 1;
+    }
+
+    private static int digits(String s, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("Fecha no válida: " + s);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.misgastosam;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.TextView;
+
+import androidx.activity.EdgeToEdge;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.graphics.Insets;
+import androidx.core.view.ViewCompat;
+import androidx.core.view.WindowInsetsCompat;
+
+import java.text.DecimalFormat;
+import java.util.Calendar;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Calendario de gastos de un año. Los totales salen de la tabla daily_totals (como mucho
+ * 366 filas por año) y se cargan fuera del hilo principal.
+ */
+public class HeatmapActivity extends AppCompatActivity {
+
+    private CalendarHeatmapView heatmapView;
+    private TextView yearTextView;
+    private TextView yearTotalTextView;
+    private TextView dayTextView;
+
+    private DatabaseHelper dbHelper;
+    private int currentYear;
+    private final DecimalFormat decimalFormat = new DecimalFormat("#,##0.00");
+
+    private final ExecutorService dbExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        EdgeToEdge.enable(this);
+        setContentView(R.layout.activity_heatmap);
+
+        ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
+            Insets systemBars = insets.getInsets(WindowInsetsCompat.Type.systemBars());
+            v.setPadding(systemBars.left, systemBars.top, systemBars.right, systemBars.bottom);
+            return insets;
+        });
+
+        dbHelper = DatabaseHelper.getInstance(this);
+
+        heatmapView = findViewById(R.id.heatmap_view);
+        yearTextView = findViewById(R.id.textView_heatmap_year);
+        yearTotalTextView = findViewById(R.id.textView_heatmap_year_total);
+        dayTextView = findViewById(R.id.textView_heatmap_day);
+
+        findViewById(R.id.button_heatmap_previous).setOnClickListener(v -> loadYear(currentYear - 1));
+        findViewById(R.id.button_heatmap_next).setOnClickListener(v -> loadYear(currentYear + 1));
+        heatmapView.setOnDayClickListener((epochDay, expenseCents, incomeCents, transactionCount) ->
+                dayTextView.setText(EpochDay.toIsoDate(epochDay) + ": gastos $" + decimalFormat.format(expenseCents / 100.0) +
+                        ", ingresos $" + decimalFormat.format(incomeCents / 100.0) + " (" + transactionCount + " transacciones)"));
+
+        loadYear(Calendar.getInstance().get(Calendar.YEAR));
+    }
+
+    private void loadYear(int year) {
+        currentYear = year;
+        yearTextView.setText(String.valueOf(year));
+        dbExecutor.execute(() -> {
+            DailyTotals totals = dbHelper.getDailyTotals(year + "-01-01", year + "-12-31");
+            long yearExpenseCents = 0;
+            for (int i = 0; i < totals.getDayCount(); i++) {
+                yearExpenseCents += totals.getExpenseCents(i);
+            }
+            long total = yearExpenseCents;
+            mainHandler.post(() -> {
+                if (year != currentYear || isFinishing()) {
+                    return; // Ya se pidió otro año
+                }
+                heatmapView.setData(totals);
+                yearTotalTextView.setText("Gastos del año: $" + decimalFormat.format(total / 100.0));
+                dayTextView.setText("Tocá un día para ver su detalle");
+            });
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        dbExecutor.shutdown();
+    }
+}
@@ -5,15 +5,19 @@ import android.content.DialogInterface;
 import android.content.Intent;
 import android.graphics.Color;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.InputType;
 import android.text.TextUtils;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
+import android.widget.Button;
 import android.widget.EditText;
 import android.widget.ImageButton;
 import android.widget.ImageView;
+import android.widget.LinearLayout;
 import android.widget.RadioButton;
 import android.widget.RadioGroup;
 import android.widget.Spinner;
@@ -21,6 +25,7 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
@@ -31,25 +36,32 @@ import androidx.recyclerview.widget.RecyclerView;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class HistoryActivity extends AppCompatActivity implements TransactionAdapter.OnItemActionListener {
 
     private RecyclerView recyclerViewTransactions;
     private TransactionAdapter transactionAdapter;
     private DatabaseHelper dbHelper;
+    private TransactionQueryCache queryCache;
+    private TransactionWriteQueue writeQueue;
     private List<Transaction> transactionList; // Lista de objetos Transaction
 
     private Spinner spinnerMonthFilter;
     private Spinner spinnerTypeFilter;
     private Spinner spinnerCategoryFilter;
 
-    // Estos guardarán los valores REALES para el filtro (YYYY-MM, Category.TYPE_EXPENSE, Nombre de Categoría)
+    // Estos guardarán los valores REALES para el filtro (YYYY-MM, Category.TYPE_EXPENSE, _id de la categoría)
     private String currentSelectedMonthYearFilter;
     private String currentSelectedTypeFilter;
-    private String currentSelectedCategoryNameFilter; // Solo el nombre de la categoría, no el formato (Tipo)
+    private int currentSelectedCategoryIdFilter = NO_CATEGORY_FILTER;
 
     // Constantes para los textos de display en los Spinners
     private static final String DISPLAY_TYPE_ALL = "Todos los tipos";
@@ -57,9 +69,46 @@ public class HistoryActivity extends AppCompatActivity implements TransactionAda
     private static final String DISPLAY_TYPE_INCOME = "Ingreso";
     private static final String DISPLAY_TYPE_MONTH_ALL = "Todos los meses";
     private static final String DISPLAY_CATEGORY_ALL = "Todas las categorias";
+    private static final int NO_CATEGORY_FILTER = -1;
 
     // Lista de categorías para el spinner, almacenando objetos Category
     private List<Category> allCategoriesForSpinner;
+    // Meses del spinner (YYYY-MM): la posición i (> 0) es months.get(i - 1)
+    private List<String> months;
+
+    // Textos de los spinners; se reescriben con la cantidad de transacciones de cada opción
+    private final List<String> monthLabels = new ArrayList<>();
+    private final List<String> typeLabels = new ArrayList<>();
+    private final List<String> categoryLabels = new ArrayList<>();
+
+    // Bitsets por mes, tipo y categoría sobre la lista completa; mientras no esté armado (o esté
+    // viejo por una escritura) los filtros van a la caché de consultas
+    private TransactionFilterIndex filterIndex;
+    private boolean filterIndexLoading;
+
+    // Barra de acciones para la selección múltiple
+    private LinearLayout selectionBar;
+    private TextView selectionCountTextView;
+    private TextView duplicatesBannerTextView;
+
+    // Filtro por etiquetas: vacío = sin filtro. Las filas que lo cumplen las resuelve TagIndex
+    // y se cruzan en memoria con las que devuelven los filtros de mes, tipo y categoría
+    private TextView tagFilterTextView;
+    private List<Tag> selectedTags = new ArrayList<>();
+    private boolean tagFilterMatchAll = true;
+    private RoaringBitmap tagFilterRows; // null = sin filtro de etiquetas
+
+    // Las operaciones masivas se ejecutan fuera del hilo principal
+    private final ExecutorService dbExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Cambia con cada recarga completa de la lista; una edición que se deshace después de una
+    // recarga ya no puede tocar la lista nueva por posición
+    private int listGeneration;
+    // Cambia con cada pedido de carga; una consulta en segundo plano que ya no es la última se descarta
+    private int loadRequest;
+    // Medición de fluidez del historial (solo si está activada en el menú de depuración)
+    private JankMonitor.Session jankSession;
 
 
     @Override
@@ -74,7 +123,9 @@ public class HistoryActivity extends AppCompatActivity implements TransactionAda
             return insets;
         });
 
-        dbHelper = new DatabaseHelper(this);
+        dbHelper = DatabaseHelper.getInstance(this);
+        queryCache = TransactionQueryCache.getInstance(dbHelper);
+        writeQueue = TransactionWriteQueue.getInstance(this);
 
         transactionList = new ArrayList<>();
         recyclerViewTransactions = findViewById(R.id.recyclerView_transactions);
@@ -83,6 +134,19 @@ public class HistoryActivity extends AppCompatActivity implements TransactionAda
         // Inicializar el adaptador con la lista de transacciones y el listener de acciones
         transactionAdapter = new TransactionAdapter(this, transactionList, this);
         recyclerViewTransactions.setAdapter(transactionAdapter);
+        // Encabezado del mes visible fijo arriba de la lista
+        recyclerViewTransactions.addItemDecoration(new StickyMonthHeaderDecoration(transactionAdapter));
+
+        selectionBar = findViewById(R.id.linearLayout_selection_bar);
+        selectionCountTextView = findViewById(R.id.textView_selection_count);
+        findViewById(R.id.button_bulk_delete).setOnClickListener(v -> confirmBulkDelete());
+        findViewById(R.id.button_bulk_category).setOnClickListener(v -> showBulkRecategorizeDialog());
+        findViewById(R.id.button_bulk_date).setOnClickListener(v -> showBulkDateShiftDialog());
+        findViewById(R.id.button_clear_selection).setOnClickListener(v -> transactionAdapter.clearSelection());
+        duplicatesBannerTextView = findViewById(R.id.textView_duplicates_banner);
+        duplicatesBannerTextView.setOnClickListener(v -> startActivity(new Intent(this, DuplicatesActivity.class)));
+        tagFilterTextView = findViewById(R.id.textView_tag_filter);
+        tagFilterTextView.setOnClickListener(v -> showTagFilterDialog());
 
         spinnerMonthFilter = findViewById(R.id.spinner_month_filter);
         spinnerTypeFilter = findViewById(R.id.spinner_type_filter);
@@ -126,7 +190,7 @@ public class HistoryActivity extends AppCompatActivity implements TransactionAda
         // Inicializar los filtros a sus estados por defecto (todos)
         currentSelectedMonthYearFilter = null;
         currentSelectedTypeFilter = null;
-        currentSelectedCategoryNameFilter = null;
+        currentSelectedCategoryIdFilter = NO_CATEGORY_FILTER;
 
         applyFilters(); // Cargar transacciones inicialmente con todos los filtros
     }
@@ -135,13 +199,13 @@ public class HistoryActivity extends AppCompatActivity implements TransactionAda
      * Configura el spinner de meses con los meses que tienen transacciones.
      */
     private void setupMonthSpinner() {
-        List<String> months = dbHelper.getMonthsWithTransactions(); // Obtiene YYYY-MM
-        List<String> displayMonths = new ArrayList<>();
-        displayMonths.add(DISPLAY_TYPE_MONTH_ALL); // Añade la opción "Todos los meses"
-        displayMonths.addAll(months); // Añade los meses reales
+        months = dbHelper.getMonthsWithTransactions(); // Obtiene YYYY-MM
+        monthLabels.clear();
+        monthLabels.add(DISPLAY_TYPE_MONTH_ALL); // Añade la opción "Todos los meses"
+        monthLabels.addAll(months); // Añade los meses reales
 
         ArrayAdapter<String> adapter = new ArrayAdapter<>(this,
-                android.R.layout.simple_spinner_item, displayMonths);
+                android.R.layout.simple_spinner_item, monthLabels);
         adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         spinnerMonthFilter.setAdapter(adapter);
     }
@@ -150,13 +214,13 @@ public class HistoryActivity extends AppCompatActivity implements TransactionAda
      * Configura el spinner de tipos de transacción (Gasto/Ingreso).
      */
     private void setupTypeSpinner() {
-        List<String> types = new ArrayList<>();
-        types.add(DISPLAY_TYPE_ALL); // Opción "Todos los tipos"
-        types.add(DISPLAY_TYPE_EXPENSE); // "Gasto"
-        types.add(DISPLAY_TYPE_INCOME);  // "Ingreso"
+        typeLabels.clear();
+        typeLabels.add(DISPLAY_TYPE_ALL); // Opción "Todos los tipos"
+        typeLabels.add(DISPLAY_TYPE_EXPENSE); // "Gasto"
+        typeLabels.add(DISPLAY_TYPE_INCOME);  // "Ingreso"
 
         ArrayAdapter<String> adapter = new ArrayAdapter<>(this,
-                android.R.layout.simple_spinner_item, types);
+                android.R.layout.simple_spinner_item, typeLabels);
         adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         spinnerTypeFilter.setAdapter(adapter);
     }
@@ -169,86 +233,272 @@ public class HistoryActivity extends AppCompatActivity implements TransactionAda
         // Obtener la lista de objetos Category de la base de datos
         allCategoriesForSpinner = dbHelper.getAllCategories(null);
 
-        // Crear una lista de Strings para el adaptador del Spinner
-        List<String> categoryDisplayNames = new ArrayList<>();
-        categoryDisplayNames.add(DISPLAY_CATEGORY_ALL); // Opción "Todas las categorias"
+        // Crear una lista de Strings para el adaptador del Spinner. La posición i (> 0)
+        // corresponde a allCategoriesForSpinner.get(i - 1): el texto solo se usa para mostrar
+        categoryLabels.clear();
+        categoryLabels.add(DISPLAY_CATEGORY_ALL); // Opción "Todas las categorias"
 
         // Convertir cada objeto Category a su representación String (ej. "Nombre (Tipo)")
         for (Category cat : allCategoriesForSpinner) {
-            categoryDisplayNames.add(cat.toString());
+            categoryLabels.add(cat.toString());
         }
 
         ArrayAdapter<String> adapter = new ArrayAdapter<>(this,
-                android.R.layout.simple_spinner_item, categoryDisplayNames);
+                android.R.layout.simple_spinner_item, categoryLabels);
         adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         spinnerCategoryFilter.setAdapter(adapter);
 
         // Seleccionar "Todas las categorias" por defecto al iniciar
-        if (currentSelectedCategoryNameFilter == null) {
+        if (currentSelectedCategoryIdFilter == NO_CATEGORY_FILTER) {
             spinnerCategoryFilter.setSelection(0);
         }
     }
 
     /**
-     * Carga las transacciones de la base de datos aplicando los filtros seleccionados.
+     * Carga las transacciones aplicando los filtros seleccionados. Con el índice de filtros
+     * vigente se resuelven en memoria; si no, salen de la caché de consultas o de una consulta en
+     * segundo plano (nunca en el hilo principal), y el índice se arma para los próximos cambios.
      */
     private void loadTransactions() {
-        List<Transaction> transactions = dbHelper.getTransactions(
-                currentSelectedCategoryNameFilter,
-                currentSelectedMonthYearFilter,
-                currentSelectedTypeFilter
-        );
+        int request = ++loadRequest;
+        int categoryId = currentSelectedCategoryIdFilter;
+        String monthYear = currentSelectedMonthYearFilter;
+        String type = currentSelectedTypeFilter;
+        TransactionFilterIndex index = filterIndex;
+        if (index != null && index.getVersion() == dbHelper.getWriteVersion()) {
+            showTransactions(index.select(monthYear, type, categoryId));
+            return;
+        }
+        loadFilterIndex();
+        List<Transaction> cached = queryCache.getCached(categoryId, monthYear, type);
+        if (cached != null) {
+            showTransactions(cached);
+            prefetchAdjacentMonths();
+            return;
+        }
+        // Sin índice ni caché hay que consultar: fuera del hilo principal, como el índice
+        dbExecutor.execute(() -> {
+            List<Transaction> transactions = queryCache.getTransactions(categoryId, monthYear, type);
+            mainHandler.post(() -> {
+                if (isFinishing() || request != loadRequest) {
+                    return; // Cambiaron los filtros mientras tanto: ya hay otra carga en camino
+                }
+                showTransactions(transactions);
+                prefetchAdjacentMonths();
+            });
+        });
+    }
 
+    private void showTransactions(List<Transaction> transactions) {
+        transactionAdapter.clearSelection(); // Una recarga completa descarta la selección múltiple
+        listGeneration++;
         transactionList.clear();
-        transactionList.addAll(transactions);
+        if (tagFilterRows == null) {
+            transactionList.addAll(transactions);
+        } else {
+            // Intersección con las etiquetas: una búsqueda en el bitmap por fila, sin otra consulta
+            for (Transaction transaction : transactions) {
+                if (tagFilterRows.contains(transaction.getId())) {
+                    transactionList.add(transaction);
+                }
+            }
+        }
+
+        transactionAdapter.onTransactionsReloaded();
+        updateFilterCounts();
+    }
 
-        // *** AÑADE ESTE BUCLE PARA DEPURAR LOS IDs CARGADOS ***
-        for (Transaction t : transactionList) {
-            Log.d("HistoryActivity", "Transacción cargada: ID=" + t.getId() + ", Monto=" + t.getAmount() + ", Desc='" + t.getDescription() + "', Cat='" + (t.getCategory() != null ? t.getCategory().getName() : "N/A") + "'");
+    /**
+     * Arma el índice de filtros en segundo plano con la lista completa (de la caché si está) y,
+     * cuando termina, muestra las cantidades en los spinners.
+     */
+    private void loadFilterIndex() {
+        if (filterIndexLoading) {
+            return;
         }
-        // *** FIN DEL BUCLE DE DEPURACIÓN ***
+        filterIndexLoading = true;
+        dbExecutor.execute(() -> {
+            // La versión se lee antes que la lista: una escritura en el medio deja el índice viejo, no equivocado
+            long version = dbHelper.getWriteVersion();
+            TransactionFilterIndex index = new TransactionFilterIndex(
+                    queryCache.getTransactions(TransactionFilterIndex.ALL_CATEGORIES, null, null), version);
+            mainHandler.post(() -> {
+                filterIndexLoading = false;
+                if (isFinishing()) {
+                    return;
+                }
+                filterIndex = index;
+                updateFilterCounts();
+            });
+        });
+    }
 
-        transactionAdapter.notifyDataSetChanged();
+    /**
+     * Agrega a cada opción de los spinners cuántas transacciones quedarían al elegirla, con los
+     * otros dos filtros como están (ej. "Comida (Gasto) — 412"). Cada número es un AND de bitsets
+     * y un bitCount; no cuenta el filtro de etiquetas.
+     */
+    private void updateFilterCounts() {
+        TransactionFilterIndex index = filterIndex;
+        if (index == null || index.getVersion() != dbHelper.getWriteVersion()) {
+            return; // Se actualizan cuando termine de armarse el índice nuevo
+        }
+        String month = currentSelectedMonthYearFilter;
+        String type = currentSelectedTypeFilter;
+        int categoryId = currentSelectedCategoryIdFilter;
+
+        monthLabels.set(0, withCount(DISPLAY_TYPE_MONTH_ALL, index.count(null, type, categoryId)));
+        for (int i = 0; i < months.size(); i++) {
+            monthLabels.set(i + 1, withCount(months.get(i), index.count(months.get(i), type, categoryId)));
+        }
+        typeLabels.set(0, withCount(DISPLAY_TYPE_ALL, index.count(month, null, categoryId)));
+        typeLabels.set(1, withCount(DISPLAY_TYPE_EXPENSE, index.count(month, Category.TYPE_EXPENSE, categoryId)));
+        typeLabels.set(2, withCount(DISPLAY_TYPE_INCOME, index.count(month, Category.TYPE_INCOME, categoryId)));
+        categoryLabels.set(0, withCount(DISPLAY_CATEGORY_ALL, index.count(month, type, NO_CATEGORY_FILTER)));
+        for (int i = 0; i < allCategoriesForSpinner.size(); i++) {
+            Category category = allCategoriesForSpinner.get(i);
+            categoryLabels.set(i + 1, withCount(category.toString(), index.count(month, type, category.getId())));
+        }
+        // Cambian los textos, no las posiciones: la selección y sus listeners no se tocan
+        ((ArrayAdapter<?>) spinnerMonthFilter.getAdapter()).notifyDataSetChanged();
+        ((ArrayAdapter<?>) spinnerTypeFilter.getAdapter()).notifyDataSetChanged();
+        ((ArrayAdapter<?>) spinnerCategoryFilter.getAdapter()).notifyDataSetChanged();
+    }
+
+    private static String withCount(String label, int count) {
+        return label + " — " + count;
+    }
+
+    /**
+     * Precarga en segundo plano los meses vecinos del seleccionado (con los mismos filtros de
+     * tipo y categoría), que es a donde suele moverse el usuario.
+     */
+    private void prefetchAdjacentMonths() {
+        int position = spinnerMonthFilter.getSelectedItemPosition();
+        if (position <= 0) {
+            return; // "Todos los meses" no tiene vecinos
+        }
+        // Posición 0 es "Todos los meses"; los meses van del más reciente al más antiguo
+        if (position > 1) {
+            queryCache.prefetch(currentSelectedCategoryIdFilter, months.get(position - 2), currentSelectedTypeFilter);
+        }
+        if (position + 1 < spinnerMonthFilter.getCount()) {
+            queryCache.prefetch(currentSelectedCategoryIdFilter, months.get(position), currentSelectedTypeFilter);
+        }
     }
 
     /**
      * Obtiene los valores de los spinners y actualiza los filtros para la carga de transacciones.
      */
     private void applyFilters() {
-        // Manejar filtro de mes
-        String selectedMonthDisplay = spinnerMonthFilter.getSelectedItem().toString();
-        if (selectedMonthDisplay.equals(DISPLAY_TYPE_MONTH_ALL)) {
+        // Manejar filtro de mes (por posición: 0 es "Todos los meses"; los textos llevan la cantidad)
+        int selectedMonthPosition = spinnerMonthFilter.getSelectedItemPosition();
+        if (selectedMonthPosition <= 0 || selectedMonthPosition > months.size()) {
             currentSelectedMonthYearFilter = null; // Sin filtro de mes
         } else {
-            currentSelectedMonthYearFilter = selectedMonthDisplay; // "YYYY-MM"
+            currentSelectedMonthYearFilter = months.get(selectedMonthPosition - 1); // "YYYY-MM"
         }
 
-        // Manejar filtro de tipo (Gasto/Ingreso)
-        String selectedTypeDisplay = spinnerTypeFilter.getSelectedItem().toString();
-        if (selectedTypeDisplay.equals(DISPLAY_TYPE_ALL)) {
-            currentSelectedTypeFilter = null; // Sin filtro de tipo
-        } else if (selectedTypeDisplay.equals(DISPLAY_TYPE_EXPENSE)) {
+        // Manejar filtro de tipo (por posición: Todos / Gasto / Ingreso, como en setupTypeSpinner)
+        int selectedTypePosition = spinnerTypeFilter.getSelectedItemPosition();
+        if (selectedTypePosition == 1) {
             currentSelectedTypeFilter = Category.TYPE_EXPENSE; // Usar la constante de la DB
-        } else if (selectedTypeDisplay.equals(DISPLAY_TYPE_INCOME)) {
+        } else if (selectedTypePosition == 2) {
             currentSelectedTypeFilter = Category.TYPE_INCOME; // Usar la constante de la DB
+        } else {
+            currentSelectedTypeFilter = null; // Sin filtro de tipo
         }
 
-        // Manejar filtro de categoría
-        String selectedCategoryDisplay = spinnerCategoryFilter.getSelectedItem().toString();
-        if (selectedCategoryDisplay.equals(DISPLAY_CATEGORY_ALL)) {
-            currentSelectedCategoryNameFilter = null; // Sin filtro de categoría
+        // Manejar filtro de categoría (por posición: 0 es "Todas las categorias")
+        int selectedCategoryPosition = spinnerCategoryFilter.getSelectedItemPosition();
+        if (selectedCategoryPosition <= 0 || selectedCategoryPosition > allCategoriesForSpinner.size()) {
+            currentSelectedCategoryIdFilter = NO_CATEGORY_FILTER; // Sin filtro de categoría
         } else {
-            // Extraer solo el nombre de la categoría del String "Nombre (Tipo)"
-            int lastParenIndex = selectedCategoryDisplay.lastIndexOf(" (");
-            if (lastParenIndex != -1) {
-                currentSelectedCategoryNameFilter = selectedCategoryDisplay.substring(0, lastParenIndex);
-            } else {
-                currentSelectedCategoryNameFilter = selectedCategoryDisplay; // Si no tiene el formato (Tipo)
-            }
+            currentSelectedCategoryIdFilter = allCategoriesForSpinner.get(selectedCategoryPosition - 1).getId();
         }
         loadTransactions(); // Recargar las transacciones con los nuevos filtros
     }
 
+    /**
+     * Elige las etiquetas del filtro: "Todas" deja las transacciones que tienen todas las marcadas
+     * y "Alguna" las que tienen al menos una.
+     */
+    private void showTagFilterDialog() {
+        dbExecutor.execute(() -> {
+            List<Tag> tags = dbHelper.getAllTags();
+            mainHandler.post(() -> {
+                if (isFinishing()) {
+                    return;
+                }
+                if (tags.isEmpty()) {
+                    Toast.makeText(this, "Todavía no hay etiquetas. Agregalas al cargar o editar una transacción.", Toast.LENGTH_LONG).show();
+                    return;
+                }
+                String[] names = new String[tags.size()];
+                boolean[] checked = new boolean[tags.size()];
+                for (int i = 0; i < tags.size(); i++) {
+                    names[i] = tags.get(i).getName();
+                    for (Tag selected : selectedTags) {
+                        checked[i] |= selected.getId() == tags.get(i).getId();
+                    }
+                }
+                new AlertDialog.Builder(this)
+                        .setTitle("Filtrar por etiquetas")
+                        .setMultiChoiceItems(names, checked, (dialog, which, isChecked) -> checked[which] = isChecked)
+                        .setPositiveButton("Todas", (dialog, which) -> setTagFilter(tags, checked, true))
+                        .setNeutralButton("Alguna", (dialog, which) -> setTagFilter(tags, checked, false))
+                        .setNegativeButton("Quitar filtro", (dialog, which) -> setTagFilter(tags, new boolean[tags.size()], true))
+                        .show();
+            });
+        });
+    }
+
+    private void setTagFilter(List<Tag> tags, boolean[] checked, boolean matchAll) {
+        List<Tag> chosen = new ArrayList<>();
+        for (int i = 0; i < tags.size(); i++) {
+            if (checked[i]) {
+                chosen.add(tags.get(i));
+            }
+        }
+        selectedTags = chosen;
+        tagFilterMatchAll = matchAll;
+        List<String> names = new ArrayList<>();
+        for (Tag tag : chosen) {
+            names.add(tag.getName());
+        }
+        tagFilterTextView.setText(chosen.isEmpty() ? "Etiquetas: sin filtro"
+                : "Etiquetas: " + TextUtils.join(matchAll ? " y " : " o ", names));
+        refreshTagFilter();
+    }
+
+    /**
+     * Vuelve a resolver el filtro de etiquetas (al cambiarlo o al cambiar las etiquetas de una
+     * transacción) y recarga la lista.
+     */
+    private void refreshTagFilter() {
+        List<Tag> chosen = selectedTags;
+        if (chosen.isEmpty()) {
+            tagFilterRows = null;
+            applyFilters();
+            return;
+        }
+        boolean matchAll = tagFilterMatchAll;
+        List<Integer> tagIds = new ArrayList<>();
+        for (Tag tag : chosen) {
+            tagIds.add(tag.getId());
+        }
+        dbExecutor.execute(() -> {
+            RoaringBitmap rows = dbHelper.getTagIndex().match(tagIds, matchAll);
+            mainHandler.post(() -> {
+                if (isFinishing() || chosen != selectedTags || matchAll != tagFilterMatchAll) {
+                    return; // El filtro cambió mientras tanto
+                }
+                tagFilterRows = rows;
+                applyFilters();
+            });
+        });
+    }
+
     /**
      * Muestra un diálogo para editar una transacción.
      * @param transaction El objeto Transaction a editar.
@@ -265,6 +515,7 @@ public class HistoryActivity extends AppCompatActivity implements TransactionAda
         RadioGroup rgType = dialogView.findViewById(R.id.edit_dialog_type_group);
         RadioButton rbExpense = dialogView.findViewById(R.id.edit_dialog_radio_expense);
         RadioButton rbIncome = dialogView.findViewById(R.id.edit_dialog_radio_income);
+        EditText etTags = dialogView.findViewById(R.id.edit_dialog_tags);
 
         rbExpense.setText(DISPLAY_TYPE_EXPENSE);
         rbIncome.setText(DISPLAY_TYPE_INCOME);
@@ -272,26 +523,32 @@ public class HistoryActivity extends AppCompatActivity implements TransactionAda
         etAmount.setText(String.valueOf(Math.abs(transaction.getAmount()))); // Mostrar el valor absoluto
         etDescription.setText(transaction.getDescription());
 
-        // Cargar categorías en el spinner del diálogo
-        List<Category> allCategoriesInDialog = dbHelper.getAllCategories(null);
-        List<String> categoryDisplayNamesInDialog = new ArrayList<>();
-        for (Category cat : allCategoriesInDialog) {
-            categoryDisplayNamesInDialog.add(cat.toString());
-        }
+        // Las etiquetas no vienen con la lista: se cargan aparte y el campo se habilita cuando llegan
+        List<String> loadedTags = new ArrayList<>();
+        etTags.setEnabled(false);
+        dbExecutor.execute(() -> {
+            List<String> names = dbHelper.getTagNames(transaction.getId());
+            mainHandler.post(() -> {
+                loadedTags.addAll(names);
+                etTags.setText(Tag.join(names));
+                etTags.setEnabled(true);
+            });
+        });
 
-        ArrayAdapter<String> categoryAdapterDialog = new ArrayAdapter<>(this,
-                android.R.layout.simple_spinner_item, categoryDisplayNamesInDialog);
+        // Cargar categorías en el spinner del diálogo: las mismas ya cargadas para el filtro,
+        // con un adaptador de objetos Category (ArrayAdapter muestra su toString())
+        List<Category> allCategoriesInDialog = allCategoriesForSpinner;
+        ArrayAdapter<Category> categoryAdapterDialog = new ArrayAdapter<>(this,
+                android.R.layout.simple_spinner_item, allCategoriesInDialog);
         categoryAdapterDialog.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         spCategory.setAdapter(categoryAdapterDialog);
 
-        // Seleccionar la categoría actual de la transacción en el spinner
-        int categoryPosition = -1;
-        if (transaction.getCategory() != null) {
-            // Buscar la posición de la categoría original en la lista formateada del spinner
-            categoryPosition = categoryDisplayNamesInDialog.indexOf(transaction.getCategory().toString());
-        }
-        if (categoryPosition != -1) {
-            spCategory.setSelection(categoryPosition);
+        // Seleccionar la categoría actual de la transacción en el spinner (por _id)
+        for (int i = 0; i < allCategoriesInDialog.size(); i++) {
+            if (allCategoriesInDialog.get(i).getId() == transaction.getCategoryId()) {
+                spCategory.setSelection(i);
+                break;
+            }
         }
 
         // Marcar el RadioButton según el tipo actual de la transacción (que se basa en la categoría)
@@ -308,6 +565,9 @@ public class HistoryActivity extends AppCompatActivity implements TransactionAda
         }
 
         // Listener para el spinner de categorías dentro del diálogo
+        // Una mitad de transferencia no cambia de categoría (ni se divide): dejaría de sumar cero con la otra
+        spCategory.setEnabled(!transaction.isTransfer());
+
         spCategory.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
@@ -333,7 +593,6 @@ public class HistoryActivity extends AppCompatActivity implements TransactionAda
                 .setPositiveButton("Guardar", (dialog, id) -> {
                     String newAmountStr = etAmount.getText().toString().trim();
                     String newDescription = etDescription.getText().toString().trim();
-                    String selectedCategoryDisplayString = spCategory.getSelectedItem().toString(); // "Nombre (Tipo)"
 
                     if (TextUtils.isEmpty(newAmountStr)) {
                         Toast.makeText(this, "El monto no puede estar vacío.", Toast.LENGTH_SHORT).show();
@@ -344,13 +603,17 @@ public class HistoryActivity extends AppCompatActivity implements TransactionAda
                     //    return;
                     //}
 
-                    // --- CAMBIO CLAVE: Obtener el objeto Category a partir del string del spinner ---
-                    Category newCategoryObject = dbHelper.getCategoryByNameAndType(selectedCategoryDisplayString);
+                    // El spinner guarda los objetos Category: la selección ya es la categoría, sin consultar la DB
+                    Category newCategoryObject = (Category) spCategory.getSelectedItem();
                     if (newCategoryObject == null) {
                         Toast.makeText(this, "Error: Categoría seleccionada no válida.", Toast.LENGTH_SHORT).show();
                         return;
                     }
-                    // --- FIN CAMBIO CLAVE ---
+
+                    List<String> newTags = Tag.parse(etTags.getText().toString());
+                    if (etTags.isEnabled() && !newTags.equals(loadedTags)) {
+                        saveTags(transaction, newTags);
+                    }
 
                     double newAmount = Double.parseDouble(newAmountStr);
                     // El tipo de la transacción se define por el tipo de la nueva categoría seleccionada
@@ -362,26 +625,204 @@ public class HistoryActivity extends AppCompatActivity implements TransactionAda
                         newAmount = Math.abs(newAmount); // Asegura que el monto sea positivo si es ingreso
                     }
 
-                    // Actualizar el objeto Transaction
+                    // Actualizar el objeto Transaction y la lista ya mismo; se guarda en segundo plano
+                    // y, si falla, se vuelve a los valores anteriores
+                    double oldAmount = transaction.getAmount();
+                    String oldDescription = transaction.getDescription();
+                    Category oldCategory = transaction.getCategory();
+                    List<TransactionSplit> oldSplits = transaction.getSplits();
+                    if (oldSplits != null && (newAmount != oldAmount || newCategoryObject.getId() != oldCategory.getId())) {
+                        transaction.setSplits(null); // Con otro monto o categoría deja de estar dividida (ver DatabaseHelper.collapseChangedSplit)
+                    }
                     transaction.setAmount(newAmount);
                     transaction.setDescription(newDescription);
-                    transaction.setCategory(newCategoryObject); // <-- Actualizar el objeto Category
-                    transaction.setType(newType); // Actualizar el tipo de la transacción
+                    transaction.setCategory(newCategoryObject); // <-- Actualizar el objeto Category (define también el tipo)
 
-                    boolean success = dbHelper.updateTransaction(transaction);
-                    if (success) {
-                        Toast.makeText(this, "Transacción actualizada", Toast.LENGTH_SHORT).show();
-                        applyFilters(); // Recargar transacciones después de la actualización
+                    int generation = listGeneration;
+                    Set<Integer> editedId = Collections.singleton(transaction.getId());
+                    boolean stillVisible = matchesCurrentFilters(transaction);
+                    if (stillVisible) {
+                        transactionAdapter.notifyTransactionsChanged(editedId);
                     } else {
-                        Toast.makeText(this, "Error al actualizar la transacción", Toast.LENGTH_SHORT).show();
+                        transactionAdapter.removeTransactionsById(editedId); // Ya no cumple los filtros
                     }
+
+                    writeQueue.enqueueUpdate(transaction, (success, updatedId) -> {
+                        if (success && transaction.isTransfer()) {
+                            applyFilters(); // También cambió la otra mitad de la transferencia
+                            return;
+                        }
+                        if (success) {
+                            refreshRunningBalances(); // El monto pudo cambiar
+                            return;
+                        }
+                        transaction.setAmount(oldAmount);
+                        transaction.setDescription(oldDescription);
+                        transaction.setCategory(oldCategory);
+                        transaction.setSplits(oldSplits);
+                        if (generation != listGeneration) {
+                            applyFilters(); // La lista se recargó mientras tanto
+                        } else if (stillVisible) {
+                            transactionAdapter.notifyTransactionsChanged(editedId);
+                        } else {
+                            transactionAdapter.restoreTransaction(transaction);
+                        }
+                        Toast.makeText(this, "Error al actualizar la transacción", Toast.LENGTH_SHORT).show();
+                    });
                 })
                 .setNegativeButton("Cancelar", (dialog, id) -> dialog.cancel());
+        if (!transaction.isTransfer()) {
+            builder.setNeutralButton("Dividir", (dialog, id) -> showSplitDialog(transaction));
+        }
 
         AlertDialog dialog = builder.create();
         dialog.show();
     }
 
+    private void saveTags(Transaction transaction, List<String> tags) {
+        dbExecutor.execute(() -> {
+            boolean saved = dbHelper.setTransactionTags(transaction.getId(), tags);
+            mainHandler.post(() -> {
+                if (!saved) {
+                    Toast.makeText(this, "Error al guardar las etiquetas", Toast.LENGTH_SHORT).show();
+                } else if (!selectedTags.isEmpty()) {
+                    refreshTagFilter(); // Puede entrar o salir del filtro de etiquetas
+                }
+            });
+        });
+    }
+
+    /**
+     * Reparte el monto de una transacción entre varias categorías del mismo tipo (ej. un ticket
+     * del súper entre Comida, Limpieza y Farmacia). Las líneas tienen que sumar el monto exacto;
+     * dejar una sola línea con monto deshace la división.
+     */
+    private void showSplitDialog(Transaction transaction) {
+        List<Category> sameType = new ArrayList<>();
+        for (Category category : allCategoriesForSpinner) {
+            if (category.getType().equals(transaction.getType())) {
+                sameType.add(category);
+            }
+        }
+        double total = Math.abs(transaction.getAmount());
+        DecimalFormat decimalFormat = new DecimalFormat("#,##0.00");
+
+        LinearLayout layout = new LinearLayout(this);
+        layout.setOrientation(LinearLayout.VERTICAL);
+        layout.setPadding(50, 20, 50, 20);
+        TextView remainingText = new TextView(this);
+        layout.addView(remainingText);
+        LinearLayout rows = new LinearLayout(this);
+        rows.setOrientation(LinearLayout.VERTICAL);
+        layout.addView(rows);
+        List<Spinner> rowCategories = new ArrayList<>();
+        List<EditText> rowAmounts = new ArrayList<>();
+
+        // Lo que falta repartir se recalcula al tocar "Agregar línea" y al guardar
+        Runnable updateRemaining = () -> {
+            double assigned = 0;
+            for (EditText amountText : rowAmounts) {
+                try {
+                    assigned += Double.parseDouble(amountText.getText().toString().trim());
+                } catch (NumberFormatException e) {
+                    // Línea vacía
+                }
+            }
+            remainingText.setText("Total $ " + decimalFormat.format(total) + " · falta repartir $ " + decimalFormat.format(total - assigned));
+        };
+
+        // Las líneas actuales, o la categoría de la transacción con todo el monto y una línea vacía
+        if (transaction.isSplit()) {
+            for (TransactionSplit split : transaction.getSplits()) {
+                addSplitRow(rows, sameType, rowCategories, rowAmounts, findCategoryById(sameType, split.getCategoryId()), split.getAmount());
+            }
+        } else {
+            addSplitRow(rows, sameType, rowCategories, rowAmounts, findCategoryById(sameType, transaction.getCategoryId()), transaction.getAmount());
+            addSplitRow(rows, sameType, rowCategories, rowAmounts, null, null);
+        }
+        Button addLineButton = new Button(this);
+        addLineButton.setText("Agregar línea");
+        addLineButton.setOnClickListener(v -> {
+            addSplitRow(rows, sameType, rowCategories, rowAmounts, null, null);
+            updateRemaining.run();
+        });
+        layout.addView(addLineButton);
+        updateRemaining.run();
+
+        new AlertDialog.Builder(this)
+                .setTitle("Dividir en categorías")
+                .setView(layout)
+                .setPositiveButton("Guardar", (dialog, which) -> {
+                    double sign = transaction.getAmount() < 0 ? -1 : 1;
+                    List<TransactionSplit> splits = new ArrayList<>();
+                    for (int i = 0; i < rowAmounts.size(); i++) {
+                        String amountStr = rowAmounts.get(i).getText().toString().trim();
+                        Category category = (Category) rowCategories.get(i).getSelectedItem();
+                        if (TextUtils.isEmpty(amountStr) || category == null) {
+                            continue; // Línea sin completar
+                        }
+                        try {
+                            double amount = Math.abs(Double.parseDouble(amountStr));
+                            if (amount > 0) {
+                                splits.add(new TransactionSplit(category, sign * amount));
+                            }
+                        } catch (NumberFormatException e) {
+                            Toast.makeText(this, "Monto inválido: " + amountStr, Toast.LENGTH_SHORT).show();
+                            return;
+                        }
+                    }
+                    dbExecutor.execute(() -> {
+                        boolean saved = !splits.isEmpty() && dbHelper.setTransactionSplits(transaction, splits);
+                        mainHandler.post(() -> {
+                            if (saved) {
+                                applyFilters(); // Cambian la categoría mostrada y a qué filtros de categoría pertenece
+                                Toast.makeText(this, splits.size() > 1 ? "Transacción dividida" : "División eliminada", Toast.LENGTH_SHORT).show();
+                            } else {
+                                Toast.makeText(this, "Las líneas tienen que sumar $ " + decimalFormat.format(total), Toast.LENGTH_LONG).show();
+                            }
+                        });
+                    });
+                })
+                .setNegativeButton("Cancelar", null)
+                .show();
+    }
+
+    // Una fila del diálogo de división: categoría y monto (en valor absoluto)
+    private void addSplitRow(LinearLayout rows, List<Category> categories, List<Spinner> rowCategories, List<EditText> rowAmounts,
+                             @Nullable Category category, @Nullable Double amount) {
+        LinearLayout row = new LinearLayout(this);
+        row.setOrientation(LinearLayout.HORIZONTAL);
+        Spinner spinner = new Spinner(this);
+        ArrayAdapter<Category> adapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, categories);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinner.setAdapter(adapter);
+        int position = category != null ? categories.indexOf(category) : -1;
+        if (position >= 0) {
+            spinner.setSelection(position);
+        }
+        row.addView(spinner, new LinearLayout.LayoutParams(0, LinearLayout.LayoutParams.WRAP_CONTENT, 2));
+        EditText amountText = new EditText(this);
+        amountText.setHint("Monto");
+        amountText.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL);
+        if (amount != null) {
+            amountText.setText(String.valueOf(Math.abs(amount)));
+        }
+        row.addView(amountText, new LinearLayout.LayoutParams(0, LinearLayout.LayoutParams.WRAP_CONTENT, 1));
+        rows.addView(row);
+        rowCategories.add(spinner);
+        rowAmounts.add(amountText);
+    }
+
+    @Nullable
+    private static Category findCategoryById(List<Category> categories, int categoryId) {
+        for (Category category : categories) {
+            if (category.getId() == categoryId) {
+                return category;
+            }
+        }
+        return null;
+    }
+
     /**
      * Muestra un diálogo de confirmación antes de eliminar una transacción.
      * @param transaction El objeto Transaction a eliminar.
@@ -393,13 +834,27 @@ public class HistoryActivity extends AppCompatActivity implements TransactionAda
                         "Monto: $" + new DecimalFormat("#,##0.00").format(transaction.getAmount()) +
                         "\nDescripción: " + transaction.getDescription())
                 .setPositiveButton("Eliminar", (dialog, id) -> {
-                    boolean success = dbHelper.deleteTransaction(transaction.getId());
-                    if (success) {
-                        Toast.makeText(this, "Transacción eliminada", Toast.LENGTH_SHORT).show();
-                        applyFilters(); // Recargar transacciones después de eliminar
-                    } else {
+                    // Se quita de la lista ya mismo; si no se puede borrar, vuelve a su lugar
+                    int generation = listGeneration;
+                    transactionAdapter.removeTransactionsById(Collections.singleton(transaction.getId()));
+                    writeQueue.enqueueDelete(transaction.getId(), (success, deletedId) -> {
+                        if (success && transaction.isTransfer()) {
+                            applyFilters(); // También se borró la otra mitad de la transferencia
+                            Toast.makeText(this, "Transferencia eliminada", Toast.LENGTH_SHORT).show();
+                            return;
+                        }
+                        if (success) {
+                            refreshRunningBalances();
+                            Toast.makeText(this, "Transacción eliminada", Toast.LENGTH_SHORT).show();
+                            return;
+                        }
+                        if (generation != listGeneration) {
+                            applyFilters(); // La lista se recargó mientras tanto
+                        } else {
+                            transactionAdapter.restoreTransaction(transaction);
+                        }
                         Toast.makeText(this, "Error al eliminar la transacción", Toast.LENGTH_SHORT).show();
-                    }
+                    });
                 })
                 .setNegativeButton("Cancelar", null)
                 .show();
@@ -409,6 +864,32 @@ public class HistoryActivity extends AppCompatActivity implements TransactionAda
     protected void onResume() {
         super.onResume();
         applyFilters(); // Recargar las transacciones cada vez que se vuelve a esta pantalla
+        loadDuplicatesBanner();
+        jankSession = JankMonitor.start(this, "historial");
+    }
+
+    // El conteo recorre el índice de huellas: en segundo plano, y el aviso solo aparece si hay algo que revisar
+    private void loadDuplicatesBanner() {
+        dbExecutor.execute(() -> {
+            int groups = dbHelper.countSuspectedDuplicateGroups();
+            mainHandler.post(() -> {
+                if (isFinishing()) {
+                    return;
+                }
+                duplicatesBannerTextView.setVisibility(groups > 0 ? View.VISIBLE : View.GONE);
+                duplicatesBannerTextView.setText(groups == 1 ? "1 posible duplicado. Tocá para revisarlo."
+                        : groups + " posibles duplicados. Tocá para revisarlos.");
+            });
+        });
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        if (jankSession != null) {
+            jankSession.finish();
+            jankSession = null;
+        }
     }
 
     // Implementación de la interfaz TransactionAdapter.OnItemActionListener
@@ -422,4 +903,193 @@ public class HistoryActivity extends AppCompatActivity implements TransactionAda
         confirmDelete(transaction);
     }
 
+    @Override
+    public void onSelectionChanged(int selectedCount) {
+        selectionBar.setVisibility(selectedCount > 0 ? View.VISIBLE : View.GONE);
+        selectionCountTextView.setText(selectedCount + (selectedCount == 1 ? " seleccionada" : " seleccionadas"));
+    }
+
+    // --- Operaciones masivas sobre la selección ---
+    // Cada una es una sola sentencia SQL en una sola transacción; al terminar se actualiza
+    // la lista en memoria en lugar de volver a consultar con applyFilters().
+
+    private void confirmBulkDelete() {
+        int[] ids = transactionAdapter.getSelectedIds();
+        new AlertDialog.Builder(this)
+                .setTitle("Eliminar Transacciones")
+                .setMessage("¿Estás seguro de que quieres eliminar " + ids.length + " transacciones?")
+                .setPositiveButton("Eliminar", (dialog, which) -> dbExecutor.execute(() -> {
+                    int deleted = dbHelper.deleteTransactions(ids);
+                    mainHandler.post(() -> {
+                        if (deleted > ids.length) {
+                            // Entraron mitades de transferencias que no estaban seleccionadas
+                            onSelectionChanged(0);
+                            applyFilters();
+                            Toast.makeText(this, deleted + " transacciones eliminadas", Toast.LENGTH_SHORT).show();
+                        } else if (deleted > 0) {
+                            transactionAdapter.removeTransactionsById(toIdSet(ids));
+                            onSelectionChanged(0);
+                            refreshRunningBalances();
+                            Toast.makeText(this, deleted + " transacciones eliminadas", Toast.LENGTH_SHORT).show();
+                        } else {
+                            Toast.makeText(this, "Error al eliminar las transacciones", Toast.LENGTH_SHORT).show();
+                        }
+                    });
+                }))
+                .setNegativeButton("Cancelar", null)
+                .show();
+    }
+
+    private void showBulkRecategorizeDialog() {
+        int[] ids = transactionAdapter.getSelectedIds();
+        String[] names = new String[allCategoriesForSpinner.size()];
+        for (int i = 0; i < allCategoriesForSpinner.size(); i++) {
+            names[i] = allCategoriesForSpinner.get(i).toString();
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Mover " + ids.length + " transacciones a:")
+                .setItems(names, (dialog, which) -> {
+                    Category target = allCategoriesForSpinner.get(which);
+                    dbExecutor.execute(() -> {
+                        int updated = dbHelper.recategorizeTransactions(ids, target);
+                        mainHandler.post(() -> {
+                            if (updated > 0) {
+                                applyRecategorizeInMemory(toIdSet(ids), target);
+                                Toast.makeText(this, updated + " transacciones movidas a " + target.getName(), Toast.LENGTH_SHORT).show();
+                            } else {
+                                Toast.makeText(this, "No se cambió la categoría (las transferencias no cambian de categoría)", Toast.LENGTH_SHORT).show();
+                            }
+                        });
+                    });
+                })
+                .setNegativeButton("Cancelar", null)
+                .show();
+    }
+
+    private void showBulkDateShiftDialog() {
+        int[] ids = transactionAdapter.getSelectedIds();
+        EditText inputDays = new EditText(this);
+        inputDays.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_SIGNED);
+        inputDays.setHint("Días (ej. 1 o -7)");
+
+        new AlertDialog.Builder(this)
+                .setTitle("Mover fecha de " + ids.length + " transacciones")
+                .setView(inputDays)
+                .setPositiveButton("Aplicar", (dialog, which) -> {
+                    int days;
+                    try {
+                        days = Integer.parseInt(inputDays.getText().toString().trim());
+                    } catch (NumberFormatException e) {
+                        Toast.makeText(this, "Cantidad de días no válida.", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    dbExecutor.execute(() -> {
+                        int updated = dbHelper.shiftTransactionDates(ids, days);
+                        mainHandler.post(() -> {
+                            if (updated > ids.length) {
+                                applyFilters(); // También se movió la otra mitad de alguna transferencia
+                                Toast.makeText(this, updated + " transacciones actualizadas", Toast.LENGTH_SHORT).show();
+                            } else if (updated > 0) {
+                                applyDateShiftInMemory(toIdSet(ids), days);
+                                Toast.makeText(this, updated + " transacciones actualizadas", Toast.LENGTH_SHORT).show();
+                            } else {
+                                Toast.makeText(this, "Error al mover las fechas", Toast.LENGTH_SHORT).show();
+                            }
+                        });
+                    });
+                })
+                .setNegativeButton("Cancelar", null)
+                .show();
+    }
+
+    /**
+     * Refleja en la lista visible un cambio de categoría ya guardado. Las filas que dejan de
+     * cumplir los filtros actuales se quitan; el resto solo se redibuja.
+     */
+    private void applyRecategorizeInMemory(Set<Integer> ids, Category target) {
+        Set<Integer> toRemove = new HashSet<>();
+        for (Transaction transaction : transactionList) {
+            if (ids.contains(transaction.getId()) && !transaction.isTransfer()) { // La DB saltea las transferencias
+                double amount = Math.abs(transaction.getAmount());
+                transaction.setAmount(target.getType().equals(Category.TYPE_EXPENSE) ? -amount : amount);
+                transaction.setCategory(target);
+                if (!matchesCurrentFilters(transaction)) {
+                    toRemove.add(transaction.getId());
+                }
+            }
+        }
+        transactionAdapter.clearSelection();
+        transactionAdapter.removeTransactionsById(toRemove);
+        transactionAdapter.notifyTransactionsChanged(ids);
+        refreshRunningBalances();
+    }
+
+    /**
+     * Refleja en la lista visible un corrimiento de fechas ya guardado y reordena por fecha.
+     */
+    private void applyDateShiftInMemory(Set<Integer> ids, int days) {
+        Set<Integer> toRemove = new HashSet<>();
+        for (Transaction transaction : transactionList) {
+            if (!ids.contains(transaction.getId())) {
+                continue;
+            }
+            transaction.setEpochDay(transaction.getEpochDay() + days);
+            if (!matchesCurrentFilters(transaction)) {
+                toRemove.add(transaction.getId());
+            }
+        }
+        transactionAdapter.clearSelection();
+        transactionAdapter.removeTransactionsById(toRemove);
+        Collections.sort(transactionList, TransactionAdapter.NEWEST_FIRST);
+        transactionAdapter.onTransactionsReloaded();
+        refreshRunningBalances();
+    }
+
+    /**
+     * Tras una operación masiva los saldos acumulados de las filas visibles cambian: se recalculan
+     * en segundo plano con una sola pasada y se aplican si la lista no cambió mientras tanto.
+     */
+    private void refreshRunningBalances() {
+        List<Transaction> snapshot = new ArrayList<>(transactionList);
+        dbExecutor.execute(() -> {
+            double[] balances = dbHelper.getRunningBalances(snapshot);
+            mainHandler.post(() -> {
+                if (snapshot.equals(transactionList)) {
+                    transactionAdapter.setRunningBalances(balances);
+                }
+            });
+        });
+    }
+
+    /**
+     * Evalúa en memoria los mismos filtros que aplica getTransactions().
+     */
+    private boolean matchesCurrentFilters(Transaction transaction) {
+        if (currentSelectedMonthYearFilter != null && !transaction.getDate().startsWith(currentSelectedMonthYearFilter)) {
+            return false;
+        }
+        if (currentSelectedTypeFilter != null && !currentSelectedTypeFilter.equals(transaction.getType())) {
+            return false;
+        }
+        if (tagFilterRows != null && !tagFilterRows.contains(transaction.getId())) {
+            return false;
+        }
+        return currentSelectedCategoryIdFilter == NO_CATEGORY_FILTER
+                || transaction.hasCategory(currentSelectedCategoryIdFilter); // Incluye las líneas de las divididas
+    }
+
+    private static Set<Integer> toIdSet(int[] ids) {
+        Set<Integer> set = new HashSet<>(ids.length * 2);
+        for (int id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        dbExecutor.shutdown();
+    }
+
 }
\ No newline at end of file
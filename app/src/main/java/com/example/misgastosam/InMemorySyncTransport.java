@@ -0,0 +1,75 @@
+package com.example.misgastosam;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Servidor de sincronización en proceso. Sirve de backend de prueba para tests y builds de
+ * desarrollo: guarda solo la última versión de cada fila (resuelta con {@link SyncConflictResolver})
+ * en un log ordenado por número de secuencia, que es el cursor que reciben los clientes.
+ * Varios SyncEngine pueden compartir una misma instancia para simular varios dispositivos.
+ */
+public class InMemorySyncTransport implements SyncTransport {
+
+    private final NavigableMap<Long, SyncChange> log = new TreeMap<>();
+    private final Map<String, Long> sequenceBySyncId = new HashMap<>();
+    private long nextSequence = 1;
+    private int failuresToSimulate = 0;
+
+    @Override
+    public synchronized void push(byte[] payload) throws IOException {
+        maybeFail();
+        for (SyncChange incoming : SyncPayloadCodec.decode(payload).getChanges()) {
+            Long currentSequence = sequenceBySyncId.get(incoming.getSyncId());
+            if (currentSequence != null) {
+                if (!SyncConflictResolver.incomingWins(incoming, log.get(currentSequence))) {
+                    continue;
+                }
+                log.remove(currentSequence);
+            }
+            long sequence = nextSequence++;
+            log.put(sequence, incoming);
+            sequenceBySyncId.put(incoming.getSyncId(), sequence);
+        }
+    }
+
+    @Override
+    public synchronized byte[] pull(long cursor, int limit) throws IOException {
+        maybeFail();
+        List<SyncChange> changes = new ArrayList<>(Math.min(limit, log.size()));
+        long lastSequence = cursor;
+        NavigableMap<Long, SyncChange> pending = log.tailMap(cursor, false);
+        for (Map.Entry<Long, SyncChange> entry : pending.entrySet()) {
+            if (changes.size() == limit) {
+                break;
+            }
+            changes.add(entry.getValue());
+            lastSequence = entry.getKey();
+        }
+        boolean hasMore = changes.size() < pending.size();
+        return SyncPayloadCodec.encode(new SyncBatch(lastSequence, hasMore, changes));
+    }
+
+    /**
+     * Hace fallar las próximas {@code count} peticiones, para ejercitar reintentos.
+     */
+    public synchronized void failNextRequests(int count) {
+        failuresToSimulate = count;
+    }
+
+    public synchronized int size() {
+        return log.size();
+    }
+
+    private void maybeFail() throws IOException {
+        if (failuresToSimulate > 0) {
+            failuresToSimulate--;
+            throw new IOException("Fallo de red simulado");
+        }
+    }
+}
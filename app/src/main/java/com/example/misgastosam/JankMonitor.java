@@ -0,0 +1,285 @@
+package com.example.misgastosam;
+
+import android.app.Activity;
+import android.content.Context;
+import android.database.sqlite.SQLiteCursor;
+import android.database.sqlite.SQLiteCursorDriver;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQuery;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Medición de fluidez para compilaciones depurables (se activa desde {@link DebugMenu}).
+ * Mientras una pantalla está visible se registra la duración de cada frame con FrameMetrics,
+ * y con Choreographer se mide cuánto tiempo del hilo principal se fue en cada frame en
+ * enlazar filas de listas y en leer SQLite. Así cada frame lento se atribuye a layout, a bind,
+ * a la DB o a otra causa. Al salir de la pantalla se agrega una línea con percentiles a
+ * jank_sessions.csv en el directorio externo de la app (se baja con adb pull).
+ */
+public final class JankMonitor {
+
+    private static final String PREFS_NAME = "DebugPrefs";
+    private static final String KEY_ENABLED = "jank_monitor_enabled";
+    static final String RESULTS_FILE = "jank_sessions.csv";
+
+    private static final long FRAME_BUDGET_NANOS = 16_666_667L; // 60 Hz
+    // Una causa explica un frame lento si ocupó al menos la mitad del presupuesto
+    private static final long CAUSE_THRESHOLD_NANOS = FRAME_BUDGET_NANOS / 2;
+
+    // Tiempo del hilo principal en el frame en curso; solo se escriben desde el hilo principal
+    private static volatile boolean active;
+    private static long bindNanos;
+    private static long dbNanos;
+
+    private static HandlerThread metricsThread;
+    private static final ExecutorService exportExecutor = Executors.newSingleThreadExecutor();
+
+    private JankMonitor() {
+    }
+
+    public static boolean isEnabled(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).getBoolean(KEY_ENABLED, false);
+    }
+
+    public static void setEnabled(Context context, boolean enabled) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit().putBoolean(KEY_ENABLED, enabled).apply();
+    }
+
+    public static File getResultsFile(Context context) {
+        File dir = context.getExternalFilesDir(null);
+        return new File(dir != null ? dir : context.getFilesDir(), RESULTS_FILE);
+    }
+
+    /**
+     * Empieza a medir una pantalla. Llamar en onResume y terminar la sesión en onPause.
+     * @return La sesión, o null si la medición está desactivada.
+     */
+    @Nullable
+    public static Session start(Activity activity, String screen) {
+        if (!DebugMenu.isDebuggable(activity) || !isEnabled(activity)) {
+            return null;
+        }
+        Session session = new Session(activity, screen);
+        session.begin();
+        return session;
+    }
+
+    // --- Secciones medidas en el hilo principal ---
+
+    /**
+     * Marca el inicio de un bind. Devuelve 0 (y no mide nada) si no hay una sesión activa.
+     */
+    public static long sectionStart() {
+        return active ? System.nanoTime() : 0;
+    }
+
+    public static void addBindTime(long sectionStart) {
+        if (sectionStart != 0) {
+            bindNanos += System.nanoTime() - sectionStart;
+        }
+    }
+
+    static void addDbTime(long nanos) {
+        if (active && Looper.myLooper() == Looper.getMainLooper()) {
+            dbNanos += nanos;
+        }
+    }
+
+    /**
+     * Fábrica de cursores que mide la ejecución de las consultas (la primera carga y cada
+     * recarga de la ventana del cursor). Devuelve null en compilaciones de release.
+     */
+    @Nullable
+    static SQLiteDatabase.CursorFactory cursorFactory(Context context) {
+        if (!DebugMenu.isDebuggable(context)) {
+            return null;
+        }
+        return (db, driver, editTable, query) -> new TimedCursor(driver, editTable, query);
+    }
+
+    private static final class TimedCursor extends SQLiteCursor {
+
+        TimedCursor(SQLiteCursorDriver driver, String editTable, SQLiteQuery query) {
+            super(driver, editTable, query);
+        }
+
+        @Override
+        public int getCount() {
+            long start = System.nanoTime();
+            try {
+                return super.getCount();
+            } finally {
+                addDbTime(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public boolean onMove(int oldPosition, int newPosition) {
+            long start = System.nanoTime();
+            try {
+                return super.onMove(oldPosition, newPosition);
+            } finally {
+                addDbTime(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private static synchronized Handler metricsHandler() {
+        if (metricsThread == null) {
+            metricsThread = new HandlerThread("JankMonitor");
+            metricsThread.start();
+        }
+        return new Handler(metricsThread.getLooper());
+    }
+
+    /**
+     * Una visita a una pantalla. Los frames se acumulan en memoria y se exportan en {@link #finish()}.
+     */
+    public static final class Session implements Choreographer.FrameCallback, Window.OnFrameMetricsAvailableListener {
+
+        private final Activity activity;
+        private final String screen;
+        private final long startedAt = System.currentTimeMillis();
+
+        // Escritos por el hilo de FrameMetrics
+        private long[] frameDurations = new long[1024];
+        private int frameCount;
+        private int droppedReports;
+        private int slowByLayout;
+
+        // Escritos por el hilo principal
+        private long lastFrameTimeNanos;
+        private int slowByBind;
+        private int slowByDb;
+        private int slowOther;
+        private boolean finished;
+
+        private Session(Activity activity, String screen) {
+            this.activity = activity;
+            this.screen = screen;
+        }
+
+        private void begin() {
+            bindNanos = 0;
+            dbNanos = 0;
+            active = true;
+            Choreographer.getInstance().postFrameCallback(this);
+            activity.getWindow().addOnFrameMetricsAvailableListener(this, metricsHandler());
+        }
+
+        /**
+         * Cierra la ventana del frame anterior: si el intervalo entre vsyncs superó el presupuesto,
+         * se atribuye a la sección que más tiempo ocupó en el hilo principal.
+         */
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (finished) {
+                return;
+            }
+            if (lastFrameTimeNanos != 0 && frameTimeNanos - lastFrameTimeNanos > FRAME_BUDGET_NANOS * 3 / 2) {
+                if (bindNanos >= dbNanos && bindNanos >= CAUSE_THRESHOLD_NANOS) {
+                    slowByBind++;
+                } else if (dbNanos >= CAUSE_THRESHOLD_NANOS) {
+                    slowByDb++;
+                } else {
+                    slowOther++;
+                }
+            }
+            bindNanos = 0;
+            dbNanos = 0;
+            lastFrameTimeNanos = frameTimeNanos;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        @Override
+        public void onFrameMetricsAvailable(Window window, FrameMetrics frameMetrics, int dropCountSinceLastInvocation) {
+            long total = frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION);
+            synchronized (this) {
+                if (frameCount == frameDurations.length) {
+                    frameDurations = Arrays.copyOf(frameDurations, frameCount * 2);
+                }
+                frameDurations[frameCount++] = total;
+                droppedReports += dropCountSinceLastInvocation;
+                if (total > FRAME_BUDGET_NANOS && frameMetrics.getMetric(FrameMetrics.LAYOUT_MEASURE_DURATION) >= CAUSE_THRESHOLD_NANOS) {
+                    slowByLayout++;
+                }
+            }
+        }
+
+        /**
+         * Deja de medir y exporta la sesión en segundo plano. Llamar desde el hilo principal.
+         */
+        public void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            active = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+            activity.getWindow().removeOnFrameMetricsAvailableListener(this);
+
+            String line;
+            synchronized (this) {
+                line = summarize();
+            }
+            File file = getResultsFile(activity);
+            exportExecutor.execute(() -> append(file, line));
+        }
+
+        private String summarize() {
+            long[] sorted = Arrays.copyOf(frameDurations, frameCount);
+            Arrays.sort(sorted);
+            int janky = 0;
+            for (long duration : sorted) {
+                if (duration > FRAME_BUDGET_NANOS) {
+                    janky++;
+                }
+            }
+            return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US).format(new Date(startedAt)) + "," +
+                    screen + "," + frameCount + "," + janky + "," +
+                    percentileMs(sorted, 50) + "," + percentileMs(sorted, 90) + "," +
+                    percentileMs(sorted, 95) + "," + percentileMs(sorted, 99) + "," +
+                    slowByLayout + "," + slowByBind + "," + slowByDb + "," + slowOther + "," + droppedReports;
+        }
+
+        private static String percentileMs(long[] sorted, int percentile) {
+            if (sorted.length == 0) {
+                return "0";
+            }
+            int index = Math.max(0, (int) Math.ceil(sorted.length * percentile / 100.0) - 1);
+            return String.format(Locale.US, "%.1f", sorted[index] / 1_000_000.0);
+        }
+
+        private static void append(File file, String line) {
+            boolean header = !file.exists();
+            try (PrintWriter out = new PrintWriter(new FileWriter(file, true))) {
+                if (header) {
+                    out.println("started_at,screen,frames,janky_frames,p50_ms,p90_ms,p95_ms,p99_ms," +
+                            "slow_layout,slow_bind,slow_db,slow_other,dropped_reports");
+                }
+                out.println(line);
+            } catch (IOException e) {
+                Log.e("JankMonitor", "Error al exportar la sesión: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.misgastosam;
+
+/**
+ * Reducción de una serie con Largest-Triangle-Three-Buckets (S. Steinarsson, 2013): conserva
+ * el primer y el último punto y, de cada tramo intermedio, el que forma el triángulo más grande
+ * con el punto elegido antes y el promedio del tramo siguiente. Así los picos sobreviven aunque
+ * diez años de datos diarios se dibujen en unos cientos de píxeles.
+ */
+public final class Lttb {
+
+    private Lttb() {
+    }
+
+    /**
+     * Elige como mucho {@code threshold} puntos de {@code values[0..length)} (el eje x es el índice).
+     * No crea objetos: escribe los índices elegidos, en orden creciente, en {@code outIndexes}.
+     * @param outIndexes Debe tener lugar para min(length, threshold) índices.
+     * @return Cantidad de índices escritos.
+     */
+    public static int downsample(long[] values, int length, int threshold, int[] outIndexes) {
+        if (threshold >= length || threshold < 3) {
+            for (int i = 0; i < length; i++) {
+                outIndexes[i] = i;
+            }
+            return length;
+        }
+
+        // Tamaño de cada tramo, sin contar el primer y el último punto
+        double every = (double) (length - 2) / (threshold - 2);
+        int selected = 0;
+        int a = 0;
+        outIndexes[selected++] = a;
+
+        for (int i = 0; i < threshold - 2; i++) {
+            // Promedio del tramo siguiente: el tercer vértice del triángulo
+            int avgStart = (int) ((i + 1) * every) + 1;
+            int avgEnd = Math.min((int) ((i + 2) * every) + 1, length);
+            double avgX = 0;
+            double avgY = 0;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += j;
+                avgY += values[j];
+            }
+            int avgLength = avgEnd - avgStart;
+            avgX /= avgLength;
+            avgY /= avgLength;
+
+            int rangeStart = (int) (i * every) + 1;
+            int rangeEnd = (int) ((i + 1) * every) + 1;
+            double maxArea = -1;
+            int next = rangeStart;
+            for (int j = rangeStart; j < rangeEnd; j++) {
+                // El doble del área alcanza para comparar
+                double area = Math.abs((a - avgX) * (values[j] - values[a]) - (a - j) * (avgY - values[a]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = j;
+                }
+            }
+            outIndexes[selected++] = next;
+            a = next;
+        }
+
+        outIndexes[selected++] = length - 1;
+        return selected;
+    }
+}
@@ -3,12 +3,18 @@ package com.example.misgastosam;
 import android.content.Intent;
 import android.graphics.Color;
 import android.os.Bundle;
+import android.text.InputType;
 import android.view.View;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.EditText;
+import android.widget.LinearLayout;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
@@ -20,6 +26,7 @@ import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 
@@ -29,12 +36,15 @@ public class MainActivity extends AppCompatActivity {
     private Button categoriasButton; // boton de categoria
     private Button buttonHistory; // boton de historial
     private TextView balanceTextView; // para el texto del saldo
+    private TextView accountBalancesTextView; // saldo de cada cuenta, debajo del total
     private DatabaseHelper dbHelper; // Declarar la instancia del databaseHelper
 
     // Para mostrar el saldo cada mes (nombre de variable corregido)
     private RecyclerView monthlyBalanceRecyclerView;
     private MonthlyBalanceAdapter monthlyBalanceAdapter; // Asumo que tienes esta clase
     private List<MonthlyBalance> monthlyBalanceList; // Asumo que tienes esta clase
+    // Medición de fluidez de la tabla mensual (solo si está activada en el menú de depuración)
+    private JankMonitor.Session jankSession;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -49,8 +59,10 @@ public class MainActivity extends AppCompatActivity {
         });
 
         // 2. Inicializar el DatabaseHelper (antes de usarlo)
-        dbHelper = new DatabaseHelper(this);
+        dbHelper = DatabaseHelper.getInstance(this);
         balanceTextView = findViewById(R.id.textView_balance); // Conectamos el texto del saldo
+        accountBalancesTextView = findViewById(R.id.textView_account_balances);
+        accountBalancesTextView.setOnClickListener(v -> showTransferDialog());
 
         // Inicializar botones con sus IDs
         addButton = findViewById(R.id.button); // Tu botón flotante '+'
@@ -102,6 +114,15 @@ public class MainActivity extends AppCompatActivity {
             });
         }
 
+        // Botón Calendario (mapa de calor de gastos diarios)
+        findViewById(R.id.button_heatmap).setOnClickListener(v ->
+                startActivity(new Intent(MainActivity.this, HeatmapActivity.class)));
+        findViewById(R.id.button_trends).setOnClickListener(v ->
+                startActivity(new Intent(MainActivity.this, TrendsActivity.class)));
+
+        // Pulsación larga sobre el saldo: herramientas de depuración (solo en compilaciones depurables)
+        DebugMenu.attach(this, balanceTextView, this::updateBalance);
+
         // Actualizamos el saldo inicial y la tabla mensual al iniciar la actividad
         updateBalance();
     }
@@ -111,6 +132,18 @@ public class MainActivity extends AppCompatActivity {
         super.onResume();
         // Se llama a updateBalance para refrescar el saldo y la tabla mensual cada vez que la actividad se reanuda
         updateBalance();
+        // Sincroniza en segundo plano con los otros dispositivos (no hace nada si no hay backend configurado)
+        SyncScheduler.getInstance(this).requestSync();
+        jankSession = JankMonitor.start(this, "principal");
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        if (jankSession != null) {
+            jankSession.finish();
+            jankSession = null;
+        }
     }
 
     private void updateBalance() {
@@ -126,11 +159,87 @@ public class MainActivity extends AppCompatActivity {
             } else {
                 balanceTextView.setTextColor(getResources().getColor(R.color.apple_green)); // Usar el color definido en colors.xml
             }
+
+            // Una línea con el saldo de cada cuenta (lo mantiene la DB: no se suman transacciones)
+            StringBuilder accountsText = new StringBuilder();
+            for (Account account : dbHelper.getAccounts()) {
+                if (accountsText.length() > 0) {
+                    accountsText.append("   ");
+                }
+                accountsText.append(account.getName()).append(": $ ").append(decimalFormat.format(account.getBalance()));
+            }
+            accountBalancesTextView.setText(accountsText);
         }
         // Llama a este método para cargar y actualizar los saldos mensuales
         loadMonthlyBalances();
     }
 
+    /**
+     * Diálogo para pasar plata de una cuenta a otra (ej. una extracción del banco al efectivo).
+     * Se guarda como un gasto en la cuenta de origen y un ingreso en la de destino.
+     */
+    private void showTransferDialog() {
+        List<Account> accounts = dbHelper.getAccounts();
+        if (accounts.size() < 2) {
+            return;
+        }
+        LinearLayout layout = new LinearLayout(this);
+        layout.setOrientation(LinearLayout.VERTICAL);
+        layout.setPadding(50, 20, 50, 20);
+
+        TextView fromLabel = new TextView(this);
+        fromLabel.setText("Desde");
+        layout.addView(fromLabel);
+        final Spinner fromSpinner = new Spinner(this);
+        ArrayAdapter<Account> fromAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, accounts);
+        fromAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        fromSpinner.setAdapter(fromAdapter);
+        layout.addView(fromSpinner);
+
+        TextView toLabel = new TextView(this);
+        toLabel.setText("Hacia");
+        layout.addView(toLabel);
+        final Spinner toSpinner = new Spinner(this);
+        ArrayAdapter<Account> toAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, accounts);
+        toAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        toSpinner.setAdapter(toAdapter);
+        toSpinner.setSelection(1);
+        layout.addView(toSpinner);
+
+        final EditText inputAmount = new EditText(this);
+        inputAmount.setHint("Monto");
+        inputAmount.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL);
+        layout.addView(inputAmount);
+
+        new AlertDialog.Builder(this)
+                .setTitle("Transferir entre cuentas")
+                .setView(layout)
+                .setPositiveButton("Transferir", (dialog, which) -> {
+                    Account from = (Account) fromSpinner.getSelectedItem();
+                    Account to = (Account) toSpinner.getSelectedItem();
+                    double amount;
+                    try {
+                        amount = Double.parseDouble(inputAmount.getText().toString().trim());
+                    } catch (NumberFormatException e) {
+                        Toast.makeText(this, "Ingresá un monto válido.", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    if (from.getId() == to.getId()) {
+                        Toast.makeText(this, "Elegí dos cuentas distintas.", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    String today = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(new Date());
+                    if (dbHelper.addTransfer(from.getId(), to.getId(), amount, from.getName() + " → " + to.getName(), today)) {
+                        Toast.makeText(this, "Transferencia guardada", Toast.LENGTH_SHORT).show();
+                        updateBalance();
+                    } else {
+                        Toast.makeText(this, "Error al guardar la transferencia.", Toast.LENGTH_SHORT).show();
+                    }
+                })
+                .setNegativeButton("Cancelar", null)
+                .show();
+    }
+
     /**
      * Método para cargar y mostrar los saldos de los últimos 5 meses.
      * Asume que MonthlyBalance y MonthlyBalanceAdapter están correctamente implementados.
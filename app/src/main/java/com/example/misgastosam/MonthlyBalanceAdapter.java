@@ -31,6 +31,7 @@ public class MonthlyBalanceAdapter extends RecyclerView.Adapter<MonthlyBalanceAd
 
     @Override
     public void onBindViewHolder(@NonNull MonthlyBalanceViewHolder holder, int position) {
+        long bindStart = JankMonitor.sectionStart();
         MonthlyBalance currentItem = monthlyBalanceList.get(position);
 
         holder.monthTextView.setText(currentItem.getDisplayMonth() + ":");
@@ -44,6 +45,7 @@ public class MonthlyBalanceAdapter extends RecyclerView.Adapter<MonthlyBalanceAd
         } else {
             holder.amountTextView.setTextColor(Color.parseColor("#4CAF50")); // Un verde genérico
         }
+        JankMonitor.addBindTime(bindStart);
     }
 
     @Override
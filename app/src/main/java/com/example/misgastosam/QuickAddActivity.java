@@ -0,0 +1,177 @@
+package com.example.misgastosam;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.Log;
+import android.widget.AutoCompleteTextView;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.LinearLayout;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Carga rápida desde el acceso directo del ícono: monto, descripción opcional y un toque en
+ * una de las categorías recientes. A diferencia de Transaccion no consulta la base de datos en
+ * el hilo principal: los botones se dibujan con la foto guardada en {@link RecentCategories}
+ * y se confirman contra {@link CategoryCache} en segundo plano. El alta se encola en
+ * {@link TransactionWriteQueue}, así la pantalla se cierra sin esperar a SQLite.
+ */
+public class QuickAddActivity extends AppCompatActivity {
+
+    private static final String TAG = "QuickAddActivity";
+    // Objetivo del toque en una categoría hasta el alta confirmada en la DB
+    static final long TAP_TO_SAVED_TARGET_MS = 100;
+
+    private EditText editTextAmount;
+    private AutoCompleteTextView editTextDescription;
+
+    private DatabaseHelper dbHelper;
+    private LinearLayout categoriesLayout;
+
+    private final ExecutorService dbExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_quick_add);
+
+        dbHelper = DatabaseHelper.getInstance(this);
+
+        editTextAmount = findViewById(R.id.editText_quick_amount);
+        editTextDescription = findViewById(R.id.editText_quick_description);
+        DescriptionIndex descriptionIndex = DescriptionIndex.getInstance();
+        descriptionIndex.ensureLoaded(dbHelper);
+        editTextDescription.setAdapter(new DescriptionSuggestionAdapter(this, descriptionIndex));
+        findViewById(R.id.button_quick_more).setOnClickListener(v -> {
+            startActivity(new Intent(this, Transaccion.class));
+            finish();
+        });
+
+        categoriesLayout = findViewById(R.id.linearLayout_quick_categories);
+        showCategories(RecentCategories.loadSnapshot(this));
+        dbExecutor.execute(() -> {
+            List<Category> quickCategories = getQuickCategories();
+            mainHandler.post(() -> {
+                if (isFinishing()) {
+                    return;
+                }
+                if (quickCategories.isEmpty()) {
+                    // Todavía no hay categorías (primera vez): Transaccion crea las de por defecto
+                    startActivity(new Intent(this, Transaccion.class));
+                    finish();
+                    return;
+                }
+                if (RecentCategories.saveSnapshot(this, quickCategories)) {
+                    showCategories(quickCategories); // Alguna se borró, se renombró o cambió el orden
+                }
+            });
+        });
+    }
+
+    private void showCategories(List<Category> quickCategories) {
+        categoriesLayout.removeAllViews();
+        for (Category category : quickCategories) {
+            Button button = new Button(this);
+            button.setText(category.toString());
+            button.setAllCaps(false);
+            button.setOnClickListener(v -> save(category));
+            categoriesLayout.addView(button, new LinearLayout.LayoutParams(
+                    LinearLayout.LayoutParams.MATCH_PARENT, LinearLayout.LayoutParams.WRAP_CONTENT));
+        }
+    }
+
+    /**
+     * Las categorías recientes que todavía existen y, si no llegan a {@link RecentCategories#MAX_RECENT},
+     * las de gastos que falten para completar (son las más cargadas), sin las de transferencias. Consulta la base de datos
+     * si la caché de categorías está vacía: llamar en dbExecutor.
+     */
+    private List<Category> getQuickCategories() {
+        CategoryCache categoryCache = CategoryCache.getInstance(dbHelper);
+        List<Category> result = new ArrayList<>(RecentCategories.MAX_RECENT);
+        for (int categoryId : RecentCategories.load(this)) {
+            Category category = categoryCache.findById(categoryId);
+            if (category != null && !category.isTransfer()) {
+                result.add(category);
+            }
+        }
+        for (Category category : categoryCache.getAll()) {
+            if (result.size() >= RecentCategories.MAX_RECENT) {
+                break;
+            }
+            if (category.isExpense() && !category.isTransfer() && !result.contains(category)) {
+                result.add(category);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        dbExecutor.shutdown();
+    }
+
+    private void save(Category category) {
+        long tapTime = SystemClock.elapsedRealtime();
+        String amountStr = editTextAmount.getText().toString().trim();
+        if (TextUtils.isEmpty(amountStr)) {
+            editTextAmount.setError("El monto no puede estar vacío.");
+            return;
+        }
+        double amount;
+        try {
+            amount = Double.parseDouble(amountStr);
+        } catch (NumberFormatException e) {
+            editTextAmount.setError("Monto inválido.");
+            return;
+        }
+        // Mismo criterio de signo que Transaccion: negativo para gastos, positivo para ingresos
+        amount = category.isExpense() ? -Math.abs(amount) : Math.abs(amount);
+
+        String currentDate = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(new Date());
+        Transaction transaction = new Transaction(amount, editTextDescription.getText().toString().trim(), category, currentDate);
+
+        // La actividad se cierra ya: el resultado se informa con el contexto de la aplicación
+        Context appContext = getApplicationContext();
+        // No hay diálogo que esperar: un posible duplicado se guarda igual y se avisa, y queda en la revisión de duplicados
+        TransactionWriteQueue.getInstance(this).enqueueInsert(transaction, Collections.emptyList(), true, new TransactionWriteQueue.Callback() {
+            @Override
+            public void onLikelyDuplicate(long id) {
+                Toast.makeText(appContext, "Ya había una igual hoy: podés revisarla en Posibles duplicados.", Toast.LENGTH_LONG).show();
+            }
+
+            @Override
+            public void onComplete(boolean success, long id) {
+                long elapsed = SystemClock.elapsedRealtime() - tapTime;
+                if (elapsed > TAP_TO_SAVED_TARGET_MS) {
+                    Log.w(TAG, "Carga rápida " + (success ? "guardada" : "fallida") + " en " + elapsed +
+                            " ms, por encima del objetivo de " + TAP_TO_SAVED_TARGET_MS + " ms");
+                }
+                if (!success) {
+                    Toast.makeText(appContext, "Error al guardar la transacción.", Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
+        RecentCategories.recordUse(this, category.getId());
+
+        Toast.makeText(this, "Transacción guardada", Toast.LENGTH_SHORT).show();
+        finish();
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.misgastosam;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Categorías usadas más recientemente (la primera es la última usada), guardadas como
+ * una lista de _id separados por coma. La alimentan tanto Transaccion como la carga rápida.
+ * Aparte se guarda una foto de los botones que mostró la carga rápida (con nombre y tipo),
+ * para dibujarlos al abrirla sin esperar a la base de datos.
+ */
+public final class RecentCategories {
+
+    // Mismo archivo de preferencias que usa Transaccion para la última categoría por tipo
+    private static final String PREFS_NAME = "TransactionPrefs";
+    private static final String KEY_RECENT_CATEGORY_IDS = "recent_category_ids";
+    private static final String KEY_QUICK_SNAPSHOT = "quick_categories_snapshot";
+    static final int MAX_RECENT = 6;
+
+    private RecentCategories() {
+    }
+
+    /**
+     * @return Los _id de las categorías recientes, de la más a la menos reciente.
+     */
+    public static List<Integer> load(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return parse(prefs.getString(KEY_RECENT_CATEGORY_IDS, ""));
+    }
+
+    /**
+     * Mueve la categoría al principio de la lista (o la agrega), descartando la más vieja si sobra.
+     */
+    public static void recordUse(Context context, int categoryId) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        List<Integer> ids = parse(prefs.getString(KEY_RECENT_CATEGORY_IDS, ""));
+        prefs.edit().putString(KEY_RECENT_CATEGORY_IDS, TextUtils.join(",", moveToFront(ids, categoryId))).apply();
+    }
+
+    /**
+     * Las categorías que mostró la carga rápida la última vez. Pueden haberse borrado o
+     * renombrado desde entonces: hay que confirmarlas contra la base de datos en segundo plano.
+     */
+    public static List<Category> loadSnapshot(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return parseSnapshot(prefs.getString(KEY_QUICK_SNAPSHOT, ""));
+    }
+
+    /**
+     * Guarda las categorías de la carga rápida si cambiaron respecto de la foto anterior.
+     * @return true si cambiaron.
+     */
+    public static boolean saveSnapshot(Context context, List<Category> categories) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String value = formatSnapshot(categories);
+        if (value.equals(prefs.getString(KEY_QUICK_SNAPSHOT, ""))) {
+            return false;
+        }
+        prefs.edit().putString(KEY_QUICK_SNAPSHOT, value).apply();
+        return true;
+    }
+
+    // Una línea por categoría: "_id,tipo,nombre" (el nombre va al final, así puede tener comas)
+    static String formatSnapshot(List<Category> categories) {
+        StringBuilder value = new StringBuilder();
+        for (Category category : categories) {
+            if (value.length() > 0) {
+                value.append('\n');
+            }
+            value.append(category.getId()).append(',').append(category.getType()).append(',')
+                    .append(category.getName().replace('\n', ' '));
+        }
+        return value.toString();
+    }
+
+    static List<Category> parseSnapshot(String value) {
+        List<Category> categories = new ArrayList<>(MAX_RECENT);
+        if (value == null || value.isEmpty()) {
+            return categories;
+        }
+        for (String line : value.split("\n")) {
+            String[] parts = line.split(",", 3);
+            try {
+                categories.add(new Category(Integer.parseInt(parts[0]), parts[2], parts[1]));
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                // Línea corrupta: se ignora, la carga en segundo plano la repone
+            }
+        }
+        return categories;
+    }
+
+    static List<Integer> moveToFront(List<Integer> ids, int categoryId) {
+        List<Integer> result = new ArrayList<>(MAX_RECENT);
+        result.add(categoryId);
+        for (Integer id : ids) {
+            if (result.size() == MAX_RECENT) {
+                break;
+            }
+            if (id != categoryId) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    static List<Integer> parse(String value) {
+        List<Integer> ids = new ArrayList<>(MAX_RECENT);
+        if (value == null || value.isEmpty()) {
+            return ids;
+        }
+        for (String part : value.split(",")) {
+            try {
+                ids.add(Integer.parseInt(part.trim()));
+            } catch (NumberFormatException e) {
+                // Valor corrupto: se ignora esa posición
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,362 @@
+package com.example.misgastosam;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.misgastosam.DatabaseHelper.*;
+
+/**
+ * {@link SyncStore} sobre misgastos.db. Los cambios pendientes salen de los índices parciales
+ * sobre dirty = 1 y de la tabla de lápidas, así que el costo es proporcional a lo que cambió,
+ * no al tamaño de la base.
+ */
+public class SqliteSyncStore implements SyncStore {
+
+    private final DatabaseHelper dbHelper;
+
+    public SqliteSyncStore(DatabaseHelper dbHelper) {
+        this.dbHelper = dbHelper;
+    }
+
+    @Override
+    public String getDeviceId() {
+        return dbHelper.getDeviceId();
+    }
+
+    @Override
+    public List<SyncChange> getPendingChanges(int limit) {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        List<SyncChange> changes = new ArrayList<>();
+
+        // 1. Categorías (antes que las transacciones que las referencian)
+        Cursor cursor = db.rawQuery("SELECT " + COLUMN_SYNC_ID + ", " + COLUMN_UPDATED_AT + ", " + COLUMN_UPDATED_BY + ", " +
+                COLUMN_CATEGORY_NAME + ", " + COLUMN_CATEGORY_TYPE + " FROM " + TABLE_CATEGORIES +
+                " WHERE " + COLUMN_DIRTY + " = 1 LIMIT " + limit, null);
+        try {
+            while (cursor.moveToNext()) {
+                changes.add(SyncChange.category(cursor.getString(0), cursor.getLong(1), cursor.getString(2),
+                        cursor.getString(3), cursor.getString(4)));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        // 2. Transacciones
+        if (changes.size() < limit) {
+            cursor = db.rawQuery("SELECT T." + COLUMN_SYNC_ID + ", T." + COLUMN_UPDATED_AT + ", T." + COLUMN_UPDATED_BY + ", " +
+                    "T." + COLUMN_TRANSACTION_AMOUNT + ", T." + COLUMN_TRANSACTION_DESCRIPTION + ", C." + COLUMN_SYNC_ID + ", " +
+                    "T." + COLUMN_TRANSACTION_DATE + ", A." + COLUMN_ACCOUNT_NAME + ", T." + COLUMN_TRANSACTION_TRANSFER_ID + ", " +
+                    "T." + COLUMN_TRANSACTION_IS_SPLIT + " FROM " + TABLE_TRANSACTIONS + " T" +
+                    " LEFT JOIN " + TABLE_CATEGORIES + " C ON T." + COLUMN_TRANSACTION_CATEGORY_ID + " = C." + COLUMN_CATEGORY_ID +
+                    " LEFT JOIN " + TABLE_ACCOUNTS + " A ON T." + COLUMN_TRANSACTION_ACCOUNT_ID + " = A." + COLUMN_ACCOUNT_ID +
+                    " WHERE T." + COLUMN_DIRTY + " = 1 LIMIT " + (limit - changes.size()), null);
+            Map<String, List<SyncChange.SplitLine>> splitsBySyncId = new HashMap<>();
+            try {
+                while (cursor.moveToNext()) {
+                    List<SyncChange.SplitLine> splits = new ArrayList<>();
+                    if (cursor.getInt(9) == 1) {
+                        splitsBySyncId.put(cursor.getString(0), splits);
+                    }
+                    changes.add(SyncChange.transaction(cursor.getString(0), cursor.getLong(1), cursor.getString(2),
+                            cursor.getDouble(3), cursor.getString(4), cursor.getString(5), cursor.getString(6),
+                            cursor.getString(7), cursor.getString(8)).withSplits(splits));
+                }
+            } finally {
+                cursor.close();
+            }
+            if (!splitsBySyncId.isEmpty()) {
+                addSplitLines(db, splitsBySyncId);
+            }
+        }
+
+        // 3. Borrados: transacciones antes que categorías
+        if (changes.size() < limit) {
+            cursor = db.rawQuery("SELECT " + COLUMN_SYNC_ID + ", " + COLUMN_TOMBSTONE_ENTITY + ", " +
+                    COLUMN_TOMBSTONE_DELETED_AT + ", " + COLUMN_TOMBSTONE_DELETED_BY + " FROM " + TABLE_SYNC_TOMBSTONES +
+                    " ORDER BY " + COLUMN_TOMBSTONE_ENTITY + " DESC LIMIT " + (limit - changes.size()), null);
+            try {
+                while (cursor.moveToNext()) {
+                    changes.add(SyncChange.deletion(cursor.getInt(1), cursor.getString(0), cursor.getLong(2), cursor.getString(3)));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Carga las líneas de las divididas pendientes en una sola consulta. Puede traer las de
+     * filas que quedaron fuera del límite del lote: esas se ignoran.
+     */
+    private static void addSplitLines(SQLiteDatabase db, Map<String, List<SyncChange.SplitLine>> splitsBySyncId) {
+        Cursor cursor = db.rawQuery("SELECT T." + COLUMN_SYNC_ID + ", C." + COLUMN_SYNC_ID + ", S." + COLUMN_SPLIT_AMOUNT +
+                " FROM " + TABLE_SPLITS + " S JOIN " + TABLE_TRANSACTIONS + " T ON S." + COLUMN_SPLIT_TRANSACTION_ID +
+                " = T." + COLUMN_TRANSACTION_ID + " JOIN " + TABLE_CATEGORIES + " C ON S." + COLUMN_SPLIT_CATEGORY_ID +
+                " = C." + COLUMN_CATEGORY_ID + " WHERE T." + COLUMN_DIRTY + " = 1 AND T." + COLUMN_TRANSACTION_IS_SPLIT +
+                " = 1 ORDER BY S." + COLUMN_SPLIT_ID, null);
+        try {
+            while (cursor.moveToNext()) {
+                List<SyncChange.SplitLine> splits = splitsBySyncId.get(cursor.getString(0));
+                if (splits != null) {
+                    splits.add(new SyncChange.SplitLine(cursor.getString(1), cursor.getDouble(2)));
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Override
+    public void markPushed(List<SyncChange> changes) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            SQLiteStatement clearCategory = db.compileStatement("UPDATE " + TABLE_CATEGORIES + " SET " + COLUMN_DIRTY +
+                    " = 0 WHERE " + COLUMN_SYNC_ID + " = ? AND " + COLUMN_UPDATED_AT + " = ?");
+            SQLiteStatement clearTransaction = db.compileStatement("UPDATE " + TABLE_TRANSACTIONS + " SET " + COLUMN_DIRTY +
+                    " = 0 WHERE " + COLUMN_SYNC_ID + " = ? AND " + COLUMN_UPDATED_AT + " = ?");
+            SQLiteStatement clearTombstone = db.compileStatement("DELETE FROM " + TABLE_SYNC_TOMBSTONES +
+                    " WHERE " + COLUMN_SYNC_ID + " = ? AND " + COLUMN_TOMBSTONE_DELETED_AT + " = ?");
+            for (SyncChange change : changes) {
+                SQLiteStatement statement = change.isDeleted() ? clearTombstone
+                        : change.getEntity() == SyncChange.ENTITY_CATEGORY ? clearCategory : clearTransaction;
+                statement.bindString(1, change.getSyncId());
+                statement.bindLong(2, change.getUpdatedAt());
+                statement.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    public long getPullCursor() {
+        String value = DatabaseHelper.getSyncState(dbHelper.getReadableDatabase(), SYNC_STATE_PULL_CURSOR);
+        return value != null ? Long.parseLong(value) : 0L;
+    }
+
+    @Override
+    public void applyRemoteChanges(List<SyncChange> changes, long newCursor) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        Map<String, Integer> categoryIds = new HashMap<>();
+        Map<String, Integer> accountIds = new HashMap<>();
+        db.beginTransaction();
+        try {
+            // Mientras esta marca existe, los triggers no generan lápidas para los borrados remotos
+            DatabaseHelper.putSyncState(db, SYNC_STATE_APPLYING, "1");
+            for (SyncChange change : orderForApply(changes)) {
+                applyChange(db, change, categoryIds, accountIds);
+            }
+            DatabaseHelper.putSyncState(db, SYNC_STATE_APPLYING, null);
+            DatabaseHelper.putSyncState(db, SYNC_STATE_PULL_CURSOR, String.valueOf(newCursor));
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        if (!changes.isEmpty()) {
+            // Los cambios remotos no calculan delta: el índice de saldos se reconstruye al consultarlo
+            dbHelper.invalidateDailyBalanceIndex();
+            dbHelper.invalidateDuplicateFilter();
+            dbHelper.bumpCategoryVersion();
+        }
+    }
+
+    /**
+     * Altas de categorías, luego transacciones, luego bajas de categorías:
+     * así una transacción nunca llega antes que su categoría dentro del mismo lote.
+     */
+    private static List<SyncChange> orderForApply(List<SyncChange> changes) {
+        List<SyncChange> ordered = new ArrayList<>(changes.size());
+        for (SyncChange change : changes) {
+            if (change.getEntity() == SyncChange.ENTITY_CATEGORY && !change.isDeleted()) ordered.add(change);
+        }
+        for (SyncChange change : changes) {
+            if (change.getEntity() == SyncChange.ENTITY_TRANSACTION) ordered.add(change);
+        }
+        for (SyncChange change : changes) {
+            if (change.getEntity() == SyncChange.ENTITY_CATEGORY && change.isDeleted()) ordered.add(change);
+        }
+        return ordered;
+    }
+
+    private void applyChange(SQLiteDatabase db, SyncChange change, Map<String, Integer> categoryIds,
+                             Map<String, Integer> accountIds) {
+        String table = change.getEntity() == SyncChange.ENTITY_CATEGORY ? TABLE_CATEGORIES : TABLE_TRANSACTIONS;
+        String[] syncIdArg = {change.getSyncId()};
+
+        Cursor cursor = db.query(table, new String[]{COLUMN_UPDATED_AT, COLUMN_UPDATED_BY},
+                COLUMN_SYNC_ID + " = ?", syncIdArg, null, null, null);
+        boolean exists;
+        try {
+            exists = cursor.moveToFirst();
+            if (exists && !SyncConflictResolver.incomingWins(change, cursor.getLong(0), cursor.getString(1), false)) {
+                return; // La versión local es más nueva: se enviará en el próximo push
+            }
+        } finally {
+            cursor.close();
+        }
+
+        if (!exists) {
+            cursor = db.query(TABLE_SYNC_TOMBSTONES, new String[]{COLUMN_TOMBSTONE_DELETED_AT, COLUMN_TOMBSTONE_DELETED_BY},
+                    COLUMN_SYNC_ID + " = ?", syncIdArg, null, null, null);
+            try {
+                if (cursor.moveToFirst() && !SyncConflictResolver.incomingWins(change, cursor.getLong(0), cursor.getString(1), true)) {
+                    return; // El borrado local es más nuevo
+                }
+            } finally {
+                cursor.close();
+            }
+            db.delete(TABLE_SYNC_TOMBSTONES, COLUMN_SYNC_ID + " = ?", syncIdArg);
+        }
+
+        if (change.isDeleted()) {
+            if (exists) {
+                db.delete(table, COLUMN_SYNC_ID + " = ?", syncIdArg);
+                if (change.getEntity() == SyncChange.ENTITY_CATEGORY) {
+                    categoryIds.remove(change.getSyncId());
+                }
+            }
+            return;
+        }
+
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_UPDATED_AT, change.getUpdatedAt());
+        values.put(COLUMN_UPDATED_BY, change.getUpdatedBy());
+        values.put(COLUMN_DIRTY, 0);
+        if (change.getEntity() == SyncChange.ENTITY_CATEGORY) {
+            values.put(COLUMN_CATEGORY_NAME, uniqueCategoryName(db, change));
+            values.put(COLUMN_CATEGORY_TYPE, change.getType());
+        } else {
+            values.put(COLUMN_TRANSACTION_AMOUNT, change.getAmount());
+            values.put(COLUMN_TRANSACTION_DESCRIPTION, change.getDescription());
+            int categoryId = resolveCategoryId(db, change.getCategorySyncId(), change.getAmount(), categoryIds);
+            values.put(COLUMN_TRANSACTION_CATEGORY_ID, categoryId);
+            values.put(COLUMN_TRANSACTION_DATE, change.getDate());
+            values.put(COLUMN_TRANSACTION_ACCOUNT_ID, resolveAccountId(db, change.getAccountName(), accountIds));
+            values.put(COLUMN_TRANSACTION_TRANSFER_ID, change.getTransferId());
+            values.put(COLUMN_TRANSACTION_FINGERPRINT, TransactionFingerprint.of(EpochDay.fromIsoDate(change.getDate()),
+                    change.getAmount(), change.getDescription(), categoryId));
+            if (change.getSplits() != null) {
+                values.put(COLUMN_TRANSACTION_IS_SPLIT, change.getSplits().size() > 1 ? 1 : 0);
+            }
+        }
+        boolean replacesSplits = change.getEntity() == SyncChange.ENTITY_TRANSACTION && change.getSplits() != null;
+
+        if (exists) {
+            if (replacesSplits) {
+                // Como en setTransactionSplits: primero se quitan las líneas viejas, después cambia la fila
+                db.delete(TABLE_SPLITS, COLUMN_SPLIT_TRANSACTION_ID + " IN (SELECT " + COLUMN_TRANSACTION_ID + " FROM " +
+                        TABLE_TRANSACTIONS + " WHERE " + COLUMN_SYNC_ID + " = ?)", syncIdArg);
+            } else if (change.getEntity() == SyncChange.ENTITY_TRANSACTION) {
+                // Lote viejo sin líneas: si el otro dispositivo cambió monto o categoría, las locales se descartan
+                collapseChangedSplit(db, COLUMN_SYNC_ID + " = ?", syncIdArg,
+                        values.getAsInteger(COLUMN_TRANSACTION_CATEGORY_ID), change.getAmount());
+            }
+            db.update(table, values, COLUMN_SYNC_ID + " = ?", syncIdArg);
+        } else {
+            values.put(COLUMN_SYNC_ID, change.getSyncId());
+            db.insertOrThrow(table, null, values);
+        }
+        if (replacesSplits && change.getSplits().size() > 1) {
+            SQLiteStatement insert = DatabaseHelper.compileSplitLineInsert(db, COLUMN_SYNC_ID);
+            for (SyncChange.SplitLine line : change.getSplits()) {
+                DatabaseHelper.insertSplitLine(insert, change.getSyncId(),
+                        resolveCategoryId(db, line.getCategorySyncId(), line.getAmount(), categoryIds), line.getAmount());
+            }
+        }
+    }
+
+    /**
+     * Si otra categoría local (con distinto sync_id) ya usa el mismo nombre y tipo, se le agrega
+     * un sufijo derivado del sync_id: es determinista y no pierde ninguna de las dos.
+     */
+    private static String uniqueCategoryName(SQLiteDatabase db, SyncChange change) {
+        Cursor cursor = db.query(TABLE_CATEGORIES, new String[]{COLUMN_SYNC_ID},
+                COLUMN_CATEGORY_NAME + " = ? AND " + COLUMN_CATEGORY_TYPE + " = ?",
+                new String[]{change.getName(), change.getType()}, null, null, null);
+        try {
+            if (cursor.moveToFirst() && !change.getSyncId().equals(cursor.getString(0))) {
+                return change.getName() + " (" + change.getSyncId().substring(0, 4) + ")";
+            }
+            return change.getName();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Traduce el nombre de la cuenta al _id local, creándola si en este dispositivo no existe.
+     * Sin nombre (lotes de la versión 1) la transacción queda en la cuenta por defecto.
+     */
+    private static int resolveAccountId(SQLiteDatabase db, String accountName, Map<String, Integer> accountIds) {
+        if (accountName == null) {
+            return Account.DEFAULT_ID;
+        }
+        Integer cached = accountIds.get(accountName);
+        if (cached != null) {
+            return cached;
+        }
+        int id;
+        Cursor cursor = db.query(TABLE_ACCOUNTS, new String[]{COLUMN_ACCOUNT_ID},
+                COLUMN_ACCOUNT_NAME + " = ?", new String[]{accountName}, null, null, null);
+        try {
+            id = cursor.moveToFirst() ? cursor.getInt(0) : -1;
+        } finally {
+            cursor.close();
+        }
+        if (id == -1) {
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_ACCOUNT_NAME, accountName);
+            id = (int) db.insertOrThrow(TABLE_ACCOUNTS, null, values);
+        }
+        accountIds.put(accountName, id);
+        return id;
+    }
+
+    /**
+     * Traduce el sync_id de la categoría al _id local. Si la categoría todavía no llegó, se crea
+     * un marcador con updated_at = 0, que cualquier versión real de la categoría sobrescribe.
+     */
+    private static int resolveCategoryId(SQLiteDatabase db, String categorySyncId, double amount,
+                                         Map<String, Integer> categoryIds) {
+        if (categorySyncId == null) {
+            // Transacción huérfana en origen: se asigna a "Otros" del tipo correspondiente
+            categorySyncId = DatabaseHelper.categorySyncId("Otros",
+                    amount < 0 ? Category.TYPE_EXPENSE : Category.TYPE_INCOME);
+        }
+        Integer cached = categoryIds.get(categorySyncId);
+        if (cached != null) {
+            return cached;
+        }
+        int id;
+        Cursor cursor = db.query(TABLE_CATEGORIES, new String[]{COLUMN_CATEGORY_ID},
+                COLUMN_SYNC_ID + " = ?", new String[]{categorySyncId}, null, null, null);
+        try {
+            id = cursor.moveToFirst() ? cursor.getInt(0) : -1;
+        } finally {
+            cursor.close();
+        }
+        if (id == -1) {
+            Log.w("SqliteSyncStore", "Categoría " + categorySyncId + " aún no sincronizada, se crea un marcador.");
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_CATEGORY_NAME, "~" + categorySyncId);
+            values.put(COLUMN_CATEGORY_TYPE, amount < 0 ? Category.TYPE_EXPENSE : Category.TYPE_INCOME);
+            values.put(COLUMN_SYNC_ID, categorySyncId);
+            values.put(COLUMN_UPDATED_AT, 0L);
+            values.put(COLUMN_DIRTY, 0);
+            id = (int) db.insertOrThrow(TABLE_CATEGORIES, null, values);
+        }
+        categoryIds.put(categorySyncId, id);
+        return id;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.misgastosam;
+
+import android.graphics.Canvas;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Dibuja fijo arriba del historial el encabezado del mes visible. Usa un único ViewHolder
+ * propio que solo se vuelve a enlazar cuando cambia el mes o los datos, así cada frame
+ * se limita a una traslación y un draw, sin inflar ni asignar memoria.
+ */
+public class StickyMonthHeaderDecoration extends RecyclerView.ItemDecoration {
+
+    private final TransactionAdapter adapter;
+    private RecyclerView.ViewHolder headerHolder;
+    private int boundHeaderPosition = RecyclerView.NO_POSITION;
+    private int measuredForWidth = -1;
+
+    public StickyMonthHeaderDecoration(TransactionAdapter adapter) {
+        this.adapter = adapter;
+        // Cualquier cambio puede mover los encabezados o sus subtotales: se vuelve a enlazar al dibujar
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                invalidateHeader();
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount) {
+                invalidateHeader();
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                invalidateHeader();
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                invalidateHeader();
+            }
+
+            @Override
+            public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                invalidateHeader();
+            }
+        });
+    }
+
+    private void invalidateHeader() {
+        boundHeaderPosition = RecyclerView.NO_POSITION;
+    }
+
+    @Override
+    public void onDrawOver(@NonNull Canvas c, @NonNull RecyclerView parent, @NonNull RecyclerView.State state) {
+        if (parent.getChildCount() == 0) {
+            return;
+        }
+        int topPosition = parent.getChildAdapterPosition(parent.getChildAt(0));
+        if (topPosition == RecyclerView.NO_POSITION) {
+            return;
+        }
+        View header = getHeaderView(parent, adapter.getHeaderPositionFor(topPosition));
+        int headerBottom = parent.getPaddingTop() + header.getHeight();
+
+        // El encabezado del mes siguiente empuja al actual hacia arriba
+        int offset = 0;
+        for (int i = 1; i < parent.getChildCount(); i++) {
+            View child = parent.getChildAt(i);
+            if (child.getTop() >= headerBottom) {
+                break;
+            }
+            int position = parent.getChildAdapterPosition(child);
+            if (position != RecyclerView.NO_POSITION && adapter.isHeader(position)) {
+                offset = child.getTop() - headerBottom;
+                break;
+            }
+        }
+
+        c.save();
+        c.translate(parent.getPaddingLeft(), parent.getPaddingTop() + offset);
+        header.draw(c);
+        c.restore();
+    }
+
+    private View getHeaderView(RecyclerView parent, int headerPosition) {
+        if (headerHolder == null) {
+            headerHolder = adapter.createViewHolder(parent, TransactionAdapter.TYPE_MONTH_HEADER);
+        }
+        View header = headerHolder.itemView;
+        if (headerPosition != boundHeaderPosition) {
+            adapter.bindViewHolder(headerHolder, headerPosition);
+            boundHeaderPosition = headerPosition;
+            measuredForWidth = -1; // Los textos cambiaron: hay que volver a medir
+        }
+        if (measuredForWidth != parent.getWidth()) {
+            int width = parent.getWidth() - parent.getPaddingLeft() - parent.getPaddingRight();
+            header.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+            header.layout(0, 0, header.getMeasuredWidth(), header.getMeasuredHeight());
+            measuredForWidth = parent.getWidth();
+        }
+        return header;
+    }
+}
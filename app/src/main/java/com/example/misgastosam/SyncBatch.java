@@ -0,0 +1,31 @@
+package com.example.misgastosam;
+
+import java.util.List;
+
+/**
+ * Lote de cambios intercambiado con el servidor.
+ * En un pull, {@code cursor} es la posición del servidor hasta la que llega el lote.
+ */
+public class SyncBatch {
+    private final long cursor;
+    private final boolean hasMore;
+    private final List<SyncChange> changes;
+
+    public SyncBatch(long cursor, boolean hasMore, List<SyncChange> changes) {
+        this.cursor = cursor;
+        this.hasMore = hasMore;
+        this.changes = changes;
+    }
+
+    public long getCursor() {
+        return cursor;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public List<SyncChange> getChanges() {
+        return changes;
+    }
+}
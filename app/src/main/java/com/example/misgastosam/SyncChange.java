@@ -0,0 +1,156 @@
+package com.example.misgastosam;
+
+import java.util.List;
+
+/**
+ * Un cambio de una fila (categoría o transacción) tal como viaja entre dispositivos.
+ * Las referencias entre filas usan sync_id, nunca el _id local de SQLite.
+ */
+public class SyncChange {
+    public static final int ENTITY_CATEGORY = 1;
+    public static final int ENTITY_TRANSACTION = 2;
+
+    private final int entity;
+    private final String syncId;
+    private final long updatedAt;   // Epoch millis de la escritura
+    private final String updatedBy; // Device id del escritor
+    private final boolean deleted;
+
+    // Campos de categoría
+    private String name;
+    private String type;
+
+    // Campos de transacción
+    private double amount;
+    private String description;
+    private String categorySyncId;
+    private String date;
+    private String accountName; // Las cuentas no tienen sync_id: se reconocen por nombre (único)
+    private String transferId;  // Ya es un UUID: el mismo en las dos mitades y en todos los dispositivos
+    private List<SplitLine> splits; // null si el lote no las trae (versiones viejas)
+
+    private SyncChange(int entity, String syncId, long updatedAt, String updatedBy, boolean deleted) {
+        this.entity = entity;
+        this.syncId = syncId;
+        this.updatedAt = updatedAt;
+        this.updatedBy = updatedBy;
+        this.deleted = deleted;
+    }
+
+    public static SyncChange category(String syncId, long updatedAt, String updatedBy, String name, String type) {
+        SyncChange change = new SyncChange(ENTITY_CATEGORY, syncId, updatedAt, updatedBy, false);
+        change.name = name;
+        change.type = type;
+        return change;
+    }
+
+    public static SyncChange transaction(String syncId, long updatedAt, String updatedBy, double amount,
+                                         String description, String categorySyncId, String date) {
+        return transaction(syncId, updatedAt, updatedBy, amount, description, categorySyncId, date, null, null);
+    }
+
+    /**
+     * @param accountName Nombre de la cuenta, o null para la cuenta por defecto.
+     * @param transferId  transfer_id de una mitad de transferencia, o null.
+     */
+    public static SyncChange transaction(String syncId, long updatedAt, String updatedBy, double amount,
+                                         String description, String categorySyncId, String date,
+                                         String accountName, String transferId) {
+        SyncChange change = new SyncChange(ENTITY_TRANSACTION, syncId, updatedAt, updatedBy, false);
+        change.amount = amount;
+        change.description = description;
+        change.categorySyncId = categorySyncId;
+        change.date = date;
+        change.accountName = accountName;
+        change.transferId = transferId;
+        return change;
+    }
+
+    /**
+     * Las líneas de la transacción: vacía si no está dividida. Las etiquetas no viajan: quedan
+     * en cada dispositivo.
+     */
+    public SyncChange withSplits(List<SplitLine> splits) {
+        this.splits = splits;
+        return this;
+    }
+
+    public static SyncChange deletion(int entity, String syncId, long updatedAt, String updatedBy) {
+        return new SyncChange(entity, syncId, updatedAt, updatedBy, true);
+    }
+
+    public int getEntity() {
+        return entity;
+    }
+
+    public String getSyncId() {
+        return syncId;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public String getUpdatedBy() {
+        return updatedBy;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getCategorySyncId() {
+        return categorySyncId;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public String getAccountName() {
+        return accountName;
+    }
+
+    public String getTransferId() {
+        return transferId;
+    }
+
+    public List<SplitLine> getSplits() {
+        return splits;
+    }
+
+    /** Una línea de una transacción dividida, con la categoría por sync_id. */
+    public static class SplitLine {
+        private final String categorySyncId;
+        private final double amount;
+
+        public SplitLine(String categorySyncId, double amount) {
+            this.categorySyncId = categorySyncId;
+            this.amount = amount;
+        }
+
+        public String getCategorySyncId() {
+            return categorySyncId;
+        }
+
+        public double getAmount() {
+            return amount;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.misgastosam;
+
+/**
+ * Resolución determinista de conflictos (last-writer-wins).
+ * Todos los dispositivos y el servidor eligen el mismo ganador sin coordinarse:
+ * 1. gana la escritura con mayor updatedAt;
+ * 2. a igual updatedAt, gana el device id mayor (orden lexicográfico);
+ * 3. si también coincide, el borrado gana a la modificación.
+ */
+public final class SyncConflictResolver {
+
+    private SyncConflictResolver() {
+    }
+
+    /**
+     * @return true si {@code incoming} debe reemplazar a la versión actual.
+     */
+    public static boolean incomingWins(SyncChange incoming, long currentUpdatedAt,
+                                       String currentUpdatedBy, boolean currentDeleted) {
+        if (incoming.getUpdatedAt() != currentUpdatedAt) {
+            return incoming.getUpdatedAt() > currentUpdatedAt;
+        }
+        int byDevice = compareNullable(incoming.getUpdatedBy(), currentUpdatedBy);
+        if (byDevice != 0) {
+            return byDevice > 0;
+        }
+        return incoming.isDeleted() && !currentDeleted;
+    }
+
+    public static boolean incomingWins(SyncChange incoming, SyncChange current) {
+        return incomingWins(incoming, current.getUpdatedAt(), current.getUpdatedBy(), current.isDeleted());
+    }
+
+    private static int compareNullable(String a, String b) {
+        if (a == null) {
+            return b == null ? 0 : -1;
+        }
+        return b == null ? 1 : a.compareTo(b);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.misgastosam;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Sincronización delta: envía solo las filas modificadas desde el último push y
+ * recibe solo lo que el servidor tiene después del cursor guardado.
+ * No hace hilos ni reintentos; de eso se encarga {@link SyncScheduler}.
+ */
+public class SyncEngine {
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final SyncStore store;
+    private final SyncTransport transport;
+    private final int batchSize;
+
+    public SyncEngine(SyncStore store, SyncTransport transport) {
+        this(store, transport, DEFAULT_BATCH_SIZE);
+    }
+
+    public SyncEngine(SyncStore store, SyncTransport transport, int batchSize) {
+        this.store = store;
+        this.transport = transport;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Ejecuta un ciclo completo push + pull. Es seguro repetirlo tras un fallo:
+     * lo ya confirmado no se reenvía y el cursor solo avanza junto con los cambios aplicados.
+     * @return Cantidad de cambios enviados y recibidos.
+     */
+    public Result sync() throws IOException {
+        Result result = new Result();
+        push(result);
+        pull(result);
+        return result;
+    }
+
+    private void push(Result result) throws IOException {
+        while (true) {
+            List<SyncChange> pending = store.getPendingChanges(batchSize);
+            if (pending.isEmpty()) {
+                return;
+            }
+            transport.push(SyncPayloadCodec.encode(new SyncBatch(0, false, pending)));
+            store.markPushed(pending);
+            result.pushed += pending.size();
+            if (pending.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    private void pull(Result result) throws IOException {
+        String deviceId = store.getDeviceId();
+        long cursor = store.getPullCursor();
+        boolean hasMore = true;
+        while (hasMore) {
+            SyncBatch batch = SyncPayloadCodec.decode(transport.pull(cursor, batchSize));
+            List<SyncChange> changes = batch.getChanges();
+            // Nuestros propios cambios vuelven del servidor: no hace falta re-aplicarlos
+            changes.removeIf(change -> deviceId.equals(change.getUpdatedBy()));
+            store.applyRemoteChanges(changes, batch.getCursor());
+            result.pulled += changes.size();
+            cursor = batch.getCursor();
+            hasMore = batch.hasMore();
+        }
+    }
+
+    public static class Result {
+        private int pushed;
+        private int pulled;
+
+        public int getPushed() {
+            return pushed;
+        }
+
+        public int getPulled() {
+            return pulled;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.misgastosam;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serializa lotes de sincronización en un formato binario compacto comprimido con GZIP.
+ * Los sync_id, device ids y fechas se repiten mucho entre filas, así que comprimen muy bien.
+ */
+public final class SyncPayloadCodec {
+
+    // 2: cuenta y transfer_id de las transacciones. 3: líneas de las divididas.
+    // Se siguen leyendo los lotes de versiones anteriores
+    private static final int FORMAT_VERSION = 3;
+
+    private SyncPayloadCodec() {
+    }
+
+    public static byte[] encode(SyncBatch batch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeLong(batch.getCursor());
+            out.writeBoolean(batch.hasMore());
+            out.writeInt(batch.getChanges().size());
+            for (SyncChange change : batch.getChanges()) {
+                out.writeByte(change.getEntity());
+                out.writeUTF(change.getSyncId());
+                out.writeLong(change.getUpdatedAt());
+                writeNullableString(out, change.getUpdatedBy());
+                out.writeBoolean(change.isDeleted());
+                if (change.isDeleted()) {
+                    continue;
+                }
+                if (change.getEntity() == SyncChange.ENTITY_CATEGORY) {
+                    out.writeUTF(change.getName());
+                    out.writeUTF(change.getType());
+                } else {
+                    out.writeDouble(change.getAmount());
+                    writeNullableString(out, change.getDescription());
+                    writeNullableString(out, change.getCategorySyncId());
+                    out.writeUTF(change.getDate());
+                    writeNullableString(out, change.getAccountName());
+                    writeNullableString(out, change.getTransferId());
+                    writeSplits(out, change.getSplits());
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    public static SyncBatch decode(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(payload)))) {
+            int version = in.readByte();
+            if (version < 1 || version > FORMAT_VERSION) {
+                throw new IOException("Versión de payload de sincronización no soportada: " + version);
+            }
+            long cursor = in.readLong();
+            boolean hasMore = in.readBoolean();
+            int count = in.readInt();
+            List<SyncChange> changes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int entity = in.readByte();
+                String syncId = in.readUTF();
+                long updatedAt = in.readLong();
+                String updatedBy = readNullableString(in);
+                boolean deleted = in.readBoolean();
+                if (deleted) {
+                    changes.add(SyncChange.deletion(entity, syncId, updatedAt, updatedBy));
+                } else if (entity == SyncChange.ENTITY_CATEGORY) {
+                    changes.add(SyncChange.category(syncId, updatedAt, updatedBy, in.readUTF(), in.readUTF()));
+                } else {
+                    double amount = in.readDouble();
+                    String description = readNullableString(in);
+                    String categorySyncId = readNullableString(in);
+                    String date = in.readUTF();
+                    String accountName = version >= 2 ? readNullableString(in) : null;
+                    String transferId = version >= 2 ? readNullableString(in) : null;
+                    List<SyncChange.SplitLine> splits = version >= 3 ? readSplits(in) : null;
+                    changes.add(SyncChange.transaction(syncId, updatedAt, updatedBy, amount, description, categorySyncId, date,
+                            accountName, transferId).withSplits(splits));
+                }
+            }
+            return new SyncBatch(cursor, hasMore, changes);
+        }
+    }
+
+    // -1 si no se conocen las líneas
+    private static void writeSplits(DataOutputStream out, List<SyncChange.SplitLine> splits) throws IOException {
+        out.writeInt(splits != null ? splits.size() : -1);
+        if (splits != null) {
+            for (SyncChange.SplitLine line : splits) {
+                out.writeUTF(line.getCategorySyncId());
+                out.writeDouble(line.getAmount());
+            }
+        }
+    }
+
+    private static List<SyncChange.SplitLine> readSplits(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            return null;
+        }
+        List<SyncChange.SplitLine> splits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            splits.add(new SyncChange.SplitLine(in.readUTF(), in.readDouble()));
+        }
+        return splits;
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
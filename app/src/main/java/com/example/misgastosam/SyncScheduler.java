@@ -0,0 +1,91 @@
+package com.example.misgastosam;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ejecuta {@link SyncEngine} en un hilo de fondo. Las peticiones que llegan mientras ya hay
+ * una sincronización programada se agrupan en una sola, y los fallos se reintentan con
+ * backoff exponencial con jitter (2 s, 4 s, 8 s... hasta 5 minutos).
+ */
+public class SyncScheduler {
+
+    private static final long BASE_BACKOFF_MS = 2_000;
+    private static final long MAX_BACKOFF_MS = 5 * 60_000;
+
+    private static SyncScheduler instance;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final Random random = new Random();
+    private final SyncStore store;
+    private SyncTransport transport;
+    private ScheduledFuture<?> pending;
+    private int failedAttempts = 0;
+
+    public static synchronized SyncScheduler getInstance(Context context) {
+        if (instance == null) {
+            instance = new SyncScheduler(new SqliteSyncStore(DatabaseHelper.getInstance(context)));
+        }
+        return instance;
+    }
+
+    SyncScheduler(SyncStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Configura el backend. Sin transporte, {@link #requestSync()} no hace nada.
+     */
+    public synchronized void setTransport(SyncTransport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Pide una sincronización lo antes posible. Si ya hay una programada (por ejemplo un
+     * reintento en espera), se adelanta en vez de encolar otra.
+     */
+    public synchronized void requestSync() {
+        if (transport == null) {
+            return;
+        }
+        if (pending != null && !pending.isDone()) {
+            if (pending.getDelay(TimeUnit.MILLISECONDS) <= 0) {
+                return; // Ya está por ejecutarse
+            }
+            pending.cancel(false);
+        }
+        failedAttempts = 0;
+        pending = executor.schedule(this::runSync, 0, TimeUnit.MILLISECONDS);
+    }
+
+    private void runSync() {
+        SyncEngine engine;
+        synchronized (this) {
+            engine = new SyncEngine(store, transport);
+        }
+        try {
+            SyncEngine.Result result = engine.sync();
+            Log.d("SyncScheduler", "Sincronización completa: " + result.getPushed() + " enviados, " + result.getPulled() + " recibidos.");
+            synchronized (this) {
+                failedAttempts = 0;
+            }
+        } catch (IOException | RuntimeException e) {
+            scheduleRetry(e);
+        }
+    }
+
+    private synchronized void scheduleRetry(Exception cause) {
+        failedAttempts++;
+        long backoff = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(failedAttempts - 1, 16));
+        long delay = backoff / 2 + (long) (random.nextDouble() * backoff / 2); // Jitter: evita que todos los dispositivos reintenten a la vez
+        Log.w("SyncScheduler", "Error de sincronización (intento " + failedAttempts + "), reintento en " + delay + " ms: " + cause.getMessage());
+        pending = executor.schedule(this::runSync, delay, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.misgastosam;
+
+import java.util.List;
+
+/**
+ * Lado local de la sincronización. {@link SqliteSyncStore} lo implementa sobre misgastos.db;
+ * los tests pueden usar una implementación en memoria.
+ */
+public interface SyncStore {
+
+    String getDeviceId();
+
+    /**
+     * Cambios locales todavía no enviados (filas con dirty = 1 y lápidas), categorías primero.
+     */
+    List<SyncChange> getPendingChanges(int limit);
+
+    /**
+     * Confirma que el servidor aceptó estos cambios. Una fila editada de nuevo
+     * después de leerla (updatedAt distinto) sigue pendiente.
+     */
+    void markPushed(List<SyncChange> changes);
+
+    long getPullCursor();
+
+    /**
+     * Aplica cambios remotos y avanza el cursor de pull de forma atómica.
+     * Los conflictos con filas locales se resuelven con {@link SyncConflictResolver}.
+     */
+    void applyRemoteChanges(List<SyncChange> changes, long newCursor);
+}
@@ -0,0 +1,22 @@
+package com.example.misgastosam;
+
+import java.io.IOException;
+
+/**
+ * Transporte hacia el backend de sincronización. Los payloads son lotes ya comprimidos
+ * por {@link SyncPayloadCodec}; la implementación solo tiene que moverlos.
+ * Cualquier fallo de red se informa con IOException para que el scheduler reintente.
+ */
+public interface SyncTransport {
+
+    /**
+     * Envía un lote de cambios locales. Cuando retorna sin excepción, el servidor los aceptó.
+     */
+    void push(byte[] payload) throws IOException;
+
+    /**
+     * Pide los cambios posteriores a {@code cursor}, como mucho {@code limit}.
+     * @return Un payload codificado con el lote y el nuevo cursor.
+     */
+    byte[] pull(long cursor, int limit) throws IOException;
+}
@@ -0,0 +1,199 @@
+package com.example.misgastosam;
+
+import java.util.Random;
+
+/**
+ * Genera un historial de transacciones verosímil y reproducible para pruebas de carga: la misma
+ * semilla produce siempre las mismas filas. Incluye sueldo, alquiler y servicios mensuales,
+ * gastos diarios con categorías sesgadas (el supermercado aparece mucho más que los regalos),
+ * montos log-normales con inflación anual y más movimientos los fines de semana.
+ * No conoce SQLite: escribe en un {@link Sink}, así sirve tanto para tests JVM como para
+ * {@link DatabaseHelper#insertSyntheticLedger(SyntheticLedgerGenerator)}.
+ */
+public class SyntheticLedgerGenerator {
+
+    /**
+     * Destino de las filas generadas.
+     */
+    public interface Sink {
+        /**
+         * @return El id de la categoría (existente o nueva) con ese nombre y tipo.
+         */
+        long addCategory(String name, String type);
+
+        void addTransaction(double amount, String description, long categoryId, String date);
+    }
+
+    private static final double INFLATION_PER_YEAR = 0.04;
+    private static final double INCOME_PROBABILITY = 0.03; // Ingresos esporádicos entre los movimientos diarios
+    // Con 5 días hábiles y 2 de fin de semana el promedio semanal sigue siendo transactionsPerDay
+    private static final double WEEKDAY_FACTOR = 0.9;
+    private static final double WEEKEND_FACTOR = 1.25;
+
+    private static final double SALARY = 2500;
+    private static final double RENT = 800;
+
+    private static final class CategorySpec {
+        final String name;
+        final String type;
+        final double weight;       // Frecuencia relativa entre los movimientos diarios
+        final double medianAmount; // Monto típico en el primer año
+        final double sigma;        // Dispersión log-normal
+        final String[] descriptions;
+
+        CategorySpec(String name, String type, double weight, double medianAmount, double sigma, String... descriptions) {
+            this.name = name;
+            this.type = type;
+            this.weight = weight;
+            this.medianAmount = medianAmount;
+            this.sigma = sigma;
+            this.descriptions = descriptions;
+        }
+    }
+
+    private static final CategorySpec[] DAILY_EXPENSES = {
+            new CategorySpec("Supermercado", Category.TYPE_EXPENSE, 30, 35, 0.8,
+                    "Supermercado", "Verdulería", "Carnicería", "Almacén", "Panadería", "Compra semanal"),
+            new CategorySpec("Transporte", Category.TYPE_EXPENSE, 16, 6, 0.7,
+                    "Colectivo", "Subte", "Taxi", "Nafta", "Estacionamiento", "Peaje"),
+            new CategorySpec("Restaurantes", Category.TYPE_EXPENSE, 14, 18, 0.6,
+                    "Almuerzo", "Cena", "Café", "Pedido delivery", "Pizzería", "Heladería"),
+            new CategorySpec("Entretenimiento", Category.TYPE_EXPENSE, 8, 20, 0.7,
+                    "Cine", "Streaming", "Recital", "Libro", "Videojuego"),
+            new CategorySpec("Hogar", Category.TYPE_EXPENSE, 6, 30, 0.9,
+                    "Ferretería", "Artículos de limpieza", "Bazar", "Plomero"),
+            new CategorySpec("Salud", Category.TYPE_EXPENSE, 5, 25, 0.9,
+                    "Farmacia", "Consulta médica", "Dentista", "Óptica"),
+            new CategorySpec("Ropa", Category.TYPE_EXPENSE, 5, 45, 0.7,
+                    "Zapatillas", "Remera", "Pantalón", "Campera"),
+            new CategorySpec("Otros", Category.TYPE_EXPENSE, 4, 15, 1.0,
+                    "Kiosco", "Varios", "Lavandería"),
+            new CategorySpec("Educación", Category.TYPE_EXPENSE, 3, 40, 0.6,
+                    "Curso online", "Útiles", "Fotocopias"),
+            new CategorySpec("Regalos", Category.TYPE_EXPENSE, 2, 35, 0.8,
+                    "Regalo de cumpleaños", "Regalo de Navidad"),
+    };
+
+    private static final CategorySpec[] DAILY_INCOMES = {
+            new CategorySpec("Freelance", Category.TYPE_INCOME, 6, 300, 0.7, "Proyecto freelance", "Consultoría"),
+            new CategorySpec("Otros", Category.TYPE_INCOME, 4, 50, 0.9, "Reintegro", "Venta usada", "Devolución"),
+    };
+
+    private static final String[] SERVICES = {"Luz", "Gas", "Internet", "Celular"};
+    private static final double[] SERVICE_AMOUNTS = {45, 30, 25, 20};
+
+    private final long seed;
+    private final int firstDay;
+    private final int days;
+    private final double transactionsPerDay;
+
+    /**
+     * @param startDate Primer día del historial (YYYY-MM-DD).
+     * @param years Cantidad de años a generar.
+     * @param transactionsPerDay Promedio de movimientos diarios, sin contar los mensuales.
+     */
+    public SyntheticLedgerGenerator(long seed, String startDate, int years, double transactionsPerDay) {
+        this.seed = seed;
+        this.firstDay = EpochDay.fromIsoDate(startDate);
+        int civil = EpochDay.toCivil(firstDay);
+        this.days = EpochDay.fromCivil(civil / 10000 + years, (civil / 100) % 100, Math.min(civil % 100, 28)) - firstDay;
+        this.transactionsPerDay = transactionsPerDay;
+    }
+
+    /**
+     * Escribe todas las categorías y transacciones en {@code sink}, en orden de fecha.
+     * @return Cantidad de transacciones generadas.
+     */
+    public int generate(Sink sink) {
+        Random random = new Random(seed);
+        long[] expenseIds = addCategories(sink, DAILY_EXPENSES);
+        long[] incomeIds = addCategories(sink, DAILY_INCOMES);
+        double[] expenseWeights = cumulativeWeights(DAILY_EXPENSES);
+        double[] incomeWeights = cumulativeWeights(DAILY_INCOMES);
+        long salaryId = sink.addCategory("Sueldo", Category.TYPE_INCOME);
+        long rentId = sink.addCategory("Alquiler", Category.TYPE_EXPENSE);
+        long servicesId = sink.addCategory("Servicios", Category.TYPE_EXPENSE);
+
+        int count = 0;
+        for (int d = 0; d < days; d++) {
+            int epochDay = firstDay + d;
+            String date = EpochDay.toIsoDate(epochDay);
+            int dayOfMonth = EpochDay.toCivil(epochDay) % 100;
+            double priceLevel = Math.pow(1 + INFLATION_PER_YEAR, d / 365.0);
+
+            // Movimientos mensuales: el sueldo se ajusta una vez por año, los demás siguen la inflación
+            if (dayOfMonth == 1) {
+                sink.addTransaction(round(SALARY * Math.pow(1 + INFLATION_PER_YEAR, d / 365)), "Sueldo", salaryId, date);
+                count++;
+            } else if (dayOfMonth == 5) {
+                sink.addTransaction(-round(RENT * priceLevel), "Alquiler", rentId, date);
+                count++;
+            } else if (dayOfMonth == 10) {
+                for (int s = 0; s < SERVICES.length; s++) {
+                    sink.addTransaction(-round(SERVICE_AMOUNTS[s] * priceLevel * (0.8 + 0.4 * random.nextDouble())), SERVICES[s], servicesId, date);
+                    count++;
+                }
+            }
+
+            boolean weekend = EpochDay.dayOfWeek(epochDay) >= 5;
+            int dailyCount = poisson(random, transactionsPerDay * (weekend ? WEEKEND_FACTOR : WEEKDAY_FACTOR));
+            for (int i = 0; i < dailyCount; i++) {
+                boolean income = random.nextDouble() < INCOME_PROBABILITY;
+                CategorySpec[] specs = income ? DAILY_INCOMES : DAILY_EXPENSES;
+                int c = pick(random, income ? incomeWeights : expenseWeights);
+                CategorySpec spec = specs[c];
+                double amount = spec.medianAmount * priceLevel * Math.min(20, Math.exp(spec.sigma * random.nextGaussian()));
+                String description = spec.descriptions[random.nextInt(spec.descriptions.length)];
+                sink.addTransaction(income ? round(amount) : -round(amount), description, income ? incomeIds[c] : expenseIds[c], date);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long[] addCategories(Sink sink, CategorySpec[] specs) {
+        long[] ids = new long[specs.length];
+        for (int i = 0; i < specs.length; i++) {
+            ids[i] = sink.addCategory(specs[i].name, specs[i].type);
+        }
+        return ids;
+    }
+
+    private static double[] cumulativeWeights(CategorySpec[] specs) {
+        double[] cumulative = new double[specs.length];
+        double total = 0;
+        for (int i = 0; i < specs.length; i++) {
+            total += specs[i].weight;
+            cumulative[i] = total;
+        }
+        return cumulative;
+    }
+
+    private static int pick(Random random, double[] cumulative) {
+        double target = random.nextDouble() * cumulative[cumulative.length - 1];
+        int i = 0;
+        while (i < cumulative.length - 1 && cumulative[i] <= target) {
+            i++;
+        }
+        return i;
+    }
+
+    // Knuth para tasas chicas; con tasas grandes (pruebas de millones de filas) alcanza la aproximación normal
+    private static int poisson(Random random, double lambda) {
+        if (lambda >= 30) {
+            return Math.max(0, (int) Math.round(lambda + Math.sqrt(lambda) * random.nextGaussian()));
+        }
+        double limit = Math.exp(-lambda);
+        double product = random.nextDouble();
+        int k = 0;
+        while (product > limit) {
+            product *= random.nextDouble();
+            k++;
+        }
+        return k;
+    }
+
+    private static double round(double amount) {
+        return Math.round(amount * 100) / 100.0;
+    }
+}
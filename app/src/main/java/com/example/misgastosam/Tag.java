@@ -0,0 +1,58 @@
+package com.example.misgastosam;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Una etiqueta libre (viaje, trabajo, chicos...). A diferencia de la categoría, una transacción
+ * puede tener varias o ninguna; el filtro por etiquetas lo resuelve {@link TagIndex}.
+ */
+public class Tag {
+    private final int id;
+    private final String name;
+
+    public Tag(int id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Separa el texto de un campo de etiquetas ("viaje, Trabajo ,viaje") en nombres sin repetir
+     * (sin distinguir mayúsculas), en el orden en que se escribieron.
+     */
+    public static List<String> parse(String text) {
+        Map<String, String> names = new LinkedHashMap<>();
+        if (text != null) {
+            for (String part : text.split(",")) {
+                String name = part.trim().replaceAll("\\s+", " ");
+                if (!name.isEmpty()) {
+                    names.putIfAbsent(name.toLowerCase(Locale.ROOT), name);
+                }
+            }
+        }
+        return new ArrayList<>(names.values());
+    }
+
+    /**
+     * El texto que se muestra en el campo de etiquetas: los nombres separados por coma.
+     */
+    public static String join(List<String> names) {
+        return String.join(", ", names);
+    }
+}
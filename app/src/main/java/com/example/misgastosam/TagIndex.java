@@ -0,0 +1,63 @@
+package com.example.misgastosam;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Las transacciones de cada etiqueta como un {@link RoaringBitmap} de ids, para resolver los
+ * filtros de varias etiquetas (todas / alguna) con intersecciones y uniones en memoria en lugar
+ * de un JOIN por etiqueta. Lo arma {@link DatabaseHelper#getTagIndex()} con una lectura de
+ * transaction_tags y después lo actualiza cada cambio de etiquetas.
+ * Los borrados de transacciones no lo tocan: los ids no se reutilizan (AUTOINCREMENT) y el
+ * resultado siempre se cruza con filas que existen, así un id viejo no aparece en ningún filtro.
+ */
+public class TagIndex {
+
+    private final Map<Integer, RoaringBitmap> transactionsByTag = new HashMap<>();
+
+    public synchronized void add(int tagId, int transactionId) {
+        RoaringBitmap transactions = transactionsByTag.get(tagId);
+        if (transactions == null) {
+            transactions = new RoaringBitmap();
+            transactionsByTag.put(tagId, transactions);
+        }
+        transactions.add(transactionId);
+    }
+
+    /**
+     * Reemplaza las etiquetas de una transacción.
+     */
+    public synchronized void setTags(int transactionId, Collection<Integer> tagIds) {
+        for (RoaringBitmap transactions : transactionsByTag.values()) {
+            transactions.remove(transactionId);
+        }
+        for (int tagId : tagIds) {
+            add(tagId, transactionId);
+        }
+    }
+
+    /**
+     * Ids de las transacciones que tienen todas las etiquetas ({@code matchAll}) o alguna de ellas.
+     * El resultado es una copia: se puede usar desde otro hilo mientras el índice cambia.
+     */
+    public synchronized RoaringBitmap match(Collection<Integer> tagIds, boolean matchAll) {
+        RoaringBitmap result = null;
+        for (int tagId : tagIds) {
+            RoaringBitmap transactions = transactionsByTag.get(tagId);
+            if (transactions == null) {
+                if (matchAll) {
+                    return new RoaringBitmap(); // Una etiqueta sin transacciones vacía la intersección
+                }
+                continue;
+            }
+            if (result == null) {
+                result = transactions.copy();
+            } else {
+                result = matchAll ? result.and(transactions) : result.or(transactions);
+            }
+        }
+        return (result != null) ? result : new RoaringBitmap();
+    }
+
+}
@@ -1,13 +1,19 @@
 package com.example.misgastosam;
 
+import android.app.AlertDialog;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
 import android.text.TextUtils;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
+import android.widget.AutoCompleteTextView;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.RadioButton;
@@ -26,17 +32,23 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class Transaccion extends AppCompatActivity {
 
     private EditText editTextAmount;
-    private EditText editTextDescription;
+    private AutoCompleteTextView editTextDescription;
+    private EditText editTextTags;
     private Spinner spinnerCategory;
+    private Spinner spinnerAccount;
     private RadioGroup radioGroupType;
     private RadioButton radioExpense, radioIncome;
     private Button buttonSaveTransaction;
 
     private DatabaseHelper dbHelper;
+    private final ExecutorService dbExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     // Constantes para los TEXTOS que se muestran al usuario en los RadioButtons
     private static final String DISPLAY_TEXT_EXPENSE = "Gasto";
@@ -47,10 +59,16 @@ public class Transaccion extends AppCompatActivity {
     private List<Category> currentFilteredCategories; // Categorías actualmente mostradas en el spinner (filtradas por tipo)
     private Category selectedCategoryObject; // Objeto Category actualmente seleccionado en el spinner
 
+    // Sugerencia de categoría según la descripción: deja de actuar cuando el usuario elige una a mano
+    private CategoryPredictor categoryPredictor;
+    private int expectedSpinnerPosition = -1; // Última selección hecha desde el código
+    private boolean categoryPickedByUser;
+
     // Constantes para SharedPreferences (para guardar la última categoría seleccionada para cada tipo)
     private static final String PREFS_NAME = "TransactionPrefs";
     private static final String KEY_LAST_EXPENSE_CATEGORY_ID = "last_expense_category_id";
     private static final String KEY_LAST_INCOME_CATEGORY_ID = "last_income_category_id";
+    private static final String KEY_LAST_ACCOUNT_ID = "last_account_id";
 
 
     @Override
@@ -65,14 +83,39 @@ public class Transaccion extends AppCompatActivity {
             return insets;
         });
 
-        dbHelper = new DatabaseHelper(this);
+        dbHelper = DatabaseHelper.getInstance(this);
         // **IMPORTANTE**: Asegura que las categorías "Otros" existan al iniciar la actividad
         dbHelper.createDefaultCategoriesIfNotExist();
 
         // Conectar vistas
         editTextAmount = findViewById(R.id.editText_amount);
         editTextDescription = findViewById(R.id.editText_description);
+        editTextTags = findViewById(R.id.editText_tags);
+        // Las sugerencias salen de memoria; la primera vez se cargan en segundo plano
+        DescriptionIndex descriptionIndex = DescriptionIndex.getInstance();
+        descriptionIndex.ensureLoaded(dbHelper);
+        editTextDescription.setAdapter(new DescriptionSuggestionAdapter(this, descriptionIndex));
+        categoryPredictor = CategoryPredictor.getInstance(this);
+        categoryPredictor.ensureLoaded(dbHelper);
+        TransactionWriteQueue.getInstance(this).warmDuplicateFilter(); // Lo usa el aviso de duplicado al guardar
+        TextWatcher suggestionWatcher = new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                suggestCategory();
+            }
+        };
+        editTextAmount.addTextChangedListener(suggestionWatcher);
+        editTextDescription.addTextChangedListener(suggestionWatcher);
         spinnerCategory = findViewById(R.id.spinner_category);
+        spinnerAccount = findViewById(R.id.spinner_account);
         radioGroupType = findViewById(R.id.radioGroup_type);
         radioExpense = findViewById(R.id.radio_expense);
         radioIncome = findViewById(R.id.radio_income);
@@ -82,8 +125,8 @@ public class Transaccion extends AppCompatActivity {
         radioExpense.setText(DISPLAY_TEXT_EXPENSE);
         radioIncome.setText(DISPLAY_TEXT_INCOME);
 
-        // Cargar *todas* las categorías de la base de datos UNA SOLA VEZ
-        allCategories = dbHelper.getAllCategories(null);
+        // Cargar *todas* las categorías UNA SOLA VEZ (la caché solo consulta la DB si cambiaron)
+        allCategories = CategoryCache.getInstance(dbHelper).getAll();
 
         // **MODIFICACIÓN CLAVE**: Listener para el RadioGroup
         // Este listener ahora CONTROLA lo que se muestra en el Spinner
@@ -98,6 +141,9 @@ public class Transaccion extends AppCompatActivity {
             @Override
             public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
                 if (currentFilteredCategories != null && position < currentFilteredCategories.size()) {
+                    if (position != expectedSpinnerPosition) {
+                        categoryPickedByUser = true;
+                    }
                     selectedCategoryObject = currentFilteredCategories.get(position);
                     Log.d("Transaccion", "Spinner selected: " + selectedCategoryObject.getName() + " (" + selectedCategoryObject.getType() + ")");
 
@@ -124,11 +170,27 @@ public class Transaccion extends AppCompatActivity {
         // **Inicialización del Spinner al abrir la actividad**:
         // Llama a esta función para cargar y seleccionar la categoría por defecto (Gasto) al inicio.
         loadCategoriesIntoSpinnerBasedOnType();
+        loadAccountsIntoSpinner();
 
         // Listener para el botón Guardar
         buttonSaveTransaction.setOnClickListener(v -> saveTransaction());
     }
 
+    // Cuentas en su propio Spinner, con la última usada ya elegida
+    private void loadAccountsIntoSpinner() {
+        List<Account> accounts = dbHelper.getAccounts();
+        ArrayAdapter<Account> adapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, accounts);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinnerAccount.setAdapter(adapter);
+        int lastAccountId = getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).getInt(KEY_LAST_ACCOUNT_ID, Account.DEFAULT_ID);
+        for (int i = 0; i < accounts.size(); i++) {
+            if (accounts.get(i).getId() == lastAccountId) {
+                spinnerAccount.setSelection(i);
+                break;
+            }
+        }
+    }
+
     /**
      * Carga las categorías en el Spinner basándose en el tipo de transacción seleccionado
      * en el RadioGroup. Selecciona la categoría "Otros" por defecto, o la última usada.
@@ -149,7 +211,8 @@ public class Transaccion extends AppCompatActivity {
         // Filtra las categorías de 'allCategories' según el tipo seleccionado
         currentFilteredCategories = new ArrayList<>();
         for (Category category : allCategories) {
-            if (category.getType().equals(selectedType)) {
+            // Las de transferencias solo las usa addTransfer: una sola mitad no sumaría cero
+            if (category.getType().equals(selectedType) && !category.isTransfer()) {
                 currentFilteredCategories.add(category);
             }
         }
@@ -200,12 +263,15 @@ public class Transaccion extends AppCompatActivity {
         }
 
         // 3. Si "Otros" tampoco se encontró o no hay categorías, selecciona la primera o deshabilita
+        categoryPickedByUser = false; // Al cambiar de tipo se vuelve a sugerir
         if (positionToSelect != -1) {
+            expectedSpinnerPosition = positionToSelect;
             spinnerCategory.setSelection(positionToSelect);
             selectedCategoryObject = currentFilteredCategories.get(positionToSelect);
             buttonSaveTransaction.setEnabled(true);
             spinnerCategory.setEnabled(true);
         } else if (!currentFilteredCategories.isEmpty()) {
+            expectedSpinnerPosition = 0;
             spinnerCategory.setSelection(0); // Selecciona la primera disponible
             selectedCategoryObject = currentFilteredCategories.get(0);
             Toast.makeText(this, "Categoría 'Otros' no encontrada, se seleccionó la primera disponible para " + selectedType + ".", Toast.LENGTH_SHORT).show();
@@ -223,6 +289,43 @@ public class Transaccion extends AppCompatActivity {
         radioGroupType.setEnabled(true); // El RadioGroup siempre debe estar habilitado
         editTextAmount.setEnabled(buttonSaveTransaction.isEnabled());
         editTextDescription.setEnabled(buttonSaveTransaction.isEnabled());
+        editTextTags.setEnabled(buttonSaveTransaction.isEnabled());
+        suggestCategory();
+    }
+
+    /**
+     * Selecciona la categoría que sugiere {@link CategoryPredictor} para la descripción escrita,
+     * entre las del tipo actual. No hace nada si el usuario ya eligió una categoría a mano.
+     */
+    private void suggestCategory() {
+        if (categoryPickedByUser || currentFilteredCategories == null || currentFilteredCategories.isEmpty()) {
+            return;
+        }
+        int[] candidateIds = new int[currentFilteredCategories.size()];
+        for (int i = 0; i < candidateIds.length; i++) {
+            candidateIds[i] = currentFilteredCategories.get(i).getId();
+        }
+        double amount = 0;
+        try {
+            amount = Double.parseDouble(editTextAmount.getText().toString().trim());
+        } catch (NumberFormatException e) {
+            // Sin monto todavía: se sugiere solo por la descripción
+        }
+        int predictedId = categoryPredictor.predict(editTextDescription.getText().toString(), amount, candidateIds);
+        for (int i = 0; i < candidateIds.length; i++) {
+            if (candidateIds[i] == predictedId && currentFilteredCategories.get(i) != selectedCategoryObject) {
+                expectedSpinnerPosition = i;
+                spinnerCategory.setSelection(i);
+                selectedCategoryObject = currentFilteredCategories.get(i);
+                break;
+            }
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        dbExecutor.shutdown();
     }
 
     private void saveTransaction() {
@@ -263,11 +366,49 @@ public class Transaccion extends AppCompatActivity {
 
         // Crear el objeto Transaction usando el objeto Category completo
         Transaction newTransaction = new Transaction(amount, description, selectedCategoryObject, currentDate);
+        Account account = (Account) spinnerAccount.getSelectedItem();
+        if (account != null) {
+            newTransaction.setAccountId(account.getId());
+        }
 
-        // Guardar la transacción en la base de datos
-        long result = dbHelper.addTransaction(newTransaction);
+        // Un resumen cargado dos veces o un doble toque: se avisa antes de guardar. Si el filtro
+        // dice "puede estar" la confirmación consulta la DB, así que se busca fuera del hilo principal
+        buttonSaveTransaction.setEnabled(false); // Sin otra búsqueda mientras esta no termina
+        String type = transactionType;
+        dbExecutor.execute(() -> {
+            boolean likelyDuplicate = dbHelper.isLikelyDuplicate(newTransaction);
+            mainHandler.post(() -> {
+                if (isFinishing()) {
+                    return;
+                }
+                if (!likelyDuplicate) {
+                    insertTransaction(newTransaction, type);
+                    return;
+                }
+                new AlertDialog.Builder(this)
+                        .setTitle("Posible duplicado")
+                        .setMessage("Ya hay una transacción de hoy con el mismo monto, descripción y categoría. ¿Guardarla igual?")
+                        .setPositiveButton("Guardar", (dialog, which) -> insertTransaction(newTransaction, type))
+                        .setNegativeButton("Cancelar", (dialog, which) -> buttonSaveTransaction.setEnabled(true))
+                        .setOnCancelListener(dialog -> buttonSaveTransaction.setEnabled(true))
+                        .show();
+            });
+        });
+    }
 
-        if (result != -1) {
+    private void insertTransaction(Transaction newTransaction, String transactionType) {
+        // El alta (con sus etiquetas) va por la cola de escritura: el hilo principal no espera a SQLite
+        buttonSaveTransaction.setEnabled(false); // Sin doble alta mientras se guarda
+        List<String> tags = Tag.parse(editTextTags.getText().toString());
+        TransactionWriteQueue.getInstance(this).enqueueInsert(newTransaction, tags, false, (success, id) -> {
+            if (isFinishing()) {
+                return;
+            }
+            if (!success) {
+                buttonSaveTransaction.setEnabled(true);
+                Toast.makeText(this, "Error al guardar la transacción.", Toast.LENGTH_SHORT).show();
+                return;
+            }
             Toast.makeText(this, "Transacción guardada exitosamente!", Toast.LENGTH_SHORT).show();
 
             // **IMPORTANTE**: Guardar la ID de la última categoría usada como la predeterminada para este tipo
@@ -275,12 +416,12 @@ public class Transaccion extends AppCompatActivity {
             SharedPreferences.Editor editor = prefs.edit();
             String keyForLastCategoryId = (transactionType.equals(Category.TYPE_EXPENSE)) ?
                     KEY_LAST_EXPENSE_CATEGORY_ID : KEY_LAST_INCOME_CATEGORY_ID;
-            editor.putInt(keyForLastCategoryId, selectedCategoryObject.getId());
+            editor.putInt(keyForLastCategoryId, newTransaction.getCategoryId());
+            editor.putInt(KEY_LAST_ACCOUNT_ID, newTransaction.getAccountId());
             editor.apply(); // Usa apply() para guardar en segundo plano sin bloquear el hilo principal
+            RecentCategories.recordUse(this, newTransaction.getCategoryId()); // Para la carga rápida
 
             finish(); // Cierra esta actividad y regresa a la anterior (MainActivity)
-        } else {
-            Toast.makeText(this, "Error al guardar la transacción.", Toast.LENGTH_SHORT).show();
-        }
+        });
     }
-}
\ No newline at end of file
+}
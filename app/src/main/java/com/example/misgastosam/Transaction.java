@@ -1,30 +1,40 @@
 package com.example.misgastosam;
 
+import java.util.List;
+
+/**
+ * Una transacción cargada en memoria. El historial puede tener cientos de miles, así que se
+ * guarda lo mínimo por fila: la categoría es una instancia compartida (DatabaseHelper usa
+ * una sola por _id), el tipo y el ID de categoría se derivan de ella y la fecha va
+ * empaquetada como epoch day.
+ */
 public class Transaction {
     // Constantes para los tipos de transacción (ya definidas en Category, pero útiles aquí también)
-    public static final String TYPE_EXPENSE = "EXPENSE";
-    public static final String TYPE_INCOME = "INCOME";
+    public static final String TYPE_EXPENSE = Category.TYPE_EXPENSE;
+    public static final String TYPE_INCOME = Category.TYPE_INCOME;
 
     private int id;
     private double amount;
     private String description;
-    private Category category; // <-- Ahora es un objeto Category
-    private int categoryId;   // <-- Almacena el ID de la categoría para la DB
-    private String type;      // Se derivará del tipo de la Category o del signo del monto
-    private String date;      // Formato "yyyy-MM-dd"
+    private Category category; // <-- Ahora es un objeto Category (compartido entre transacciones)
+    private int epochDay;      // Días desde 1970-01-01 (ver EpochDay)
+    private int accountId = Account.DEFAULT_ID;
+    private String transferId; // Compartido por los dos movimientos de una transferencia; null en el resto
+    private List<TransactionSplit> splits; // Solo en las divididas; la categoría es entonces la de la línea más grande
+    private double runningBalance; // Saldo de la cuenta después de esta transacción (lo calcula DatabaseHelper)
 
     // Constructor principal para transacciones existentes (con ID y objeto Category)
-    public Transaction(int id, double amount, String description, Category category, String date) {
+    public Transaction(int id, double amount, String description, Category category, int epochDay) {
         this.id = id;
         this.amount = amount;
         this.description = description;
         this.category = category;
-        // Asignamos el categoryId directamente desde el objeto Category
-        this.categoryId = (category != null) ? category.getId() : -1; // -1 si category es null
-        this.date = date;
-        // Determinamos el tipo de la transacción. Podría ser del Category o por el signo del monto.
-        // Optamos por el tipo de Category para consistencia.
-        this.type = (category != null) ? category.getType() : (amount < 0 ? TYPE_EXPENSE : TYPE_INCOME);
+        this.epochDay = epochDay;
+    }
+
+    // Constructor con la fecha en formato "yyyy-MM-dd"
+    public Transaction(int id, double amount, String description, Category category, String date) {
+        this(id, amount, description, category, EpochDay.fromIsoDate(date));
     }
 
     // Constructor para nuevas transacciones (sin ID, con objeto Category)
@@ -51,15 +61,69 @@ public class Transaction {
     } // <-- Getter para el objeto Category
 
     public int getCategoryId() {
-        return categoryId;
+        return (category != null) ? category.getId() : -1; // -1 si category es null
     } // <-- Getter para el ID de la categoría (para la DB)
 
+    /**
+     * El tipo sale de la categoría; sin categoría, del signo del monto.
+     */
     public String getType() {
-        return type;
-    } // Se obtiene automáticamente al setear el monto o categoría
+        if (category != null) {
+            return category.getType();
+        }
+        return (amount < 0) ? TYPE_EXPENSE : TYPE_INCOME;
+    }
 
+    /**
+     * @return La fecha en formato "yyyy-MM-dd" (se arma en cada llamada; en bucles usar {@link #getEpochDay()}).
+     */
     public String getDate() {
-        return date;
+        return EpochDay.toIsoDate(epochDay);
+    }
+
+    public int getEpochDay() {
+        return epochDay;
+    }
+
+    public int getAccountId() {
+        return accountId;
+    }
+
+    public String getTransferId() {
+        return transferId;
+    }
+
+    public boolean isTransfer() {
+        return transferId != null;
+    }
+
+    public boolean isSplit() {
+        return splits != null;
+    }
+
+    public List<TransactionSplit> getSplits() {
+        return splits;
+    }
+
+    /**
+     * Indica si la transacción cuenta para una categoría: la suya o, si está dividida, la de alguna línea.
+     */
+    public boolean hasCategory(int categoryId) {
+        if (getCategoryId() == categoryId) {
+            return true;
+        }
+        if (splits != null) {
+            for (TransactionSplit split : splits) {
+                if (split.getCategoryId() == categoryId) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public double getRunningBalance() {
+        return runningBalance;
     }
 
     // Setters
@@ -69,29 +133,38 @@ public class Transaction {
 
     public void setAmount(double amount) {
         this.amount = amount;
-        // Opcional: ajustar el tipo basado en el signo del monto si no se ha establecido explícitamente
-        if (this.type == null || this.type.isEmpty()) {
-            this.type = (amount < 0) ? TYPE_EXPENSE : TYPE_INCOME;
-        }
     }
 
     public void setDescription(String description) {
         this.description = description;
     }
 
-    // <-- CAMBIO: Setter para el objeto Category. Actualiza el ID y el tipo de la transacción.
+    // <-- CAMBIO: Setter para el objeto Category. El ID y el tipo de la transacción salen de ella.
     public void setCategory(Category category) {
         this.category = category;
-        this.categoryId = (category != null) ? category.getId() : -1;
-        this.type = (category != null) ? category.getType() : this.type; // Mantener tipo si category es null
     }
 
     public void setDate(String date) {
-        this.date = date;
+        this.epochDay = EpochDay.fromIsoDate(date);
+    }
+
+    public void setEpochDay(int epochDay) {
+        this.epochDay = epochDay;
+    }
+
+    public void setAccountId(int accountId) {
+        this.accountId = accountId;
+    }
+
+    public void setTransferId(String transferId) {
+        this.transferId = transferId;
+    }
+
+    public void setSplits(List<TransactionSplit> splits) {
+        this.splits = splits;
     }
 
-    // Este setter para el tipo puede ser útil si se quiere cambiar el tipo independientemente del monto
-    public void setType(String type) {
-        this.type = type;
+    public void setRunningBalance(double runningBalance) {
+        this.runningBalance = runningBalance;
     }
-}
\ No newline at end of file
+}
@@ -10,19 +10,47 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
+import androidx.cardview.widget.CardView;
+import androidx.core.content.ContextCompat;
+
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Lista del historial agrupada por mes: antes de las transacciones de cada mes va un encabezado
+ * con sus ingresos, gastos y neto. Los encabezados no existen como objetos en la lista: las
+ * posiciones del adaptador se traducen a índices de {@code transactions} con una búsqueda
+ * binaria sobre los grupos, así que se reciclan igual que las filas.
+ */
+public class TransactionAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
-public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.TransactionViewHolder> {
+    static final int TYPE_MONTH_HEADER = 0;
+    static final int TYPE_TRANSACTION = 1;
+
+    // Orden de la lista, el mismo que usa getTransactions(): fecha descendente y, a igual fecha, _id descendente
+    static final Comparator<Transaction> NEWEST_FIRST = (a, b) -> {
+        int byDate = Integer.compare(b.getEpochDay(), a.getEpochDay());
+        return byDate != 0 ? byDate : Integer.compare(b.getId(), a.getId());
+    };
 
     private List<Transaction> transactions;
     private Context context;
     private OnItemActionListener actionListener; // Un solo listener para manejar acciones
+    private final Set<Integer> selectedIds = new HashSet<>(); // Selección múltiple (IDs de transacción)
+    private final List<MonthGroup> groups = new ArrayList<>(); // Un grupo por mes, en el orden de la lista
+    private final DecimalFormat decimalFormat = new DecimalFormat("#,##0.00");
 
     // Interfaz para manejar las acciones de editar/borrar fuera del adaptador
     public interface OnItemActionListener {
         void onEdit(Transaction transaction);
         void onDelete(Transaction transaction);
+        void onSelectionChanged(int selectedCount); // Se llama al entrar/salir del modo selección y al marcar ítems
     }
 
     // Constructor del adaptador
@@ -30,20 +58,36 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
         this.context = context;
         this.transactions = transactions;
         this.actionListener = actionListener;
+        rebuildGroups();
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return isHeader(position) ? TYPE_MONTH_HEADER : TYPE_TRANSACTION;
     }
 
     @NonNull
     @Override
-    public TransactionViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        if (viewType == TYPE_MONTH_HEADER) {
+            return new MonthHeaderViewHolder(inflater.inflate(R.layout.item_month_header, parent, false));
+        }
         // Inflamos el layout para cada ítem de la lista
-        View view = LayoutInflater.from(parent.getContext())
-                .inflate(R.layout.item_transaction, parent, false); // Asegúrate de que este layout exista
+        View view = inflater.inflate(R.layout.item_transaction, parent, false); // Asegúrate de que este layout exista
         return new TransactionViewHolder(view);
     }
 
     @Override
-    public void onBindViewHolder(@NonNull TransactionViewHolder holder, int position) {
-        Transaction transaction = transactions.get(position);
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder viewHolder, int position) {
+        long bindStart = JankMonitor.sectionStart();
+        if (viewHolder instanceof MonthHeaderViewHolder) {
+            bindMonthHeader((MonthHeaderViewHolder) viewHolder, groups.get(groupForPosition(position)));
+            JankMonitor.addBindTime(bindStart);
+            return;
+        }
+        TransactionViewHolder holder = (TransactionViewHolder) viewHolder;
+        Transaction transaction = transactions.get(transactionIndex(position));
 
         // Asignamos los datos a los TextViews en el layout del ítem
         holder.descriptionTextView.setText(transaction.getDescription());
@@ -51,7 +95,11 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
         // <-- CAMBIO: Acceder al nombre y tipo de la categoría desde el objeto Category dentro de Transaction -->
         if (transaction.getCategory() != null) {
             // Usa el toString() de Category para el formato "Nombre (Tipo)"
-            holder.categoryTextView.setText("Categoría: " + transaction.getCategory().toString());
+            String categoryText = "Categoría: " + transaction.getCategory().toString();
+            if (transaction.isSplit()) {
+                categoryText += " + " + (transaction.getSplits().size() - 1) + " más"; // La más grande y cuántas líneas más
+            }
+            holder.categoryTextView.setText(categoryText);
         } else {
             holder.categoryTextView.setText("Categoría: Desconocida");
         }
@@ -60,7 +108,6 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
         holder.dateTextView.setText("Fecha: " + transaction.getDate()); // Usar getDate()
 
         // Formateamos el monto y asignamos el color según el tipo de transacción
-        DecimalFormat decimalFormat = new DecimalFormat("#,##0.00");
         String amountText;
 
         // Usamos el tipo de la transacción (que se deriva del tipo de la categoría)
@@ -73,25 +120,297 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
             amountText = "+$" + decimalFormat.format(transaction.getAmount());
         }
         holder.amountTextView.setText(amountText);
+        holder.runningBalanceTextView.setText("Saldo: $" + decimalFormat.format(transaction.getRunningBalance()));
+
+        // Resaltar el ítem si está seleccionado
+        boolean selected = selectedIds.contains(transaction.getId());
+        ((CardView) holder.itemView).setCardBackgroundColor(ContextCompat.getColor(context,
+                selected ? R.color.selected_transaction_background : R.color.white));
 
         // Configuramos el Listener para cuando se hace clic en TODO el ítem (la CardView o el layout raíz)
         holder.itemView.setOnClickListener(v -> {
-            showActionDialog(transaction); // Mostramos el diálogo de acciones (editar/eliminar)
+            if (isSelectionMode()) {
+                toggleSelection(holder.getAdapterPosition()); // En modo selección el clic marca/desmarca
+            } else {
+                showActionDialog(transaction); // Mostramos el diálogo de acciones (editar/eliminar)
+            }
+        });
+        // Mantener presionado entra en el modo de selección múltiple
+        holder.itemView.setOnLongClickListener(v -> {
+            toggleSelection(holder.getAdapterPosition());
+            return true;
         });
+        JankMonitor.addBindTime(bindStart);
+    }
+
+    private void bindMonthHeader(MonthHeaderViewHolder holder, MonthGroup group) {
+        holder.monthTextView.setText(group.month);
+        holder.incomeTextView.setText("Ingresos: +$" + decimalFormat.format(group.incomeCents / 100.0));
+        holder.expenseTextView.setText("Gastos: -$" + decimalFormat.format(group.expenseCents / 100.0));
+        holder.netTextView.setText("Neto: $" + decimalFormat.format((group.incomeCents - group.expenseCents) / 100.0));
     }
 
     @Override
     public int getItemCount() {
-        return transactions.size();
+        return transactions.size() + groups.size();
     }
 
     // Método para actualizar la lista de transacciones y notificar al RecyclerView
     public void updateTransactions(List<Transaction> newTransactions) {
+        this.selectedIds.clear();
         this.transactions.clear();
         this.transactions.addAll(newTransactions);
+        onTransactionsReloaded();
+    }
+
+    /**
+     * Llamar después de reemplazar o reordenar la lista compartida con la actividad.
+     */
+    public void onTransactionsReloaded() {
+        rebuildGroups();
         notifyDataSetChanged();
     }
 
+    // --- Grupos por mes ---
+
+    /**
+     * Recorre la lista (ordenada por fecha) una vez y arma los grupos con sus subtotales.
+     * No consulta la base de datos: los subtotales salen de las mismas filas ya cargadas. Las
+     * mitades de una transferencia se listan pero no son ingreso ni gasto, como en los totales.
+     */
+    private void rebuildGroups() {
+        groups.clear();
+        MonthGroup current = null;
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            int monthKey = EpochDay.toCivil(transaction.getEpochDay()) / 100; // yyyyMM, sin armar Strings por fila
+            if (current == null || monthKey != current.monthKey) {
+                current = new MonthGroup(monthKey, i);
+                groups.add(current);
+            }
+            current.count++;
+            if (transaction.isTransfer()) {
+                continue;
+            }
+            long cents = DailyBalanceIndex.toCents(transaction.getAmount());
+            if (cents < 0) {
+                current.expenseCents -= cents;
+            } else {
+                current.incomeCents += cents;
+            }
+        }
+    }
+
+    private int headerPosition(int group) {
+        return groups.get(group).firstIndex + group;
+    }
+
+    /**
+     * Grupo al que pertenece una posición del adaptador (su encabezado o una de sus filas).
+     */
+    private int groupForPosition(int position) {
+        int low = 0;
+        int high = groups.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (headerPosition(mid) <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private int groupForIndex(int index) {
+        int low = 0;
+        int high = groups.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (groups.get(mid).firstIndex <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private int transactionIndex(int position) {
+        return position - groupForPosition(position) - 1;
+    }
+
+    public boolean isHeader(int position) {
+        return !groups.isEmpty() && headerPosition(groupForPosition(position)) == position;
+    }
+
+    /**
+     * Posición del encabezado del mes al que pertenece {@code position} (lo usa el encabezado fijo).
+     */
+    public int getHeaderPositionFor(int position) {
+        return headerPosition(groupForPosition(position));
+    }
+
+    // --- Selección múltiple ---
+
+    public boolean isSelectionMode() {
+        return !selectedIds.isEmpty();
+    }
+
+    private void toggleSelection(int position) {
+        if (position == RecyclerView.NO_POSITION || isHeader(position)) {
+            return;
+        }
+        int id = transactions.get(transactionIndex(position)).getId();
+        if (!selectedIds.remove(id)) {
+            selectedIds.add(id);
+        }
+        notifyItemChanged(position);
+        if (actionListener != null) {
+            actionListener.onSelectionChanged(selectedIds.size());
+        }
+    }
+
+    public int[] getSelectedIds() {
+        int[] ids = new int[selectedIds.size()];
+        int i = 0;
+        for (int id : selectedIds) {
+            ids[i++] = id;
+        }
+        return ids;
+    }
+
+    public void clearSelection() {
+        if (selectedIds.isEmpty()) {
+            return;
+        }
+        selectedIds.clear();
+        notifyItemRangeChanged(0, getItemCount());
+        if (actionListener != null) {
+            actionListener.onSelectionChanged(0);
+        }
+    }
+
+    /**
+     * Quita de la lista las transacciones indicadas sin recargar desde la base de datos.
+     * Notifica al RecyclerView un rango por cada bloque contiguo de filas eliminadas (incluidos
+     * los encabezados de los meses que quedan vacíos), de atrás hacia adelante para que las
+     * posiciones sigan siendo válidas, y redibuja los encabezados cuyos subtotales cambian.
+     */
+    public void removeTransactionsById(Set<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Transaction> kept = new ArrayList<>(transactions.size());
+        List<int[]> removedRanges = new ArrayList<>(); // {inicio, cantidad} en posiciones del adaptador
+        Set<String> changedMonths = new HashSet<>();
+        for (int g = 0; g < groups.size(); g++) {
+            MonthGroup group = groups.get(g);
+            int end = group.firstIndex + group.count;
+            int removedInGroup = 0;
+            for (int i = group.firstIndex; i < end; i++) {
+                if (ids.contains(transactions.get(i).getId())) {
+                    removedInGroup++;
+                }
+            }
+            if (removedInGroup == group.count) {
+                addToRanges(removedRanges, headerPosition(g));
+            } else if (removedInGroup > 0) {
+                changedMonths.add(group.month);
+            }
+            for (int i = group.firstIndex; i < end; i++) {
+                Transaction transaction = transactions.get(i);
+                if (ids.contains(transaction.getId())) {
+                    addToRanges(removedRanges, i + g + 1);
+                } else {
+                    kept.add(transaction);
+                }
+            }
+        }
+        transactions.clear();
+        transactions.addAll(kept);
+        selectedIds.removeAll(ids);
+        rebuildGroups();
+        for (int r = removedRanges.size() - 1; r >= 0; r--) {
+            notifyItemRangeRemoved(removedRanges.get(r)[0], removedRanges.get(r)[1]);
+        }
+        for (int g = 0; g < groups.size(); g++) {
+            if (changedMonths.contains(groups.get(g).month)) {
+                notifyItemChanged(headerPosition(g));
+            }
+        }
+    }
+
+    /**
+     * Vuelve a poner en su lugar (según {@link #NEWEST_FIRST}) una transacción quitada con
+     * {@link #removeTransactionsById(Set)}, por ejemplo al deshacer un borrado que no se pudo guardar.
+     */
+    public void restoreTransaction(Transaction transaction) {
+        int index = Collections.binarySearch(transactions, transaction, NEWEST_FIRST);
+        if (index >= 0) {
+            return; // Ya está en la lista
+        }
+        index = -index - 1;
+        transactions.add(index, transaction);
+        rebuildGroups();
+        int g = groupForIndex(index);
+        if (groups.get(g).count == 1) {
+            notifyItemRangeInserted(headerPosition(g), 2); // Mes nuevo: encabezado y fila
+        } else {
+            notifyItemInserted(index + g + 1);
+            notifyItemChanged(headerPosition(g));
+        }
+    }
+
+    /**
+     * Redibuja solo las filas de las transacciones indicadas (ya modificadas en memoria)
+     * y los encabezados de sus meses, cuyos subtotales se recalculan.
+     */
+    public void notifyTransactionsChanged(Set<Integer> ids) {
+        rebuildGroups();
+        for (int g = 0; g < groups.size(); g++) {
+            MonthGroup group = groups.get(g);
+            int end = group.firstIndex + group.count;
+            boolean changed = false;
+            for (int i = group.firstIndex; i < end; i++) {
+                if (ids.contains(transactions.get(i).getId())) {
+                    int start = i;
+                    while (i + 1 < end && ids.contains(transactions.get(i + 1).getId())) {
+                        i++;
+                    }
+                    notifyItemRangeChanged(start + g + 1, i - start + 1);
+                    changed = true;
+                }
+            }
+            if (changed) {
+                notifyItemChanged(headerPosition(g));
+            }
+        }
+    }
+
+    private static void addToRanges(List<int[]> ranges, int position) {
+        if (!ranges.isEmpty() && lastRangeEnd(ranges) == position) {
+            ranges.get(ranges.size() - 1)[1]++;
+        } else {
+            ranges.add(new int[]{position, 1});
+        }
+    }
+
+    /**
+     * Asigna los saldos acumulados recalculados (en el orden de la lista) y redibuja las filas.
+     */
+    public void setRunningBalances(double[] runningBalances) {
+        for (int i = 0; i < runningBalances.length && i < transactions.size(); i++) {
+            transactions.get(i).setRunningBalance(runningBalances[i]);
+        }
+        notifyItemRangeChanged(0, getItemCount());
+    }
+
+    private static int lastRangeEnd(List<int[]> ranges) {
+        int[] last = ranges.get(ranges.size() - 1);
+        return last[0] + last[1];
+    }
+
     /**
      * Muestra el diálogo para elegir entre editar o eliminar una transacción.
      * @param transaction La transacción seleccionada.
@@ -117,12 +436,46 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
         builder.create().show();
     }
 
+    /**
+     * Transacciones consecutivas de un mismo mes ("yyyy-MM") y sus subtotales en centavos.
+     */
+    private static class MonthGroup {
+        final int monthKey; // yyyyMM
+        final String month;
+        final int firstIndex; // Índice en transactions de la primera transacción del mes
+        int count;
+        long incomeCents;
+        long expenseCents;
+
+        MonthGroup(int monthKey, int firstIndex) {
+            this.monthKey = monthKey;
+            this.month = String.format(Locale.US, "%04d-%02d", monthKey / 100, monthKey % 100);
+            this.firstIndex = firstIndex;
+        }
+    }
+
+    public static class MonthHeaderViewHolder extends RecyclerView.ViewHolder {
+        TextView monthTextView;
+        TextView incomeTextView;
+        TextView expenseTextView;
+        TextView netTextView;
+
+        public MonthHeaderViewHolder(@NonNull View itemView) {
+            super(itemView);
+            monthTextView = itemView.findViewById(R.id.textView_header_month);
+            incomeTextView = itemView.findViewById(R.id.textView_header_income);
+            expenseTextView = itemView.findViewById(R.id.textView_header_expense);
+            netTextView = itemView.findViewById(R.id.textView_header_net);
+        }
+    }
+
     // ViewHolder: Contiene las referencias a las vistas de cada ítem del RecyclerView
     public static class TransactionViewHolder extends RecyclerView.ViewHolder {
         TextView descriptionTextView;
         TextView categoryTextView;
         TextView dateTextView;
         TextView amountTextView;
+        TextView runningBalanceTextView;
 
         public TransactionViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -130,6 +483,7 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
             categoryTextView = itemView.findViewById(R.id.textView_transaction_category);
             dateTextView = itemView.findViewById(R.id.textView_transaction_date);
             amountTextView = itemView.findViewById(R.id.textView_transaction_amount);
+            runningBalanceTextView = itemView.findViewById(R.id.textView_transaction_running_balance);
         }
     }
 }
\ No newline at end of file
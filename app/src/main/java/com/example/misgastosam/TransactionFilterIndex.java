@@ -0,0 +1,132 @@
+package com.example.misgastosam;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índice en memoria de los filtros del historial (mes, tipo y categoría) sobre la lista completa
+ * de transacciones. Cada fila se numera por su posición en esa lista (0..n-1, el orden de
+ * {@link DatabaseHelper#getTransactions}) y cada opción de filtro guarda un bitset de las filas
+ * que la cumplen: una combinación de filtros es el AND de hasta tres bitsets, y la cantidad de
+ * filas de cada opción se cuenta con bitCount sin armar la lista. Una transacción dividida
+ * prende su bit en la categoría de cada línea, igual que el filtro por categoría de la DB.
+ *
+ * Es inmutable: se arma de nuevo cuando cambia {@link DatabaseHelper#getWriteVersion()}.
+ */
+public class TransactionFilterIndex {
+
+    public static final int ALL_CATEGORIES = -1;
+
+    private final List<Transaction> rows;
+    private final long version;
+    private final long[] all;
+    private final long[] empty;
+    private final long[] expense;
+    private final long[] income;
+    private final Map<String, long[]> byMonth = new HashMap<>(); // "YYYY-MM"
+    private final Map<Integer, long[]> byCategory = new HashMap<>();
+
+    /**
+     * @param rows    Todas las transacciones, sin filtros; la lista no se copia ni se modifica.
+     * @param version La versión de escritura leída antes de cargar {@code rows}.
+     */
+    public TransactionFilterIndex(List<Transaction> rows, long version) {
+        this.rows = rows;
+        this.version = version;
+        int words = (rows.size() + 63) >>> 6;
+        all = new long[words];
+        empty = new long[words];
+        expense = new long[words];
+        income = new long[words];
+        for (int row = 0; row < rows.size(); row++) {
+            Transaction transaction = rows.get(row);
+            int word = row >>> 6;
+            long bit = 1L << row;
+            all[word] |= bit;
+            bitsFor(byMonth, transaction.getDate().substring(0, 7), words)[word] |= bit;
+            (Category.TYPE_EXPENSE.equals(transaction.getType()) ? expense : income)[word] |= bit;
+            bitsFor(byCategory, transaction.getCategoryId(), words)[word] |= bit;
+            if (transaction.isSplit()) {
+                for (TransactionSplit split : transaction.getSplits()) {
+                    bitsFor(byCategory, split.getCategoryId(), words)[word] |= bit;
+                }
+            }
+        }
+    }
+
+    private static <K> long[] bitsFor(Map<K, long[]> bitsets, K key, int words) {
+        long[] bits = bitsets.get(key);
+        if (bits == null) {
+            bits = new long[words];
+            bitsets.put(key, bits);
+        }
+        return bits;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Las transacciones que cumplen los tres filtros, en el orden de la lista completa.
+     * @param monthYear  "YYYY-MM", o null para todos los meses.
+     * @param type       Category.TYPE_*, o null para los dos tipos.
+     * @param categoryId _id de la categoría, o {@link #ALL_CATEGORIES}.
+     */
+    public List<Transaction> select(@Nullable String monthYear, @Nullable String type, int categoryId) {
+        long[] month = monthBits(monthYear);
+        long[] types = typeBits(type);
+        long[] category = categoryBits(categoryId);
+        List<Transaction> selected = new ArrayList<>(count(month, types, category));
+        for (int i = 0; i < all.length; i++) {
+            long word = month[i] & types[i] & category[i];
+            while (word != 0) {
+                selected.add(rows.get((i << 6) + Long.numberOfTrailingZeros(word)));
+                word &= word - 1;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Cuántas transacciones cumplen los tres filtros (mismos parámetros que {@link #select}).
+     */
+    public int count(@Nullable String monthYear, @Nullable String type, int categoryId) {
+        return count(monthBits(monthYear), typeBits(type), categoryBits(categoryId));
+    }
+
+    private static int count(long[] month, long[] type, long[] category) {
+        int count = 0;
+        for (int i = 0; i < month.length; i++) {
+            count += Long.bitCount(month[i] & type[i] & category[i]);
+        }
+        return count;
+    }
+
+    private long[] monthBits(@Nullable String monthYear) {
+        if (monthYear == null) {
+            return all;
+        }
+        long[] bits = byMonth.get(monthYear);
+        return (bits != null) ? bits : empty;
+    }
+
+    private long[] typeBits(@Nullable String type) {
+        if (type == null) {
+            return all;
+        }
+        return Category.TYPE_EXPENSE.equals(type) ? expense : income;
+    }
+
+    private long[] categoryBits(int categoryId) {
+        if (categoryId == ALL_CATEGORIES) {
+            return all;
+        }
+        long[] bits = byCategory.get(categoryId);
+        return (bits != null) ? bits : empty;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.misgastosam;
+
+/**
+ * Huella de 64 bits de una transacción: fecha, monto (sin signo, en centavos), descripción
+ * normalizada como en {@link DescriptionIndex} y categoría. Dos filas con la misma huella son
+ * probablemente la misma transacción cargada dos veces (por ejemplo, un resumen importado de nuevo).
+ * La categoría entra con un XOR aparte, así mover filas de categoría se puede hacer en SQL sin
+ * releer las descripciones: ver {@link #categoryChange(int, int)}.
+ */
+public final class TransactionFingerprint {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private TransactionFingerprint() {
+    }
+
+    public static long of(Transaction transaction) {
+        return of(transaction.getEpochDay(), transaction.getAmount(), transaction.getDescription(), transaction.getCategoryId());
+    }
+
+    public static long of(int epochDay, double amount, String description, int categoryId) {
+        return combine(epochDay, amount, descriptionHash(description), categoryId);
+    }
+
+    /**
+     * Para cargas masivas: la parte de la descripción se calcula una vez por texto distinto.
+     */
+    static long combine(int epochDay, double amount, long descriptionHash, int categoryId) {
+        long cents = Math.abs(DailyBalanceIndex.toCents(amount));
+        long h = mix(descriptionHash ^ mix(epochDay * 0x9e3779b97f4a7c15L + cents));
+        return h ^ categoryComponent(categoryId);
+    }
+
+    static long descriptionHash(String description) {
+        String normalized = description != null ? DescriptionIndex.normalize(description) : "";
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < normalized.length(); i++) {
+            hash ^= normalized.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Lo que hay que combinar con XOR a la huella de una fila que pasa de una categoría a otra.
+     */
+    static long categoryChange(int fromCategoryId, int toCategoryId) {
+        return categoryComponent(fromCategoryId) ^ categoryComponent(toCategoryId);
+    }
+
+    private static long categoryComponent(int categoryId) {
+        return mix(categoryId + 0x632be59bd9b4e019L);
+    }
+
+    // Finalizador de SplitMix64: cada bit de entrada cambia la mitad de los de salida
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
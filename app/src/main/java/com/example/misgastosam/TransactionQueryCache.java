@@ -0,0 +1,198 @@
+package com.example.misgastosam;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Caché LRU de los resultados de {@link DatabaseHelper#getTransactions(int, String, String)}
+ * por combinación de filtros (mes, tipo, categoría). Volver a un filtro ya visto, o pasar al
+ * mes contiguo que se precargó en segundo plano, no consulta la base de datos.
+ *
+ * Cada entrada guarda la versión de escritura con la que se leyó y solo se usa mientras
+ * {@link DatabaseHelper#getWriteVersion()} siga igual, así cualquier escritura (local o de la
+ * sincronización) invalida todo sin tener que saber qué filtros toca. El tamaño se limita por
+ * una estimación de bytes, no por cantidad de entradas: "todos los meses" puede pesar cientos
+ * de veces más que un mes.
+ */
+public class TransactionQueryCache {
+
+    private static final String TAG = "TransactionQueryCache";
+
+    // Transaction compacta (ver TransactionFootprintTest) más la referencia en la lista
+    static final int ESTIMATED_BYTES_PER_ROW = 64;
+    private static final int ESTIMATED_BYTES_PER_ENTRY = 256;
+
+    private static TransactionQueryCache instance;
+
+    private final DatabaseHelper dbHelper;
+    private final long budgetBytes;
+    // accessOrder = true: iterar empieza por la entrada usada hace más tiempo
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+    private final ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor();
+
+    /**
+     * Devuelve la caché compartida. Vive lo que el proceso, así sobrevive a salir y volver
+     * a entrar al historial.
+     */
+    public static synchronized TransactionQueryCache getInstance(DatabaseHelper dbHelper) {
+        if (instance == null) {
+            // Una fracción del heap de la app: en un dispositivo de 256 MB son 16 MB
+            instance = new TransactionQueryCache(dbHelper, Runtime.getRuntime().maxMemory() / 16);
+        }
+        return instance;
+    }
+
+    TransactionQueryCache(DatabaseHelper dbHelper, long budgetBytes) {
+        this.dbHelper = dbHelper;
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Igual que {@link DatabaseHelper#getTransactions(int, String, String)}, pero desde la caché
+     * si hay un resultado vigente. La lista devuelta es compartida y no se puede modificar:
+     * quien la muestre debe copiarla.
+     */
+    public List<Transaction> getTransactions(int categoryId, String monthYear, String type) {
+        Key key = new Key(categoryId, monthYear, type);
+        List<Transaction> cached = getFresh(key);
+        if (cached != null) {
+            return cached;
+        }
+        return load(key);
+    }
+
+    /**
+     * El resultado vigente de un filtro si ya está en la caché, sin consultar la base de datos;
+     * null si hay que cargarlo (con {@link #getTransactions}, fuera del hilo principal).
+     */
+    @Nullable
+    public List<Transaction> getCached(int categoryId, String monthYear, String type) {
+        return getFresh(new Key(categoryId, monthYear, type));
+    }
+
+    /**
+     * Carga en segundo plano el resultado de un filtro si no está ya en la caché.
+     */
+    public void prefetch(int categoryId, String monthYear, String type) {
+        Key key = new Key(categoryId, monthYear, type);
+        if (getFresh(key) != null) {
+            return;
+        }
+        prefetchExecutor.execute(() -> {
+            // Pudo haberlo cargado el hilo principal mientras esperaba en la cola
+            if (getFresh(key) == null) {
+                load(key);
+            }
+        });
+    }
+
+    private List<Transaction> load(Key key) {
+        // La versión se lee antes de consultar: si alguien escribe durante la consulta,
+        // el resultado queda guardado con la versión vieja y se descarta en el próximo acceso
+        long version = dbHelper.getWriteVersion();
+        List<Transaction> rows = Collections.unmodifiableList(
+                dbHelper.getTransactions(key.categoryId, key.monthYear, key.type));
+        put(key, new Entry(rows, version));
+        return rows;
+    }
+
+    private synchronized List<Transaction> getFresh(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.version != dbHelper.getWriteVersion()) {
+            entries.remove(key);
+            usedBytes -= entry.bytes;
+            return null;
+        }
+        return entry.rows;
+    }
+
+    private synchronized void put(Key key, Entry entry) {
+        if (entry.bytes > budgetBytes) {
+            Log.d(TAG, "Resultado de " + entry.rows.size() + " filas demasiado grande para la caché");
+            return;
+        }
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            usedBytes -= previous.bytes;
+        }
+        usedBytes += entry.bytes;
+
+        // Primero se van las entradas viejas (ya no sirven); después, las menos usadas
+        long currentVersion = dbHelper.getWriteVersion();
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry candidate = it.next().getValue();
+            if (candidate != entry && candidate.version != currentVersion) {
+                it.remove();
+                usedBytes -= candidate.bytes;
+            }
+        }
+        it = entries.entrySet().iterator();
+        while (usedBytes > budgetBytes && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            if (eldest != entry) {
+                it.remove();
+                usedBytes -= eldest.bytes;
+            }
+        }
+    }
+
+    private static final class Key {
+        final int categoryId;
+        final String monthYear;
+        final String type;
+
+        Key(int categoryId, String monthYear, String type) {
+            this.categoryId = categoryId;
+            this.monthYear = monthYear;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return categoryId == other.categoryId
+                    && (monthYear == null ? other.monthYear == null : monthYear.equals(other.monthYear))
+                    && (type == null ? other.type == null : type.equals(other.type));
+        }
+
+        @Override
+        public int hashCode() {
+            int result = categoryId;
+            result = 31 * result + (monthYear != null ? monthYear.hashCode() : 0);
+            result = 31 * result + (type != null ? type.hashCode() : 0);
+            return result;
+        }
+    }
+
+    private static final class Entry {
+        final List<Transaction> rows;
+        final long version;
+        final long bytes;
+
+        Entry(List<Transaction> rows, long version) {
+            this.rows = rows;
+            this.version = version;
+            this.bytes = ESTIMATED_BYTES_PER_ENTRY + (long) rows.size() * ESTIMATED_BYTES_PER_ROW;
+        }
+    }
+}
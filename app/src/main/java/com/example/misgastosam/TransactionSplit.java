@@ -0,0 +1,28 @@
+package com.example.misgastosam;
+
+/**
+ * Una línea de una transacción dividida: la parte del monto que va a una categoría
+ * (ej. un ticket del súper repartido entre Comida, Limpieza y Farmacia). El monto lleva el
+ * mismo signo que la transacción, y las líneas suman exactamente su monto.
+ */
+public class TransactionSplit {
+    private final Category category;
+    private final double amount;
+
+    public TransactionSplit(Category category, double amount) {
+        this.category = category;
+        this.amount = amount;
+    }
+
+    public Category getCategory() {
+        return category;
+    }
+
+    public int getCategoryId() {
+        return (category != null) ? category.getId() : -1;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+}
@@ -0,0 +1,309 @@
+package com.example.misgastosam;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Cola de escrituras de transacciones en segundo plano con commit agrupado. Quien encola vuelve
+ * enseguida; las escrituras que llegan dentro de una ventana corta se aplican juntas en una sola
+ * transacción SQLite ({@link DatabaseHelper#applyTransactionWrites(List)}), así una carga rápida
+ * o una importación pagan un fsync por grupo y no uno por fila.
+ *
+ * Las escrituras se aplican en el orden en que se encolaron, y cada una informa su resultado
+ * por su callback en el hilo principal. Lo pendiente se escribe enseguida cuando la app pasa a
+ * segundo plano, y {@link #flush()} espera a que todo lo encolado hasta ese momento esté guardado.
+ */
+public class TransactionWriteQueue {
+
+    private static final String TAG = "TransactionWriteQueue";
+
+    // Cuánto se espera a que lleguen más escrituras antes de confirmar el grupo
+    static final long GROUP_COMMIT_WINDOW_MS = 25;
+    // Con esta cantidad pendiente se confirma sin esperar a que termine la ventana
+    static final int MAX_GROUP_SIZE = 500;
+
+    public interface Callback {
+        /**
+         * @param success Si la escritura quedó guardada.
+         * @param id El _id de la transacción escrita, o -1 si falló un alta.
+         */
+        void onComplete(boolean success, long id);
+
+        /**
+         * Solo para las altas encoladas con {@code checkDuplicate}: se llama antes que
+         * {@link #onComplete} si ya había otra transacción con la misma huella. El alta se guarda igual.
+         */
+        default void onLikelyDuplicate(long id) {
+        }
+    }
+
+    enum Kind {
+        INSERT, UPDATE, DELETE
+    }
+
+    /**
+     * Lo que la cola necesita de la base de datos. En la app es {@link DatabaseHelper}; los tests
+     * de la cola usan uno en memoria.
+     */
+    interface Store {
+        /**
+         * Aplica el grupo en una sola transacción y deja el resultado de cada escritura en ella.
+         * @return false si el grupo entero no se pudo confirmar.
+         */
+        boolean applyTransactionWrites(List<PendingWrite> writes);
+
+        void warmDuplicateFilter();
+    }
+
+    /**
+     * Una escritura encolada. Guarda una copia de la transacción tomada al encolar, así los
+     * cambios posteriores al objeto original (por ejemplo, en la lista del historial) no se
+     * cuelan en lo que se escribe.
+     */
+    static final class PendingWrite {
+        private final Kind kind;
+        private final Transaction snapshot;
+        private final Transaction source;
+        private final int transactionId;
+        private final Callback callback;
+        private final List<String> tags;
+        private final boolean checkDuplicate;
+        private boolean success;
+        private boolean likelyDuplicate;
+        private long resultId = -1;
+
+        PendingWrite(Kind kind, @Nullable Transaction source, int transactionId, @Nullable Callback callback) {
+            this(kind, source, transactionId, Collections.emptyList(), false, callback);
+        }
+
+        PendingWrite(Kind kind, @Nullable Transaction source, int transactionId, List<String> tags, boolean checkDuplicate,
+                     @Nullable Callback callback) {
+            this.kind = kind;
+            this.tags = tags;
+            this.checkDuplicate = checkDuplicate;
+            this.source = source;
+            this.snapshot = source != null ? new Transaction(source.getId(), source.getAmount(),
+                    source.getDescription(), source.getCategory(), source.getEpochDay()) : null;
+            if (source != null) {
+                snapshot.setAccountId(source.getAccountId());
+                snapshot.setTransferId(source.getTransferId()); // Una transferencia se edita entera
+            }
+            this.transactionId = transactionId;
+            this.callback = callback;
+        }
+
+        Kind getKind() {
+            return kind;
+        }
+
+        Transaction getTransaction() {
+            return snapshot;
+        }
+
+        int getTransactionId() {
+            return transactionId;
+        }
+
+        boolean isSuccess() {
+            return success;
+        }
+
+        // Etiquetas de un alta, que se guardan en la misma transacción
+        List<String> getTags() {
+            return tags;
+        }
+
+        boolean checksDuplicate() {
+            return checkDuplicate;
+        }
+
+        boolean isLikelyDuplicate() {
+            return likelyDuplicate;
+        }
+
+        void setLikelyDuplicate(boolean likelyDuplicate) {
+            this.likelyDuplicate = likelyDuplicate;
+        }
+
+        void setResult(boolean success, long resultId) {
+            this.success = success;
+            this.resultId = resultId;
+        }
+    }
+
+    private static TransactionWriteQueue instance;
+
+    private final Store store;
+    private final Executor callbackExecutor;
+    private final long groupCommitWindowMs;
+    private final ScheduledExecutorService writeExecutor = Executors.newSingleThreadScheduledExecutor();
+    private final Object lock = new Object();
+    private List<PendingWrite> pending = new ArrayList<>();
+    private boolean drainScheduled;
+
+    public static synchronized TransactionWriteQueue getInstance(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            Handler mainHandler = new Handler(Looper.getMainLooper());
+            instance = new TransactionWriteQueue(DatabaseHelper.getInstance(appContext), mainHandler::post, GROUP_COMMIT_WINDOW_MS);
+            appContext.registerComponentCallbacks(instance.backgroundListener);
+        }
+        return instance;
+    }
+
+    /**
+     * Fuera de getInstance solo en tests: cada cola tiene su propio hilo de escritura.
+     * @param callbackExecutor Dónde se llaman los callbacks (en la app, el hilo principal).
+     */
+    TransactionWriteQueue(Store store, Executor callbackExecutor, long groupCommitWindowMs) {
+        this.store = store;
+        this.callbackExecutor = callbackExecutor;
+        this.groupCommitWindowMs = groupCommitWindowMs;
+    }
+
+    /**
+     * Encola el alta de una transacción. Al guardarse, su _id se asigna también al objeto recibido.
+     */
+    public void enqueueInsert(Transaction transaction, @Nullable Callback callback) {
+        enqueueInsert(transaction, Collections.emptyList(), false, callback);
+    }
+
+    /**
+     * Igual que {@link #enqueueInsert(Transaction, Callback)}, con las etiquetas del alta (se
+     * guardan en la misma transacción). Con {@code checkDuplicate} se busca en el hilo de
+     * escritura, justo antes de insertar, si ya hay una igual (ver
+     * {@link DatabaseHelper#isLikelyDuplicate}) y se avisa por {@link Callback#onLikelyDuplicate}.
+     */
+    public void enqueueInsert(Transaction transaction, List<String> tags, boolean checkDuplicate, @Nullable Callback callback) {
+        enqueue(new PendingWrite(Kind.INSERT, transaction, transaction.getId(), tags, checkDuplicate, callback));
+    }
+
+    /**
+     * Arma en el hilo de escritura el filtro de duplicados si todavía no está, así el primer
+     * aviso de duplicado no lo construye en el hilo principal. Llamar al abrir una pantalla de carga.
+     */
+    public void warmDuplicateFilter() {
+        writeExecutor.execute(store::warmDuplicateFilter);
+    }
+
+    /**
+     * Encola la actualización de una transacción existente con los valores que tiene ahora.
+     */
+    public void enqueueUpdate(Transaction transaction, @Nullable Callback callback) {
+        enqueue(new PendingWrite(Kind.UPDATE, transaction, transaction.getId(), callback));
+    }
+
+    /**
+     * Encola la eliminación de una transacción por su _id.
+     */
+    public void enqueueDelete(int transactionId, @Nullable Callback callback) {
+        enqueue(new PendingWrite(Kind.DELETE, null, transactionId, callback));
+    }
+
+    /**
+     * Escribe todo lo encolado hasta ahora y espera a que quede guardado. No llamar desde el
+     * hilo principal: puede tardar lo que tarde el commit.
+     * @return false si no terminó dentro del tiempo de espera.
+     */
+    public boolean flush() {
+        try {
+            writeExecutor.submit(this::drain).get(10, TimeUnit.SECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            Log.e(TAG, "Error al vaciar la cola de escrituras: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Solo para tests: la cola de la app vive lo que el proceso. Descarta lo que no se escribió
+    void shutdownNow() {
+        writeExecutor.shutdownNow();
+    }
+
+    private void enqueue(PendingWrite write) {
+        synchronized (lock) {
+            pending.add(write);
+            if (pending.size() >= MAX_GROUP_SIZE) {
+                writeExecutor.execute(this::drain);
+            } else if (!drainScheduled) {
+                drainScheduled = true;
+                writeExecutor.schedule(this::drain, groupCommitWindowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Corre siempre en writeExecutor (un solo hilo), así los grupos se confirman en orden.
+     */
+    private void drain() {
+        List<PendingWrite> group;
+        synchronized (lock) {
+            group = pending;
+            pending = new ArrayList<>();
+            drainScheduled = false;
+        }
+        if (group.isEmpty()) {
+            return;
+        }
+        if (!store.applyTransactionWrites(group) && group.size() > 1) {
+            // Una escritura que lanza hace fallar al grupo entero: se reintenta de a una
+            // para que solo falle esa
+            Log.w(TAG, "Falló un grupo de " + group.size() + " escrituras, se reintentan por separado.");
+            for (PendingWrite write : group) {
+                store.applyTransactionWrites(Collections.singletonList(write));
+            }
+        }
+        for (PendingWrite write : group) {
+            if (write.kind == Kind.INSERT && write.success) {
+                write.source.setId((int) write.resultId);
+            }
+            if (write.callback != null) {
+                boolean success = write.success;
+                long id = write.resultId;
+                if (success && write.likelyDuplicate) {
+                    callbackExecutor.execute(() -> write.callback.onLikelyDuplicate(id));
+                }
+                callbackExecutor.execute(() -> write.callback.onComplete(success, id));
+            }
+        }
+    }
+
+    // La interfaz sin UI visible (TRIM_MEMORY_UI_HIDDEN) es la señal de que la app pasó a segundo plano
+    private final ComponentCallbacks2 backgroundListener = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+                writeExecutor.execute(TransactionWriteQueue.this::drain);
+            }
+        }
+
+        @Override
+        public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        }
+
+        @Override
+        public void onLowMemory() {
+            writeExecutor.execute(TransactionWriteQueue.this::drain);
+        }
+    };
+}
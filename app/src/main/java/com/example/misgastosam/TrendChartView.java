@@ -0,0 +1,184 @@
+package com.example.misgastosam;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+import java.text.DecimalFormat;
+
+/**
+ * Gráfico de líneas de una {@link TrendSeries}: ingresos y gastos, o saldo. Cada serie se
+ * reduce con {@link Lttb} a un punto por píxel de ancho y se convierte en segmentos cuando
+ * cambian los datos o el tamaño; onDraw solo llama a drawLines sobre arreglos ya armados,
+ * sin crear objetos, así diez años de datos diarios se dibujan dentro de un frame.
+ */
+public class TrendChartView extends View {
+
+    public static final int MODE_FLOWS = 0;   // Ingresos y gastos por bucket
+    public static final int MODE_BALANCE = 1; // Saldo al final de cada bucket
+
+    private final Paint incomePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint expensePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint balancePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint axisPaint = new Paint();
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final DecimalFormat decimalFormat = new DecimalFormat("#,##0");
+
+    private TrendSeries series;
+    private int mode = MODE_FLOWS;
+
+    // Buffers reutilizados: índices elegidos por LTTB y segmentos para drawLines (4 floats por segmento)
+    private int[] indexBuffer = new int[0];
+    private float[] primaryLine = new float[0];
+    private int primaryLineLength;
+    private float[] secondaryLine = new float[0];
+    private int secondaryLineLength;
+
+    // Geometría y textos calculados en rebuild()
+    private float plotLeft;
+    private float plotTop;
+    private float plotRight;
+    private float plotBottom;
+    private float zeroY;
+    private String maxLabel = "";
+    private String minLabel = "";
+    private String startLabel = "";
+    private String endLabel = "";
+
+    public TrendChartView(Context context) {
+        this(context, null);
+    }
+
+    public TrendChartView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        incomePaint.setColor(0xFF8BC34A); // apple_green
+        expensePaint.setColor(0xFFD32F2F);
+        balancePaint.setColor(0xFF424242);
+        for (Paint paint : new Paint[]{incomePaint, expensePaint, balancePaint}) {
+            paint.setStyle(Paint.Style.STROKE);
+            paint.setStrokeWidth(1.5f * density);
+        }
+        axisPaint.setColor(0xFFBDBDBD);
+        axisPaint.setStrokeWidth(density);
+        labelPaint.setColor(0xFF757575);
+        labelPaint.setTextSize(11 * density);
+    }
+
+    /**
+     * @param mode {@link #MODE_FLOWS} o {@link #MODE_BALANCE}.
+     */
+    public void setSeries(TrendSeries series, int mode) {
+        this.series = series;
+        this.mode = mode;
+        rebuild();
+        invalidate();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        rebuild();
+    }
+
+    private void rebuild() {
+        primaryLineLength = 0;
+        secondaryLineLength = 0;
+        if (series == null || getWidth() == 0 || series.getBucketCount() == 0) {
+            return;
+        }
+        float textHeight = labelPaint.getTextSize();
+        plotLeft = getPaddingLeft();
+        plotTop = getPaddingTop() + textHeight * 1.5f;
+        plotRight = getWidth() - getPaddingRight();
+        plotBottom = getHeight() - getPaddingBottom() - textHeight * 1.5f;
+
+        long[] primary = mode == MODE_BALANCE ? series.getBalanceCents() : series.getIncomeCents();
+        long[] secondary = mode == MODE_BALANCE ? null : series.getExpenseCents();
+        int count = series.getBucketCount();
+
+        // El cero siempre queda dentro de la escala
+        long min = 0;
+        long max = 0;
+        for (int i = 0; i < count; i++) {
+            min = Math.min(min, primary[i]);
+            max = Math.max(max, primary[i]);
+            if (secondary != null) {
+                min = Math.min(min, secondary[i]);
+                max = Math.max(max, secondary[i]);
+            }
+        }
+        if (max == min) {
+            max = min + 100;
+        }
+        float scaleY = (plotBottom - plotTop) / (max - min);
+        zeroY = plotBottom + min * scaleY;
+
+        int threshold = Math.max(3, (int) (plotRight - plotLeft));
+        if (indexBuffer.length < Math.min(count, threshold)) {
+            indexBuffer = new int[Math.min(count, threshold)];
+        }
+        primaryLine = ensureCapacity(primaryLine, Math.min(count, threshold));
+        primaryLineLength = buildLine(primary, count, threshold, min, scaleY, primaryLine);
+        if (secondary != null) {
+            secondaryLine = ensureCapacity(secondaryLine, Math.min(count, threshold));
+            secondaryLineLength = buildLine(secondary, count, threshold, min, scaleY, secondaryLine);
+        }
+
+        maxLabel = "$" + decimalFormat.format(max / 100.0);
+        minLabel = "$" + decimalFormat.format(min / 100.0);
+        int granularity = series.getGranularity();
+        startLabel = EpochDay.toIsoDate(TrendSeries.firstDayOfBucket(series.getFirstBucket(), granularity));
+        endLabel = EpochDay.toIsoDate(TrendSeries.firstDayOfBucket(series.getFirstBucket() + count - 1, granularity));
+    }
+
+    private static float[] ensureCapacity(float[] line, int points) {
+        int needed = Math.max(0, points - 1) * 4;
+        return line.length >= needed ? line : new float[needed];
+    }
+
+    /**
+     * Reduce la serie con LTTB y la escribe como segmentos consecutivos (x0, y0, x1, y1).
+     * @return Cantidad de floats escritos.
+     */
+    private int buildLine(long[] values, int count, int threshold, long min, float scaleY, float[] out) {
+        int points = Lttb.downsample(values, count, threshold, indexBuffer);
+        float stepX = count > 1 ? (plotRight - plotLeft) / (count - 1) : 0;
+        int length = 0;
+        for (int p = 1; p < points; p++) {
+            int from = indexBuffer[p - 1];
+            int to = indexBuffer[p];
+            out[length++] = plotLeft + from * stepX;
+            out[length++] = plotBottom - (values[from] - min) * scaleY;
+            out[length++] = plotLeft + to * stepX;
+            out[length++] = plotBottom - (values[to] - min) * scaleY;
+        }
+        return length;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (series == null || series.getBucketCount() == 0) {
+            return;
+        }
+        canvas.drawLine(plotLeft, zeroY, plotRight, zeroY, axisPaint);
+        if (mode == MODE_BALANCE) {
+            canvas.drawLines(primaryLine, 0, primaryLineLength, balancePaint);
+        } else {
+            canvas.drawLines(secondaryLine, 0, secondaryLineLength, expensePaint);
+            canvas.drawLines(primaryLine, 0, primaryLineLength, incomePaint);
+        }
+
+        float textHeight = labelPaint.getTextSize();
+        canvas.drawText(maxLabel, plotLeft, getPaddingTop() + textHeight, labelPaint);
+        canvas.drawText(minLabel, plotLeft, plotBottom + textHeight * 1.2f, labelPaint);
+        float bottomBaseline = getHeight() - getPaddingBottom();
+        canvas.drawText(startLabel, plotLeft, bottomBaseline, labelPaint);
+        canvas.drawText(endLabel, plotRight - labelPaint.measureText(endLabel), bottomBaseline, labelPaint);
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.misgastosam;
+
+/**
+ * Serie de ingresos, gastos y saldo agrupada por día, semana o mes, lista para graficar.
+ * Los buckets son continuos (los que no tienen movimientos quedan en cero) y se identifican
+ * con un número entero que también calcula SQLite al agrupar (ver {@link DatabaseHelper#getTrendSeries}).
+ */
+public class TrendSeries {
+
+    public static final int GRANULARITY_DAY = 0;
+    public static final int GRANULARITY_WEEK = 1; // De lunes a domingo
+    public static final int GRANULARITY_MONTH = 2;
+
+    private final int granularity;
+    private final int firstBucket;
+    private final long[] incomeCents;
+    private final long[] expenseCents;
+    private final long[] balanceCents;
+
+    TrendSeries(int granularity, int firstBucket, int lastBucket) {
+        int count = Math.max(0, lastBucket - firstBucket + 1);
+        this.granularity = granularity;
+        this.firstBucket = firstBucket;
+        this.incomeCents = new long[count];
+        this.expenseCents = new long[count];
+        this.balanceCents = new long[count];
+    }
+
+    /**
+     * Número de bucket de un día. Debe coincidir con {@link #bucketSql(int, String)}.
+     */
+    public static int bucketOf(int epochDay, int granularity) {
+        switch (granularity) {
+            case GRANULARITY_WEEK:
+                return Math.floorDiv(epochDay + 3, 7); // 1970-01-01 fue jueves: la semana 0 empezó el lunes anterior
+            case GRANULARITY_MONTH: {
+                int civil = EpochDay.toCivil(epochDay);
+                return (civil / 10000) * 12 + (civil / 100) % 100 - 1;
+            }
+            default:
+                return epochDay;
+        }
+    }
+
+    /**
+     * @return El primer día (epoch day) de un bucket.
+     */
+    public static int firstDayOfBucket(int bucket, int granularity) {
+        switch (granularity) {
+            case GRANULARITY_WEEK:
+                return bucket * 7 - 3;
+            case GRANULARITY_MONTH:
+                return EpochDay.fromCivil(Math.floorDiv(bucket, 12), Math.floorMod(bucket, 12) + 1, 1);
+            default:
+                return bucket;
+        }
+    }
+
+    /**
+     * Expresión SQL equivalente a {@link #bucketOf(int, int)} sobre una columna "YYYY-MM-DD".
+     */
+    static String bucketSql(int granularity, String dayColumn) {
+        String epochDay = "CAST(julianday(" + dayColumn + ") - 2440587.5 AS INTEGER)";
+        switch (granularity) {
+            case GRANULARITY_WEEK:
+                return "((" + epochDay + " + 3) / 7)"; // Fechas posteriores a 1970: la división entera no trunca negativos
+            case GRANULARITY_MONTH:
+                return "(CAST(substr(" + dayColumn + ", 1, 4) AS INTEGER) * 12 + CAST(substr(" + dayColumn + ", 6, 2) AS INTEGER) - 1)";
+            default:
+                return epochDay;
+        }
+    }
+
+    void add(int bucket, long income, long expense) {
+        int i = bucket - firstBucket;
+        if (i < 0 || i >= incomeCents.length) {
+            return;
+        }
+        incomeCents[i] += income;
+        expenseCents[i] += expense;
+    }
+
+    /**
+     * Calcula el saldo al final de cada bucket a partir del saldo anterior al primero.
+     */
+    void accumulateBalance(long openingBalanceCents) {
+        long balance = openingBalanceCents;
+        for (int i = 0; i < balanceCents.length; i++) {
+            balance += incomeCents[i] - expenseCents[i];
+            balanceCents[i] = balance;
+        }
+    }
+
+    public int getGranularity() {
+        return granularity;
+    }
+
+    public int getFirstBucket() {
+        return firstBucket;
+    }
+
+    public int getBucketCount() {
+        return incomeCents.length;
+    }
+
+    public long[] getIncomeCents() {
+        return incomeCents;
+    }
+
+    /**
+     * @return Gastos por bucket en centavos, como números positivos.
+     */
+    public long[] getExpenseCents() {
+        return expenseCents;
+    }
+
+    public long[] getBalanceCents() {
+        return balanceCents;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.misgastosam;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.Spinner;
+import android.widget.TextView;
+
+import androidx.activity.EdgeToEdge;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.graphics.Insets;
+import androidx.core.view.ViewCompat;
+import androidx.core.view.WindowInsetsCompat;
+
+import java.text.DecimalFormat;
+import java.util.Calendar;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Gráfico de ingresos y gastos, o del saldo, de los últimos años. SQLite agrupa daily_totals
+ * por día, semana o mes (a lo sumo unas miles de filas para diez años) y la vista reduce cada
+ * serie al ancho disponible, así cambiar de rango o de granularidad no recorre transacciones.
+ */
+public class TrendsActivity extends AppCompatActivity {
+
+    private static final String[] RANGE_OPTIONS = {"Último año", "Últimos 3 años", "Últimos 10 años"};
+    private static final int[] RANGE_YEARS = {1, 3, 10};
+    private static final String[] GRANULARITY_OPTIONS = {"Por día", "Por semana", "Por mes"};
+    private static final int[] GRANULARITIES = {TrendSeries.GRANULARITY_DAY, TrendSeries.GRANULARITY_WEEK, TrendSeries.GRANULARITY_MONTH};
+    private static final String[] METRIC_OPTIONS = {"Ingresos y gastos", "Saldo"};
+    private static final int[] METRIC_MODES = {TrendChartView.MODE_FLOWS, TrendChartView.MODE_BALANCE};
+
+    private Spinner rangeSpinner;
+    private Spinner granularitySpinner;
+    private Spinner metricSpinner;
+    private TrendChartView chartView;
+    private TextView summaryTextView;
+
+    private DatabaseHelper dbHelper;
+    private int loadGeneration; // Descarta resultados de selecciones anteriores
+    private final DecimalFormat decimalFormat = new DecimalFormat("#,##0.00");
+
+    private final ExecutorService dbExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        EdgeToEdge.enable(this);
+        setContentView(R.layout.activity_trends);
+
+        ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
+            Insets systemBars = insets.getInsets(WindowInsetsCompat.Type.systemBars());
+            v.setPadding(systemBars.left, systemBars.top, systemBars.right, systemBars.bottom);
+            return insets;
+        });
+
+        dbHelper = DatabaseHelper.getInstance(this);
+
+        rangeSpinner = findViewById(R.id.spinner_trends_range);
+        granularitySpinner = findViewById(R.id.spinner_trends_granularity);
+        metricSpinner = findViewById(R.id.spinner_trends_metric);
+        chartView = findViewById(R.id.trend_chart_view);
+        summaryTextView = findViewById(R.id.textView_trends_summary);
+
+        setupSpinner(rangeSpinner, RANGE_OPTIONS);
+        setupSpinner(granularitySpinner, GRANULARITY_OPTIONS);
+        setupSpinner(metricSpinner, METRIC_OPTIONS);
+        granularitySpinner.setSelection(1); // Por semana: buen equilibrio para un año
+
+        AdapterView.OnItemSelectedListener reloadListener = new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                loadSeries();
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        };
+        rangeSpinner.setOnItemSelectedListener(reloadListener);
+        granularitySpinner.setOnItemSelectedListener(reloadListener);
+        metricSpinner.setOnItemSelectedListener(reloadListener);
+    }
+
+    private void setupSpinner(Spinner spinner, String[] options) {
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, options);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinner.setAdapter(adapter);
+    }
+
+    private void loadSeries() {
+        int generation = ++loadGeneration;
+        int years = RANGE_YEARS[rangeSpinner.getSelectedItemPosition()];
+        int granularity = GRANULARITIES[granularitySpinner.getSelectedItemPosition()];
+        int mode = METRIC_MODES[metricSpinner.getSelectedItemPosition()];
+
+        Calendar today = Calendar.getInstance();
+        int toDay = EpochDay.fromCivil(today.get(Calendar.YEAR), today.get(Calendar.MONTH) + 1, today.get(Calendar.DAY_OF_MONTH));
+        int fromDay = EpochDay.fromCivil(today.get(Calendar.YEAR) - years, today.get(Calendar.MONTH) + 1, 1);
+        String fromDate = EpochDay.toIsoDate(fromDay);
+        String toDate = EpochDay.toIsoDate(toDay);
+
+        dbExecutor.execute(() -> {
+            TrendSeries series = dbHelper.getTrendSeries(fromDate, toDate, granularity);
+            long incomeCents = 0;
+            long expenseCents = 0;
+            for (int i = 0; i < series.getBucketCount(); i++) {
+                incomeCents += series.getIncomeCents()[i];
+                expenseCents += series.getExpenseCents()[i];
+            }
+            long income = incomeCents;
+            long expense = expenseCents;
+            mainHandler.post(() -> {
+                if (generation != loadGeneration || isFinishing()) {
+                    return; // Ya se pidió otra combinación
+                }
+                chartView.setSeries(series, mode);
+                summaryTextView.setText("Ingresos: $" + decimalFormat.format(income / 100.0) +
+                        " · Gastos: $" + decimalFormat.format(expense / 100.0));
+            });
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        dbExecutor.shutdown();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.misgastosam;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class CategoryModelTest {
+
+    private static final int GROCERIES = 1;
+    private static final int TRANSPORT = 2;
+    private static final int RENT = 3;
+    private static final int[] ALL = {GROCERIES, TRANSPORT, RENT};
+
+    private static CategoryModel trainedModel() {
+        CategoryModel model = new CategoryModel();
+        for (int i = 0; i < 20; i++) {
+            model.train("Supermercado Día", -30 - i, GROCERIES);
+            model.train("Verdulería", -12, GROCERIES);
+            model.train("Colectivo", -1.5, TRANSPORT);
+            model.train("Taxi al centro", -9, TRANSPORT);
+        }
+        model.train("Alquiler depto", -800, RENT);
+        return model;
+    }
+
+    @Test
+    public void predictsFromDescriptionWords() {
+        CategoryModel model = trainedModel();
+        assertEquals(GROCERIES, model.predict("supermercado", -25, ALL));
+        assertEquals(TRANSPORT, model.predict("taxi", 0, ALL));
+        assertEquals(RENT, model.predict("ALQUILER", -800, ALL));
+    }
+
+    @Test
+    public void onlyChoosesAmongCandidates() {
+        CategoryModel model = trainedModel();
+        int predicted = model.predict("Supermercado", -25, new int[]{TRANSPORT, RENT});
+        assertTrue(predicted == TRANSPORT || predicted == RENT);
+        assertEquals(-1, model.predict("Supermercado", -25, new int[]{99}));
+    }
+
+    @Test
+    public void unknownDescriptionGivesNoSuggestion() {
+        CategoryModel model = trainedModel();
+        assertEquals(-1, model.predict("Ferretería", -30, ALL));
+        assertEquals(-1, model.predict("", -800, ALL)); // El monto solo no alcanza
+    }
+
+    @Test
+    public void roundTripKeepsPredictions() throws IOException {
+        CategoryModel model = trainedModel();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        model.writeTo(new DataOutputStream(bytes));
+        CategoryModel restored = CategoryModel.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(model.getTrainedCount(), restored.getTrainedCount());
+        assertEquals(GROCERIES, restored.predict("verduleria", -10, ALL));
+        // Sigue aprendiendo después de cargarse
+        for (int i = 0; i < 30; i++) {
+            restored.train("Verdulería del barrio", -800, RENT);
+        }
+        assertEquals(RENT, restored.predict("verduleria", -800, ALL));
+    }
+}
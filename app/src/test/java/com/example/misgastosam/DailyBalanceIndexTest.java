@@ -0,0 +1,72 @@
+package com.example.misgastosam;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compara {@link DailyBalanceIndex} contra sumas directas, incluyendo fechas que obligan a crecer.
+ */
+public class DailyBalanceIndexTest {
+
+    @Test
+    public void epochDay_roundTripsIsoDates() {
+        assertEquals(0, EpochDay.fromIsoDate("1970-01-01"));
+        assertEquals("2024-02-29", EpochDay.toIsoDate(EpochDay.fromIsoDate("2024-02-29")));
+        assertEquals(EpochDay.fromIsoDate("2024-03-01") - 1, EpochDay.lastDayOfMonth("2024-02"));
+        assertEquals(EpochDay.fromIsoDate("2025-12-01"), EpochDay.firstDayOfMonth("2025-12"));
+    }
+
+    @Test
+    public void rangeBalance_matchesNaiveSums() {
+        Random random = new Random(29);
+        int base = EpochDay.fromIsoDate("2025-01-01");
+        long[] naive = new long[2000];
+        DailyBalanceIndex index = new DailyBalanceIndex();
+
+        for (int i = 0; i < 5000; i++) {
+            // Empieza en el medio y se expande hacia ambos lados
+            int offset = 1000 + (int) (random.nextGaussian() * 300);
+            offset = Math.max(0, Math.min(naive.length - 1, offset));
+            long cents = random.nextInt(20000) - 15000;
+            naive[offset] += cents;
+            index.add(base + offset, cents);
+        }
+
+        long total = 0;
+        for (long cents : naive) {
+            total += cents;
+        }
+        assertEquals(total, index.getTotal());
+
+        for (int i = 0; i < 500; i++) {
+            int from = random.nextInt(naive.length);
+            int to = from + random.nextInt(naive.length - from);
+            long expected = 0;
+            for (int d = from; d <= to; d++) {
+                expected += naive[d];
+            }
+            assertEquals(expected, index.rangeBalance(base + from, base + to));
+        }
+        assertEquals(total, index.runningBalance(base + naive.length + 365));
+        assertEquals(0, index.runningBalance(base - 1));
+    }
+
+    @Test
+    public void delta_appliesNetChangePerDay() {
+        DailyBalanceIndex index = new DailyBalanceIndex();
+        index.add(EpochDay.fromIsoDate("2025-06-01"), DailyBalanceIndex.toCents(-12.50));
+
+        // Mover la transacción de fecha: resta en el día viejo, suma en el nuevo
+        DailyBalanceIndex.Delta delta = new DailyBalanceIndex.Delta();
+        delta.add("2025-06-01", 12.50);
+        delta.add("2025-06-03", -12.50);
+        delta.applyTo(index);
+
+        assertEquals(-1250, index.getTotal());
+        assertEquals(0, index.rangeBalance(EpochDay.fromIsoDate("2025-06-01"), EpochDay.fromIsoDate("2025-06-02")));
+        assertEquals(-1250, index.runningBalance(EpochDay.fromIsoDate("2025-06-03")));
+    }
+}
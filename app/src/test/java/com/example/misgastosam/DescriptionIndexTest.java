@@ -0,0 +1,45 @@
+package com.example.misgastosam;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DescriptionIndexTest {
+
+    private static final int TODAY = EpochDay.fromIsoDate("2024-06-30");
+
+    @Test
+    public void variantsOfTheSameDescriptionAreMerged() {
+        DescriptionIndex index = new DescriptionIndex();
+        index.record("Supermercado Día", 3, TODAY - 10);
+        index.record("  supermercado   dia ", 1, TODAY);
+        assertEquals(1, index.size());
+        // Se sugiere el texto de la última vez que se usó
+        assertEquals(Arrays.asList("supermercado   dia"), index.suggest("SUPER", TODAY, 5));
+    }
+
+    @Test
+    public void prefixMatchIgnoresAccentsAndCase() {
+        DescriptionIndex index = new DescriptionIndex();
+        index.record("Óptica", 1, TODAY);
+        index.record("Almuerzo", 1, TODAY);
+        assertEquals(Arrays.asList("Óptica"), index.suggest("opt", TODAY, 5));
+        assertTrue(index.suggest("x", TODAY, 5).isEmpty());
+        assertTrue(index.suggest("   ", TODAY, 5).isEmpty());
+    }
+
+    @Test
+    public void frequentAndRecentRankFirst() {
+        DescriptionIndex index = new DescriptionIndex();
+        index.record("Cafetería", 2, TODAY);
+        index.record("Café", 10, TODAY - 1);
+        index.record("Carnicería", 30, TODAY - 900); // Muchas veces, pero hace años
+        index.record("Cena", 1, TODAY);
+        List<String> suggestions = index.suggest("c", TODAY, 3);
+        assertEquals(Arrays.asList("Café", "Carnicería", "Cafetería"), suggestions);
+        assertEquals(Arrays.asList("Café", "Cafetería"), index.suggest("caf", TODAY, 5));
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.misgastosam;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifica que {@link Lttb} respete el umbral y conserve los extremos, y los buckets de {@link TrendSeries}.
+ */
+public class LttbTest {
+
+    @Test
+    public void downsample_keepsEndpointsAndIncreasingIndexes() {
+        Random random = new Random(39);
+        long[] values = new long[3650];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(100000);
+        }
+        int[] indexes = new int[400];
+
+        int count = Lttb.downsample(values, values.length, 400, indexes);
+
+        assertEquals(400, count);
+        assertEquals(0, indexes[0]);
+        assertEquals(values.length - 1, indexes[count - 1]);
+        for (int i = 1; i < count; i++) {
+            assertTrue(indexes[i] > indexes[i - 1]);
+        }
+    }
+
+    @Test
+    public void downsample_keepsIsolatedSpike() {
+        long[] values = new long[1000];
+        values[537] = 5_000_000;
+
+        int[] indexes = new int[50];
+        int count = Lttb.downsample(values, values.length, 50, indexes);
+
+        boolean found = false;
+        for (int i = 0; i < count; i++) {
+            found |= indexes[i] == 537;
+        }
+        assertTrue(found);
+    }
+
+    @Test
+    public void downsample_returnsAllPointsBelowThreshold() {
+        long[] values = {5, 1, 9};
+        int[] indexes = new int[3];
+
+        assertEquals(3, Lttb.downsample(values, 3, 100, indexes));
+        assertArrayEquals(new int[]{0, 1, 2}, indexes);
+    }
+
+    @Test
+    public void trendSeries_bucketsStartOnMondayAndFirstOfMonth() {
+        int day = EpochDay.fromIsoDate("2025-06-18"); // Miércoles
+        int week = TrendSeries.bucketOf(day, TrendSeries.GRANULARITY_WEEK);
+        assertEquals("2025-06-16", EpochDay.toIsoDate(TrendSeries.firstDayOfBucket(week, TrendSeries.GRANULARITY_WEEK)));
+        int month = TrendSeries.bucketOf(day, TrendSeries.GRANULARITY_MONTH);
+        assertEquals("2025-06-01", EpochDay.toIsoDate(TrendSeries.firstDayOfBucket(month, TrendSeries.GRANULARITY_MONTH)));
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.misgastosam;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteCursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.view.ContextThemeWrapper;
+import android.widget.FrameLayout;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Presupuestos de tiempo y de consultas para las operaciones más usadas, sobre bases generadas
+ * con {@link SyntheticLedgerGenerator} de 10 mil y 100 mil filas. Una consulta de más por fila o
+ * un recorrido completo de la tabla hace fallar el test. Cada medición se agrega a
+ * build/perf/results.csv (o al archivo de la propiedad "perf.results") para comparar commits.
+ * Las consultas se cuentan como cursores abiertos, con la fábrica de cursores del helper.
+ * El presupuesto de consultas se exige siempre; el de tiempo solo si la propiedad
+ * "perf.enforceTime" es true, para que una máquina cargada no haga fallar el build. Lo que
+ * hace cada operación lo cubren los tests funcionales sobre bases chicas.
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+public class PerformanceBudgetTest {
+
+    private static final File RESULTS_FILE = new File(System.getProperty("perf.results", "build/perf/results.csv"));
+    // El reloj depende de la máquina: en el test de siempre solo se registra, en CI dedicada se exige
+    private static final boolean ENFORCE_TIME = Boolean.getBoolean("perf.enforceTime");
+    private static final int RUNS = 3; // Se toma la mejor de varias corridas para que el JIT no cuente
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "{0} filas")
+    public static Collection<Object[]> sizes() {
+        // 10 años: sueldo, alquiler y servicios suman ~720 filas, el resto son movimientos diarios
+        return Arrays.asList(new Object[][]{{10_000, 2.5}, {100_000, 27.0}});
+    }
+
+    private final int targetRows;
+    private final double transactionsPerDay;
+
+    private final AtomicInteger queries = new AtomicInteger();
+    private final SQLiteDatabase.CursorFactory countingCursors = (db, driver, editTable, query) -> {
+        queries.incrementAndGet();
+        return new SQLiteCursor(driver, editTable, query);
+    };
+    private Context context;
+    private DatabaseHelper dbHelper;
+    private int rows;
+
+    public PerformanceBudgetTest(int targetRows, double transactionsPerDay) {
+        this.targetRows = targetRows;
+        this.transactionsPerDay = transactionsPerDay;
+    }
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        dbHelper = new DatabaseHelper(context, countingCursors);
+        dbHelper.createDefaultCategoriesIfNotExist();
+        rows = dbHelper.insertSyntheticLedger(new SyntheticLedgerGenerator(42, "2015-01-01", 10, transactionsPerDay));
+        assertTrue(rows > targetRows * 9 / 10);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+    }
+
+    @Test
+    public void dashboardLoad() {
+        // Primera apertura: el índice de saldos se arma desde daily_totals (una fila por día, no por transacción)
+        Measurement m = measure(dbHelper::invalidateDailyBalanceIndex, () -> {
+            dbHelper.getTotalBalance();
+            List<MonthlyBalance> balances = new ArrayList<>();
+            for (int month = 1; month <= 6; month++) {
+                String monthYear = String.format(Locale.US, "2024-%02d", month);
+                balances.add(new MonthlyBalance(monthYear, dbHelper.getBalanceForMonth(monthYear)));
+            }
+            MonthlyBalanceAdapter adapter = new MonthlyBalanceAdapter(balances);
+            bindAll(adapter, adapter.getItemCount());
+        });
+        check("dashboard_load", m, 150, 150, 1);
+    }
+
+    @Test
+    public void historyFilter() {
+        int groceriesId = dbHelper.getCategoryByName("Supermercado", Category.TYPE_EXPENSE).getId();
+        dbHelper.getDailyBalanceIndex();
+        Measurement m = measure(null, () -> {
+            dbHelper.getRunningBalances(dbHelper.getTransactions(-1, "2020-06", null));
+            dbHelper.getRunningBalances(dbHelper.getTransactions(groceriesId, null, Category.TYPE_EXPENSE));
+        });
+        check("history_filter", m, 300, 2_500, 4);
+    }
+
+    @Test
+    public void historyAdapterBind() {
+        List<Transaction> transactions = dbHelper.getTransactions(-1, null, null);
+        Measurement m = measure(null, () -> {
+            TransactionAdapter adapter = new TransactionAdapter(themedContext(), transactions, null);
+            bindAll(adapter, Math.min(adapter.getItemCount(), 1_000));
+        });
+        check("history_adapter_bind_1000", m, 500, 800, 0);
+    }
+
+    @Test
+    public void insert() {
+        dbHelper.getDailyBalanceIndex();
+        Category groceries = dbHelper.getCategoryByName("Supermercado", Category.TYPE_EXPENSE);
+        Measurement m = measureOnce(() -> {
+            for (int i = 0; i < 100; i++) {
+                Transaction transaction = new Transaction(-10.5, "Compra " + i, groceries, "2024-12-" + (10 + i % 20));
+                assertNotEquals(-1, dbHelper.addTransaction(transaction));
+            }
+        });
+        // Ninguna consulta por alta: el saldo se actualiza con el delta en memoria
+        check("insert_100", m, 1_000, 1_000, 0);
+    }
+
+    @Test
+    public void quickAddSave() {
+        dbHelper.getDailyBalanceIndex();
+        dbHelper.warmDuplicateFilter(); // Lo arma Transaccion al abrirse, no el primer alta
+        Category groceries = dbHelper.getCategoryByName("Supermercado", Category.TYPE_EXPENSE);
+        TransactionWriteQueue queue = new TransactionWriteQueue(dbHelper, Runnable::run, TransactionWriteQueue.GROUP_COMMIT_WINDOW_MS);
+        Measurement m = measure(null, () -> {
+            queue.enqueueInsert(new Transaction(-3.5, "Café", groceries, "2024-12-20"), Collections.emptyList(), true, null);
+            assertTrue(queue.flush());
+        });
+        queue.shutdownNow();
+        // flush() no espera la ventana del commit agrupado, que el usuario sí paga
+        Measurement tapToSaved = new Measurement(m.elapsedMs + TransactionWriteQueue.GROUP_COMMIT_WINDOW_MS, m.queryCount);
+        // A partir de la segunda es un duplicado: el filtro de Bloom deja pasar una consulta de confirmación
+        check("quick_add_tap_to_saved", tapToSaved, QuickAddActivity.TAP_TO_SAVED_TARGET_MS, QuickAddActivity.TAP_TO_SAVED_TARGET_MS, 1);
+    }
+
+    @Test
+    public void categoryDelete() {
+        dbHelper.getDailyBalanceIndex();
+        int categoryId = dbHelper.getCategoryByName("Supermercado", Category.TYPE_EXPENSE).getId();
+        int total = dbHelper.countTransactionsForCategory(categoryId);
+        Measurement m = measureOnce(() -> {
+            // Lo mismo que CategoryBulkOperation.deleteCategory, en este hilo
+            dbHelper.countTransactionsForCategory(categoryId);
+            while (dbHelper.deleteTransactionsForCategoryChunk(categoryId, CategoryBulkOperation.CHUNK_SIZE) > 0) {
+                // Un tramo por transacción SQLite
+            }
+            assertTrue(dbHelper.deleteCategory(categoryId));
+        });
+        // Una consulta por tramo (el delta del índice), más los conteos
+        int chunks = total / CategoryBulkOperation.CHUNK_SIZE + 1;
+        check("category_delete", m, 1_500, 8_000, chunks + 3);
+        assertEquals(0, dbHelper.countTransactionsForCategory(categoryId));
+    }
+
+    @Test
+    public void accountBalances() {
+        assertTrue(dbHelper.addTransfer(Account.DEFAULT_ID, 2, 1_500.25, "Depósito", "2024-12-15"));
+        Measurement m = measure(null, dbHelper::getAccounts);
+        // Los saldos son agregados que mantienen los triggers: una sola consulta, sin importar las filas
+        check("account_balances", m, 50, 50, 1);
+    }
+
+    @Test
+    public void splitTransactions() {
+        Category groceries = dbHelper.getCategoryByName("Supermercado", Category.TYPE_EXPENSE);
+        Category other = dbHelper.getCategoryByName("Otros", Category.TYPE_EXPENSE);
+        Transaction receipt = new Transaction(-100, "Ticket súper", groceries, "2024-12-20");
+        receipt.setId((int) dbHelper.addTransaction(receipt));
+        assertTrue(dbHelper.setTransactionSplits(receipt, Arrays.asList(
+                new TransactionSplit(groceries, -70), new TransactionSplit(other, -30))));
+
+        Measurement m = measure(null, () -> dbHelper.getCategoryTotals("2024-12"));
+        // Los totales por categoría salen de category_totals: una consulta, sin recorrer transacciones
+        check("category_totals", m, 50, 50, 1);
+    }
+
+    @Test
+    public void tagFilter() {
+        List<Transaction> transactions = dbHelper.getTransactions(-1, null, null);
+        for (int i = 0; i < transactions.size(); i += 10) {
+            // Una de cada 10 es "viaje" y una de cada 20 además "trabajo"
+            List<String> tags = (i % 20 == 0) ? Arrays.asList("viaje", "Trabajo") : Arrays.asList("Viaje");
+            assertTrue(dbHelper.setTransactionTags(transactions.get(i).getId(), tags));
+        }
+        List<Tag> tags = dbHelper.getAllTags();
+        List<Integer> tagIds = Arrays.asList(tags.get(0).getId(), tags.get(1).getId());
+        dbHelper.getTagIndex();
+
+        Measurement m = measure(null, () -> {
+            dbHelper.getTagIndex().match(tagIds, true);
+            dbHelper.getTagIndex().match(tagIds, false);
+        });
+        // Todo en memoria: ninguna consulta
+        check("tag_filter", m, 20, 20, 0);
+    }
+
+    @Test
+    public void sync() throws IOException {
+        // Las últimas 10 mil transacciones (todas, en la base chica) cambiaron en este dispositivo
+        dbHelper.getWritableDatabase().execSQL("UPDATE " + DatabaseHelper.TABLE_TRANSACTIONS + " SET " +
+                DatabaseHelper.COLUMN_DIRTY + " = 1 WHERE " + DatabaseHelper.COLUMN_TRANSACTION_ID + " IN (SELECT " +
+                DatabaseHelper.COLUMN_TRANSACTION_ID + " FROM " + DatabaseHelper.TABLE_TRANSACTIONS + " ORDER BY " +
+                DatabaseHelper.COLUMN_TRANSACTION_ID + " DESC LIMIT 10000)");
+        int changed = Math.min(rows, 10_000);
+        DatabaseHelper peer = new DatabaseHelper(context, "perf-sync-peer.db", countingCursors);
+        peer.createDefaultCategoriesIfNotExist();
+        InMemorySyncTransport server = new InMemorySyncTransport();
+        SyncEngine.Result[] results = new SyncEngine.Result[2];
+        try {
+            Measurement m = measureOnce(() -> {
+                try {
+                    results[0] = new SyncEngine(new SqliteSyncStore(dbHelper), server).sync();
+                    results[1] = new SyncEngine(new SqliteSyncStore(peer), server).sync();
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            // Cada fila aplicada consulta su versión local y, si es nueva, su lápida. El resto es por
+            // lote: los cambios pendientes, y cada categoría y cuenta que el lote usa, una vez
+            int batches = changed / SyncEngine.DEFAULT_BATCH_SIZE + 1;
+            check("sync_10k", m, 6_000, 6_000, 2 * changed + 25 * batches);
+            assertTrue(results[0].getPushed() > changed); // Más las categorías
+            assertTrue(results[1].getPulled() >= changed);
+            assertEquals(changed, peer.getTransactions(-1, null, null).size());
+        } finally {
+            peer.close();
+        }
+    }
+
+    // --- Medición ---
+
+    private static final class Measurement {
+        final long elapsedMs;
+        final int queryCount;
+
+        Measurement(long elapsedMs, int queryCount) {
+            this.elapsedMs = elapsedMs;
+            this.queryCount = queryCount;
+        }
+    }
+
+    private Measurement measure(Runnable beforeEachRun, Runnable scenario) {
+        long best = Long.MAX_VALUE;
+        int queryCount = 0;
+        for (int run = 0; run < RUNS; run++) {
+            if (beforeEachRun != null) {
+                beforeEachRun.run();
+            }
+            Measurement m = measureOnce(scenario);
+            best = Math.min(best, m.elapsedMs);
+            queryCount = m.queryCount;
+        }
+        return new Measurement(best, queryCount);
+    }
+
+    private Measurement measureOnce(Runnable scenario) {
+        queries.set(0);
+        long start = System.nanoTime();
+        scenario.run();
+        return new Measurement((System.nanoTime() - start) / 1_000_000, queries.get());
+    }
+
+    /**
+     * Registra la medición y la compara con el presupuesto del tamaño actual. Las consultas se
+     * controlan siempre; el tiempo, solo con -Pperf.enforceTime=true.
+     */
+    private void check(String scenario, Measurement m, long budgetMsSmall, long budgetMsLarge, int budgetQueries) {
+        long budgetMs = targetRows <= 10_000 ? budgetMsSmall : budgetMsLarge;
+        record(scenario, m, budgetMs, budgetQueries);
+        assertTrue(scenario + ": " + m.queryCount + " consultas, presupuesto " + budgetQueries, m.queryCount <= budgetQueries);
+        if (ENFORCE_TIME) {
+            assertTrue(scenario + ": " + m.elapsedMs + " ms, presupuesto " + budgetMs + " ms", m.elapsedMs <= budgetMs);
+        }
+    }
+
+    private void record(String scenario, Measurement m, long budgetMs, int budgetQueries) {
+        File parent = RESULTS_FILE.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        boolean header = !RESULTS_FILE.exists();
+        try (PrintWriter out = new PrintWriter(new FileWriter(RESULTS_FILE, true))) {
+            if (header) {
+                out.println("timestamp,commit,scenario,rows,elapsed_ms,budget_ms,queries,budget_queries");
+            }
+            String commit = System.getenv("GIT_COMMIT") != null ? System.getenv("GIT_COMMIT") : "local";
+            out.println(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US).format(new Date()) + "," + commit + "," +
+                    scenario + "," + rows + "," + m.elapsedMs + "," + budgetMs + "," + m.queryCount + "," + budgetQueries);
+        } catch (IOException e) {
+            System.err.println("No se pudo guardar el resultado de " + scenario + ": " + e.getMessage());
+        }
+    }
+
+    private Context themedContext() {
+        return new ContextThemeWrapper(context, R.style.Theme_MisGastosAM);
+    }
+
+    // Crea pocos ViewHolder y los reutiliza, como hace el RecyclerView al hacer scroll
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private void bindAll(RecyclerView.Adapter adapter, int count) {
+        FrameLayout parent = new FrameLayout(themedContext());
+        RecyclerView.ViewHolder[] holders = new RecyclerView.ViewHolder[8];
+        int[] holderTypes = new int[holders.length];
+        for (int position = 0; position < count; position++) {
+            int type = adapter.getItemViewType(position);
+            int slot = position % holders.length;
+            if (holders[slot] == null || holderTypes[slot] != type) {
+                holders[slot] = adapter.onCreateViewHolder(parent, type);
+                holderTypes[slot] = type;
+            }
+            adapter.onBindViewHolder(holders[slot], position);
+        }
+    }
+}
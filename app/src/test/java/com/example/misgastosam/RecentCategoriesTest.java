@@ -0,0 +1,43 @@
+package com.example.misgastosam;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Lista de categorías recientes y foto de los botones de la carga rápida.
+ */
+public class RecentCategoriesTest {
+
+    @Test
+    public void moveToFront_keepsAtMostMaxRecent() {
+        List<Integer> ids = Arrays.asList(1, 2, 3, 4, 5, 6);
+        assertEquals(Arrays.asList(4, 1, 2, 3, 5, 6), RecentCategories.moveToFront(ids, 4));
+        assertEquals(Arrays.asList(7, 1, 2, 3, 4, 5), RecentCategories.moveToFront(ids, 7));
+    }
+
+    @Test
+    public void snapshot_roundTrip() {
+        List<Category> categories = Arrays.asList(
+                new Category(3, "Comida, bebida", Category.TYPE_EXPENSE),
+                new Category(8, "Sueldo", Category.TYPE_INCOME));
+        List<Category> parsed = RecentCategories.parseSnapshot(RecentCategories.formatSnapshot(categories));
+
+        assertEquals(2, parsed.size());
+        assertEquals(3, parsed.get(0).getId());
+        assertEquals("Comida, bebida", parsed.get(0).getName());
+        assertTrue(parsed.get(0).isExpense());
+        assertEquals(Category.TYPE_INCOME, parsed.get(1).getType());
+    }
+
+    @Test
+    public void parseSnapshot_skipsCorruptLines() {
+        List<Category> parsed = RecentCategories.parseSnapshot("x,EXPENSE,Comida\n5,EXPENSE\n6,EXPENSE,Cine");
+        assertEquals(1, parsed.size());
+        assertEquals("Cine", parsed.get(0).getName());
+        assertTrue(RecentCategories.parseSnapshot("").isEmpty());
+    }
+}
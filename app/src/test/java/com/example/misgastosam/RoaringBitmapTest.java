@@ -0,0 +1,95 @@
+package com.example.misgastosam;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compara {@link RoaringBitmap} con un BitSet en conjuntos ralos y densos (los dos tipos de
+ * contenedor y el paso de uno a otro), y el filtro de etiquetas de {@link TagIndex}.
+ */
+public class RoaringBitmapTest {
+
+    @Test
+    public void andOr_matchBitSetAcrossContainerTypes() {
+        Random random = new Random(49);
+        RoaringBitmap sparse = new RoaringBitmap();
+        RoaringBitmap dense = new RoaringBitmap();
+        BitSet sparseExpected = new BitSet();
+        BitSet denseExpected = new BitSet();
+        for (int i = 0; i < 3_000; i++) {
+            int value = random.nextInt(1_000_000);
+            sparse.add(value);
+            sparseExpected.set(value);
+        }
+        for (int i = 0; i < 400_000; i++) {
+            int value = random.nextInt(1_000_000);
+            dense.add(value);
+            denseExpected.set(value);
+        }
+
+        assertArrayEquals(sparseExpected.stream().toArray(), sparse.toArray());
+        assertEquals(denseExpected.cardinality(), dense.getCardinality());
+
+        BitSet and = (BitSet) sparseExpected.clone();
+        and.and(denseExpected);
+        assertArrayEquals(and.stream().toArray(), sparse.and(dense).toArray());
+        assertArrayEquals(and.stream().toArray(), dense.and(sparse).toArray());
+
+        BitSet or = (BitSet) sparseExpected.clone();
+        or.or(denseExpected);
+        assertArrayEquals(or.stream().toArray(), sparse.or(dense).toArray());
+        assertArrayEquals(denseExpected.stream().toArray(), dense.and(dense).toArray());
+    }
+
+    @Test
+    public void addAndRemove_convertBetweenArrayAndBitmap() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int i = 0; i < 10_000; i++) {
+            bitmap.add(70_000 + i); // Más de 4096 en un contenedor: pasa a mapa de bits
+        }
+        for (int i = 0; i < 10_000; i += 2) {
+            bitmap.remove(70_000 + i); // Vuelve a arreglo
+        }
+        assertEquals(5_000, bitmap.getCardinality());
+        assertTrue(bitmap.contains(70_001));
+        assertFalse(bitmap.contains(70_002));
+        for (int i = 1; i < 10_000; i += 2) {
+            bitmap.remove(70_000 + i);
+        }
+        assertTrue(bitmap.isEmpty());
+    }
+
+    @Test
+    public void results_doNotShareContainersWithOperands() {
+        RoaringBitmap a = RoaringBitmap.of(1, 2, 3);
+        RoaringBitmap b = RoaringBitmap.of(100_000);
+        RoaringBitmap union = a.or(b);
+        a.add(4);
+        b.remove(100_000);
+        assertArrayEquals(new int[]{1, 2, 3, 100_000}, union.toArray());
+    }
+
+    @Test
+    public void tagIndex_allAndAny() {
+        TagIndex index = new TagIndex();
+        int trip = 1;
+        int work = 2;
+        int kids = 3;
+        index.setTags(10, Arrays.asList(trip, work));
+        index.setTags(11, Arrays.asList(trip));
+        index.setTags(12, Arrays.asList(work, kids));
+
+        assertArrayEquals(new int[]{10}, index.match(Arrays.asList(trip, work), true).toArray());
+        assertArrayEquals(new int[]{10, 11, 12}, index.match(Arrays.asList(trip, work), false).toArray());
+        assertTrue(index.match(Arrays.asList(trip, 99), true).isEmpty());
+
+        index.setTags(10, Arrays.asList(kids)); // Reemplaza las anteriores
+        assertTrue(index.match(Arrays.asList(trip, work), true).isEmpty());
+        assertArrayEquals(new int[]{10, 12}, index.match(Arrays.asList(kids), false).toArray());
+    }
+}
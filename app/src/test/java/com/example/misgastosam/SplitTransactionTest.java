@@ -0,0 +1,160 @@
+package com.example.misgastosam;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Transacciones divididas entre categorías, sobre una DB chica: las líneas suman el monto, los
+ * totales y el filtro por categoría salen de ellas, siguen a la fecha y borrar una categoría
+ * solo quita sus líneas.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SplitTransactionTest {
+
+    private DatabaseHelper dbHelper;
+    private Category groceries;
+    private Category cleaning;
+    private Category other;
+
+    @Before
+    public void setUp() {
+        dbHelper = new DatabaseHelper(RuntimeEnvironment.getApplication());
+        dbHelper.createDefaultCategoriesIfNotExist();
+        groceries = category("Supermercado");
+        cleaning = category("Limpieza");
+        other = dbHelper.getCategoryByName("Otros", Category.TYPE_EXPENSE);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+    }
+
+    @Test
+    public void setSplits_requiresLinesToSumTheAmount() {
+        Transaction receipt = new Transaction(-100, "Ticket súper", groceries, "2024-12-20");
+        receipt.setId((int) dbHelper.addTransaction(receipt));
+
+        assertFalse(dbHelper.setTransactionSplits(receipt, Arrays.asList(
+                new TransactionSplit(groceries, -70), new TransactionSplit(other, -20))));
+        assertFalse(only().isSplit());
+        assertTrue(dbHelper.setTransactionSplits(receipt, Arrays.asList(
+                new TransactionSplit(groceries, -70), new TransactionSplit(other, -30))));
+
+        // Los totales por categoría salen de las líneas; el del mes no cambia
+        Map<Integer, Double> totals = dbHelper.getCategoryTotals("2024-12");
+        assertEquals(-70, totals.get(groceries.getId()), 0.001);
+        assertEquals(-30, totals.get(other.getId()), 0.001);
+        assertEquals(-100, dbHelper.getBalanceForMonth("2024-12"), 0.001);
+    }
+
+    @Test
+    public void categoryFilter_findsSplitByAnyLine() {
+        Transaction receipt = split(-100, new TransactionSplit(cleaning, -30), new TransactionSplit(groceries, -70));
+
+        List<Transaction> found = dbHelper.getTransactions(cleaning.getId(), "2024-12", null);
+        assertEquals(1, found.size());
+        assertEquals(receipt.getId(), found.get(0).getId());
+        assertEquals(2, found.get(0).getSplits().size());
+        assertEquals(groceries.getId(), found.get(0).getCategoryId()); // La de la línea más grande
+    }
+
+    @Test
+    public void shiftDates_movesTheLines() {
+        Transaction receipt = split(-100, new TransactionSplit(groceries, -70), new TransactionSplit(other, -30));
+
+        assertEquals(1, dbHelper.shiftTransactionDates(new int[]{receipt.getId()}, 15));
+
+        assertEquals(-30, dbHelper.getCategoryTotals("2025-01").get(other.getId()), 0.001);
+        assertEquals(-70, dbHelper.getCategoryTotals("2025-01").get(groceries.getId()), 0.001);
+    }
+
+    @Test
+    public void deleteCategory_shrinksSplitTransaction() {
+        Transaction receipt = split(-100, new TransactionSplit(groceries, -60), new TransactionSplit(cleaning, -25),
+                new TransactionSplit(other, -15));
+
+        deleteTransactionsOf(cleaning);
+
+        Transaction left = only();
+        assertEquals(receipt.getId(), left.getId());
+        assertEquals(-75, left.getAmount(), 0.001);
+        assertEquals(groceries.getId(), left.getCategoryId());
+        assertEquals(2, left.getSplits().size());
+        assertEquals(-60, dbHelper.getCategoryTotals("2024-12").get(groceries.getId()), 0.001);
+        assertNull(dbHelper.getCategoryTotals("2024-12").get(cleaning.getId()));
+        assertEquals(-75, dbHelper.getTotalBalance(), 0.001);
+    }
+
+    @Test
+    public void deleteCategory_collapsesIntoRemainingLine() {
+        // La categoría borrada es la de la línea más grande, que también es la de la transacción
+        Transaction receipt = split(-100, new TransactionSplit(groceries, -70), new TransactionSplit(cleaning, -30));
+
+        deleteTransactionsOf(groceries);
+        assertTrue(dbHelper.deleteCategory(groceries.getId()));
+
+        Transaction left = only();
+        assertEquals(receipt.getId(), left.getId());
+        assertEquals(-30, left.getAmount(), 0.001);
+        assertEquals(cleaning.getId(), left.getCategoryId());
+        assertFalse(left.isSplit());
+        assertEquals(-30, dbHelper.getCategoryTotals("2024-12").get(cleaning.getId()), 0.001);
+        assertEquals(-30, dbHelper.getTotalBalance(), 0.001);
+    }
+
+    @Test
+    public void deleteCategory_deletesWholeTransactionsOfIt() {
+        assertTrue(dbHelper.addTransaction(new Transaction(-40, "Detergente", cleaning, "2024-12-20")) > 0);
+        split(-50, new TransactionSplit(cleaning, -20), new TransactionSplit(cleaning, -30));
+        split(-10, new TransactionSplit(groceries, -4), new TransactionSplit(other, -6));
+
+        deleteTransactionsOf(cleaning);
+
+        // Solo queda la que no tenía nada de Limpieza, sin cambios
+        Transaction left = only();
+        assertEquals(-10, left.getAmount(), 0.001);
+        assertEquals(2, left.getSplits().size());
+        assertEquals(0, dbHelper.countTransactionsForCategory(cleaning.getId()));
+        assertEquals(-10, dbHelper.getTotalBalance(), 0.001);
+    }
+
+    private void deleteTransactionsOf(Category category) {
+        while (dbHelper.deleteTransactionsForCategoryChunk(category.getId(), CategoryBulkOperation.CHUNK_SIZE) > 0) {
+            // Tramo a tramo, como CategoryBulkOperation
+        }
+        assertEquals(0, dbHelper.countTransactionsForCategory(category.getId()));
+    }
+
+    private Transaction split(double amount, TransactionSplit... lines) {
+        Transaction transaction = new Transaction(amount, "Ticket", lines[0].getCategory(), "2024-12-20");
+        transaction.setId((int) dbHelper.addTransaction(transaction));
+        assertTrue(dbHelper.setTransactionSplits(transaction, Arrays.asList(lines)));
+        return transaction;
+    }
+
+    private Transaction only() {
+        List<Transaction> transactions = dbHelper.getTransactions(-1, null, null);
+        assertEquals(1, transactions.size());
+        return transactions.get(0);
+    }
+
+    private Category category(String name) {
+        Category category = dbHelper.getCategoryByName(name, Category.TYPE_EXPENSE);
+        if (category == null) {
+            dbHelper.addCategory(new Category(name, Category.TYPE_EXPENSE));
+            category = dbHelper.getCategoryByName(name, Category.TYPE_EXPENSE);
+        }
+        return category;
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.misgastosam;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link SqliteSyncStore} con dos bases reales, una por dispositivo, sincronizadas con
+ * {@link SyncEngine} a través de {@link InMemorySyncTransport}. Cubre el SQL de los cambios
+ * pendientes, las lápidas de los triggers, que un borrado remoto no genere otra lápida, que
+ * una transferencia llegue con sus cuentas y que una dividida llegue con sus líneas.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SqliteSyncStoreTest {
+
+    private final InMemorySyncTransport server = new InMemorySyncTransport();
+    private DatabaseHelper deviceA;
+    private DatabaseHelper deviceB;
+    private Category groceries;
+
+    @Before
+    public void setUp() throws IOException {
+        Context context = RuntimeEnvironment.getApplication();
+        deviceA = new DatabaseHelper(context, "sync-a.db", null);
+        deviceB = new DatabaseHelper(context, "sync-b.db", null);
+        deviceA.createDefaultCategoriesIfNotExist();
+        deviceB.createDefaultCategoriesIfNotExist();
+        // Las categorías por defecto son solo "Otros": la de las pruebas se crea en A y llega a B
+        assertTrue(deviceA.addCategory(new Category("Supermercado", Category.TYPE_EXPENSE)) > 0);
+        sync(deviceA);
+        sync(deviceB);
+        groceries = deviceA.getCategoryByName("Supermercado", Category.TYPE_EXPENSE);
+        assertNotNull(groceries);
+        assertNotNull(deviceB.getCategoryByName("Supermercado", Category.TYPE_EXPENSE));
+    }
+
+    @After
+    public void tearDown() {
+        deviceA.close();
+        deviceB.close();
+    }
+
+    @Test
+    public void localInsert_reachesTheOtherDevice() throws IOException {
+        assertTrue(deviceA.addTransaction(new Transaction(-45.5, "Verdulería", groceries, "2025-06-01")) > 0);
+        assertEquals(1, pending(deviceA).size());
+
+        assertEquals(1, sync(deviceA).getPushed());
+        assertTrue(pending(deviceA).isEmpty()); // markPushed limpió dirty
+        assertEquals(1, sync(deviceB).getPulled());
+
+        Transaction received = only(deviceB);
+        assertEquals(-45.5, received.getAmount(), 0.001);
+        assertEquals("Verdulería", received.getDescription());
+        assertEquals("2025-06-01", received.getDate());
+        assertEquals("Supermercado", received.getCategory().getName());
+        assertTrue(pending(deviceB).isEmpty()); // Lo recibido no vuelve a enviarse
+        assertEquals(-45.5, deviceB.getTotalBalance(), 0.001);
+    }
+
+    @Test
+    public void localDelete_sendsTombstoneAndRemoteDeleteDoesNot() throws IOException {
+        assertTrue(deviceA.addTransaction(new Transaction(-10, "Pan", groceries, "2025-06-01")) > 0);
+        sync(deviceA);
+        sync(deviceB);
+
+        assertTrue(deviceA.deleteTransaction(only(deviceA).getId()));
+        List<SyncChange> tombstones = pending(deviceA);
+        assertEquals(1, tombstones.size());
+        assertTrue(tombstones.get(0).isDeleted());
+        assertEquals(SyncChange.ENTITY_TRANSACTION, tombstones.get(0).getEntity());
+        sync(deviceA);
+        assertTrue(pending(deviceA).isEmpty()); // La lápida enviada se borra
+
+        assertEquals(1, sync(deviceB).getPulled());
+        assertTrue(deviceB.getTransactions(-1, null, null).isEmpty());
+        // Con SYNC_STATE_APPLYING el trigger no deja lápida: B no reenvía el borrado
+        assertTrue(pending(deviceB).isEmpty());
+        assertEquals(0.0, deviceB.getTotalBalance(), 0.001);
+    }
+
+    @Test
+    public void transfer_keepsAccountsAndStaysOutOfTotals() throws IOException {
+        assertTrue(deviceA.addTransfer(Account.DEFAULT_ID, 2, 250, "Depósito", "2025-06-01"));
+        // Las dos mitades y las dos categorías "Transferencia" que el alta creó en A
+        assertEquals(4, sync(deviceA).getPushed());
+        assertEquals(4, sync(deviceB).getPulled());
+
+        List<Transaction> legs = deviceB.getTransactions(-1, null, null);
+        assertEquals(2, legs.size());
+        for (Transaction leg : legs) {
+            assertTrue(leg.isTransfer());
+        }
+        assertEquals(legs.get(0).getTransferId(), legs.get(1).getTransferId());
+        assertEquals(-250, deviceB.getAccountBalance(Account.DEFAULT_ID), 0.001);
+        assertEquals(250, deviceB.getAccountBalance(2), 0.001);
+        // Una transferencia no es gasto ni ingreso: el saldo total y los totales no la ven
+        assertEquals(0.0, deviceB.getTotalBalance(), 0.001);
+        assertTrue(deviceB.getCategoryTotals("2025-06").isEmpty());
+        assertTrue(pending(deviceB).isEmpty());
+    }
+
+    @Test
+    public void split_reachesTheOtherDeviceWithItsLines() throws IOException {
+        assertTrue(deviceA.addTransaction(new Transaction(-100, "Ticket súper", groceries, "2025-06-01")) > 0);
+        Category other = deviceA.getCategoryByName("Otros", Category.TYPE_EXPENSE);
+        Transaction local = only(deviceA);
+        assertTrue(deviceA.setTransactionSplits(local, Arrays.asList(
+                new TransactionSplit(groceries, -70), new TransactionSplit(other, -30))));
+        sync(deviceA);
+        sync(deviceB);
+
+        Transaction received = only(deviceB);
+        assertTrue(received.isSplit());
+        assertEquals(2, received.getSplits().size());
+        assertEquals("Supermercado", received.getCategory().getName()); // La de la línea más grande
+        Map<Integer, Double> totals = deviceB.getCategoryTotals("2025-06");
+        assertEquals(-70, totals.get(received.getCategoryId()), 0.001);
+        assertEquals(-30, totals.get(deviceB.getCategoryByName("Otros", Category.TYPE_EXPENSE).getId()), 0.001);
+        assertEquals(-100, deviceB.getTotalBalance(), 0.001);
+    }
+
+    @Test
+    public void remoteEdit_replacesTheLines() throws IOException, InterruptedException {
+        assertTrue(deviceA.addTransaction(new Transaction(-100, "Ticket súper", groceries, "2025-06-01")) > 0);
+        sync(deviceA);
+        sync(deviceB);
+        Category other = deviceB.getCategoryByName("Otros", Category.TYPE_EXPENSE);
+        Transaction local = only(deviceB);
+        assertTrue(deviceB.setTransactionSplits(local, Arrays.asList(
+                new TransactionSplit(local.getCategory(), -70), new TransactionSplit(other, -30))));
+
+        Thread.sleep(5); // La edición de A tiene que ser más nueva que la división de B
+        Transaction edited = only(deviceA);
+        edited.setAmount(-80);
+        assertTrue(deviceA.updateTransaction(edited));
+        sync(deviceA);
+        sync(deviceB);
+
+        // A no conocía la división: su versión, entera, gana y reemplaza las líneas de B
+        Transaction received = only(deviceB);
+        assertEquals(-80, received.getAmount(), 0.001);
+        assertFalse(received.isSplit());
+        assertEquals(-80, deviceB.getCategoryTotals("2025-06").get(received.getCategoryId()), 0.001);
+        Double otherTotal = deviceB.getCategoryTotals("2025-06").get(other.getId());
+        assertTrue(otherTotal == null || otherTotal == 0);
+    }
+
+    @Test
+    public void remoteEdit_keepsTheSplitItAlreadyHad() throws IOException, InterruptedException {
+        assertTrue(deviceA.addTransaction(new Transaction(-100, "Ticket súper", groceries, "2025-06-01")) > 0);
+        sync(deviceA);
+        sync(deviceB);
+        Category other = deviceB.getCategoryByName("Otros", Category.TYPE_EXPENSE);
+        Transaction local = only(deviceB);
+        assertTrue(deviceB.setTransactionSplits(local, Arrays.asList(
+                new TransactionSplit(local.getCategory(), -70), new TransactionSplit(other, -30))));
+        sync(deviceB);
+        sync(deviceA); // A recibe la división
+
+        Thread.sleep(5);
+        Transaction edited = only(deviceA);
+        assertEquals(2, edited.getSplits().size());
+        edited.setDescription("Ticket súper (chino)");
+        assertTrue(deviceA.updateTransaction(edited));
+        sync(deviceA);
+        sync(deviceB);
+
+        Transaction received = only(deviceB);
+        assertEquals("Ticket súper (chino)", received.getDescription());
+        assertEquals(2, received.getSplits().size());
+        assertEquals(-30, deviceB.getCategoryTotals("2025-06").get(other.getId()), 0.001);
+    }
+
+    private SyncEngine.Result sync(DatabaseHelper device) throws IOException {
+        return new SyncEngine(new SqliteSyncStore(device), server).sync();
+    }
+
+    private static List<SyncChange> pending(DatabaseHelper device) {
+        return new SqliteSyncStore(device).getPendingChanges(SyncEngine.DEFAULT_BATCH_SIZE);
+    }
+
+    private static Transaction only(DatabaseHelper device) {
+        List<Transaction> transactions = device.getTransactions(-1, null, null);
+        assertEquals(1, transactions.size());
+        return transactions.get(0);
+    }
+}
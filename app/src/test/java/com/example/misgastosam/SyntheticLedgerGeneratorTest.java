@@ -0,0 +1,73 @@
+package com.example.misgastosam;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifica que {@link SyntheticLedgerGenerator} sea reproducible y tenga la forma esperada.
+ */
+public class SyntheticLedgerGeneratorTest {
+
+    /** Guarda las filas en memoria, como lo haría la DB. */
+    private static class ListSink implements SyntheticLedgerGenerator.Sink {
+        final Map<String, Long> categoryIds = new HashMap<>();
+        final List<String> rows = new ArrayList<>();
+        final Map<Long, Integer> countsByCategory = new HashMap<>();
+
+        @Override
+        public long addCategory(String name, String type) {
+            String key = name + "/" + type;
+            Long id = categoryIds.get(key);
+            if (id == null) {
+                id = (long) categoryIds.size() + 1;
+                categoryIds.put(key, id);
+            }
+            return id;
+        }
+
+        @Override
+        public void addTransaction(double amount, String description, long categoryId, String date) {
+            rows.add(date + "|" + amount + "|" + description + "|" + categoryId);
+            countsByCategory.merge(categoryId, 1, Integer::sum);
+        }
+    }
+
+    @Test
+    public void sameSeed_producesSameLedger() {
+        ListSink first = new ListSink();
+        ListSink second = new ListSink();
+        int count = new SyntheticLedgerGenerator(7, "2020-01-01", 2, 8).generate(first);
+        new SyntheticLedgerGenerator(7, "2020-01-01", 2, 8).generate(second);
+
+        assertEquals(count, first.rows.size());
+        assertEquals(first.rows, second.rows);
+
+        ListSink other = new ListSink();
+        new SyntheticLedgerGenerator(8, "2020-01-01", 2, 8).generate(other);
+        assertNotEquals(first.rows, other.rows);
+    }
+
+    @Test
+    public void ledger_hasMonthlySalaryAndSkewedCategories() {
+        ListSink sink = new ListSink();
+        int count = new SyntheticLedgerGenerator(41, "2015-03-01", 10, 8).generate(sink);
+
+        // ~3650 días * 8 movimientos + sueldo, alquiler y 4 servicios por mes
+        assertTrue(count > 28_000 && count < 32_000);
+        long salaryId = sink.addCategory("Sueldo", Category.TYPE_INCOME);
+        assertEquals(120, (int) sink.countsByCategory.get(salaryId));
+
+        long groceries = sink.countsByCategory.get(sink.addCategory("Supermercado", Category.TYPE_EXPENSE));
+        long gifts = sink.countsByCategory.get(sink.addCategory("Regalos", Category.TYPE_EXPENSE));
+        assertTrue(groceries > gifts * 10);
+
+        assertTrue(sink.rows.get(0).startsWith("2015-03-01|"));
+        assertTrue(sink.rows.get(sink.rows.size() - 1).compareTo("2025-03-01") < 0);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.misgastosam;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Etiquetas sobre una DB chica: los nombres no distinguen mayúsculas, el índice en memoria
+ * responde el filtro "todas" y "alguna", y un alta por la cola con etiquetas lo actualiza.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TagTest {
+
+    private DatabaseHelper dbHelper;
+    private Category food;
+    private final List<Integer> ids = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        dbHelper = new DatabaseHelper(RuntimeEnvironment.getApplication());
+        dbHelper.createDefaultCategoriesIfNotExist();
+        food = dbHelper.getCategoryByName("Otros", Category.TYPE_EXPENSE);
+        for (int i = 0; i < 4; i++) {
+            ids.add((int) dbHelper.addTransaction(new Transaction(-10, "Movimiento " + i, food, "2024-12-20")));
+        }
+        // La 0 es de viaje y de trabajo, la 1 solo de viaje, la 2 solo de trabajo y la 3 no tiene
+        assertTrue(dbHelper.setTransactionTags(ids.get(0), Arrays.asList("viaje", "Trabajo")));
+        assertTrue(dbHelper.setTransactionTags(ids.get(1), Arrays.asList("Viaje")));
+        assertTrue(dbHelper.setTransactionTags(ids.get(2), Arrays.asList("trabajo")));
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+    }
+
+    @Test
+    public void names_ignoreCase() {
+        List<Tag> tags = dbHelper.getAllTags();
+        assertEquals(2, tags.size()); // "Viaje" y "viaje" son la misma
+        assertEquals(Arrays.asList("Trabajo", "viaje"), dbHelper.getTagNames(ids.get(0)));
+        assertEquals(Collections.singletonList("viaje"), dbHelper.getTagNames(ids.get(1)));
+        assertTrue(dbHelper.getTagNames(ids.get(3)).isEmpty());
+    }
+
+    @Test
+    public void index_matchesAllOrAny() {
+        List<Integer> tagIds = allTagIds();
+
+        assertEquals(1, dbHelper.getTagIndex().match(tagIds, true).getCardinality());
+        assertTrue(dbHelper.getTagIndex().match(tagIds, true).contains(ids.get(0)));
+        assertEquals(3, dbHelper.getTagIndex().match(tagIds, false).getCardinality());
+        assertFalse(dbHelper.getTagIndex().match(tagIds, false).contains(ids.get(3)));
+    }
+
+    @Test
+    public void retag_replacesTheTags() {
+        assertTrue(dbHelper.setTransactionTags(ids.get(0), Collections.singletonList("trabajo")));
+
+        assertEquals(Collections.singletonList("Trabajo"), dbHelper.getTagNames(ids.get(0)));
+        assertEquals(0, dbHelper.getTagIndex().match(allTagIds(), true).getCardinality());
+        assertEquals(3, dbHelper.getTagIndex().match(allTagIds(), false).getCardinality());
+    }
+
+    @Test
+    public void queuedInsert_updatesTheIndex() {
+        dbHelper.getTagIndex(); // Ya armado: el alta tiene que sumarse sin volver a leer la tabla
+        Transaction transaction = new Transaction(-25, "Taxi", food, "2024-12-21");
+        TransactionWriteQueue.PendingWrite write = new TransactionWriteQueue.PendingWrite(
+                TransactionWriteQueue.Kind.INSERT, transaction, 0, Arrays.asList("VIAJE", "chicos"), false, null);
+
+        assertTrue(dbHelper.applyTransactionWrites(Collections.singletonList(write)));
+
+        assertTrue(write.isSuccess());
+        int id = -1;
+        for (Transaction saved : dbHelper.getTransactions(-1, null, null)) {
+            if ("Taxi".equals(saved.getDescription())) {
+                id = saved.getId();
+            }
+        }
+        assertEquals(Arrays.asList("chicos", "viaje"), dbHelper.getTagNames(id));
+        assertEquals(3, dbHelper.getAllTags().size());
+        assertTrue(dbHelper.getTagIndex().match(allTagIds(), false).contains(id));
+    }
+
+    private List<Integer> allTagIds() {
+        List<Integer> tagIds = new ArrayList<>();
+        for (Tag tag : dbHelper.getAllTags()) {
+            tagIds.add(tag.getId());
+        }
+        return tagIds;
+    }
+}
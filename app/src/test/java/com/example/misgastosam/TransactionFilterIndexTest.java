@@ -0,0 +1,66 @@
+package com.example.misgastosam;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compara {@link TransactionFilterIndex} con los mismos filtros evaluados fila por fila.
+ */
+public class TransactionFilterIndexTest {
+
+    private static final Category FOOD = new Category(1, "Comida", Category.TYPE_EXPENSE);
+    private static final Category CLEANING = new Category(2, "Limpieza", Category.TYPE_EXPENSE);
+    private static final Category SALARY = new Category(3, "Sueldo", Category.TYPE_INCOME);
+    private static final List<Category> CATEGORIES = Arrays.asList(FOOD, CLEANING, SALARY);
+
+    @Test
+    public void select_matchesRowByRowFilter() {
+        Random random = new Random(50);
+        List<Transaction> rows = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            Category category = CATEGORIES.get(random.nextInt(CATEGORIES.size()));
+            double amount = Category.TYPE_EXPENSE.equals(category.getType()) ? -10 : 10;
+            String date = String.format(Locale.US, "2024-%02d-%02d", 1 + random.nextInt(6), 1 + random.nextInt(28));
+            Transaction transaction = new Transaction(amount, "Movimiento " + i, category, date);
+            transaction.setId(i + 1);
+            if (category == FOOD && i % 7 == 0) {
+                // Un ticket del súper repartido: cuenta también en Limpieza
+                transaction.setSplits(Arrays.asList(new TransactionSplit(FOOD, -6), new TransactionSplit(CLEANING, -4)));
+            }
+            rows.add(transaction);
+        }
+        TransactionFilterIndex index = new TransactionFilterIndex(rows, 0);
+
+        for (String month : Arrays.asList(null, "2024-03", "2023-12")) {
+            for (String type : Arrays.asList(null, Category.TYPE_EXPENSE, Category.TYPE_INCOME)) {
+                for (int categoryId : new int[]{TransactionFilterIndex.ALL_CATEGORIES, 1, 2, 3, 99}) {
+                    List<Transaction> expected = new ArrayList<>();
+                    for (Transaction transaction : rows) {
+                        if ((month == null || transaction.getDate().startsWith(month))
+                                && (type == null || type.equals(transaction.getType()))
+                                && (categoryId == TransactionFilterIndex.ALL_CATEGORIES || transaction.hasCategory(categoryId))) {
+                            expected.add(transaction);
+                        }
+                    }
+                    assertEquals(expected, index.select(month, type, categoryId));
+                    assertEquals(expected.size(), index.count(month, type, categoryId));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void emptyList() {
+        TransactionFilterIndex index = new TransactionFilterIndex(new ArrayList<>(), 3);
+        assertEquals(3, index.getVersion());
+        assertTrue(index.select(null, null, TransactionFilterIndex.ALL_CATEGORIES).isEmpty());
+        assertEquals(0, index.count("2024-01", Category.TYPE_EXPENSE, 1));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.misgastosam;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TransactionFingerprintTest {
+
+    private static final int DAY = EpochDay.fromIsoDate("2024-06-15");
+
+    @Test
+    public void sameTransactionWrittenDifferentlyMatches() {
+        long original = TransactionFingerprint.of(DAY, -35.5, "Supermercado Día", 3);
+        assertEquals(original, TransactionFingerprint.of(DAY, -35.50, "  supermercado dia ", 3));
+        // El signo lo define la categoría: una recategorización puede cambiarlo
+        assertEquals(original, TransactionFingerprint.of(DAY, 35.5, "Supermercado Día", 3));
+    }
+
+    @Test
+    public void anyFieldChangesTheFingerprint() {
+        long original = TransactionFingerprint.of(DAY, -35.5, "Supermercado", 3);
+        assertNotEquals(original, TransactionFingerprint.of(DAY + 1, -35.5, "Supermercado", 3));
+        assertNotEquals(original, TransactionFingerprint.of(DAY, -35.51, "Supermercado", 3));
+        assertNotEquals(original, TransactionFingerprint.of(DAY, -35.5, "Supermercados", 3));
+        assertNotEquals(original, TransactionFingerprint.of(DAY, -35.5, "Supermercado", 4));
+    }
+
+    @Test
+    public void categoryChangeIsAnXor() {
+        long before = TransactionFingerprint.of(DAY, -12, "Taxi", 3);
+        long after = TransactionFingerprint.of(DAY, -12, "Taxi", 8);
+        assertEquals(after, before ^ TransactionFingerprint.categoryChange(3, 8));
+    }
+
+    @Test
+    public void bloomFilterHasNoFalseNegativesAndFewFalsePositives() {
+        Random random = new Random(7);
+        BloomFilter filter = new BloomFilter(10_000);
+        long[] added = new long[10_000];
+        for (int i = 0; i < added.length; i++) {
+            added[i] = TransactionFingerprint.of(DAY - random.nextInt(3650), -random.nextInt(100_000) / 100.0, "Compra " + i, random.nextInt(20));
+            filter.add(added[i]);
+        }
+        for (long fingerprint : added) {
+            assertTrue(filter.mightContain(fingerprint));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain(TransactionFingerprint.of(DAY, -1, "Otra " + i, 1))) {
+                falsePositives++;
+            }
+        }
+        assertTrue("Falsos positivos: " + falsePositives, falsePositives < 300);
+        assertFalse(filter.isSaturated());
+        filter.add(1);
+        assertTrue(filter.isSaturated());
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.misgastosam;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Heap retenido por la carga real de ~100k transacciones de {@link DatabaseHelper#getTransactions}.
+ * El tamaño no sale de diferencias de heap después de System.gc(), que dependen de la JVM y de
+ * lo que haga el resto de los tests: se recorre el grafo de objetos de la lista y se suma el
+ * tamaño de cada objeto una sola vez, con el layout de ART (cabecera de 8 bytes, referencias de
+ * 4, alineado a 8). Lo compartido entre filas (categorías, descripciones repetidas) cuenta una vez.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TransactionFootprintTest {
+
+    // Transaction ocupa 56 bytes y la lista guarda una referencia de 4: el resto tiene que ser compartido
+    private static final long MAX_BYTES_PER_ROW = 64;
+
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        dbHelper = new DatabaseHelper(RuntimeEnvironment.getApplication());
+        dbHelper.createDefaultCategoriesIfNotExist();
+        // 10 años a 27 movimientos por día, como el caso grande de PerformanceBudgetTest
+        int rows = dbHelper.insertSyntheticLedger(new SyntheticLedgerGenerator(42, "2015-01-01", 10, 27.0));
+        assertTrue(rows > 90_000);
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+    }
+
+    @Test
+    public void load_retainsFewBytesPerRow() {
+        List<Transaction> transactions = dbHelper.getTransactions(-1, null, null);
+        assertTrue(transactions.size() > 90_000);
+
+        long bytesPerRow = retainedBytes(transactions) / transactions.size();
+
+        assertTrue("Cada transacción cargada retiene " + bytesPerRow + " bytes, presupuesto " + MAX_BYTES_PER_ROW,
+                bytesPerRow <= MAX_BYTES_PER_ROW);
+    }
+
+    @Test
+    public void sharedCategory_derivesTypeAndId() {
+        Category food = new Category(7, "Comida", Category.TYPE_EXPENSE);
+        Transaction transaction = new Transaction(1, -10, "Pan", food, "2025-06-14");
+
+        assertEquals(7, transaction.getCategoryId());
+        assertEquals(Transaction.TYPE_EXPENSE, transaction.getType());
+        assertEquals("2025-06-14", transaction.getDate());
+
+        // Cambiar la categoría cambia también el tipo derivado
+        transaction.setCategory(new Category(8, "Sueldo", Category.TYPE_INCOME));
+        assertEquals(Transaction.TYPE_INCOME, transaction.getType());
+        assertEquals(8, transaction.getCategoryId());
+    }
+
+    // --- Tamaño del grafo ---
+
+    private static final int HEADER = 8;
+    private static final int REFERENCE = 4;
+
+    /**
+     * Suma el tamaño de todos los objetos alcanzables desde la lista, cada uno una vez. Las
+     * clases de la app se recorren por reflexión; de las de java.* solo se admiten las que la
+     * carga puede devolver (String, listas), con su tamaño calculado a mano.
+     */
+    private static long retainedBytes(List<?> root) {
+        Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Object> pending = new ArrayDeque<>();
+        pending.push(root);
+        long total = 0;
+        while (!pending.isEmpty()) {
+            Object object = pending.pop();
+            if (!seen.add(object)) {
+                continue;
+            }
+            if (object instanceof String) {
+                total += stringBytes((String) object);
+            } else if (object instanceof List) {
+                List<?> list = (List<?>) object;
+                // ArrayList: objeto (tamaño, modCount, arreglo) más el arreglo de referencias
+                total += align(HEADER + 12) + align(HEADER + 4 + (long) REFERENCE * list.size());
+                for (Object element : list) {
+                    if (element != null) {
+                        pending.push(element);
+                    }
+                }
+            } else if (object.getClass().getName().startsWith("com.example.misgastosam.")) {
+                total += align(HEADER + fieldBytes(object, pending));
+            } else {
+                throw new AssertionError("Tipo no previsto en la carga: " + object.getClass().getName());
+            }
+        }
+        return total;
+    }
+
+    private static long fieldBytes(Object object, Deque<Object> pending) {
+        long bytes = 0;
+        for (Class<?> type = object.getClass(); type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                Class<?> fieldType = field.getType();
+                if (!fieldType.isPrimitive()) {
+                    bytes += REFERENCE;
+                    field.setAccessible(true);
+                    try {
+                        Object value = field.get(object);
+                        if (value != null) {
+                            pending.push(value);
+                        }
+                    } catch (IllegalAccessException e) {
+                        throw new AssertionError(e);
+                    }
+                } else if (fieldType == long.class || fieldType == double.class) {
+                    bytes += 8;
+                } else if (fieldType == int.class || fieldType == float.class) {
+                    bytes += 4;
+                } else if (fieldType == short.class || fieldType == char.class) {
+                    bytes += 2;
+                } else {
+                    bytes += 1;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    // ART guarda en un byte por carácter los String que son solo ASCII
+    private static long stringBytes(String value) {
+        boolean ascii = true;
+        for (int i = 0; i < value.length() && ascii; i++) {
+            ascii = value.charAt(i) < 0x80;
+        }
+        return align(HEADER + 8 + (long) value.length() * (ascii ? 1 : 2));
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.misgastosam;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * La cola de escrituras sobre un almacén en memoria que se comporta como
+ * {@link DatabaseHelper#applyTransactionWrites}: una escritura que lanza hace fallar al grupo.
+ * La ventana es larga, así cada grupo lo cierra {@link TransactionWriteQueue#flush()} y no el reloj.
+ */
+public class TransactionWriteQueueTest {
+
+    private static final Category FOOD = new Category(1, "Comida", Category.TYPE_EXPENSE);
+    private static final String BAD = "rompe el grupo";
+
+    private FakeStore store;
+    private TransactionWriteQueue queue;
+    private final List<String> callbacks = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        store = new FakeStore();
+        queue = new TransactionWriteQueue(store, Runnable::run, 60_000);
+    }
+
+    @After
+    public void tearDown() {
+        queue.shutdownNow();
+    }
+
+    @Test
+    public void flush_commitsInEnqueueOrderInOneGroup() {
+        Transaction first = transaction("Primera");
+        Transaction second = transaction("Segunda");
+        queue.enqueueInsert(first, callback("alta 1"));
+        queue.enqueueInsert(second, callback("alta 2"));
+        second.setDescription("Segunda editada");
+        queue.enqueueUpdate(second, callback("edición"));
+        queue.enqueueDelete(7, callback("baja"));
+
+        assertTrue(queue.flush());
+
+        assertEquals(1, store.commits);
+        assertEquals(Collections.singletonList(4), store.groupSizes);
+        assertEquals(Arrays.asList("INSERT Primera", "INSERT Segunda", "UPDATE Segunda editada", "DELETE 7"), store.committed);
+        assertEquals(Arrays.asList("alta 1 ok", "alta 2 ok", "edición ok", "baja ok"), callbacks);
+    }
+
+    @Test
+    public void snapshot_ignoresLaterChangesToTheTransaction() {
+        Transaction transaction = transaction("Antes");
+        queue.enqueueInsert(transaction, null);
+        transaction.setDescription("Después");
+
+        assertTrue(queue.flush());
+
+        assertEquals(Arrays.asList("INSERT Antes"), store.committed);
+    }
+
+    @Test
+    public void badWrite_failsAlone() {
+        queue.enqueueInsert(transaction("Primera"), callback("alta 1"));
+        queue.enqueueInsert(transaction(BAD), callback("alta mala"));
+        queue.enqueueInsert(transaction("Tercera"), callback("alta 3"));
+
+        assertTrue(queue.flush());
+
+        // El grupo falla entero y se reintenta de a una: solo la mala queda sin guardar
+        assertEquals(Arrays.asList(3, 1, 1, 1), store.groupSizes);
+        assertEquals(Arrays.asList("INSERT Primera", "INSERT Tercera"), store.committed);
+        assertEquals(Arrays.asList("alta 1 ok", "alta mala falló", "alta 3 ok"), callbacks);
+    }
+
+    @Test
+    public void flush_returnsOnlyOnceEverythingIsCommitted() {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Transaction transaction = transaction("Movimiento " + i);
+            transactions.add(transaction);
+            queue.enqueueInsert(transaction, null);
+        }
+        assertTrue(store.committed.isEmpty()); // La ventana todavía no terminó
+
+        assertTrue(queue.flush());
+
+        assertEquals(50, store.committed.size());
+        for (Transaction transaction : transactions) {
+            assertTrue(transaction.getId() > 0); // El _id guardado vuelve al objeto encolado
+        }
+        assertTrue(queue.flush()); // Sin nada pendiente no escribe otro grupo
+        assertEquals(1, store.commits);
+    }
+
+    @Test
+    public void fullGroup_commitsWithoutWaitingForTheWindow() throws InterruptedException {
+        for (int i = 0; i < TransactionWriteQueue.MAX_GROUP_SIZE; i++) {
+            queue.enqueueInsert(transaction("Movimiento " + i), null);
+        }
+
+        // Sin flush(): con la ventana de un minuto, solo el tamaño del grupo puede dispararlo
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (store.commits == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, store.commits);
+        assertTrue(queue.flush());
+        assertEquals(Collections.singletonList(TransactionWriteQueue.MAX_GROUP_SIZE), store.groupSizes);
+    }
+
+    @Test
+    public void duplicateCheck_reportsBeforeCompletion() {
+        queue.enqueueInsert(transaction("Café"), callback("sin revisar"));
+        queue.enqueueInsert(transaction("Café"), Collections.emptyList(), true, new TransactionWriteQueue.Callback() {
+            @Override
+            public void onLikelyDuplicate(long id) {
+                callbacks.add("duplicado " + id);
+            }
+
+            @Override
+            public void onComplete(boolean success, long id) {
+                callbacks.add("guardada " + id);
+            }
+        });
+
+        assertTrue(queue.flush());
+
+        // La primera del mismo grupo ya cuenta: así se detecta un doble toque
+        assertEquals(Arrays.asList("sin revisar ok", "duplicado 2", "guardada 2"), callbacks);
+    }
+
+    private static Transaction transaction(String description) {
+        return new Transaction(-10, description, FOOD, "2024-12-20");
+    }
+
+    private TransactionWriteQueue.Callback callback(String name) {
+        return (success, id) -> callbacks.add(name + (success ? " ok" : " falló"));
+    }
+
+    /**
+     * Guarda las escrituras confirmadas como texto. Todo lo del grupo se aplica sobre una copia
+     * y solo se confirma si ninguna escritura lanzó, como una transacción SQLite.
+     */
+    private static final class FakeStore implements TransactionWriteQueue.Store {
+        final List<String> committed = new ArrayList<>();
+        final List<Integer> groupSizes = new ArrayList<>();
+        volatile int commits;
+        private long nextId = 1;
+
+        @Override
+        public boolean applyTransactionWrites(List<TransactionWriteQueue.PendingWrite> writes) {
+            groupSizes.add(writes.size());
+            List<String> pending = new ArrayList<>();
+            long id = nextId;
+            try {
+                for (TransactionWriteQueue.PendingWrite write : writes) {
+                    Transaction transaction = write.getTransaction();
+                    if (transaction != null && BAD.equals(transaction.getDescription())) {
+                        throw new IllegalStateException("restricción violada");
+                    }
+                    if (write.checksDuplicate()) {
+                        // Cualquier alta con la misma descripción cuenta como duplicado, también las del grupo
+                        write.setLikelyDuplicate(isCommittedOrPending(transaction.getDescription(), pending));
+                    }
+                    switch (write.getKind()) {
+                        case INSERT:
+                            pending.add("INSERT " + transaction.getDescription());
+                            write.setResult(true, id++);
+                            break;
+                        case UPDATE:
+                            pending.add("UPDATE " + transaction.getDescription());
+                            write.setResult(true, transaction.getId());
+                            break;
+                        default:
+                            pending.add("DELETE " + write.getTransactionId());
+                            write.setResult(true, write.getTransactionId());
+                            break;
+                    }
+                }
+            } catch (IllegalStateException e) {
+                for (TransactionWriteQueue.PendingWrite write : writes) {
+                    write.setResult(false, -1);
+                }
+                return false;
+            }
+            committed.addAll(pending);
+            nextId = id;
+            commits++;
+            return true;
+        }
+
+        private boolean isCommittedOrPending(String description, List<String> pending) {
+            return committed.contains("INSERT " + description) || pending.contains("INSERT " + description);
+        }
+
+        @Override
+        public void warmDuplicateFilter() {
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.misgastosam;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Las dos mitades de una transferencia siguen sumando cero con cualquier escritura: la edición
+ * (directa o por la cola), el cambio de categoría en lote y el corrimiento de fechas. Tampoco
+ * cuentan como ingreso ni gasto en los totales diarios, de tendencias ni por categoría, y
+ * borrar una mitad (o la categoría "Transferencia" de un tipo) borra las dos.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TransferTest {
+
+    private static final int BANK_ID = 2;
+
+    private DatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        dbHelper = new DatabaseHelper(RuntimeEnvironment.getApplication());
+        dbHelper.createDefaultCategoriesIfNotExist();
+        assertTrue(dbHelper.addTransfer(Account.DEFAULT_ID, BANK_ID, 100, "Depósito", "2024-12-15"));
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.close();
+    }
+
+    @Test
+    public void edit_updatesBothLegs() {
+        Transaction leg = expenseLeg();
+        leg.setAmount(-150);
+        leg.setDescription("Depósito corregido");
+        leg.setDate("2024-12-20");
+        assertTrue(dbHelper.updateTransaction(leg));
+
+        assertLegs(150, "2024-12-20");
+        assertEquals("Depósito corregido", incomeLeg().getDescription());
+    }
+
+    @Test
+    public void queuedEdit_updatesBothLegs() {
+        Transaction leg = incomeLeg();
+        leg.setAmount(80);
+        leg.setDate("2024-12-10");
+        TransactionWriteQueue.PendingWrite write =
+                new TransactionWriteQueue.PendingWrite(TransactionWriteQueue.Kind.UPDATE, leg, leg.getId(), null);
+        assertTrue(dbHelper.applyTransactionWrites(Collections.singletonList(write)));
+        assertTrue(write.isSuccess());
+
+        assertLegs(80, "2024-12-10");
+    }
+
+    @Test
+    public void recategorize_skipsTransferLegs() {
+        Category otherIncome = dbHelper.getCategoryByName("Otros", Category.TYPE_INCOME);
+        Transaction leg = expenseLeg();
+        // Pasada a una categoría de ingreso cambiaría de signo y aparecería plata de la nada
+        assertEquals(0, dbHelper.recategorizeTransactions(new int[]{leg.getId()}, otherIncome));
+        assertFalse(dbHelper.setTransactionSplits(leg, Collections.singletonList(new TransactionSplit(leg.getCategory(), -100))));
+
+        assertLegs(100, "2024-12-15");
+        assertEquals(DatabaseHelper.TRANSFER_CATEGORY_NAME, expenseLeg().getCategory().getName());
+    }
+
+    @Test
+    public void shiftDates_movesBothLegs() {
+        assertEquals(2, dbHelper.shiftTransactionDates(new int[]{expenseLeg().getId()}, 3));
+
+        assertLegs(100, "2024-12-18");
+    }
+
+    @Test
+    public void totals_leaveTransfersOut() {
+        int legId = expenseLeg().getId();
+        Category otherExpense = dbHelper.getCategoryByName("Otros", Category.TYPE_EXPENSE);
+        assertTrue(dbHelper.addTransaction(new Transaction(-30, "Café", otherExpense, "2024-12-15")) > 0);
+
+        DailyTotals daily = dbHelper.getDailyTotals("2024-12-15", "2024-12-15");
+        assertEquals(0, daily.getIncomeCents(0));
+        assertEquals(3000, daily.getExpenseCents(0));
+        assertEquals(1, daily.getTransactionCount(0));
+
+        TrendSeries trend = dbHelper.getTrendSeries("2024-12-01", "2024-12-31", TrendSeries.GRANULARITY_MONTH);
+        assertEquals(0, trend.getIncomeCents()[0]);
+        assertEquals(3000, trend.getExpenseCents()[0]);
+
+        Map<Integer, Double> byCategory = dbHelper.getCategoryTotals("2024-12");
+        assertEquals(1, byCategory.size());
+        assertEquals(-30, byCategory.get(otherExpense.getId()), 0.001);
+
+        // El saldo sí las cuenta: por cuenta, y en el total armado de nuevo desde daily_totals
+        dbHelper.shiftTransactionDates(new int[]{legId}, 1);
+        dbHelper.invalidateDailyBalanceIndex();
+        assertEquals(-130, dbHelper.getAccountBalance(Account.DEFAULT_ID), 0.001);
+        assertEquals(100, dbHelper.getAccountBalance(BANK_ID), 0.001);
+        assertEquals(-30, dbHelper.getTotalBalance(), 0.001);
+        assertEquals(0, dbHelper.getDailyTotals("2024-12-16", "2024-12-16").getTransactionCount(0));
+    }
+
+    @Test
+    public void delete_removesBothLegs() {
+        Category otherExpense = dbHelper.getCategoryByName("Otros", Category.TYPE_EXPENSE);
+        assertTrue(dbHelper.addTransaction(new Transaction(-30, "Café", otherExpense, "2024-12-15")) > 0);
+        List<Account> accounts = dbHelper.getAccounts();
+        assertEquals(-130, accounts.get(0).getBalance(), 0.001);
+        assertEquals(100, accounts.get(1).getBalance(), 0.001);
+
+        List<Transaction> bank = dbHelper.getTransactions(-1, "2024-12", null, BANK_ID);
+        assertEquals(1, bank.size());
+        assertEquals(100, bank.get(0).getRunningBalance(), 0.001);
+        assertTrue(dbHelper.deleteTransaction(bank.get(0).getId()));
+
+        assertEquals(1, dbHelper.getTransactions(-1, null, null).size());
+        assertEquals(0.0, dbHelper.getAccountBalance(BANK_ID), 0.001);
+        assertEquals(-30, dbHelper.getAccountBalance(Account.DEFAULT_ID), 0.001);
+        assertEquals(-30, dbHelper.getTotalBalance(), 0.001);
+    }
+
+    @Test
+    public void deleteTransferCategory_deletesBothLegs() {
+        int categoryId = expenseLeg().getCategoryId();
+        Category otherExpense = dbHelper.getCategoryByName("Otros", Category.TYPE_EXPENSE);
+        assertTrue(dbHelper.addTransaction(new Transaction(-30, "Café", otherExpense, "2024-12-15")) > 0);
+
+        // Tramo a tramo, como CategoryBulkOperation: la mitad de ingreso se va con la de gasto
+        while (dbHelper.deleteTransactionsForCategoryChunk(categoryId, CategoryBulkOperation.CHUNK_SIZE) > 0) {
+        }
+        assertTrue(dbHelper.deleteCategory(categoryId));
+
+        assertOnlyTheCafeIsLeft();
+    }
+
+    @Test
+    public void mergeTransferCategory_doesNotMoveLegs() {
+        int categoryId = expenseLeg().getCategoryId();
+        Category otherExpense = dbHelper.getCategoryByName("Otros", Category.TYPE_EXPENSE);
+        assertTrue(dbHelper.addTransaction(new Transaction(-30, "Café", otherExpense, "2024-12-15")) > 0);
+
+        assertEquals(0, dbHelper.reassignTransactionsChunk(categoryId, otherExpense.getId(), CategoryBulkOperation.CHUNK_SIZE));
+        assertEquals(-30, dbHelper.getCategoryTotals("2024-12").get(otherExpense.getId()), 0.001);
+        assertEquals(100, dbHelper.getAccountBalance(BANK_ID), 0.001);
+        assertEquals(-30, dbHelper.getTotalBalance(), 0.001);
+
+        // Si igual se borra la categoría, el CASCADE no deja una mitad suelta
+        assertTrue(dbHelper.deleteCategory(categoryId));
+        assertOnlyTheCafeIsLeft();
+    }
+
+    private void assertOnlyTheCafeIsLeft() {
+        List<Transaction> left = dbHelper.getTransactions(-1, null, null);
+        assertEquals(1, left.size());
+        assertEquals("Café", left.get(0).getDescription());
+        assertEquals(0.0, dbHelper.getAccountBalance(BANK_ID), 0.001);
+        assertEquals(-30, dbHelper.getAccountBalance(Account.DEFAULT_ID), 0.001);
+        assertEquals(-30, dbHelper.getTotalBalance(), 0.001);
+    }
+
+    private void assertLegs(double amount, String date) {
+        Transaction expense = expenseLeg();
+        Transaction income = incomeLeg();
+        assertEquals(-amount, expense.getAmount(), 0.001);
+        assertEquals(amount, income.getAmount(), 0.001);
+        assertEquals(date, expense.getDate());
+        assertEquals(date, income.getDate());
+        assertEquals(-amount, dbHelper.getAccountBalance(Account.DEFAULT_ID), 0.001);
+        assertEquals(amount, dbHelper.getAccountBalance(BANK_ID), 0.001);
+        assertEquals(0.0, dbHelper.getTotalBalance(), 0.001);
+    }
+
+    private Transaction expenseLeg() {
+        return leg(true);
+    }
+
+    private Transaction incomeLeg() {
+        return leg(false);
+    }
+
+    private Transaction leg(boolean expense) {
+        List<Transaction> transactions = dbHelper.getTransactions(-1, null, null);
+        assertEquals(2, transactions.size());
+        for (Transaction transaction : transactions) {
+            assertTrue(transaction.isTransfer());
+            if ((transaction.getAmount() < 0) == expense) {
+                return transaction;
+            }
+        }
+        throw new AssertionError("Falta una mitad de la transferencia");
+    }
+}